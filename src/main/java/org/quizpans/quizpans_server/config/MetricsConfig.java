@@ -0,0 +1,37 @@
+package org.quizpans.quizpans_server.config;
+
+// rejestr Micrometer w formacie Prometheus, bez actuatora; tresc do zebrania pod /metrics
+// metryki JVM (pamiec, GC, watki, procesor) obok metryk gry z QuizpansMetrics
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public PrometheusMeterRegistry meterRegistry(@Value("${spring.application.name:quizpans-server}") String application) {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().commonTags("application", application);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        return registry;
+    }
+
+    //sluchacz powiadomien GC zdejmowany przy zamknieciu kontekstu
+    @Bean(destroyMethod = "close")
+    public JvmGcMetrics jvmGcMetrics(PrometheusMeterRegistry registry) {
+        JvmGcMetrics gcMetrics = new JvmGcMetrics();
+        gcMetrics.bindTo(registry);
+        return gcMetrics;
+    }
+}
@@ -0,0 +1,35 @@
+package org.quizpans.quizpans_server.config;
+
+// zrodlo pytan: database (MySQL z DatabaseConfig) albo local (plik, bez bazy)
+// plik jako classpath:... albo sciezka na dysku
+import org.quizpans.quizpans_server.game.DatabaseQuestionSource;
+import org.quizpans.quizpans_server.game.LocalQuestionSource;
+import org.quizpans.quizpans_server.game.QuestionSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+public class QuestionSourceConfig {
+
+    @Bean
+    public QuestionSource questionSource(@Value("${quizpans.questions.source:database}") String source,
+                                         @Value("${quizpans.questions.file:classpath:questions-local.txt}") String file) throws IOException {
+        if (!"local".equalsIgnoreCase(source)) {
+            return new DatabaseQuestionSource();
+        }
+        Resource resource = new DefaultResourceLoader().getResource(file);
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            LocalQuestionSource questions = new LocalQuestionSource(reader);
+            System.out.println("Pytania z pliku " + file + ": " + questions.size());
+            return questions;
+        }
+    }
+}
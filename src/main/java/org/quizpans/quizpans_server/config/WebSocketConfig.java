@@ -4,7 +4,10 @@ package org.quizpans.quizpans_server.config;
 // Aktywacja obsługi WebSocket
 // obsluga wiadomosci
 // rozmiar wiadomosci
+// podprotokol json/binarny i kompresja dla klientow json
 import org.quizpans.quizpans_server.online.websocket.LobbyWebSocketHandler;
+import org.quizpans.quizpans_server.online.websocket.WireProtocolHandshakeHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.WebSocketHandler;
@@ -18,23 +21,31 @@ import org.springframework.web.socket.server.standard.ServletServerContainerFact
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final LobbyWebSocketHandler lobbyWebSocketHandler;
+    private final boolean deflateForJson;
+    private final int maxMessageBytes;
 
 
-    public WebSocketConfig(LobbyWebSocketHandler lobbyWebSocketHandler) {
+    public WebSocketConfig(LobbyWebSocketHandler lobbyWebSocketHandler,
+                           @Value("${quizpans.ws.deflate:true}") boolean deflateForJson,
+                           @Value("${quizpans.admission.max-message-bytes:65536}") int maxMessageBytes) {
         this.lobbyWebSocketHandler = lobbyWebSocketHandler;
+        this.deflateForJson = deflateForJson;
+        this.maxMessageBytes = maxMessageBytes;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(lobbyWebSocketHandler, "/lobby") // Endpoint dla lobby
+                .setHandshakeHandler(new WireProtocolHandshakeHandler(deflateForJson))
                 .setAllowedOrigins("*"); // zezwolenie na wszystkei zrodla
     }
 
     @Bean
     public ServletServerContainerFactoryBean createWebSocketContainer() {
         ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
-        container.setMaxTextMessageBufferSize(1024000); // 1MB
-        container.setMaxBinaryMessageBufferSize(1024000);
+        // wieksze ramki kontener zamyka kodem 1009, zanim trafia do handlera
+        container.setMaxTextMessageBufferSize(maxMessageBytes);
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
         return container;
     }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package org.quizpans.quizpans_server.game;
+// pytania z tabeli Pytania, polaczenie z DatabaseConfig na kazde losowanie
+import org.quizpans.quizpans_server.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+public class DatabaseQuestionSource implements QuestionSource {
+
+    @Override
+    public Optional<Question> load(String category, Set<Integer> idsToExclude) {
+        try (Connection conn = DriverManager.getConnection(DatabaseConfig.getUrl(), DatabaseConfig.getUser(), DatabaseConfig.getPassword())) {
+            return tryLoadQuestion(conn, category, idsToExclude);
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd SQL podczas ładowania pytania.", e);
+        }
+    }
+            // losowe pytanie + pelne dane
+    private Optional<Question> tryLoadQuestion(Connection conn, String category, Set<Integer> idsToExclude) throws SQLException {
+        List<Integer> availableQuestionIds = new ArrayList<>();
+        StringBuilder sqlBuilder = new StringBuilder("SELECT id FROM Pytania");
+        List<Object> params = new ArrayList<>();
+        boolean hasWhere = false;
+
+        if (category != null && !category.trim().isEmpty() && !"MIX (Wszystkie Kategorie)".equalsIgnoreCase(category)) {
+            sqlBuilder.append(" WHERE kategoria = ?");
+            params.add(category);
+            hasWhere = true;
+        }
+
+        if (idsToExclude != null && !idsToExclude.isEmpty()) {
+            if (!hasWhere) {
+                sqlBuilder.append(" WHERE");
+            } else {
+                sqlBuilder.append(" AND");
+            }
+            String placeholders = idsToExclude.stream().map(id -> "?").collect(Collectors.joining(","));
+            sqlBuilder.append(" id NOT IN (").append(placeholders).append(")");
+            params.addAll(idsToExclude);
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+            for(int i=0; i < params.size(); i++) {
+                pstmt.setObject(i+1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while(rs.next()) {
+                    availableQuestionIds.add(rs.getInt("id"));
+                }
+            }
+        }
+
+        if (availableQuestionIds.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int randomId = availableQuestionIds.get(ThreadLocalRandom.current().nextInt(availableQuestionIds.size()));
+
+        String selectSql = "SELECT * FROM Pytania WHERE id = ?";
+        try (PreparedStatement pstmtSelect = conn.prepareStatement(selectSql)) {
+            pstmtSelect.setInt(1, randomId);
+            try (ResultSet rs = pstmtSelect.executeQuery()) {
+                if (rs.next()) {
+// przetwarzanie kolejnych pytan
+                    List<String> answerTexts = new ArrayList<>();
+                    List<Integer> answerPoints = new ArrayList<>();
+                    for (int i = 1; i <= 6; i++) {
+                        answerTexts.add(rs.getString("odpowiedz" + i));
+                        answerPoints.add(rs.getInt("punkty" + i));
+                    }
+                    return Optional.of(new Question(rs.getInt("id"), rs.getString("pytanie"), answerTexts, answerPoints));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,16 +1,12 @@
 package org.quizpans.quizpans_server.game;
 
-import org.quizpans.quizpans_server.config.DatabaseConfig;
+import org.quizpans.quizpans_server.metrics.QuizpansEvents;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
 import org.quizpans.quizpans_server.utils.SynonymManager;
 import org.quizpans.quizpans_server.utils.TextNormalizer;
 import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.apache.commons.text.similarity.JaroWinklerSimilarity;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -18,11 +14,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
 //zarzadzanie stanem gry
-// ladowanie pytan z DatabesConfig
+// ladowanie pytan z QuestionSource (baza albo plik lokalny)
 // ocena odpowiedzi
 public class GameService {
         //przechowanie odpowiedzi
@@ -30,6 +24,8 @@ public class GameService {
     private int currentQuestionId = -1;
     private List<AnswerData> currentAnswersList;
     private final String category;
+    private final QuestionSource questionSource;
+    private final QuizpansMetrics metrics;
     private Map<String, Set<String>> answerKeyToCombinedKeywords;
     private Map<String, String> synonymToBaseFormMap;
             //mapy do slow
@@ -55,6 +51,8 @@ public class GameService {
         public int getDisplayOrderIndex() { return displayOrderIndex; }
         public String getBaseForm() { return baseForm; }
     }
+    //etap oceny, na ktorym zapadla decyzja
+    public enum MatchStage { EXACT, SYNONYM, FUZZY, FALLBACK, MISS }
         //gracz odpowiedzi punkty
     public static class AnswerProcessingResult {
         public final boolean isCorrect;
@@ -62,18 +60,40 @@ public class GameService {
         public final String originalAnswerText;
         public final int answerIndex;
         public final String baseFormMatched;
+        //null: wynik spoza oceny (limit czasu, walidacja prowadzacego, odtworzenie)
+        public final MatchStage matchStage;
 
         public AnswerProcessingResult(boolean isCorrect, int pointsAwarded, String originalAnswerText, int answerIndex, String baseFormMatched) {
+            this(isCorrect, pointsAwarded, originalAnswerText, answerIndex, baseFormMatched, null);
+        }
+
+        public AnswerProcessingResult(boolean isCorrect, int pointsAwarded, String originalAnswerText, int answerIndex, String baseFormMatched,
+                                      MatchStage matchStage) {
             this.isCorrect = isCorrect;
             this.pointsAwarded = pointsAwarded;
             this.originalAnswerText = originalAnswerText;
             this.answerIndex = answerIndex;
             this.baseFormMatched = baseFormMatched;
+            this.matchStage = matchStage;
+        }
+
+        private static AnswerProcessingResult matched(AnswerData answer, MatchStage stage) {
+            return new AnswerProcessingResult(true, answer.points(), answer.originalText(), answer.displayOrderIndex(), answer.baseForm(), stage);
+        }
+    }
+        //pytanie z przygotowanymi formami bazowymi slowami kluczowymi i synonimami
+    public static record CompiledQuestion(int id, String text, List<AnswerData> answers,
+                                          Map<String, Set<String>> answerKeywords, Map<String, String> synonymToBaseForm) {
+        //niezmienne, ocena moze isc rownolegle z wielu watkow
+        public AnswerProcessingResult evaluate(String userAnswerText) {
+            return GameService.evaluate(answers, answerKeywords, synonymToBaseForm, userAnswerText);
         }
     }
                 //kateogira gry przechowywanie
-    public GameService(String category) {
+    public GameService(String category, QuestionSource questionSource, QuizpansMetrics metrics) {
         this.category = category;
+        this.questionSource = questionSource;
+        this.metrics = metrics;
         this.currentAnswersList = new ArrayList<>();
         this.answerKeyToCombinedKeywords = new HashMap<>();
         this.synonymToBaseFormMap = new HashMap<>();
@@ -94,116 +114,106 @@ public class GameService {
     public List<AnswerData> getAllAnswersForCurrentQuestion() {
         return Collections.unmodifiableList(currentAnswersList);
     }
-//reste
-    public boolean loadQuestion(Set<Integer> idsToExclude) {
+
+    public String getCategory() {
+        return category;
+    }
+        //zapis i odtworzenie pytania bez bazy i NLP
+    public CompiledQuestion getCompiledQuestion() {
+        if (currentQuestion == null) return null;
+        Map<String, Set<String>> keywordsCopy = new HashMap<>();
+        answerKeyToCombinedKeywords.forEach((key, keywords) -> keywordsCopy.put(key, Set.copyOf(keywords)));
+        return new CompiledQuestion(currentQuestionId, currentQuestion, List.copyOf(currentAnswersList),
+                keywordsCopy, Map.copyOf(synonymToBaseFormMap));
+    }
+
+    public void restoreCompiledQuestion(CompiledQuestion question) {
         currentAnswersList.clear();
         answerKeyToCombinedKeywords.clear();
         synonymToBaseFormMap.clear();
-        currentQuestion = null;
-        currentQuestionId = -1;
-//pytanie bez questions
-        try (Connection conn = DriverManager.getConnection(DatabaseConfig.getUrl(), DatabaseConfig.getUser(), DatabaseConfig.getPassword())) {
-            boolean questionLoaded = tryLoadQuestion(conn, idsToExclude);
-
-            if (!questionLoaded && idsToExclude != null && !idsToExclude.isEmpty()) {
-                questionLoaded = tryLoadQuestion(conn, Collections.emptySet());
-                if (questionLoaded) {
-                    return true;
-                }
-            }
-
-            if (!questionLoaded) {
-                currentQuestion = null;
-                currentQuestionId = -1;
-                return false;
-            }
-            return true;
-
-        } catch (SQLException e) {
-            currentQuestion = "Błąd serwera przy ładowaniu pytania.";
-            throw new RuntimeException("Błąd SQL podczas ładowania pytania.", e);
+        if (question == null) {
+            currentQuestion = null;
+            currentQuestionId = -1;
+            return;
         }
+        currentQuestionId = question.id();
+        currentQuestion = question.text();
+        currentAnswersList.addAll(question.answers());
+        question.answerKeywords().forEach((key, keywords) -> answerKeyToCombinedKeywords.put(key, new HashSet<>(keywords)));
+        synonymToBaseFormMap.putAll(question.synonymToBaseForm());
     }
-            // losowe pytanie + pelne dane
-    private boolean tryLoadQuestion(Connection conn, Set<Integer> idsToExclude) throws SQLException {
-        List<Integer> availableQuestionIds = new ArrayList<>();
-        StringBuilder sqlBuilder = new StringBuilder("SELECT id FROM Pytania");
-        List<Object> params = new ArrayList<>();
-        boolean hasWhere = false;
-
-        if (this.category != null && !this.category.trim().isEmpty() && !"MIX (Wszystkie Kategorie)".equalsIgnoreCase(this.category)) {
-            sqlBuilder.append(" WHERE kategoria = ?");
-            params.add(this.category);
-            hasWhere = true;
-        }
-
-        if (idsToExclude != null && !idsToExclude.isEmpty()) {
-            if (!hasWhere) {
-                sqlBuilder.append(" WHERE");
-            } else {
-                sqlBuilder.append(" AND");
+//reste
+    //czas pobrania ze zrodla (baza) i przygotowania NLP mierzony osobno
+    public boolean loadQuestion(Set<Integer> idsToExclude) {
+        restoreCompiledQuestion(null);
+        QuizpansEvents.QuestionLoad event = new QuizpansEvents.QuestionLoad();
+        event.begin();
+        try {
+            long fetchStart = System.nanoTime();
+            Optional<QuestionSource.Question> question = questionSource.load(category, idsToExclude);
+            //wszystkie pytania juz byly, pula od nowa
+            if (question.isEmpty() && idsToExclude != null && !idsToExclude.isEmpty()) {
+                question = questionSource.load(category, Collections.emptySet());
             }
-            String placeholders = idsToExclude.stream().map(id -> "?").collect(Collectors.joining(","));
-            sqlBuilder.append(" id NOT IN (").append(placeholders).append(")");
-            params.addAll(idsToExclude);
-        }
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
-            for(int i=0; i < params.size(); i++) {
-                pstmt.setObject(i+1, params.get(i));
+            long fetchNanos = System.nanoTime() - fetchStart;
+            metrics.questionFetched(fetchNanos, question.isPresent());
+            long compileNanos = 0;
+            if (question.isPresent()) {
+                long compileStart = System.nanoTime();
+                QuestionSource.Question row = question.get();
+                restoreCompiledQuestion(compileQuestion(row.id(), row.text(), row.answerTexts(), row.answerPoints()));
+                compileNanos = System.nanoTime() - compileStart;
+                metrics.questionCompiled(compileNanos);
             }
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while(rs.next()) {
-                    availableQuestionIds.add(rs.getInt("id"));
-                }
+            event.end();
+            if (event.shouldCommit()) {
+                event.category = category;
+                event.source = questionSource.getClass().getSimpleName();
+                event.questionId = currentQuestionId;
+                event.found = question.isPresent();
+                event.fetchDuration = fetchNanos;
+                event.compileDuration = compileNanos;
+                event.commit();
             }
+            return question.isPresent();
+        } catch (RuntimeException e) {
+            currentQuestion = "Błąd serwera przy ładowaniu pytania.";
+            throw e;
         }
+    }
 
-        if (availableQuestionIds.isEmpty()) {
-            return false;
-        }
+    //formy bazowe, slowa kluczowe i synonimy bez bazy, puste odpowiedzi pomijane z zachowaniem pozycji
+    public static CompiledQuestion compileQuestion(int id, String questionText, List<String> answerTexts, List<Integer> answerPoints) {
+        List<AnswerData> answers = new ArrayList<>();
+        Map<String, Set<String>> keywords = new HashMap<>();
+        Map<String, String> synonyms = new HashMap<>();
+        for (int i = 0; i < answerTexts.size(); i++) {
+            String answerText = answerTexts.get(i);
+            if (answerText == null || answerText.trim().isEmpty()) continue;
+            String originalAnswerTrimmed = answerText.trim();
+            String baseForm = TextNormalizer.normalizeToBaseForm(originalAnswerTrimmed);
+            answers.add(new AnswerData(originalAnswerTrimmed, answerPoints.get(i), i, baseForm));
+
+            List<String> answerTokens = TextNormalizer.getLemmatizedTokens(originalAnswerTrimmed, true);
+            if (answerTokens.size() >= MIN_WORDS_FOR_KEYWORD_LOGIC) {
+                keywords.computeIfAbsent(baseForm, k -> new HashSet<>()).addAll(answerTokens);
+            }
 
-        int randomId = availableQuestionIds.get(new Random().nextInt(availableQuestionIds.size()));
-
-        String selectSql = "SELECT * FROM Pytania WHERE id = ?";
-        try (PreparedStatement pstmtSelect = conn.prepareStatement(selectSql)) {
-            pstmtSelect.setInt(1, randomId);
-            try (ResultSet rs = pstmtSelect.executeQuery()) {
-                if (rs.next()) {
-                    currentQuestionId = rs.getInt("id");
-                    currentQuestion = rs.getString("pytanie");
-// przetwarzanie kolejnych pytan
-                    for (int i = 1; i <= 6; i++) {
-                        String answerText = rs.getString("odpowiedz" + i);
-                        int points = rs.getInt("punkty" + i);
-                        if (answerText != null && !answerText.trim().isEmpty()) {
-                            String originalAnswerTrimmed = answerText.trim();
-                            String baseForm = TextNormalizer.normalizeToBaseForm(originalAnswerTrimmed);
-                            currentAnswersList.add(new AnswerData(originalAnswerTrimmed, points, i - 1, baseForm));
-
-                            List<String> answerTokens = TextNormalizer.getLemmatizedTokens(originalAnswerTrimmed, true);
-                            if (answerTokens.size() >= MIN_WORDS_FOR_KEYWORD_LOGIC) {
-                                answerKeyToCombinedKeywords.computeIfAbsent(baseForm, k -> new HashSet<>()).addAll(answerTokens);
-                            }
-
-                            List<String> rawSynonyms = SynonymManager.findSynonymsFor(originalAnswerTrimmed.toLowerCase());
-                            for (String syn : rawSynonyms) {
-                                String normalizedSyn = TextNormalizer.normalizeToBaseForm(syn);
-                                if (!normalizedSyn.isEmpty() && !normalizedSyn.equals(baseForm) && !currentAnswersList.stream().anyMatch(ad -> ad.baseForm().equals(normalizedSyn))) {
-                                    synonymToBaseFormMap.put(normalizedSyn, baseForm);
-                                    List<String> synonymTokens = TextNormalizer.getLemmatizedTokens(syn, true);
-                                    if (synonymTokens.size() >= MIN_WORDS_FOR_KEYWORD_LOGIC) {
-                                        answerKeyToCombinedKeywords.computeIfAbsent(baseForm, k -> new HashSet<>()).addAll(synonymTokens);
-                                    }
-                                }
-                            }
-                        }
+            List<String> rawSynonyms = SynonymManager.findSynonymsFor(originalAnswerTrimmed.toLowerCase());
+            for (String syn : rawSynonyms) {
+                String normalizedSyn = TextNormalizer.normalizeToBaseForm(syn);
+                if (!normalizedSyn.isEmpty() && !normalizedSyn.equals(baseForm) && !answers.stream().anyMatch(ad -> ad.baseForm().equals(normalizedSyn))) {
+                    synonyms.put(normalizedSyn, baseForm);
+                    List<String> synonymTokens = TextNormalizer.getLemmatizedTokens(syn, true);
+                    if (synonymTokens.size() >= MIN_WORDS_FOR_KEYWORD_LOGIC) {
+                        keywords.computeIfAbsent(baseForm, k -> new HashSet<>()).addAll(synonymTokens);
                     }
-                    return true;
                 }
             }
         }
-        return false;
+        Map<String, Set<String>> keywordsCopy = new HashMap<>();
+        keywords.forEach((key, words) -> keywordsCopy.put(key, Set.copyOf(words)));
+        return new CompiledQuestion(id, questionText, List.copyOf(answers), keywordsCopy, Map.copyOf(synonyms));
     }
 
   //analiza odpowiedzi
@@ -227,7 +237,7 @@ public class GameService {
         return (double) intersection.size() / union.size();
     }
     //metoda Levenshteina
-    private int calculateAdaptiveLevenshteinThreshold(int correctAnswerLength) {
+    private static int calculateAdaptiveLevenshteinThreshold(int correctAnswerLength) {
         if (correctAnswerLength <= 1) return 0;
         if (correctAnswerLength <= 3) return 1;
         if (correctAnswerLength <= 5) return 1;
@@ -237,8 +247,29 @@ public class GameService {
     }
 // przetwarzanie odpowiedzi
     public AnswerProcessingResult processPlayerAnswer(String userAnswerText) {
+        return evaluate(currentAnswersList, answerKeyToCombinedKeywords, synonymToBaseFormMap, userAnswerText);
+    }
+    //wspolna dla graczy i publicznosci, zdarzenie JFR z etapem i dlugoscia odpowiedzi
+    private static AnswerProcessingResult evaluate(List<AnswerData> currentAnswersList, Map<String, Set<String>> answerKeyToCombinedKeywords,
+                                                   Map<String, String> synonymToBaseFormMap, String userAnswerText) {
+        QuizpansEvents.AnswerEvaluation event = new QuizpansEvents.AnswerEvaluation();
+        event.begin();
+        AnswerProcessingResult result = match(currentAnswersList, answerKeyToCombinedKeywords, synonymToBaseFormMap, userAnswerText);
+        event.end();
+        if (event.shouldCommit()) {
+            event.inputLength = userAnswerText != null ? userAnswerText.length() : 0;
+            event.stage = result.matchStage.name();
+            event.correct = result.isCorrect;
+            event.answerCount = currentAnswersList.size();
+            event.commit();
+        }
+        return result;
+    }
+    //ocena bez stanu serwisu, tylko na przekazanych odpowiedziach i mapach
+    private static AnswerProcessingResult match(List<AnswerData> currentAnswersList, Map<String, Set<String>> answerKeyToCombinedKeywords,
+                                                Map<String, String> synonymToBaseFormMap, String userAnswerText) {
         if (userAnswerText == null || userAnswerText.trim().isEmpty()) {
-            return new AnswerProcessingResult(false, 0, null, -1, null);
+            return new AnswerProcessingResult(false, 0, null, -1, null, MatchStage.MISS);
         }
 
         String normalizedUserAnswer = TextNormalizer.normalizeToBaseForm(userAnswerText);
@@ -246,7 +277,7 @@ public class GameService {
 
         for (AnswerData correctAnswerData : currentAnswersList) {
             if (correctAnswerData.baseForm().equals(normalizedUserAnswer)) {
-                return new AnswerProcessingResult(true, correctAnswerData.points(), correctAnswerData.originalText(), correctAnswerData.displayOrderIndex(), correctAnswerData.baseForm());
+                return AnswerProcessingResult.matched(correctAnswerData, MatchStage.EXACT);
             }
         }
         //synonimy
@@ -256,7 +287,7 @@ public class GameService {
                     .filter(ad -> ad.baseForm().equals(mappedSynonymBaseForm))
                     .findFirst();
             if (synonymTargetAnswer.isPresent()) {
-                return new AnswerProcessingResult(true, synonymTargetAnswer.get().points(), synonymTargetAnswer.get().originalText(), synonymTargetAnswer.get().displayOrderIndex(), synonymTargetAnswer.get().baseForm());
+                return AnswerProcessingResult.matched(synonymTargetAnswer.get(), MatchStage.SYNONYM);
             }
         }
 
@@ -329,7 +360,7 @@ public class GameService {
         double effectiveThreshold = (userTokens.size() > 1 || (bestFuzzyMatchKey != null && bestFuzzyMatchKey.contains(" "))) ? MIN_ACCEPTABLE_PHRASE_SCORE : MIN_ACCEPTABLE_COMBINED_SCORE;
 
         if (bestMatchData != null && highestOverallConfidence >= effectiveThreshold) {
-            return new AnswerProcessingResult(true, bestMatchData.points(), bestMatchData.originalText(), bestMatchData.displayOrderIndex(), bestMatchData.baseForm());
+            return AnswerProcessingResult.matched(bestMatchData, MatchStage.FUZZY);
         }
 
         if (userTokens.size() == 1 && (bestMatchData == null || highestOverallConfidence < effectiveThreshold)) {
@@ -337,12 +368,12 @@ public class GameService {
                 if (correctAnswerData.baseForm().split("\\s+").length == 1) {
                     double jwFallback = jwSimilarity.apply(normalizedUserAnswer, correctAnswerData.baseForm());
                     if (jwFallback >= FALLBACK_SINGLE_WORD_JARO_WINKLER_THRESHOLD) {
-                        return new AnswerProcessingResult(true, correctAnswerData.points(), correctAnswerData.originalText(), correctAnswerData.displayOrderIndex(), correctAnswerData.baseForm());
+                        return AnswerProcessingResult.matched(correctAnswerData, MatchStage.FALLBACK);
                     }
                 }
             }
         }
         //blad
-        return new AnswerProcessingResult(false, 0, null, -1, null);
+        return new AnswerProcessingResult(false, 0, null, -1, null, MatchStage.MISS);
     }
 }
\ No newline at end of file
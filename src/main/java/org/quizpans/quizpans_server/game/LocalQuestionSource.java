@@ -0,0 +1,61 @@
+package org.quizpans.quizpans_server.game;
+// pytania z pliku tekstowego zamiast bazy: wiersz id|kategoria|pytanie|odpowiedz1|punkty1|...|odpowiedz6|punkty6
+// puste wiersze i zaczynajace sie od # pomijane; NLP jak przy bazie, przy kazdym losowaniu w GameService
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LocalQuestionSource implements QuestionSource {
+
+    private record Row(String category, Question question) {
+    }
+
+    private final List<Row> rows;
+
+    public LocalQuestionSource(Reader source) throws IOException {
+        List<Row> parsed = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\\|", -1);
+            if (parts.length < 5 || (parts.length - 3) % 2 != 0) {
+                throw new IOException("Niepoprawny wiersz pytania " + lineNumber + ": " + line);
+            }
+            List<String> answerTexts = new ArrayList<>();
+            List<Integer> answerPoints = new ArrayList<>();
+            for (int i = 3; i < parts.length; i += 2) {
+                answerTexts.add(parts[i]);
+                answerPoints.add(parts[i + 1].isBlank() ? 0 : Integer.parseInt(parts[i + 1].trim()));
+            }
+            parsed.add(new Row(parts[1].trim(), new Question(Integer.parseInt(parts[0].trim()), parts[2].trim(),
+                    List.copyOf(answerTexts), List.copyOf(answerPoints))));
+        }
+        this.rows = List.copyOf(parsed);
+    }
+
+    @Override
+    public Optional<Question> load(String category, Set<Integer> idsToExclude) {
+        boolean anyCategory = category == null || category.trim().isEmpty() || "MIX (Wszystkie Kategorie)".equalsIgnoreCase(category);
+        List<Row> available = rows.stream()
+                .filter(row -> anyCategory || row.category().equals(category))
+                .filter(row -> idsToExclude == null || !idsToExclude.contains(row.question().id()))
+                .toList();
+        if (available.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(available.get(ThreadLocalRandom.current().nextInt(available.size())).question());
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,16 @@
+package org.quizpans.quizpans_server.game;
+// skad GameService bierze pytania: baza MySQL albo plik lokalny (testy obciazeniowe, praca bez bazy)
+// zrodlo zwraca surowe pytanie, formy bazowe i synonimy liczy GameService.compileQuestion
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface QuestionSource {
+
+    //odpowiedzi i punkty na kolejnych pozycjach tablicy, puste odpowiedzi dozwolone
+    record Question(int id, String text, List<String> answerTexts, List<Integer> answerPoints) {
+    }
+
+    //losowe pytanie z kategorii (null = wszystkie) bez podanych id; pusty gdy nic nie zostalo
+    Optional<Question> load(String category, Set<Integer> idsToExclude);
+}
@@ -0,0 +1,100 @@
+package org.quizpans.quizpans_server.metrics;
+// zdarzenia Java Flight Recorder z goracych sciezek gry, w jednym nagraniu z GC, blokadami i I/O
+// wylaczone zdarzenie kosztuje tylko sprawdzenie flagi; wlaczane i progi w src/main/resources/quizpans.jfc
+// pola wypelniane dopiero po shouldCommit(), ponizej progu nic nie jest zapisywane
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public final class QuizpansEvents {
+
+    private QuizpansEvents() {
+    }
+
+    @Name("quizpans.AnswerEvaluation")
+    @Label("Answer Evaluation")
+    @Category({"Quizpans", "Game"})
+    @Description("Ocena jednej odpowiedzi gracza albo publiczności")
+    @StackTrace(false)
+    public static class AnswerEvaluation extends Event {
+        @Label("Input Length")
+        public int inputLength;
+
+        @Label("Match Stage")
+        public String stage;
+
+        @Label("Correct")
+        public boolean correct;
+
+        @Label("Answers On Board")
+        public int answerCount;
+    }
+
+    @Name("quizpans.QuestionLoad")
+    @Label("Question Load")
+    @Category({"Quizpans", "Game"})
+    @Description("Losowanie pytania ze źródła i przygotowanie NLP")
+    @StackTrace(false)
+    public static class QuestionLoad extends Event {
+        @Label("Category")
+        public String category;
+
+        @Label("Source")
+        public String source;
+
+        @Label("Question Id")
+        public int questionId;
+
+        @Label("Found")
+        public boolean found;
+
+        @Label("Fetch Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        public long fetchDuration;
+
+        @Label("Compile Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        public long compileDuration;
+    }
+
+    @Name("quizpans.LobbyBroadcast")
+    @Label("Lobby Broadcast")
+    @Category({"Quizpans", "Lobby"})
+    @Description("Zbudowanie i rozesłanie jednej aktualizacji lobby")
+    @StackTrace(false)
+    public static class LobbyBroadcast extends Event {
+        @Label("Lobby Id")
+        public String lobbyId;
+
+        @Label("Member Frames")
+        public int recipients;
+
+        @Label("Spectators")
+        public int spectators;
+
+        @Label("Bytes")
+        @DataAmount(DataAmount.BYTES)
+        public long bytes;
+    }
+
+    @Name("quizpans.AnswerTimerExpired")
+    @Label("Answer Timer Expired")
+    @Category({"Quizpans", "Lobby"})
+    @Description("Gracz nie odpowiedział przed końcem czasu")
+    @StackTrace(false)
+    public static class AnswerTimerExpired extends Event {
+        @Label("Lobby Id")
+        public String lobbyId;
+
+        @Label("Round")
+        public int round;
+
+        @Label("Player Session Id")
+        public String playerSessionId;
+    }
+}
@@ -0,0 +1,114 @@
+package org.quizpans.quizpans_server.metrics;
+// liczniki i czasy serwera w Micrometer, eksport dla Prometheusa pod /metrics (MetricsController)
+// akcje klientow, czekanie na blokade LobbyService, fazy ladowania pytan, etapy dopasowania odpowiedzi, rozglos lobby
+// mierniki tworzone raz, gorace sciezki tylko zapisuja probki
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.quizpans.quizpans_server.game.GameService;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class QuizpansMetrics {
+
+    private final MeterRegistry registry;
+    //akcja -> {ok, error}
+    private final Map<String, Timer[]> actionTimers = new ConcurrentHashMap<>();
+    private final Timer lobbyLockWait;
+    private final Timer questionFetch;
+    private final Timer questionCompile;
+    private final Counter questionMisses;
+    private final Map<GameService.MatchStage, Counter> matchStages = new EnumMap<>(GameService.MatchStage.class);
+    private final DistributionSummary broadcastRecipients;
+    private final Timer broadcastSerialization;
+    private final DistributionSummary broadcastBytes;
+
+    public QuizpansMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.lobbyLockWait = Timer.builder("quizpans.lobby.lock.wait")
+                .description("Czekanie na blokadę LobbyService w komendach odpowiedzi")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.questionFetch = Timer.builder("quizpans.question.load")
+                .description("Ładowanie pytania: pobranie ze źródła i przygotowanie NLP")
+                .tag("phase", "fetch")
+                .register(registry);
+        this.questionCompile = Timer.builder("quizpans.question.load")
+                .description("Ładowanie pytania: pobranie ze źródła i przygotowanie NLP")
+                .tag("phase", "compile")
+                .register(registry);
+        this.questionMisses = Counter.builder("quizpans.question.misses")
+                .description("Losowania bez dostępnego pytania")
+                .register(registry);
+        for (GameService.MatchStage stage : GameService.MatchStage.values()) {
+            matchStages.put(stage, Counter.builder("quizpans.match.answers")
+                    .description("Ocenione odpowiedzi graczy według etapu dopasowania")
+                    .tag("stage", stage.name().toLowerCase())
+                    .register(registry));
+        }
+        this.broadcastRecipients = DistributionSummary.builder("quizpans.broadcast.recipients")
+                .description("Odbiorcy jednej aktualizacji lobby (członkowie i widzowie)")
+                .register(registry);
+        this.broadcastSerialization = Timer.builder("quizpans.broadcast.serialization")
+                .description("Budowa widoków lobby i kodowanie ramek jednej aktualizacji")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.broadcastBytes = DistributionSummary.builder("quizpans.broadcast.bytes")
+                .description("Bajty ramek jednej aktualizacji lobby wysłane do członków")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    //bez eksportu: testy i obiekty tworzone poza Springiem
+    public static QuizpansMetrics standalone() {
+        return new QuizpansMetrics(new SimpleMeterRegistry());
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public void actionHandled(String action, long nanos, boolean failed) {
+        Timer[] timers = actionTimers.computeIfAbsent(action, name -> new Timer[]{actionTimer(name, "ok"), actionTimer(name, "error")});
+        timers[failed ? 1 : 0].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void lobbyLockWaited(long nanos) {
+        lobbyLockWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void questionFetched(long nanos, boolean found) {
+        questionFetch.record(nanos, TimeUnit.NANOSECONDS);
+        if (!found) questionMisses.increment();
+    }
+
+    public void questionCompiled(long nanos) {
+        questionCompile.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void answerMatched(GameService.MatchStage stage) {
+        matchStages.get(stage).increment();
+    }
+
+    public void broadcastSent(int recipients, long serializationNanos, long bytes) {
+        broadcastRecipients.record(recipients);
+        broadcastSerialization.record(serializationNanos, TimeUnit.NANOSECONDS);
+        broadcastBytes.record(bytes);
+    }
+
+    private Timer actionTimer(String action, String outcome) {
+        return Timer.builder("quizpans.ws.action")
+                .description("Obsługa akcji klienta /lobby")
+                .tag("action", action)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+package org.quizpans.quizpans_server.metrics;
+// wskazniki stanu serwera czytane przy zbieraniu metryk: aktywne lobby, sesje, zegary odpowiedzi, kolejki
+// liczniki, ktore komponenty juz prowadza (kolejki wyjsciowe, latki, laczenie, widzowie, kontrola wejscia), bez podwojnego liczenia
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.websocket.AdmissionControl;
+import org.quizpans.quizpans_server.online.websocket.LobbyDeltaTracker;
+import org.quizpans.quizpans_server.online.websocket.LobbyUpdateCoalescer;
+import org.quizpans.quizpans_server.online.websocket.LobbyWebSocketHandler;
+import org.quizpans.quizpans_server.online.websocket.SessionOutboxManager;
+import org.quizpans.quizpans_server.online.websocket.SessionResume;
+import org.quizpans.quizpans_server.online.websocket.SpectatorFeed;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+@Component
+public class ServerMetricsBinder {
+
+    public ServerMetricsBinder(QuizpansMetrics metrics, LobbyService lobbyService, LobbyWebSocketHandler handler,
+                               SessionOutboxManager outboxManager, LobbyDeltaTracker deltaTracker, LobbyUpdateCoalescer coalescer,
+                               SpectatorFeed spectators, AudienceAnswerService audience, AdmissionControl admission,
+                               SessionResume resume) {
+        MeterRegistry registry = metrics.getRegistry();
+
+        gauge(registry, "quizpans.lobbies.active", "Lobby zajęte przez prowadzącego", lobbyService,
+                s -> countLobbies(s, lobby -> lobby.getStatus() != LobbyStatus.AVAILABLE));
+        gauge(registry, "quizpans.timers.active", "Lobby z działającym zegarem odpowiedzi", lobbyService,
+                s -> countLobbies(s, Lobby::isAnswerTimerRunning));
+        gauge(registry, "quizpans.sessions.active", "Otwarte sesje /lobby", handler, LobbyWebSocketHandler::getSessionCount);
+        gauge(registry, "quizpans.spectators.active", "Widzowie wszystkich lobby", spectators, SpectatorFeed::getTotalSpectators);
+        gauge(registry, "quizpans.audience.rounds.open", "Otwarte rundy publiczności", audience, AudienceAnswerService::getOpenRounds);
+        gauge(registry, "quizpans.audience.queue", "Odpowiedzi publiczności czekające na ocenę", audience, AudienceAnswerService::getQueuedAnswers);
+        gauge(registry, "quizpans.outbox.max.depth", "Najdłuższa kolejka wyjściowa sesji", outboxManager, SessionOutboxManager::getMaxQueueDepth);
+        gauge(registry, "quizpans.outbox.queued.bytes", "Bajty czekające we wszystkich kolejkach wyjściowych", outboxManager,
+                SessionOutboxManager::getTotalQueuedBytes);
+        gauge(registry, "quizpans.broadcast.pending", "Lobby czekające na połączoną aktualizację", coalescer, LobbyUpdateCoalescer::getPendingCount);
+
+        counter(registry, "quizpans.outbox.coalesced", "Ramki zastąpione nowszym stanem w kolejce", outboxManager, SessionOutboxManager::getCoalescedFrames);
+        counter(registry, "quizpans.outbox.disconnects", "Sesje rozłączone przez kolejkę wyjściową", outboxManager,
+                SessionOutboxManager::getOverflowDisconnects, "reason", "overflow");
+        counter(registry, "quizpans.outbox.disconnects", "Sesje rozłączone przez kolejkę wyjściową", outboxManager,
+                SessionOutboxManager::getSlowSendDisconnects, "reason", "slow-send");
+        counter(registry, "quizpans.outbox.send.failures", "Nieudane wysyłki ramek", outboxManager, SessionOutboxManager::getSendFailures);
+        counter(registry, "quizpans.delta.frames", "Ramki widoku lobby wysłane członkom", deltaTracker, LobbyDeltaTracker::getFullSends, "kind", "full");
+        counter(registry, "quizpans.delta.frames", "Ramki widoku lobby wysłane członkom", deltaTracker, LobbyDeltaTracker::getPatchSends, "kind", "patch");
+        counter(registry, "quizpans.delta.frames", "Ramki widoku lobby wysłane członkom", deltaTracker, LobbyDeltaTracker::getReplayedPatches, "kind", "replayed");
+        counter(registry, "quizpans.broadcast.updates", "Aktualizacje lobby", coalescer, LobbyUpdateCoalescer::getRequestedUpdates, "state", "requested");
+        counter(registry, "quizpans.broadcast.updates", "Aktualizacje lobby", coalescer, LobbyUpdateCoalescer::getMergedUpdates, "state", "merged");
+        counter(registry, "quizpans.broadcast.updates", "Aktualizacje lobby", coalescer, LobbyUpdateCoalescer::getFlushedUpdates, "state", "flushed");
+        counter(registry, "quizpans.spectator.frames", "Ramki widzów", spectators, SpectatorFeed::getPublishedFrames, "state", "published");
+        counter(registry, "quizpans.spectator.frames", "Ramki widzów", spectators, SpectatorFeed::getDeliveredFrames, "state", "delivered");
+        counter(registry, "quizpans.spectator.frames", "Ramki widzów", spectators, SpectatorFeed::getSkippedFrames, "state", "skipped");
+        counter(registry, "quizpans.audience.answers", "Odpowiedzi publiczności", audience, AudienceAnswerService::getEvaluatedAnswers, "state", "evaluated");
+        counter(registry, "quizpans.audience.answers", "Odpowiedzi publiczności", audience, AudienceAnswerService::getRejectedAnswers, "state", "rejected");
+        counter(registry, "quizpans.resume.sessions", "Sesje wznowione i wygasłe", resume, SessionResume::getResumedSessions, "state", "resumed");
+        counter(registry, "quizpans.resume.sessions", "Sesje wznowione i wygasłe", resume, SessionResume::getExpiredSessions, "state", "expired");
+        counter(registry, "quizpans.admission.messages", "Wiadomości przyjęte i odrzucone", admission, AdmissionControl::getAdmitted, "result", "admitted");
+        for (AdmissionControl.Rejection rejection : AdmissionControl.Rejection.values()) {
+            counter(registry, "quizpans.admission.messages", "Wiadomości przyjęte i odrzucone", admission,
+                    a -> a.getRejected(rejection), "result", rejection.name().toLowerCase());
+        }
+    }
+
+    private static int countLobbies(LobbyService lobbyService, Predicate<Lobby> condition) {
+        int count = 0;
+        for (Lobby lobby : lobbyService.getAllLobbies()) {
+            if (condition.test(lobby)) count++;
+        }
+        return count;
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value).description(description).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String description, T source, ToDoubleFunction<T> value,
+                                    String... tags) {
+        FunctionCounter.builder(name, source, value).description(description).tags(tags).register(registry);
+    }
+}
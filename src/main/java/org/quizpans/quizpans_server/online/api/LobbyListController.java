@@ -0,0 +1,36 @@
+package org.quizpans.quizpans_server.online.api;
+// lista lobby po http dla strony startowej i przegladarki lobby, bez otwierania websocketu
+// tresc gotowa w LobbyListSnapshot, If-None-Match z aktualnym etagiem konczy sie 304 bez tresci
+import org.quizpans.quizpans_server.online.websocket.LobbyListSnapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
+public class LobbyListController {
+
+    private final LobbyListSnapshot lobbyList;
+
+    public LobbyListController(LobbyListSnapshot lobbyList) {
+        this.lobbyList = lobbyList;
+    }
+    //no-cache: przegladarka trzyma kopie, ale przed uzyciem pyta z etagiem
+    @GetMapping("/api/lobbies")
+    public ResponseEntity<byte[]> lobbies(WebRequest request) {
+        LobbyListSnapshot.Snapshot snapshot = lobbyList.current();
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.body());
+    }
+}
@@ -0,0 +1,164 @@
+package org.quizpans.quizpans_server.online.audience;
+// przyjmowanie odpowiedzi publicznosci poza globalna blokada LobbyService
+// watek komendy tylko sprawdza okno i duplikat, ocena NLP na puli watkow z ograniczona kolejka
+// wyniki rozsylane w stalym rytmie i tylko po zmianie, koncowe po zamknieciu rundy i ocenie ostatniej odpowiedzi
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Service
+public class AudienceAnswerService {
+
+    private final long broadcastIntervalMs;
+    private final ThreadPoolExecutor evaluators;
+    private final Map<String, AudienceRound> rounds = new ConcurrentHashMap<>();
+    private final LongAdder evaluatedAnswers = new LongAdder();
+    private final LongAdder rejectedAnswers = new LongAdder();
+    private volatile BiConsumer<String, AudienceRound.Verdict> verdictSink = (sessionId, verdict) -> { };
+    private volatile Consumer<AudienceRound.Tally> tallySink = tally -> { };
+    private ScheduledExecutorService broadcaster;
+
+    public AudienceAnswerService(@Value("${quizpans.audience.evaluator-threads:0}") int evaluatorThreads,
+                                 @Value("${quizpans.audience.queue-capacity:20000}") int queueCapacity,
+                                 @Value("${quizpans.audience.broadcast-interval-ms:250}") long broadcastIntervalMs) {
+        this.broadcastIntervalMs = broadcastIntervalMs;
+        //ocena to praca procesora, domyslnie watek na rdzen
+        int threads = evaluatorThreads > 0 ? evaluatorThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.evaluators = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r);
+                    t.setDaemon(true);
+                    t.setName("AudienceEvaluator-" + counter.incrementAndGet());
+                    return t;
+                });
+    }
+
+    @PostConstruct
+    void start() {
+        broadcaster = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("AudienceBroadcaster");
+            return t;
+        });
+        broadcaster.scheduleAtFixedRate(this::publishTallies, broadcastIntervalMs, broadcastIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (broadcaster != null) {
+            broadcaster.shutdownNow();
+        }
+        evaluators.shutdownNow();
+    }
+    //wynik oceny dla odpowiadajacego, z watku oceniajacego
+    public void setVerdictSink(BiConsumer<String, AudienceRound.Verdict> verdictSink) {
+        this.verdictSink = verdictSink;
+    }
+    //biezace wyniki rundy, z watku rozglosu
+    public void setTallySink(Consumer<AudienceRound.Tally> tallySink) {
+        this.tallySink = tallySink;
+    }
+    //nowa runda zastepuje poprzednia w lobby, poprzednia dostaje koncowe wyniki
+    public void open(AudienceRound round) {
+        AudienceRound previous = rounds.put(round.getLobbyId(), round);
+        if (previous != null) {
+            previous.close();
+            broadcaster.execute(() -> publishFinal(previous));
+        }
+    }
+
+    public void close(String lobbyId) {
+        AudienceRound round = rounds.get(lobbyId);
+        if (round != null) {
+            round.close();
+        }
+    }
+
+    public boolean hasOpenRound(String lobbyId) {
+        AudienceRound round = rounds.get(lobbyId);
+        return round != null && !round.isExpired(System.nanoTime());
+    }
+    //sciezka komendy: bez oceny, tylko przyjecie do kolejki
+    public AudienceRound.Admission submit(String lobbyId, String sessionId, String answer, String teamChoice) {
+        AudienceRound round = rounds.get(lobbyId);
+        long receivedAt = System.nanoTime();
+        if (round == null) return AudienceRound.Admission.CLOSED;
+        AudienceRound.Admission admission = round.admit(sessionId, receivedAt);
+        if (admission != AudienceRound.Admission.ACCEPTED) return admission;
+        try {
+            evaluators.execute(() -> {
+                AudienceRound.Verdict verdict = round.evaluate(sessionId, answer, teamChoice, receivedAt);
+                evaluatedAnswers.increment();
+                verdictSink.accept(sessionId, verdict);
+            });
+        } catch (RejectedExecutionException e) {
+            round.withdraw(sessionId);
+            rejectedAnswers.increment();
+            return AudienceRound.Admission.OVERLOADED;
+        }
+        return AudienceRound.Admission.ACCEPTED;
+    }
+
+    void publishTallies() {
+        long now = System.nanoTime();
+        for (AudienceRound round : rounds.values()) {
+            try {
+                if (round.isExpired(now)) {
+                    round.close();
+                    if (round.isSettled()) {
+                        rounds.remove(round.getLobbyId(), round);
+                        publishFinal(round);
+                        continue;
+                    }
+                }
+                long version = round.version();
+                if (version != round.publishedVersion) {
+                    round.publishedVersion = version;
+                    tallySink.accept(round.tally());
+                }
+            } catch (Exception e) {
+                System.err.println("Błąd rozsyłania wyników publiczności lobby " + round.getLobbyId() + ": " + e.getMessage());
+            }
+        }
+    }
+    //zastapiona runda moze miec jeszcze odpowiedzi w ocenie, koncowe wyniki po ich zakonczeniu
+    private void publishFinal(AudienceRound round) {
+        if (!round.isSettled()) {
+            broadcaster.schedule(() -> publishFinal(round), broadcastIntervalMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        tallySink.accept(round.tally());
+    }
+
+    public int getOpenRounds() {
+        return rounds.size();
+    }
+
+    public int getQueuedAnswers() {
+        return evaluators.getQueue().size();
+    }
+
+    public long getEvaluatedAnswers() {
+        return evaluatedAnswers.sum();
+    }
+
+    public long getRejectedAnswers() {
+        return rejectedAnswers.sum();
+    }
+}
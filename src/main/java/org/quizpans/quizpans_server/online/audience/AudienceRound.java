@@ -0,0 +1,177 @@
+package org.quizpans.quizpans_server.online.audience;
+// runda odpowiedzi publicznosci: jedno pytanie dla wszystkich uczestnikow i widzow, jedna odpowiedz na sesje w oknie czasu
+// agregaty bez blokad: trafienia na pozycje tablicy, punkty druzyn, najszybsza poprawna odpowiedz
+// czas odpowiedzi liczony od przyjecia, nie od oceny, kolejka oceniajacych nie zmienia kolejnosci
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.game.GameService.AnswerProcessingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class AudienceRound {
+
+    public enum Admission {
+        ACCEPTED("Odpowiedź przyjęta."),
+        CLOSED("Czas na odpowiedź minął."),
+        DUPLICATE("Odpowiedź w tej rundzie została już wysłana."),
+        OVERLOADED("Serwer jest przeciążony, spróbuj ponownie.");
+
+        private final String message;
+
+        Admission(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+    //uczestnik lobby w chwili otwarcia rundy, druzyna 0 albo 1, -1 bez druzyny
+    public record Member(String nickname, int team) {
+    }
+
+    public record Verdict(String lobbyId, boolean correct, int points, int answerIndex, long elapsedMillis) {
+    }
+
+    public record Fastest(String sessionId, String nickname, long elapsedMillis) {
+    }
+
+    public record TeamTally(String name, long points, long correct) {
+    }
+
+    public record Tally(String lobbyId, int questionId, boolean closed, long answered, long correct,
+                       long[] hits, List<TeamTally> teams, Fastest fastest) {
+    }
+
+    private final String lobbyId;
+    private final GameService.CompiledQuestion question;
+    private final Map<String, Member> members;
+    private final String[] teamNames;
+    private final long openedAtNanos;
+    private final long deadlineNanos;
+    private final Set<String> answered = ConcurrentHashMap.newKeySet();
+    private final AtomicLongArray hits;
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder[] teamPoints = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] teamCorrect = {new LongAdder(), new LongAdder()};
+    private final AtomicReference<Fastest> fastest = new AtomicReference<>();
+    //przyjete a jeszcze nie ocenione, koncowe wyniki dopiero gdy zero
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean closed;
+    //wersja ostatnio rozeslanych wynikow, tylko watek rozglosu
+    long publishedVersion = -1;
+
+    public AudienceRound(String lobbyId, GameService.CompiledQuestion question, Map<String, Member> members,
+                         String team1Name, String team2Name, long answerWindowMs, long openedAtNanos) {
+        this.lobbyId = lobbyId;
+        this.question = question;
+        this.members = Map.copyOf(members);
+        this.teamNames = new String[]{team1Name, team2Name};
+        this.openedAtNanos = openedAtNanos;
+        this.deadlineNanos = openedAtNanos + TimeUnit.MILLISECONDS.toNanos(answerWindowMs);
+        int slots = 0;
+        for (GameService.AnswerData answer : question.answers()) {
+            slots = Math.max(slots, answer.displayOrderIndex() + 1);
+        }
+        this.hits = new AtomicLongArray(slots);
+    }
+
+    public String getLobbyId() {
+        return lobbyId;
+    }
+
+    Admission admit(String sessionId, long nowNanos) {
+        if (closed || nowNanos - deadlineNanos > 0) return Admission.CLOSED;
+        if (!answered.add(sessionId)) return Admission.DUPLICATE;
+        pending.incrementAndGet();
+        return Admission.ACCEPTED;
+    }
+    //odpowiedz nie trafila do oceniajacych, sesja moze wyslac ja jeszcze raz
+    void withdraw(String sessionId) {
+        answered.remove(sessionId);
+        pending.decrementAndGet();
+    }
+    //watek oceniajacy, rownolegle dla wielu odpowiedzi
+    Verdict evaluate(String sessionId, String answer, String teamChoice, long receivedAtNanos) {
+        try {
+            AnswerProcessingResult result = question.evaluate(answer);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(receivedAtNanos - openedAtNanos);
+            evaluated.increment();
+            if (result.isCorrect) {
+                correct.increment();
+                if (result.answerIndex >= 0 && result.answerIndex < hits.length()) {
+                    hits.incrementAndGet(result.answerIndex);
+                }
+                Member member = members.get(sessionId);
+                int team = member != null ? member.team() : teamIndex(teamChoice);
+                if (team >= 0) {
+                    teamPoints[team].add(result.pointsAwarded);
+                    teamCorrect[team].increment();
+                }
+                offerFastest(new Fastest(sessionId, member != null ? member.nickname() : null, elapsedMillis));
+            }
+            version.incrementAndGet();
+            return new Verdict(lobbyId, result.isCorrect, result.pointsAwarded, result.answerIndex, elapsedMillis);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void offerFastest(Fastest candidate) {
+        Fastest current = fastest.get();
+        while (current == null || candidate.elapsedMillis() < current.elapsedMillis()) {
+            if (fastest.compareAndSet(current, candidate)) return;
+            current = fastest.get();
+        }
+    }
+    //widz wybiera druzyne nazwa, uczestnik ma ja z lobby
+    private int teamIndex(String teamName) {
+        if (teamName == null) return -1;
+        if (teamName.equals(teamNames[0])) return 0;
+        if (teamName.equals(teamNames[1])) return 1;
+        return -1;
+    }
+
+    boolean isExpired(long nowNanos) {
+        return closed || nowNanos - deadlineNanos > 0;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isSettled() {
+        return closed && pending.get() == 0;
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    public Tally tally() {
+        long[] hitCounts = new long[hits.length()];
+        for (int i = 0; i < hitCounts.length; i++) {
+            hitCounts[i] = hits.get(i);
+        }
+        List<TeamTally> teams = new ArrayList<>(2);
+        for (int i = 0; i < 2; i++) {
+            teams.add(new TeamTally(teamNames[i], teamPoints[i].sum(), teamCorrect[i].sum()));
+        }
+        return new Tally(lobbyId, question.id(), isSettled(), evaluated.sum(), correct.sum(), hitCounts, teams, fastest.get());
+    }
+}
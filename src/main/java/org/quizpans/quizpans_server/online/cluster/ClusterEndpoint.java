@@ -0,0 +1,20 @@
+package org.quizpans.quizpans_server.online.cluster;
+
+import java.util.Set;
+
+//strona websocket wezla, wywolywana z watku szyny
+public interface ClusterEndpoint {
+
+    //akcja klienta podlaczonego do innego wezla
+    void handleRelayedCommand(String originNode, String sessionId, String payload);
+
+    //members: sesje powiazane z lobby, tylko one dostaja pelny widok
+    void handleRemoteLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Set<String> members);
+
+    void handleSessionMessage(String sessionId, String json);
+
+    void handleRemoteSessionClosed(String sessionId);
+
+    //lobby przejete od innego wezla
+    void lobbyImported(String lobbyId);
+}
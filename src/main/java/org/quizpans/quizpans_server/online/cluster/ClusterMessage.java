@@ -0,0 +1,20 @@
+package org.quizpans.quizpans_server.online.cluster;
+//wiadomosc szyny
+//sessionId zawsze globalne: wezel klienta + ':' + id sesji w kontenerze
+//COMMAND: sessionId + text = akcja klienta
+//LOBBY_UPDATE: sessionId = panel prowadzacego, text = widok ogolny, altText = widok prowadzacego, data = czlonkowie lobby
+//SESSION_MESSAGE: sessionId + text = gotowa wiadomosc json
+//LOBBY_TRANSFER: lobbyId + data = kopia lobby
+public record ClusterMessage(
+        ClusterMessageType type,
+        String sourceNode,
+        String lobbyId,
+        String sessionId,
+        String text,
+        String altText,
+        byte[] data
+) {
+    public static ClusterMessage of(ClusterMessageType type, String sourceNode) {
+        return new ClusterMessage(type, sourceNode, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,80 @@
+package org.quizpans.quizpans_server.online.cluster;
+//ramka tcp: [int dlugosc][typ][teksty z dlugoscia][dane]
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public final class ClusterMessageCodec {
+    private static final ClusterMessageType[] TYPES = ClusterMessageType.values();
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private ClusterMessageCodec() {
+    }
+
+    public static byte[] encode(ClusterMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(message.type().ordinal());
+        writeString(out, message.sourceNode());
+        writeString(out, message.lobbyId());
+        writeString(out, message.sessionId());
+        writeString(out, message.text());
+        writeString(out, message.altText());
+        if (message.data() == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(message.data().length);
+            out.write(message.data());
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 4;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    public static ClusterMessage read(InputStream source) throws IOException {
+        DataInputStream in = source instanceof DataInputStream d ? d : new DataInputStream(source);
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Nieprawidlowa ramka klastra: " + length);
+        }
+        ClusterMessageType type = TYPES[in.readUnsignedByte()];
+        String sourceNode = readString(in);
+        String lobbyId = readString(in);
+        String sessionId = readString(in);
+        String text = readString(in);
+        String altText = readString(in);
+        int dataLength = in.readInt();
+        byte[] data = null;
+        if (dataLength >= 0) {
+            data = new byte[dataLength];
+            in.readFully(data);
+        }
+        return new ClusterMessage(type, sourceNode, lobbyId, sessionId, text, altText, data);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
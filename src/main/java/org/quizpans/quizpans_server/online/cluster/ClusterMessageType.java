@@ -0,0 +1,12 @@
+package org.quizpans.quizpans_server.online.cluster;
+//rodzaje wiadomosci miedzy wezlami
+public enum ClusterMessageType {
+    NODE_JOIN,
+    NODE_HELLO,
+    NODE_LEAVE,
+    COMMAND,
+    LOBBY_UPDATE,
+    SESSION_MESSAGE,
+    SESSION_CLOSED,
+    LOBBY_TRANSFER
+}
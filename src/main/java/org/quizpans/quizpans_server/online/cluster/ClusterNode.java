@@ -0,0 +1,188 @@
+package org.quizpans.quizpans_server.online.cluster;
+// wezel klastra: przydzial lobby, przekazywanie akcji i rozglosu
+// rownowazenie: po zmianie pierscienia kazdy wezel oddaje lobby ktorych juz nie jest wlascicielem
+// id sesji na szynie zawsze z prefiksem wezla, kontener w kazdej jvm liczy id od zera
+// w json tak samo: wezel wysylajacy dodaje swoj prefiks, odbierajacy zdejmuje swoj
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class ClusterNode {
+    private static final char SESSION_SEPARATOR = ':';
+
+    private final String nodeId;
+    private final MessageBus bus;
+    private final ConsistentHashRing ring;
+    private final List<String> lobbyIds;
+    private final LobbyTransfer transfer;
+    private final ClusterEndpoint endpoint;
+    private volatile boolean running;
+
+    public ClusterNode(String nodeId, MessageBus bus, int virtualNodes, List<String> lobbyIds,
+                       LobbyTransfer transfer, ClusterEndpoint endpoint) {
+        this.nodeId = nodeId;
+        this.bus = bus;
+        this.ring = new ConsistentHashRing(virtualNodes);
+        this.lobbyIds = List.copyOf(lobbyIds);
+        this.transfer = transfer;
+        this.endpoint = endpoint;
+    }
+
+    public void start() {
+        bus.start(nodeId, this::onMessage);
+        ring.addNode(nodeId);
+        for (String node : bus.reachableNodes()) {
+            ring.addNode(node);
+        }
+        running = true;
+        bus.publish(ClusterMessage.of(ClusterMessageType.NODE_JOIN, nodeId));
+        rebalance();
+    }
+    //odejscie: najpierw informacja o odejsciu, potem przekazanie lobby
+    public void leave() {
+        if (!running) return;
+        running = false;
+        ring.removeNode(nodeId);
+        bus.publish(ClusterMessage.of(ClusterMessageType.NODE_LEAVE, nodeId));
+        rebalance();
+        bus.close();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String ownerOf(String lobbyId) {
+        String owner = ring.ownerOf(lobbyId);
+        return owner != null ? owner : nodeId;
+    }
+
+    public boolean isLocal(String lobbyId) {
+        return nodeId.equals(ownerOf(lobbyId));
+    }
+
+    public Set<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    //id kontenera nie zawiera ':', id z dwukropkiem jest juz globalne (sesja innego wezla)
+    public String globalSessionId(String sessionId) {
+        if (sessionId == null || sessionId.indexOf(SESSION_SEPARATOR) >= 0) return sessionId;
+        return nodeId + SESSION_SEPARATOR + sessionId;
+    }
+    //sesja tego wezla wraca do id kontenera, sesja innego wezla zostaje globalna
+    public String localSessionId(String sessionId) {
+        return isOwnSession(sessionId) ? sessionId.substring(nodeId.length() + 1) : sessionId;
+    }
+
+    private boolean isOwnSession(String globalSessionId) {
+        return globalSessionId != null && globalSessionId.startsWith(nodeId + SESSION_SEPARATOR);
+    }
+
+    public void forwardCommand(String lobbyId, String sessionId, String payload) {
+        relayCommand(nodeId, lobbyId, globalSessionId(sessionId), SessionIdJson.rewrite(payload, this::globalSessionId));
+    }
+    //zrodlo zostaje wezlem klienta takze przy przekazaniu dalej
+    private void relayCommand(String originNode, String lobbyId, String globalSessionId, String payload) {
+        bus.send(ownerOf(lobbyId), new ClusterMessage(ClusterMessageType.COMMAND, originNode, lobbyId, globalSessionId, payload, null, null));
+    }
+
+    public void publishLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Collection<String> members) {
+        StringBuilder memberList = new StringBuilder();
+        for (String member : members) {
+            if (!memberList.isEmpty()) memberList.append('\n');
+            memberList.append(globalSessionId(member));
+        }
+        byte[] memberData = memberList.toString().getBytes(StandardCharsets.UTF_8);
+        String globalPublicJson = SessionIdJson.rewrite(publicJson, this::globalSessionId);
+        String globalHostJson = hostJson.equals(publicJson) ? globalPublicJson : SessionIdJson.rewrite(hostJson, this::globalSessionId);
+        bus.publish(new ClusterMessage(ClusterMessageType.LOBBY_UPDATE, nodeId, lobbyId, globalSessionId(hostPanelSessionId),
+                globalPublicJson, globalHostJson, memberData));
+    }
+
+    public void sendToSession(String targetNode, String sessionId, String json) {
+        bus.send(targetNode, new ClusterMessage(ClusterMessageType.SESSION_MESSAGE, nodeId, null, globalSessionId(sessionId),
+                SessionIdJson.rewrite(json, this::globalSessionId), null, null));
+    }
+    //gdy nie wiadomo do ktorego wezla podlaczona jest sesja
+    public void publishToSession(String sessionId, String json) {
+        bus.publish(new ClusterMessage(ClusterMessageType.SESSION_MESSAGE, nodeId, null, globalSessionId(sessionId),
+                SessionIdJson.rewrite(json, this::globalSessionId), null, null));
+    }
+
+    public void publishSessionClosed(String sessionId) {
+        bus.publish(new ClusterMessage(ClusterMessageType.SESSION_CLOSED, nodeId, null, globalSessionId(sessionId), null, null, null));
+    }
+
+    private void onMessage(ClusterMessage message) {
+        switch (message.type()) {
+            case NODE_JOIN -> {
+                ring.addNode(message.sourceNode());
+                bus.send(message.sourceNode(), ClusterMessage.of(ClusterMessageType.NODE_HELLO, nodeId));
+                rebalance();
+            }
+            case NODE_HELLO -> {
+                if (ring.addNode(message.sourceNode())) {
+                    rebalance();
+                }
+            }
+            case NODE_LEAVE -> ring.removeNode(message.sourceNode());
+            case COMMAND -> {
+                if (isLocal(message.lobbyId())) {
+                    endpoint.handleRelayedCommand(message.sourceNode(), message.sessionId(), SessionIdJson.rewrite(message.text(), this::localSessionId));
+                } else {
+                    //pierscien zmienil sie w trakcie, przekaz dalej
+                    relayCommand(message.sourceNode(), message.lobbyId(), message.sessionId(), message.text());
+                }
+            }
+            case LOBBY_UPDATE -> {
+                String publicJson = SessionIdJson.rewrite(message.text(), this::localSessionId);
+                String hostJson = message.altText().equals(message.text()) ? publicJson : SessionIdJson.rewrite(message.altText(), this::localSessionId);
+                endpoint.handleRemoteLobbyUpdate(message.lobbyId(), localSessionId(message.sessionId()), publicJson, hostJson,
+                        decodeMembers(message.data()));
+            }
+            case SESSION_MESSAGE -> {
+                //rozglos do wszystkich wezlow, dostarcza tylko wezel klienta
+                if (isOwnSession(message.sessionId())) {
+                    endpoint.handleSessionMessage(localSessionId(message.sessionId()), SessionIdJson.rewrite(message.text(), this::localSessionId));
+                }
+            }
+            case SESSION_CLOSED -> endpoint.handleRemoteSessionClosed(message.sessionId());
+            case LOBBY_TRANSFER -> {
+                try {
+                    transfer.importLobby(message.data());
+                    endpoint.lobbyImported(message.lobbyId());
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("ClusterNode " + nodeId + ": nie udało się przejąć lobby " + message.lobbyId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Set<String> decodeMembers(byte[] data) {
+        if (data == null || data.length == 0) return Set.of();
+        return Arrays.stream(new String(data, StandardCharsets.UTF_8).split("\n"))
+                .map(this::localSessionId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private synchronized void rebalance() {
+        for (String lobbyId : lobbyIds) {
+            String owner = ownerOf(lobbyId);
+            if (owner.equals(nodeId)) continue;
+            try {
+                Optional<byte[]> data = transfer.exportLobby(lobbyId);
+                if (data.isEmpty()) continue;
+                bus.send(owner, new ClusterMessage(ClusterMessageType.LOBBY_TRANSFER, nodeId, lobbyId, null, null, null, data.get()));
+                transfer.releaseLobby(lobbyId);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("ClusterNode " + nodeId + ": nie udało się przekazać lobby " + lobbyId + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.quizpans.quizpans_server.online.cluster;
+// tryb klastra, domyslnie wylaczony
+// przy wylaczonym kazde lobby jest lokalne
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.snapshot.LobbySnapshotCodec;
+import org.quizpans.quizpans_server.online.snapshot.LobbySnapshotEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+@Component
+public class ClusterService implements LobbyTransfer {
+    private final LobbyService lobbyService;
+    private final ClusterEndpoint endpoint;
+    private final boolean enabled;
+    private final String nodeId;
+    private final String busType;
+    private final int tcpPort;
+    private final String tcpPeers;
+    private final int virtualNodes;
+    private ClusterNode node;
+
+    public ClusterService(LobbyService lobbyService,
+                          @Lazy ClusterEndpoint endpoint,
+                          @Value("${quizpans.cluster.enabled:false}") boolean enabled,
+                          @Value("${quizpans.cluster.node-id:node-1}") String nodeId,
+                          @Value("${quizpans.cluster.bus:tcp}") String busType,
+                          @Value("${quizpans.cluster.tcp.port:7400}") int tcpPort,
+                          @Value("${quizpans.cluster.tcp.peers:}") String tcpPeers,
+                          @Value("${quizpans.cluster.virtual-nodes:64}") int virtualNodes) {
+        this.lobbyService = lobbyService;
+        this.endpoint = endpoint;
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.busType = busType;
+        this.tcpPort = tcpPort;
+        this.tcpPeers = tcpPeers;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        MessageBus bus = "in-process".equalsIgnoreCase(busType)
+                ? new InProcessMessageBus(InProcessMessageBus.Hub.shared())
+                : new TcpMessageBus(new InetSocketAddress("127.0.0.1", tcpPort), parsePeers(tcpPeers));
+        List<String> lobbyIds = lobbyService.getAllLobbies().stream().map(lobby -> lobby.getId()).toList();
+        node = new ClusterNode(nodeId, bus, virtualNodes, lobbyIds, this, endpoint);
+        node.start();
+        System.out.println("ClusterService: węzeł " + nodeId + " w klastrze " + node.getNodes());
+    }
+    //oddanie lobby pozostalym wezlom
+    @PreDestroy
+    public void stop() {
+        if (node != null) {
+            node.leave();
+        }
+    }
+
+    public boolean isEnabled() {
+        return node != null;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocal(String lobbyId) {
+        return node == null || node.isLocal(lobbyId);
+    }
+
+    public void forwardCommand(String lobbyId, String sessionId, String payload) {
+        node.forwardCommand(lobbyId, sessionId, payload);
+    }
+
+    public void publishLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Collection<String> members) {
+        if (node != null) {
+            node.publishLobbyUpdate(lobbyId, hostPanelSessionId, publicJson, hostJson, members);
+        }
+    }
+
+    public void sendToSession(String targetNode, String sessionId, String json) {
+        if (node != null) {
+            node.sendToSession(targetNode, sessionId, json);
+        }
+    }
+
+    public void publishToSession(String sessionId, String json) {
+        if (node != null) {
+            node.publishToSession(sessionId, json);
+        }
+    }
+
+    public void publishSessionClosed(String sessionId) {
+        if (node != null) {
+            node.publishSessionClosed(sessionId);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> exportLobby(String lobbyId) throws IOException {
+        Optional<LobbySnapshotEntry> entry = lobbyService.captureSnapshot(lobbyId);
+        if (entry.isEmpty()) return Optional.empty();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        LobbySnapshotCodec.encode(List.of(withSessionIds(entry.get(), node::globalSessionId)), out);
+        return Optional.of(out.toByteArray());
+    }
+    //sesje zostaja podlaczone do swoich wezlow, wiec bez odlaczania
+    @Override
+    public void importLobby(byte[] data) throws IOException {
+        List<LobbySnapshotEntry> entries = LobbySnapshotCodec.decode(new ByteArrayInputStream(data)).stream()
+                .map(entry -> withSessionIds(entry, node::localSessionId))
+                .toList();
+        lobbyService.restoreSnapshots(entries, false);
+    }
+
+    private static LobbySnapshotEntry withSessionIds(LobbySnapshotEntry entry, UnaryOperator<String> mapping) {
+        return new LobbySnapshotEntry(entry.lobby().withSessionIds(mapping), entry.hasGameService(), entry.category(), entry.question());
+    }
+
+    @Override
+    public void releaseLobby(String lobbyId) {
+        lobbyService.releaseLobby(lobbyId);
+    }
+    //format: node-1=127.0.0.1:7400,node-2=127.0.0.1:7401
+    static Map<String, InetSocketAddress> parsePeers(String peers) {
+        Map<String, InetSocketAddress> result = new HashMap<>();
+        if (peers == null || peers.isBlank()) return result;
+        for (String entry : peers.split(",")) {
+            String[] idAndAddress = entry.trim().split("=", 2);
+            if (idAndAddress.length != 2) continue;
+            String[] hostAndPort = idAndAddress[1].trim().split(":", 2);
+            if (hostAndPort.length != 2) continue;
+            result.put(idAndAddress[0].trim(), new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package org.quizpans.quizpans_server.online.cluster;
+// pierscien spojnego haszowania lobby -> wezel
+// kazdy wezel ma wiele wirtualnych punktow dla rownego podzialu
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ConsistentHashRing {
+    private final int virtualNodes;
+    private volatile NavigableMap<Long, String> ring = new TreeMap<>();
+    private volatile Set<String> nodes = Set.of();
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public synchronized boolean addNode(String nodeId) {
+        if (nodes.contains(nodeId)) return false;
+        NavigableMap<Long, String> next = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            next.put(hash(nodeId + "#" + i), nodeId);
+        }
+        Set<String> nextNodes = new TreeSet<>(nodes);
+        nextNodes.add(nodeId);
+        ring = next;
+        nodes = Set.copyOf(nextNodes);
+        return true;
+    }
+
+    public synchronized boolean removeNode(String nodeId) {
+        if (!nodes.contains(nodeId)) return false;
+        NavigableMap<Long, String> next = new TreeMap<>(ring);
+        next.values().removeIf(nodeId::equals);
+        Set<String> nextNodes = new TreeSet<>(nodes);
+        nextNodes.remove(nodeId);
+        ring = next;
+        nodes = Set.copyOf(nextNodes);
+        return true;
+    }
+
+    public String ownerOf(String key) {
+        NavigableMap<Long, String> current = ring;
+        if (current.isEmpty()) return null;
+        Map.Entry<Long, String> entry = current.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+    //fnv-1a + mieszanie splitmix64
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
@@ -0,0 +1,82 @@
+package org.quizpans.quizpans_server.online.cluster;
+// szyna w jednym procesie do testow i uruchomien lokalnych
+// kazdy wezel ma wlasny watek dostarczania
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public class InProcessMessageBus implements MessageBus {
+
+    public static class Hub {
+        private static final Hub SHARED = new Hub();
+        private final Map<String, InProcessMessageBus> members = new ConcurrentHashMap<>();
+
+        //wspolny dla wszystkich kontekstow w jednej jvm
+        public static Hub shared() {
+            return SHARED;
+        }
+    }
+
+    private final Hub hub;
+    private String nodeId;
+    private Consumer<ClusterMessage> handler;
+    private ExecutorService delivery;
+
+    public InProcessMessageBus(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<ClusterMessage> handler) {
+        this.nodeId = nodeId;
+        this.handler = handler;
+        this.delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("ClusterBus-" + nodeId);
+            return t;
+        });
+        hub.members.put(nodeId, this);
+    }
+
+    @Override
+    public Set<String> reachableNodes() {
+        return Set.copyOf(hub.members.keySet());
+    }
+
+    @Override
+    public void send(String targetNode, ClusterMessage message) {
+        InProcessMessageBus target = hub.members.get(targetNode);
+        if (target != null) {
+            target.deliver(message);
+        }
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        hub.members.forEach((id, member) -> {
+            if (!id.equals(nodeId)) {
+                member.deliver(message);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        hub.members.remove(nodeId, this);
+        if (delivery != null) {
+            delivery.shutdown();
+        }
+    }
+
+    private void deliver(ClusterMessage message) {
+        try {
+            delivery.execute(() -> handler.accept(message));
+        } catch (RuntimeException e) {
+            // wezel zamkniety
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.quizpans.quizpans_server.online.cluster;
+
+import java.io.IOException;
+import java.util.Optional;
+//przenoszenie stanu lobby miedzy wezlami
+public interface LobbyTransfer {
+
+    //pusty gdy lobby jest wolne i nie ma czego przenosic
+    Optional<byte[]> exportLobby(String lobbyId) throws IOException;
+
+    void importLobby(byte[] data) throws IOException;
+
+    void releaseLobby(String lobbyId);
+}
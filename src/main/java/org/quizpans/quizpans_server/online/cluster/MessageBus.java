@@ -0,0 +1,20 @@
+package org.quizpans.quizpans_server.online.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+//szyna wiadomosci miedzy wezlami
+//dostarczanie do jednego wezla zachowuje kolejnosc
+public interface MessageBus {
+
+    void start(String nodeId, Consumer<ClusterMessage> handler);
+
+    //wezly osiagalne w chwili startu
+    Set<String> reachableNodes();
+
+    void send(String targetNode, ClusterMessage message);
+
+    //do wszystkich poza nadawca
+    void publish(ClusterMessage message);
+
+    void close();
+}
@@ -0,0 +1,56 @@
+package org.quizpans.quizpans_server.online.cluster;
+// id sesji w json przekazywanym miedzy wezlami: pola sessionId i *SessionId
+// klient zna tylko id ze swojego wezla, wlasciciel lobby tylko globalne id obcych sesji
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+final class SessionIdJson {
+
+    private SessionIdJson() {
+    }
+    //bez pola z id sesji json zostaje bez parsowania
+    static String rewrite(String json, UnaryOperator<String> mapping) {
+        if (json == null || !json.contains("essionId\"")) return json;
+        JsonElement tree;
+        try {
+            tree = JsonParser.parseString(json);
+        } catch (JsonParseException e) {
+            return json;
+        }
+        return rewriteTree(tree, mapping) ? tree.toString() : json;
+    }
+
+    private static boolean rewriteTree(JsonElement element, UnaryOperator<String> mapping) {
+        boolean changed = false;
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                changed |= rewriteTree(item, mapping);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+                JsonElement value = field.getValue();
+                if (isSessionIdField(field.getKey()) && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+                    String mapped = mapping.apply(value.getAsString());
+                    if (!mapped.equals(value.getAsString())) {
+                        field.setValue(new JsonPrimitive(mapped));
+                        changed = true;
+                    }
+                } else {
+                    changed |= rewriteTree(value, mapping);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isSessionIdField(String name) {
+        return name.equals("sessionId") || name.endsWith("SessionId");
+    }
+}
@@ -0,0 +1,180 @@
+package org.quizpans.quizpans_server.online.cluster;
+// szyna po tcp, kazdy wezel nasluchuje na swoim porcie
+// jedno polaczenie wychodzace na wezel, zapis ramek pod blokada
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class TcpMessageBus implements MessageBus {
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+
+    private final InetSocketAddress listenAddress;
+    private final Map<String, InetSocketAddress> peers;
+    private final Map<String, PeerConnection> outbound = new ConcurrentHashMap<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private String nodeId;
+    private Consumer<ClusterMessage> handler;
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    public TcpMessageBus(InetSocketAddress listenAddress, Map<String, InetSocketAddress> peers) {
+        this.listenAddress = listenAddress;
+        this.peers = Map.copyOf(peers);
+    }
+
+    @Override
+    public void start(String nodeId, Consumer<ClusterMessage> handler) {
+        this.nodeId = nodeId;
+        this.handler = handler;
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(listenAddress);
+        } catch (IOException e) {
+            throw new IllegalStateException("Nie można otworzyć portu klastra " + listenAddress, e);
+        }
+        running = true;
+        Thread acceptThread = new Thread(this::acceptLoop);
+        acceptThread.setDaemon(true);
+        acceptThread.setName("ClusterBusAccept-" + nodeId);
+        acceptThread.start();
+    }
+
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public Set<String> reachableNodes() {
+        Set<String> reachable = new HashSet<>();
+        reachable.add(nodeId);
+        for (String peer : peers.keySet()) {
+            if (!peer.equals(nodeId) && connection(peer) != null) {
+                reachable.add(peer);
+            }
+        }
+        return reachable;
+    }
+
+    @Override
+    public void send(String targetNode, ClusterMessage message) {
+        if (targetNode.equals(nodeId)) {
+            handler.accept(message);
+            return;
+        }
+        PeerConnection peer = connection(targetNode);
+        if (peer == null) return;
+        try {
+            byte[] frame = ClusterMessageCodec.encode(message);
+            synchronized (peer) {
+                peer.out.write(frame);
+                peer.out.flush();
+            }
+        } catch (IOException e) {
+            outbound.remove(targetNode, peer);
+            closeQuietly(peer.socket);
+        }
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (String peer : peers.keySet()) {
+            if (!peer.equals(nodeId)) {
+                send(peer, message);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        outbound.values().forEach(peer -> closeQuietly(peer.socket));
+        inbound.forEach(TcpMessageBus::closeQuietly);
+        outbound.clear();
+        inbound.clear();
+    }
+
+    private PeerConnection connection(String peer) {
+        PeerConnection existing = outbound.get(peer);
+        if (existing != null && !existing.socket.isClosed()) return existing;
+        InetSocketAddress address = peers.get(peer);
+        if (address == null) return null;
+        try {
+            Socket socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address, CONNECT_TIMEOUT_MS);
+            PeerConnection created = new PeerConnection(socket);
+            PeerConnection raced = outbound.putIfAbsent(peer, created);
+            if (raced != null && !raced.socket.isClosed()) {
+                closeQuietly(socket);
+                return raced;
+            }
+            outbound.put(peer, created);
+            return created;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                inbound.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket));
+                reader.setDaemon(true);
+                reader.setName("ClusterBusReader-" + nodeId);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("TcpMessageBus: błąd przyjmowania połączenia: " + e.getMessage());
+                }
+            }
+        }
+    }
+    //jeden watek czytajacy na polaczenie -> kolejnosc od nadawcy zachowana
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024))) {
+            while (running) {
+                handler.accept(ClusterMessageCodec.read(in));
+            }
+        } catch (IOException e) {
+            // polaczenie zamkniete
+        } finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignorowane przy zamykaniu
+        }
+    }
+
+    private static final class PeerConnection {
+        private final Socket socket;
+        private final OutputStream out;
+
+        PeerConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.quizpans.quizpans_server.online.journal;
+//komenda lub zmiana stanu lobby + wynik
+//sequence nadawany przy zapisie do dziennika
+public record GameEvent(
+        long sequence,
+        long timestamp,
+        String lobbyId,
+        GameEventType type,
+        String sessionId,
+        int arg1,
+        int arg2,
+        String text,
+        GameOutcome outcome
+) {
+}
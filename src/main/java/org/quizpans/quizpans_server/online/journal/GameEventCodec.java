@@ -0,0 +1,131 @@
+package org.quizpans.quizpans_server.online.journal;
+// binarny format rekordu dziennika
+// [int dlugosc][tresc][int crc32], dlugosc 0 = koniec segmentu
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+public final class GameEventCodec {
+    public static final int SEGMENT_MAGIC = 0x51504A31; // QPJ1
+    public static final int SEGMENT_HEADER_SIZE = 8;
+    public static final int RECORD_OVERHEAD = 8;
+    private static final int MAX_TEXT_BYTES = 4096;
+    private static final LobbyStatus[] STATUSES = LobbyStatus.values();
+
+    private GameEventCodec() {
+    }
+    //tresc rekordu bez dlugosci i crc
+    public static void encodeBody(GameEvent event, long sequence, ByteBuffer out) {
+        GameOutcome o = event.outcome();
+        out.put(event.type().code());
+        out.putLong(sequence);
+        out.putLong(event.timestamp());
+        putString(out, event.lobbyId());
+        putString(out, event.sessionId());
+        out.putInt(event.arg1());
+        out.putInt(event.arg2());
+        putString(out, event.text());
+        out.put((byte) o.status().ordinal());
+        out.putShort((short) o.roundNumber());
+        out.putShort((short) o.totalRounds());
+        out.putInt(o.team1Score());
+        out.putInt(o.team2Score());
+        out.put((byte) o.team1Errors());
+        out.put((byte) o.team2Errors());
+        out.putInt(o.currentRoundPoints());
+        out.putInt(o.revealedMask());
+        out.putInt(o.questionId());
+        int flags = (o.team1Turn() ? 1 : 0)
+                | (o.questionRevealed() ? 2 : 0)
+                | (o.stealAttemptInProgress() ? 4 : 0)
+                | (o.initialControlPhaseActive() ? 8 : 0);
+        out.put((byte) flags);
+    }
+
+    public static GameEvent decodeBody(ByteBuffer in) {
+        GameEventType type = GameEventType.fromCode(in.get());
+        long sequence = in.getLong();
+        long timestamp = in.getLong();
+        String lobbyId = getString(in);
+        String sessionId = getString(in);
+        int arg1 = in.getInt();
+        int arg2 = in.getInt();
+        String text = getString(in);
+        LobbyStatus status = STATUSES[in.get()];
+        int round = in.getShort();
+        int totalRounds = in.getShort();
+        int team1Score = in.getInt();
+        int team2Score = in.getInt();
+        int team1Errors = in.get();
+        int team2Errors = in.get();
+        int roundPoints = in.getInt();
+        int revealedMask = in.getInt();
+        int questionId = in.getInt();
+        int flags = in.get();
+        GameOutcome outcome = new GameOutcome(status, round, totalRounds, team1Score, team2Score, team1Errors, team2Errors,
+                roundPoints, revealedMask, questionId, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, (flags & 8) != 0);
+        return new GameEvent(sequence, timestamp, lobbyId, type, sessionId, arg1, arg2, text, outcome);
+    }
+    //caly rekord, false gdy nie miesci sie w buforze
+    public static boolean writeRecord(ByteBuffer body, ByteBuffer target) {
+        int length = body.remaining();
+        if (target.remaining() < length + RECORD_OVERHEAD + 4) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        target.putInt(length);
+        target.put(body);
+        target.putInt((int) crc.getValue());
+        return true;
+    }
+    //null gdy koniec segmentu lub uszkodzony rekord, pozycja zostaje na poczatku rekordu
+    public static GameEvent readRecord(ByteBuffer in) {
+        int start = in.position();
+        try {
+            int length = in.getInt();
+            if (length <= 0 || length > in.remaining() - 4) {
+                in.position(start);
+                return null;
+            }
+            ByteBuffer body = in.slice(in.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            in.position(in.position() + length);
+            if ((int) crc.getValue() != in.getInt()) {
+                in.position(start);
+                return null;
+            }
+            return decodeBody(body);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            in.position(start);
+            return null;
+        }
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_TEXT_BYTES);
+        //ciecie przed bajtem kontynuacji rozbiloby znak utf-8
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
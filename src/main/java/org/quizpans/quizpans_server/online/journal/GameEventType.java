@@ -0,0 +1,47 @@
+package org.quizpans.quizpans_server.online.journal;
+//rodzaje zdarzen dziennika kody zapisywane na dysku nie zmieniac
+public enum GameEventType {
+    HOST_TAKEN(1),
+    HOST_PANEL_REGISTERED(2),
+    LOBBY_CONFIGURED(3),
+    PLAYER_JOINED(4),
+    PLAYER_LEFT(5),
+    ROLE_ASSIGNED(6),
+    PLAYER_UNASSIGNED(7),
+    GAME_STARTED(8),
+    QUESTION_LOADED(9),
+    QUESTION_REVEALED(10),
+    ANSWER_SUBMITTED(11),
+    ANSWER_EVALUATED(12),
+    ANSWER_TIMEOUT(13),
+    ANSWER_REVEALED_BY_HOST(14),
+    STEAL_STARTED(15),
+    ROUND_FINALIZED(16),
+    LOBBY_RESET(17);
+
+    private static final GameEventType[] BY_CODE = new GameEventType[32];
+
+    static {
+        for (GameEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    GameEventType(int code) {
+        this.code = code;
+    }
+
+    public byte code() {
+        return (byte) code;
+    }
+
+    public static GameEventType fromCode(int code) {
+        GameEventType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Nieznany kod zdarzenia: " + code);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,185 @@
+package org.quizpans.quizpans_server.online.journal;
+// dziennik zdarzen gry dopisywany na koniec
+// segmenty mapowane w pamieci
+// zapis grupowy w osobnym watku lobby nie czeka na dysk
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class GameJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int MAX_RECORD_BYTES = 16 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int batchSize;
+    private final BlockingQueue<GameEvent> pending;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong committedBatches = new AtomicLong();
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private long nextSequence = 1;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public GameJournal(@Value("${quizpans.journal.enabled:false}") boolean enabled,
+                       @Value("${quizpans.journal.dir:data/journal}") String directory,
+                       @Value("${quizpans.journal.segment-size-mb:16}") int segmentSizeMb,
+                       @Value("${quizpans.journal.batch-size:256}") int batchSize,
+                       @Value("${quizpans.journal.queue-capacity:65536}") int queueCapacity) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.batchSize = batchSize;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(directory);
+        openLastSegment();
+        running = true;
+        writerThread = new Thread(this::writeLoop);
+        writerThread.setDaemon(true);
+        writerThread.setName("GameJournalWriter");
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        if (writerThread == null) return;
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        if (!writerThread.isAlive()) {
+            List<GameEvent> rest = new ArrayList<>();
+            pending.drainTo(rest);
+            if (!rest.isEmpty()) {
+                commitBatch(rest);
+            }
+        }
+        segmentChannel.close();
+    }
+    //nigdy nie blokuje watku lobby, przy pelnej kolejce zdarzenie jest liczone jako utracone
+    public void append(GameEvent event) {
+        if (!enabled || event == null) return;
+        if (!pending.offer(event)) {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    public long getDroppedEvents() { return droppedEvents.get(); }
+    public long getWrittenEvents() { return writtenEvents.get(); }
+    public long getCommittedBatches() { return committedBatches.get(); }
+    public Path getDirectory() { return directory; }
+
+    private void writeLoop() {
+        List<GameEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                GameEvent first = pending.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("GameJournal: błąd zapisu dziennika: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    //jeden force na cala paczke
+    private void commitBatch(List<GameEvent> batch) throws IOException {
+        for (GameEvent event : batch) {
+            scratch.clear();
+            GameEventCodec.encodeBody(event, nextSequence, scratch);
+            scratch.flip();
+            if (!GameEventCodec.writeRecord(scratch, segment)) {
+                segment.force();
+                rollSegment();
+                scratch.rewind();
+                GameEventCodec.writeRecord(scratch, segment);
+            }
+            nextSequence++;
+        }
+        segment.force();
+        writtenEvents.addAndGet(batch.size());
+        committedBatches.incrementAndGet();
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            segmentIndex = 0;
+            rollSegment();
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        segmentIndex = parseSegmentIndex(last);
+        segmentChannel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentChannel.size());
+        segment.position(GameEventCodec.SEGMENT_HEADER_SIZE);
+        //odtworzenie pozycji zapisu i numeru sekwencji po restarcie
+        GameEvent event;
+        while ((event = GameEventCodec.readRecord(segment)) != null) {
+            nextSequence = event.sequence() + 1;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        if (segmentChannel != null) {
+            segmentChannel.close();
+        }
+        segmentIndex++;
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.putInt(GameEventCodec.SEGMENT_MAGIC);
+        segment.putInt(0);
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (var stream = Files.list(directory)) {
+            return stream.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long parseSegmentIndex(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
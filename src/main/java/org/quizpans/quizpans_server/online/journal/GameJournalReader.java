@@ -0,0 +1,74 @@
+package org.quizpans.quizpans_server.online.journal;
+// odczyt dziennika i odtworzenie stanu lobby
+// uzycie: GameJournalReader <katalog> [lobbyId]
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public final class GameJournalReader {
+
+    private GameJournalReader() {
+    }
+
+    public static void forEach(Path directory, Consumer<GameEvent> consumer) throws IOException {
+        for (Path segmentPath : GameJournal.listSegments(directory)) {
+            try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (segment.getInt() != GameEventCodec.SEGMENT_MAGIC) {
+                    throw new IOException("Nieprawidlowy segment dziennika: " + segmentPath);
+                }
+                segment.position(GameEventCodec.SEGMENT_HEADER_SIZE);
+                GameEvent event;
+                while ((event = GameEventCodec.readRecord(segment)) != null) {
+                    consumer.accept(event);
+                }
+            }
+        }
+    }
+
+    public static List<GameEvent> readLobby(Path directory, String lobbyId) throws IOException {
+        List<GameEvent> events = new ArrayList<>();
+        forEach(directory, event -> {
+            if (lobbyId.equals(event.lobbyId())) {
+                events.add(event);
+            }
+        });
+        return events;
+    }
+
+    public static LobbyReplay replay(Path directory, String lobbyId) throws IOException {
+        LobbyReplay replay = new LobbyReplay(lobbyId);
+        forEach(directory, event -> {
+            if (lobbyId.equals(event.lobbyId())) {
+                replay.apply(event);
+            }
+        });
+        return replay;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uzycie: GameJournalReader <katalog dziennika> [lobbyId]");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        if (args.length == 1) {
+            forEach(directory, event -> System.out.println(event));
+            return;
+        }
+        LobbyReplay replay = new LobbyReplay(args[1]);
+        forEach(directory, event -> {
+            if (args[1].equals(event.lobbyId())) {
+                System.out.println(event.sequence() + " " + event.type() + " " + event.sessionId() + " " + event.text());
+                replay.apply(event);
+            }
+        });
+        System.out.println(replay);
+    }
+}
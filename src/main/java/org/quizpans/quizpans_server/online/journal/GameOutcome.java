@@ -0,0 +1,21 @@
+package org.quizpans.quizpans_server.online.journal;
+
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+//stan gry po zdarzeniu
+public record GameOutcome(
+        LobbyStatus status,
+        int roundNumber,
+        int totalRounds,
+        int team1Score,
+        int team2Score,
+        int team1Errors,
+        int team2Errors,
+        int currentRoundPoints,
+        int revealedMask,
+        int questionId,
+        boolean team1Turn,
+        boolean questionRevealed,
+        boolean stealAttemptInProgress,
+        boolean initialControlPhaseActive
+) {
+}
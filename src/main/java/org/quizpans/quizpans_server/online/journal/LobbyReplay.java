@@ -0,0 +1,78 @@
+package org.quizpans.quizpans_server.online.journal;
+//stan lobby odbudowany ze zdarzen
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LobbyReplay {
+    public record ReplayedParticipant(String sessionId, String nickname, String teamName, ParticipantRole role) {
+    }
+
+    private final String lobbyId;
+    private final Map<String, ReplayedParticipant> participants = new LinkedHashMap<>();
+    private String hostSessionId;
+    private String hostPanelSessionId;
+    private String currentQuestionText;
+    private GameOutcome outcome;
+    private long lastSequence;
+    private int eventCount;
+
+    public LobbyReplay(String lobbyId) {
+        this.lobbyId = lobbyId;
+    }
+
+    public void apply(GameEvent event) {
+        switch (event.type()) {
+            case HOST_TAKEN -> hostSessionId = event.sessionId();
+            case HOST_PANEL_REGISTERED -> hostPanelSessionId = event.sessionId();
+            case PLAYER_JOINED -> participants.put(event.sessionId(),
+                    new ReplayedParticipant(event.sessionId(), event.text(), null, ParticipantRole.PLAYER));
+            case PLAYER_LEFT -> {
+                participants.remove(event.sessionId());
+                if (event.sessionId() != null && event.sessionId().equals(hostSessionId)) hostSessionId = null;
+                if (event.sessionId() != null && event.sessionId().equals(hostPanelSessionId)) hostPanelSessionId = null;
+            }
+            case ROLE_ASSIGNED, PLAYER_UNASSIGNED -> {
+                ReplayedParticipant p = participants.get(event.sessionId());
+                if (p != null) {
+                    ParticipantRole role = ParticipantRole.values()[event.arg1()];
+                    participants.put(p.sessionId(), new ReplayedParticipant(p.sessionId(), p.nickname(), event.text(), role));
+                }
+            }
+            case QUESTION_LOADED -> currentQuestionText = event.text();
+            case LOBBY_RESET -> {
+                participants.clear();
+                hostSessionId = null;
+                hostPanelSessionId = null;
+                currentQuestionText = null;
+            }
+            default -> {
+            }
+        }
+        outcome = event.outcome();
+        lastSequence = event.sequence();
+        eventCount++;
+    }
+
+    public String getLobbyId() { return lobbyId; }
+    public Map<String, ReplayedParticipant> getParticipants() { return participants; }
+    public String getHostSessionId() { return hostSessionId; }
+    public String getHostPanelSessionId() { return hostPanelSessionId; }
+    public String getCurrentQuestionText() { return currentQuestionText; }
+    public GameOutcome getOutcome() { return outcome; }
+    public long getLastSequence() { return lastSequence; }
+    public int getEventCount() { return eventCount; }
+
+    @Override
+    public String toString() {
+        return "LobbyReplay[" +
+                "lobbyId=" + lobbyId + ", " +
+                "events=" + eventCount + ", " +
+                "lastSequence=" + lastSequence + ", " +
+                "host=" + hostSessionId + ", " +
+                "participants=" + participants.values() + ", " +
+                "question=" + currentQuestionText + ", " +
+                "outcome=" + outcome + ']';
+    }
+}
@@ -0,0 +1,89 @@
+package org.quizpans.quizpans_server.online.model;
+// tablica odpowiedzi rundy
+// teksty i punkty po displayOrderIndex + maska odkrytych
+import org.quizpans.quizpans_server.game.GameService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class AnswerBoard {
+    public static final AnswerBoard EMPTY = new AnswerBoard(new String[0], new int[0]);
+    //maska odkrytych to int, slot 32 nalozylby sie na slot 0
+    public static final int MAX_SLOTS = Integer.SIZE;
+
+    private final String[] texts;
+    private final int[] points;
+    private final int answerCount;
+    private final Map<String, Integer> slotByText;
+    private volatile int revealedMask;
+
+    private AnswerBoard(String[] texts, int[] points) {
+        this.texts = texts;
+        this.points = points;
+        this.slotByText = new HashMap<>();
+        int count = 0;
+        for (int slot = 0; slot < texts.length; slot++) {
+            if (texts[slot] != null) {
+                slotByText.putIfAbsent(texts[slot].toLowerCase(Locale.ROOT), slot);
+                count++;
+            }
+        }
+        this.answerCount = count;
+    }
+    //jedna tablica na pytanie
+    public static AnswerBoard fromAnswers(List<GameService.AnswerData> answers) {
+        if (answers == null || answers.isEmpty()) return EMPTY;
+        int slots = 0;
+        for (GameService.AnswerData ad : answers) {
+            slots = Math.max(slots, ad.displayOrderIndex() + 1);
+        }
+        checkSlotCount(slots);
+        String[] texts = new String[slots];
+        int[] points = new int[slots];
+        for (GameService.AnswerData ad : answers) {
+            texts[ad.displayOrderIndex()] = ad.originalText();
+            points[ad.displayOrderIndex()] = ad.points();
+        }
+        return new AnswerBoard(texts, points);
+    }
+
+    public static AnswerBoard of(String[] texts, int[] points, int revealedMask) {
+        if (texts.length == 0) return EMPTY;
+        checkSlotCount(texts.length);
+        AnswerBoard board = new AnswerBoard(texts.clone(), points.clone());
+        board.revealedMask = revealedMask;
+        return board;
+    }
+
+    private static void checkSlotCount(int slots) {
+        if (slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Za dużo odpowiedzi na tablicy: " + slots + " (maksymalnie " + MAX_SLOTS + ").");
+        }
+    }
+
+    public int getSlotCount() { return texts.length; }
+    public int getAnswerCount() { return answerCount; }
+    public boolean hasSlot(int slot) { return slot >= 0 && slot < texts.length && texts[slot] != null; }
+    public String getText(int slot) { return texts[slot]; }
+    public int getPoints(int slot) { return points[slot]; }
+    public int getRevealedMask() { return revealedMask; }
+    public int getRevealedCount() { return Integer.bitCount(revealedMask); }
+
+    public int slotOf(String answerText) {
+        if (answerText == null) return -1;
+        Integer slot = slotByText.get(answerText.toLowerCase(Locale.ROOT));
+        return slot != null ? slot : -1;
+    }
+
+    public boolean isRevealed(int slot) {
+        return slot >= 0 && slot < texts.length && (revealedMask & (1 << slot)) != 0;
+    }
+    //odkrycie tylko pod blokada lobby
+    public boolean reveal(int slot) {
+        if (!hasSlot(slot) || isRevealed(slot)) return false;
+        revealedMask |= (1 << slot);
+        return true;
+    }
+}
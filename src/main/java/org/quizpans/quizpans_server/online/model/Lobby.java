@@ -1,17 +1,25 @@
 package org.quizpans.quizpans_server.online.model;
 // zarzadzanie lobby graczami stanem gry walka przejecie koniec rundy
 import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.metrics.QuizpansEvents;
+import org.quizpans.quizpans_server.online.journal.GameEvent;
+import org.quizpans.quizpans_server.online.journal.GameEventType;
+import org.quizpans.quizpans_server.online.journal.GameOutcome;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 //informacja lobby
 public class Lobby {
     private final String id;
@@ -25,6 +33,15 @@ public class Lobby {
     //uczestnicy ilosc
     private final int maxParticipants = 13;
     private final Map<String, PlayerInfo> participants = new ConcurrentHashMap<>();
+    //sklady druzyn i poczekalnia aktualizowane przy dolaczeniu wyjsciu przypisaniu
+    private final Map<String, List<PlayerInfo>> teamRosters = new LinkedHashMap<>();
+    private final List<PlayerInfo> waitingRoster = new ArrayList<>();
+    private volatile Map<String, List<PlayerInfo>> teamsView = Map.of();
+    private volatile List<PlayerInfo> waitingView = List.of();
+    //uczestnicy odtworzeni z kopii czekajacy na ponowne polaczenie: zastepczy id -> skrot tokenu wznowienia
+    //zastepczy id nie trafia do indeksu sesji, nowa sesja kontenera o starym id nie dostaje cudzego miejsca
+    private static final String DETACHED_PREFIX = "detached:";
+    private final Map<String, String> detachedTokenDigests = new HashMap<>();
     //stan gyr
     private String currentQuestionText;
     private boolean isQuestionRevealed = false;
@@ -32,12 +49,13 @@ public class Lobby {
     private int currentRoundNumber;
     private int totalRounds;
     private String currentPlayerSessionId;
+    private int currentPlayerIndex = -1;
     private boolean isTeam1Turn;
     private int team1Score;
     private int team2Score;
     private int team1Errors;
     private int team2Errors;
-    private List<Map<String, Object>> revealedAnswersData;
+    private AnswerBoard answerBoard = AnswerBoard.EMPTY;
     private int currentRoundPoints;
     private int revealedAnswersCountInRound;
     //runda fazy
@@ -48,31 +66,76 @@ public class Lobby {
     private GameService.AnswerProcessingResult firstPlayerAnswerInControlPhase = null;
     private boolean firstTeamAttemptedInControlPhase = false;
     //timer
-    private transient ScheduledFuture<?> answerTimerTask;
+    private transient volatile ScheduledFuture<?> answerTimerTask;
     private int currentAnswerTimeRemaining;
     private transient Consumer<Lobby> onTimerTickOrTimeoutCallback;
     private transient ScheduledExecutorService timerSchedulerInstance;
+    //dziennik zdarzen
+    private transient Consumer<GameEvent> eventSink;
+    //ocena odpowiedzi czeka na zapis do pierwszego zdarzenia, ktore wywolala (kradziez, koniec rundy)
+    private transient PendingAnswerOutcome pendingAnswerOutcome;
+    //indeks sesja -> lobby
+    private transient LobbyMembershipListener membershipListener;
     //loby podstawowe wartosci
     public Lobby(String id, String name) {
         this.id = id;
         this.name = name;
         this.status = LobbyStatus.AVAILABLE;
         this.gameSettings = new GameSettings();
-        this.revealedAnswersData = new ArrayList<>();
         this.currentAnswerTimeRemaining = 0;
     }
 
     public void setTimerCallback(Consumer<Lobby> callback) {
         this.onTimerTickOrTimeoutCallback = callback;
     }
+
+    public void setEventSink(Consumer<GameEvent> eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    public void setMembershipListener(LobbyMembershipListener membershipListener) {
+        this.membershipListener = membershipListener;
+    }
+
+    private void bindSession(String sessionId, SessionRole role) {
+        if (membershipListener != null && sessionId != null) {
+            membershipListener.sessionBound(id, sessionId, role);
+        }
+    }
+
+    private void unbindSession(String sessionId, SessionRole role) {
+        if (membershipListener != null && sessionId != null) {
+            membershipListener.sessionUnbound(id, sessionId, role);
+        }
+    }
+    private record PendingAnswerOutcome(GameEventType type, String sessionId, int answerIndex, int points, String text) {
+    }
+    //zapis komendy i stanu po niej
+    public synchronized void recordEvent(GameEventType type, String sessionId, int arg1, int arg2, String text) {
+        if (eventSink == null) return;
+        GameOutcome outcome = new GameOutcome(status, currentRoundNumber, totalRounds, team1Score, team2Score,
+                team1Errors, team2Errors, currentRoundPoints, answerBoard.getRevealedMask(), currentQuestionId,
+                isTeam1Turn, isQuestionRevealed, stealAttemptInProgress, initialControlPhaseActive);
+        eventSink.accept(new GameEvent(0, System.currentTimeMillis(), id, type, sessionId, arg1, arg2, text, outcome));
+    }
     //time start
     public synchronized void startAnswerTimer(ScheduledExecutorService scheduler) {
+        startAnswerTimer(scheduler, gameSettings != null ? gameSettings.answerTime() : 0);
+    }
+    //po odtworzeniu z kopii: tura w toku liczy dalej od zapisanego czasu, bez zapisanego od pelnego
+    public synchronized void resumeAnswerTimer(ScheduledExecutorService scheduler) {
+        if (status != LobbyStatus.BUSY || !isQuestionRevealed || currentPlayerSessionId == null) return;
+        int remaining = currentAnswerTimeRemaining > 0 ? currentAnswerTimeRemaining : gameSettings.answerTime();
+        startAnswerTimer(scheduler, Math.min(remaining, gameSettings.answerTime()));
+    }
+
+    private void startAnswerTimer(ScheduledExecutorService scheduler, int seconds) {
         if (scheduler != null) {
             this.timerSchedulerInstance = scheduler;
         }
         stopAnswerTimer();
 
-        if (this.timerSchedulerInstance == null || gameSettings == null || gameSettings.answerTime() <= 0 || status != LobbyStatus.BUSY || currentPlayerSessionId == null || currentQuestionText == null || currentQuestionText.startsWith("Koniec gry!")) {
+        if (this.timerSchedulerInstance == null || gameSettings == null || seconds <= 0 || status != LobbyStatus.BUSY || currentPlayerSessionId == null || currentQuestionText == null || currentQuestionText.startsWith("Koniec gry!")) {
             this.currentAnswerTimeRemaining = 0;
             if (onTimerTickOrTimeoutCallback != null) {
                 onTimerTickOrTimeoutCallback.accept(this);
@@ -80,7 +143,7 @@ public class Lobby {
             return;
         }
 
-        this.currentAnswerTimeRemaining = gameSettings.answerTime();
+        this.currentAnswerTimeRemaining = seconds;
         if (onTimerTickOrTimeoutCallback != null) {
             onTimerTickOrTimeoutCallback.accept(this);
         }
@@ -99,6 +162,13 @@ public class Lobby {
 
                 if (currentAnswerTimeRemaining <= 0) {
                     stopAnswerTimer();
+                    QuizpansEvents.AnswerTimerExpired expired = new QuizpansEvents.AnswerTimerExpired();
+                    if (expired.shouldCommit()) {
+                        expired.lobbyId = id;
+                        expired.round = currentRoundNumber;
+                        expired.playerSessionId = currentPlayerSessionId;
+                        expired.commit();
+                    }
                     PlayerInfo timedOutPlayer = findParticipantBySessionId(currentPlayerSessionId);
                     if (timedOutPlayer != null) {
                         GameService.AnswerProcessingResult timeoutResult = new GameService.AnswerProcessingResult(false, 0, null, -1, null);
@@ -115,6 +185,11 @@ public class Lobby {
             }
         }, 1, 1, TimeUnit.SECONDS);
     }
+    //bez blokady lobby, dla metryk
+    public boolean isAnswerTimerRunning() {
+        ScheduledFuture<?> task = answerTimerTask;
+        return task != null && !task.isDone();
+    }
     //stop
     public synchronized void stopAnswerTimer() {
         if (answerTimerTask != null && !answerTimerTask.isDone()) {
@@ -127,9 +202,9 @@ public class Lobby {
         if (initialControlPhaseActive) {
             if (!firstTeamAttemptedInControlPhase) {
                 firstTeamAttemptedInControlPhase = true;
-                if (result.isCorrect && !isAnswerAlreadyRevealed(result.originalAnswerText)) {
+                if (result.isCorrect && !isAnswerAlreadyRevealed(result.answerIndex)) {
                     firstPlayerAnswerInControlPhase = result;
-                    revealAnswerData(result.originalAnswerText);
+                    revealAnswerData(result.answerIndex);
                     currentRoundPoints += result.pointsAwarded;
                     revealedAnswersCountInRound++;
                     if (result.answerIndex == 0) {
@@ -142,8 +217,8 @@ public class Lobby {
                     switchTeamForControlAttempt(gameServiceInstance);
                 }
             } else {
-                if (result.isCorrect && !isAnswerAlreadyRevealed(result.originalAnswerText)) {
-                    revealAnswerData(result.originalAnswerText);
+                if (result.isCorrect && !isAnswerAlreadyRevealed(result.answerIndex)) {
+                    revealAnswerData(result.answerIndex);
                     currentRoundPoints += result.pointsAwarded;
                     revealedAnswersCountInRound++;
                     if (firstPlayerAnswerInControlPhase == null || result.answerIndex < firstPlayerAnswerInControlPhase.answerIndex) {
@@ -160,9 +235,9 @@ public class Lobby {
                 }
             }
         } else if (stealAttemptInProgress) {
-            if (result.isCorrect && !isAnswerAlreadyRevealed(result.originalAnswerText)) {
+            if (result.isCorrect && !isAnswerAlreadyRevealed(result.answerIndex)) {
                 currentRoundPoints += result.pointsAwarded;
-                revealAnswerData(result.originalAnswerText);
+                revealAnswerData(result.answerIndex);
                 revealedAnswersCountInRound++;
                 if (isTeam1Turn) team1Score += currentRoundPoints; else team2Score += currentRoundPoints;
             } else {
@@ -170,10 +245,10 @@ public class Lobby {
             }
             finalizeRound(gameServiceInstance, true);
         } else {
-            if (result.isCorrect && !isAnswerAlreadyRevealed(result.originalAnswerText)) {
+            if (result.isCorrect && !isAnswerAlreadyRevealed(result.answerIndex)) {
                 this.currentRoundPoints += result.pointsAwarded;
                 revealedAnswersCountInRound++;
-                revealAnswerData(result.originalAnswerText);
+                revealAnswerData(result.answerIndex);
                 if (isTeam1Turn) team1Errors = 0; else team2Errors = 0;
 
                 if (gameServiceInstance != null && revealedAnswersCountInRound < gameServiceInstance.getTotalAnswersCount()) {
@@ -198,7 +273,22 @@ public class Lobby {
     public synchronized void processValidatedAnswer(PlayerInfo answeringPlayer, GameService.AnswerProcessingResult result, GameService gameServiceInstance, boolean isTimeout) {
         if (!isTimeout) stopAnswerTimer();
         this.status = LobbyStatus.BUSY;
+        holdAnswerOutcome(answeringPlayer, result, isTimeout);
         handleGameLogic(answeringPlayer, result, gameServiceInstance);
+        flushAnswerOutcome();
+    }
+
+    private void holdAnswerOutcome(PlayerInfo answeringPlayer, GameService.AnswerProcessingResult result, boolean isTimeout) {
+        pendingAnswerOutcome = new PendingAnswerOutcome(isTimeout ? GameEventType.ANSWER_TIMEOUT : GameEventType.ANSWER_EVALUATED,
+                answeringPlayer != null ? answeringPlayer.sessionId() : null,
+                result.answerIndex, result.pointsAwarded, result.originalAnswerText);
+    }
+    //przed zmianami rundy, zeby odtworzenie szlo w kolejnosci przyczyn
+    private void flushAnswerOutcome() {
+        PendingAnswerOutcome answer = pendingAnswerOutcome;
+        if (answer == null) return;
+        pendingAnswerOutcome = null;
+        recordEvent(answer.type(), answer.sessionId(), answer.answerIndex(), answer.points(), answer.text());
     }
     //tura gracz
     public synchronized void processAnswer(PlayerInfo answeringPlayer, GameService.AnswerProcessingResult result, GameService gameServiceInstance, boolean isTimeout) {
@@ -211,29 +301,24 @@ public class Lobby {
         if (!isTimeout) {
             stopAnswerTimer();
         }
+        holdAnswerOutcome(answeringPlayer, result, isTimeout);
         handleGameLogic(answeringPlayer, result, gameServiceInstance);
+        flushAnswerOutcome();
     }
     //odkrycie
     public synchronized boolean revealAnswerByHost(String answerTextToReveal, GameService gameServiceInstance) {
-        if (revealedAnswersData == null || answerTextToReveal == null) return false;
+        int slot = answerBoard.slotOf(answerTextToReveal);
+        if (!answerBoard.reveal(slot)) return false;
 
-        for (Map<String, Object> answerMap : revealedAnswersData) {
-            String text = (String) answerMap.get("text");
-            boolean isRevealed = (Boolean) answerMap.get("isRevealed");
+        this.currentRoundPoints += answerBoard.getPoints(slot);
+        this.revealedAnswersCountInRound++;
+        recordEvent(GameEventType.ANSWER_REVEALED_BY_HOST, hostPanelSessionId, slot, answerBoard.getPoints(slot), answerBoard.getText(slot));
 
-            if (!isRevealed && answerTextToReveal.equalsIgnoreCase(text)) {
-                answerMap.put("isRevealed", true);
-                this.currentRoundPoints += (Integer) answerMap.get("points");
-                this.revealedAnswersCountInRound++;
-
-                if (gameServiceInstance != null && revealedAnswersCountInRound >= gameServiceInstance.getTotalAnswersCount()) {
-                    if (isTeam1Turn) team1Score += currentRoundPoints; else team2Score += currentRoundPoints;
-                    finalizeRound(gameServiceInstance, false);
-                }
-                return true;
-            }
+        if (gameServiceInstance != null && revealedAnswersCountInRound >= gameServiceInstance.getTotalAnswersCount()) {
+            if (isTeam1Turn) team1Score += currentRoundPoints; else team2Score += currentRoundPoints;
+            finalizeRound(gameServiceInstance, false);
         }
-        return false;
+        return true;
     }
     //gra gameplay
     private void gainControlAndContinue(GameService gameServiceInstance) {
@@ -248,8 +333,8 @@ public class Lobby {
     private void switchTeamForControlAttempt(GameService gameServiceInstance) {
         isTeam1Turn = !isTeam1Turn;
         List<PlayerInfo> nextTeamPlayers = getCurrentTeamPlayers();
-        if (nextTeamPlayers != null && !nextTeamPlayers.isEmpty()) {
-            currentPlayerSessionId = nextTeamPlayers.get(0).sessionId();
+        if (!nextTeamPlayers.isEmpty()) {
+            setCurrentPlayer(nextTeamPlayers, 0);
             if (this.timerSchedulerInstance != null) startAnswerTimer(this.timerSchedulerInstance);
         } else {
             isTeam1Turn = !isTeam1Turn;
@@ -257,36 +342,28 @@ public class Lobby {
         }
     }
 
-    private boolean isAnswerAlreadyRevealed(String answerText) {
-        if (answerText == null) return true;
-        return revealedAnswersData.stream()
-                .filter(answerMap -> (Boolean) answerMap.get("isRevealed"))
-                .anyMatch(answerMap -> {
-                    Object text = answerMap.get("text");
-                    return text != null && text.toString().equalsIgnoreCase(answerText);
-                });
+    //brak odpowiedzi na tablicy traktowany jak juz odkryta
+    private boolean isAnswerAlreadyRevealed(int displayOrderIndex) {
+        return !answerBoard.hasSlot(displayOrderIndex) || answerBoard.isRevealed(displayOrderIndex);
     }
 
-    public void revealAnswerData(String answerText) {
-        if (answerText == null) return;
-        for (Map<String, Object> answerMap : revealedAnswersData) {
-            if (answerMap.get("text") != null && answerMap.get("text").toString().equalsIgnoreCase(answerText)) {
-                answerMap.put("isRevealed", true);
-                break;
-            }
-        }
+    public void revealAnswerData(int displayOrderIndex) {
+        answerBoard.reveal(displayOrderIndex);
     }
 
     private void initiateStealAttempt(GameService gameServiceInstance) {
+        flushAnswerOutcome();
         stopAnswerTimer();
         initialControlPhaseActive = false;
         stealAttemptInProgress = true;
         originalTurnTeam1ForSteal = isTeam1Turn;
         isTeam1Turn = !isTeam1Turn;
 
+        recordEvent(GameEventType.STEAL_STARTED, null, isTeam1Turn ? 1 : 2, currentRoundPoints, null);
+
         List<PlayerInfo> stealingTeamPlayers = getCurrentTeamPlayers();
-        if (stealingTeamPlayers != null && !stealingTeamPlayers.isEmpty()) {
-            this.currentPlayerSessionId = stealingTeamPlayers.get(0).sessionId();
+        if (!stealingTeamPlayers.isEmpty()) {
+            setCurrentPlayer(stealingTeamPlayers, 0);
             if (this.timerSchedulerInstance != null) startAnswerTimer(this.timerSchedulerInstance);
         } else {
             if (originalTurnTeam1ForSteal) team1Score += currentRoundPoints; else team2Score += currentRoundPoints;
@@ -295,6 +372,7 @@ public class Lobby {
     }
 
     public void finalizeRound(GameService gameServiceInstance, boolean stealJustResolved) {
+        flushAnswerOutcome();
         stopAnswerTimer();
         initialControlPhaseActive = true;
         firstPlayerAnswerInControlPhase = null;
@@ -303,7 +381,7 @@ public class Lobby {
 
         if (currentRoundNumber >= totalRounds) {
             this.currentQuestionText = "Koniec gry! Wynik " + getTeam1Name() + ": " + team1Score + ", " + getTeam2Name() + ": " + team2Score;
-            this.currentPlayerSessionId = null;
+            clearCurrentPlayer();
             this.status = LobbyStatus.AVAILABLE;
         } else {
             currentRoundNumber++;
@@ -320,14 +398,15 @@ public class Lobby {
             this.currentQuestionText = null;
 
             List<PlayerInfo> startingTeamPlayers = getCurrentTeamPlayers();
-            if (startingTeamPlayers != null && !startingTeamPlayers.isEmpty()) {
+            if (!startingTeamPlayers.isEmpty()) {
                 // ZMIANA LOGIKI WYBORU GRACZA
                 int nextPlayerIndex = (currentRoundNumber - 1) % startingTeamPlayers.size();
-                this.currentPlayerSessionId = startingTeamPlayers.get(nextPlayerIndex).sessionId();
+                setCurrentPlayer(startingTeamPlayers, nextPlayerIndex);
             } else {
-                this.currentPlayerSessionId = null;
+                clearCurrentPlayer();
             }
         }
+        recordEvent(GameEventType.ROUND_FINALIZED, null, stealJustResolved ? 1 : 0, 0, currentQuestionText);
     }
 
     public String getTeam1Name() {
@@ -352,7 +431,7 @@ public class Lobby {
 
     public void moveToNextPlayerInTeam() {
         List<PlayerInfo> currentTeamPlayers = getCurrentTeamPlayers();
-        if (currentTeamPlayers == null || currentTeamPlayers.isEmpty()) {
+        if (currentTeamPlayers.isEmpty()) {
             if (!stealAttemptInProgress && !initialControlPhaseActive) {
                 switchTurnAndTeam();
             } else if (stealAttemptInProgress) {
@@ -365,38 +444,38 @@ public class Lobby {
             return;
         }
 
-        int currentPlayerIdx = -1;
-        for (int i = 0; i < currentTeamPlayers.size(); i++) {
-            if (currentTeamPlayers.get(i).sessionId().equals(currentPlayerSessionId)) {
-                currentPlayerIdx = i;
-                break;
-            }
+        //wskaznik nalezy do innej druzyny lub gracz wyszedl -> od poczatku skladu
+        int currentPlayerIdx = currentPlayerIndex;
+        if (currentPlayerIdx < 0 || currentPlayerIdx >= currentTeamPlayers.size()
+                || !currentTeamPlayers.get(currentPlayerIdx).sessionId().equals(currentPlayerSessionId)) {
+            currentPlayerIdx = -1;
         }
+        setCurrentPlayer(currentTeamPlayers, (currentPlayerIdx + 1) % currentTeamPlayers.size());
+    }
 
-        if (currentPlayerIdx != -1) {
-            this.currentPlayerSessionId = currentTeamPlayers.get((currentPlayerIdx + 1) % currentTeamPlayers.size()).sessionId();
-        } else if (!currentTeamPlayers.isEmpty()) {
-            this.currentPlayerSessionId = currentTeamPlayers.get(0).sessionId();
-        } else {
-            this.currentPlayerSessionId = null;
-        }
+    private void setCurrentPlayer(List<PlayerInfo> roster, int index) {
+        this.currentPlayerIndex = index;
+        this.currentPlayerSessionId = roster.get(index).sessionId();
+    }
+
+    private void clearCurrentPlayer() {
+        this.currentPlayerIndex = -1;
+        this.currentPlayerSessionId = null;
     }
 
     private void switchTurnAndTeam() {
         isTeam1Turn = !isTeam1Turn;
         List<PlayerInfo> nextTeamPlayers = getCurrentTeamPlayers();
-        if (nextTeamPlayers != null && !nextTeamPlayers.isEmpty()) {
-            this.currentPlayerSessionId = nextTeamPlayers.get(0).sessionId();
+        if (!nextTeamPlayers.isEmpty()) {
+            setCurrentPlayer(nextTeamPlayers, 0);
         } else {
-            this.currentPlayerSessionId = null;
+            clearCurrentPlayer();
         }
     }
 
     public List<PlayerInfo> getCurrentTeamPlayers() {
         String currentTeamNameKey = isTeam1Turn ? getTeam1Name() : getTeam2Name();
-        return participants.values().stream()
-                .filter(p -> p.getRole() == ParticipantRole.PLAYER && currentTeamNameKey.equals(p.teamName()))
-                .collect(Collectors.toList());
+        return teamsView.getOrDefault(currentTeamNameKey, List.of());
     }
 
     public String getId() { return id; }
@@ -417,10 +496,16 @@ public class Lobby {
     public synchronized void setPassword(String password) { this.password = password; }
     public String getHostSessionId() { return hostSessionId; }
     public String getHostPanelSessionId() { return hostPanelSessionId; }
-    public void setHostPanelSessionId(String hostPanelSessionId) { this.hostPanelSessionId = hostPanelSessionId; }
+    public synchronized void setHostPanelSessionId(String hostPanelSessionId) {
+        unbindSession(this.hostPanelSessionId, SessionRole.HOST_PANEL);
+        this.hostPanelSessionId = hostPanelSessionId;
+        bindSession(hostPanelSessionId, SessionRole.HOST_PANEL);
+    }
 
     public synchronized void setHostSessionId(String hostSessionId) {
+        unbindSession(this.hostSessionId, SessionRole.HOST);
         this.hostSessionId = hostSessionId;
+        bindSession(hostSessionId, SessionRole.HOST);
     }
     public PlayerInfo getQuizMaster() { return quizMaster; }
 
@@ -428,8 +513,8 @@ public class Lobby {
         if (this.quizMaster != null && !this.quizMaster.equals(participant)) {
             PlayerInfo oldQm = participants.get(this.quizMaster.sessionId());
             if (oldQm != null) {
-                oldQm.setRole(ParticipantRole.PLAYER);
-                oldQm.setTeamName(null);
+                moveInRosters(oldQm, ParticipantRole.PLAYER, null);
+                recordEvent(GameEventType.ROLE_ASSIGNED, oldQm.sessionId(), ParticipantRole.PLAYER.ordinal(), 0, null);
             }
         }
 
@@ -438,17 +523,16 @@ public class Lobby {
         if (participant != null) {
             PlayerInfo participantInMap = participants.get(participant.sessionId());
             if (participantInMap != null) {
-                participantInMap.setRole(ParticipantRole.QUIZ_MASTER);
-                participantInMap.setTeamName(null);
+                moveInRosters(participantInMap, ParticipantRole.QUIZ_MASTER, null);
                 this.quizMaster = participantInMap;
+                recordEvent(GameEventType.ROLE_ASSIGNED, participantInMap.sessionId(), ParticipantRole.QUIZ_MASTER.ordinal(), 0, null);
             }
         }
+        publishRosters();
     }
 
     public List<PlayerInfo> getWaitingPlayers() {
-        return participants.values().stream()
-                .filter(p -> p.getRole() == ParticipantRole.PLAYER && p.teamName() == null)
-                .collect(Collectors.toList());
+        return waitingView;
     }
 
     public int getTotalParticipantCount() {
@@ -458,9 +542,54 @@ public class Lobby {
     public int getMaxParticipants() { return maxParticipants; }
 
     public Map<String, List<PlayerInfo>> getTeams() {
-        return participants.values().stream()
-                .filter(p -> p.getRole() == ParticipantRole.PLAYER && p.teamName() != null)
-                .collect(Collectors.groupingBy(PlayerInfo::teamName));
+        return teamsView;
+    }
+    //skladanie widokow po zmianie skladow
+    private void detachFromRosters(PlayerInfo player) {
+        if (player.getRole() != ParticipantRole.PLAYER) return;
+        if (player.teamName() == null) {
+            waitingRoster.remove(player);
+            return;
+        }
+        List<PlayerInfo> roster = teamRosters.get(player.teamName());
+        if (roster != null) {
+            roster.remove(player);
+            if (roster.isEmpty()) {
+                teamRosters.remove(player.teamName());
+            }
+        }
+    }
+
+    private void attachToRosters(PlayerInfo player) {
+        if (player.getRole() != ParticipantRole.PLAYER) return;
+        if (player.teamName() == null) {
+            waitingRoster.add(player);
+        } else {
+            teamRosters.computeIfAbsent(player.teamName(), k -> new ArrayList<>()).add(player);
+        }
+    }
+
+    private void moveInRosters(PlayerInfo player, ParticipantRole role, String teamName) {
+        detachFromRosters(player);
+        player.setRole(role);
+        player.setTeamName(teamName);
+        attachToRosters(player);
+    }
+
+    private void publishRosters() {
+        Map<String, List<PlayerInfo>> teams = new LinkedHashMap<>();
+        teamRosters.forEach((teamName, roster) -> teams.put(teamName, List.copyOf(roster)));
+        this.teamsView = Collections.unmodifiableMap(teams);
+        this.waitingView = List.copyOf(waitingRoster);
+        //wskaznik tury po zmianie skladu
+        List<PlayerInfo> currentTeamPlayers = getCurrentTeamPlayers();
+        this.currentPlayerIndex = -1;
+        for (int i = 0; i < currentTeamPlayers.size(); i++) {
+            if (currentTeamPlayers.get(i).sessionId().equals(currentPlayerSessionId)) {
+                this.currentPlayerIndex = i;
+                break;
+            }
+        }
     }
     //gracze druzyny
     public synchronized boolean addPlayer(PlayerInfo player) {
@@ -468,6 +597,10 @@ public class Lobby {
         if (participants.containsKey(player.sessionId())) return false;
         if (participants.size() >= maxParticipants) return false;
         participants.put(player.sessionId(), player);
+        attachToRosters(player);
+        publishRosters();
+        bindSession(player.sessionId(), SessionRole.PARTICIPANT);
+        recordEvent(GameEventType.PLAYER_JOINED, player.sessionId(), 0, 0, player.nickname());
         return true;
     }
 
@@ -475,9 +608,8 @@ public class Lobby {
         PlayerInfo player = participants.get(sessionId);
         if (player == null || targetTeamName == null) return false;
 
-        long teamSize = participants.values().stream()
-                .filter(p -> targetTeamName.equals(p.teamName()))
-                .count();
+        List<PlayerInfo> targetRoster = teamRosters.get(targetTeamName);
+        int teamSize = targetRoster != null ? targetRoster.size() : 0;
 
         if (gameSettings != null && teamSize >= gameSettings.maxPlayersPerTeam()) {
             return false;
@@ -487,22 +619,28 @@ public class Lobby {
             setQuizMaster(null);
         }
 
-        player.setTeamName(targetTeamName);
-        player.setRole(ParticipantRole.PLAYER);
+        moveInRosters(player, ParticipantRole.PLAYER, targetTeamName);
+        publishRosters();
+        recordEvent(GameEventType.ROLE_ASSIGNED, sessionId, ParticipantRole.PLAYER.ordinal(), 0, targetTeamName);
         return true;
     }
 
     public synchronized boolean removePlayer(String sessionId) {
         PlayerInfo removedPlayer = participants.remove(sessionId);
         if (removedPlayer != null) {
+            detachedTokenDigests.remove(sessionId);
+            detachFromRosters(removedPlayer);
+            publishRosters();
+            unbindSession(sessionId, SessionRole.PARTICIPANT);
+            recordEvent(GameEventType.PLAYER_LEFT, sessionId, 0, 0, removedPlayer.nickname());
             if (quizMaster != null && quizMaster.sessionId().equals(sessionId)) {
                 quizMaster = null;
             }
             if (hostPanelSessionId != null && hostPanelSessionId.equals(sessionId)) {
-                hostPanelSessionId = null;
+                setHostPanelSessionId(null);
             }
             if (hostSessionId != null && hostSessionId.equals(sessionId)) {
-                this.hostSessionId = null;
+                setHostSessionId(null);
                 if (participants.isEmpty()) {
                     resetToAvailable();
                 }
@@ -518,8 +656,9 @@ public class Lobby {
             if (quizMaster != null && quizMaster.sessionId().equals(sessionId)) {
                 quizMaster = null;
             }
-            player.setRole(ParticipantRole.PLAYER);
-            player.setTeamName(null);
+            moveInRosters(player, ParticipantRole.PLAYER, null);
+            publishRosters();
+            recordEvent(GameEventType.PLAYER_UNASSIGNED, sessionId, ParticipantRole.PLAYER.ordinal(), 0, null);
             return true;
         }
         return false;
@@ -528,28 +667,184 @@ public class Lobby {
     public PlayerInfo findParticipantBySessionId(String sessionId) {
         return participants.get(sessionId);
     }
+    //gracz po restarcie serwera wraca z tokenem wznowienia poprzedniego polaczenia, sam nick nie wystarcza
+    public synchronized boolean reclaimDetachedParticipant(String resumeTokenDigest, String newSessionId) {
+        if (resumeTokenDigest == null || newSessionId == null) return false;
+        byte[] expected = resumeTokenDigest.getBytes(StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> detached : detachedTokenDigests.entrySet()) {
+            if (detached.getValue() != null && MessageDigest.isEqual(expected, detached.getValue().getBytes(StandardCharsets.UTF_8))) {
+                return rebindSession(detached.getKey(), newSessionId);
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getDetachedParticipantCount() {
+        return detachedTokenDigests.size();
+    }
+    //przeniesienie uczestnika na nowa sesje z zachowaniem druzyny roli i tury
+    public synchronized boolean rebindSession(String oldSessionId, String newSessionId) {
+        PlayerInfo old = participants.get(oldSessionId);
+        if (newSessionId == null || participants.containsKey(newSessionId)) return false;
+        if (old == null) return rebindHostRoles(oldSessionId, newSessionId);
+        PlayerInfo rebound = new PlayerInfo(newSessionId, old.nickname(), old.teamName(), old.getRole());
+
+        participants.put(newSessionId, rebound);
+        participants.remove(oldSessionId);
+        replaceInList(waitingRoster, old, rebound);
+        teamRosters.values().forEach(roster -> replaceInList(roster, old, rebound));
+        detachedTokenDigests.remove(oldSessionId);
+
+        if (quizMaster != null && quizMaster.sessionId().equals(oldSessionId)) quizMaster = rebound;
+        if (oldSessionId.equals(currentPlayerSessionId)) currentPlayerSessionId = newSessionId;
+        if (oldSessionId.equals(hostSessionId)) setHostSessionId(newSessionId);
+        if (oldSessionId.equals(hostPanelSessionId)) setHostPanelSessionId(newSessionId);
+        publishRosters();
+        unbindSession(oldSessionId, SessionRole.PARTICIPANT);
+        bindSession(newSessionId, SessionRole.PARTICIPANT);
+        recordEvent(GameEventType.PLAYER_JOINED, newSessionId, 1, 0, rebound.nickname());
+        return true;
+    }
+
+    //prowadzacy i panel bez miejsca uczestnika przenosza tylko role
+    private boolean rebindHostRoles(String oldSessionId, String newSessionId) {
+        boolean rebound = false;
+        if (oldSessionId.equals(hostSessionId)) {
+            setHostSessionId(newSessionId);
+            recordEvent(GameEventType.HOST_TAKEN, newSessionId, 0, 0, null);
+            rebound = true;
+        }
+        if (oldSessionId.equals(hostPanelSessionId)) {
+            setHostPanelSessionId(newSessionId);
+            recordEvent(GameEventType.HOST_PANEL_REGISTERED, newSessionId, 0, 0, null);
+            rebound = true;
+        }
+        return rebound;
+    }
+
+    private static void replaceInList(List<PlayerInfo> list, PlayerInfo old, PlayerInfo replacement) {
+        int index = list.indexOf(old);
+        if (index >= 0) list.set(index, replacement);
+    }
+    //kopia stanu do zapisu
+    public LobbySnapshot toSnapshot() {
+        return toSnapshot(sessionId -> null);
+    }
+    //skroty tokenow polaczonych uczestnikow od warstwy sesji, odlaczeni zachowuja swoje z poprzedniej kopii
+    public synchronized LobbySnapshot toSnapshot(Function<String, String> resumeTokenDigestOf) {
+        List<PlayerInfo> participantCopies = new ArrayList<>();
+        teamRosters.values().forEach(roster -> roster.forEach(p -> participantCopies.add(copyOf(p))));
+        waitingRoster.forEach(p -> participantCopies.add(copyOf(p)));
+        participants.values().stream()
+                .filter(p -> p.getRole() != ParticipantRole.PLAYER)
+                .forEach(p -> participantCopies.add(copyOf(p)));
+
+        Map<String, String> resumeTokenDigests = new HashMap<>();
+        for (PlayerInfo p : participantCopies) {
+            String digest = detachedTokenDigests.containsKey(p.sessionId())
+                    ? detachedTokenDigests.get(p.sessionId())
+                    : resumeTokenDigestOf.apply(p.sessionId());
+            if (digest != null) {
+                resumeTokenDigests.put(p.sessionId(), digest);
+            }
+        }
+
+        String[] answerTexts = new String[answerBoard.getSlotCount()];
+        int[] answerPoints = new int[answerBoard.getSlotCount()];
+        for (int slot = 0; slot < answerTexts.length; slot++) {
+            if (answerBoard.hasSlot(slot)) {
+                answerTexts[slot] = answerBoard.getText(slot);
+                answerPoints[slot] = answerBoard.getPoints(slot);
+            }
+        }
+        return new LobbySnapshot(id, name, status, gameSettings, password, hostSessionId, hostPanelSessionId,
+                quizMaster != null ? quizMaster.sessionId() : null, participantCopies, resumeTokenDigests,
+                currentQuestionText, isQuestionRevealed, currentQuestionId, currentRoundNumber, totalRounds,
+                currentPlayerSessionId, isTeam1Turn, team1Score, team2Score, team1Errors, team2Errors,
+                answerTexts, answerPoints, answerBoard.getRevealedMask(), currentRoundPoints, revealedAnswersCountInRound,
+                stealAttemptInProgress, originalTurnTeam1ForSteal, initialControlPhaseActive,
+                firstTeamAttemptedInControlPhase, firstPlayerAnswerInControlPhase, currentAnswerTimeRemaining);
+    }
+
+    private static PlayerInfo copyOf(PlayerInfo p) {
+        return new PlayerInfo(p.sessionId(), p.nickname(), p.teamName(), p.getRole());
+    }
+    //po restarcie sesje nie istnieja: host wolny, uczestnicy pod zastepczymi id czekaja na powrot z tokenem
+    //przy przekazaniu miedzy wezlami sesje zostaja
+    public synchronized void restoreFrom(LobbySnapshot snapshot, boolean detachSessions) {
+        resetToAvailable();
+        this.name = snapshot.name();
+        this.status = snapshot.status();
+        this.gameSettings = snapshot.gameSettings() != null ? snapshot.gameSettings() : new GameSettings();
+        this.password = snapshot.password();
+        Map<String, String> restoredIds = new HashMap<>();
+        for (PlayerInfo p : snapshot.participants()) {
+            String sessionId = detachSessions ? DETACHED_PREFIX + restoredIds.size() : p.sessionId();
+            restoredIds.put(p.sessionId(), sessionId);
+            PlayerInfo restored = new PlayerInfo(sessionId, p.nickname(), p.teamName(), p.getRole());
+            participants.put(sessionId, restored);
+            attachToRosters(restored);
+            if (detachSessions) {
+                detachedTokenDigests.put(sessionId, snapshot.resumeTokenDigests().get(p.sessionId()));
+            } else {
+                bindSession(sessionId, SessionRole.PARTICIPANT);
+            }
+        }
+        if (!detachSessions) {
+            setHostSessionId(snapshot.hostSessionId());
+            setHostPanelSessionId(snapshot.hostPanelSessionId());
+        }
+        String quizMasterSessionId = restoredIds.get(snapshot.quizMasterSessionId());
+        this.quizMaster = quizMasterSessionId != null ? participants.get(quizMasterSessionId) : null;
+        this.currentQuestionText = snapshot.currentQuestionText();
+        this.isQuestionRevealed = snapshot.questionRevealed();
+        this.currentQuestionId = snapshot.currentQuestionId();
+        this.currentRoundNumber = snapshot.currentRoundNumber();
+        this.totalRounds = snapshot.totalRounds();
+        this.isTeam1Turn = snapshot.team1Turn();
+        this.currentPlayerSessionId = detachSessions ? restoredIds.get(snapshot.currentPlayerSessionId()) : snapshot.currentPlayerSessionId();
+        this.team1Score = snapshot.team1Score();
+        this.team2Score = snapshot.team2Score();
+        this.team1Errors = snapshot.team1Errors();
+        this.team2Errors = snapshot.team2Errors();
+        this.answerBoard = AnswerBoard.of(snapshot.answerTexts(), snapshot.answerPoints(), snapshot.revealedMask());
+        this.currentRoundPoints = snapshot.currentRoundPoints();
+        this.revealedAnswersCountInRound = snapshot.revealedAnswersCountInRound();
+        this.stealAttemptInProgress = snapshot.stealAttemptInProgress();
+        this.originalTurnTeam1ForSteal = snapshot.originalTurnTeam1ForSteal();
+        this.initialControlPhaseActive = snapshot.initialControlPhaseActive();
+        this.firstTeamAttemptedInControlPhase = snapshot.firstTeamAttemptedInControlPhase();
+        this.firstPlayerAnswerInControlPhase = snapshot.firstPlayerAnswerInControlPhase();
+        this.currentAnswerTimeRemaining = snapshot.currentAnswerTimeRemaining();
+        publishRosters();
+    }
     //reset pol stan wartosci
     public synchronized void resetToAvailable() {
         stopAnswerTimer();
         this.status = LobbyStatus.AVAILABLE;
         this.gameSettings = new GameSettings();
         this.password = null;
-        this.hostSessionId = null;
-        this.hostPanelSessionId = null;
+        setHostSessionId(null);
+        setHostPanelSessionId(null);
         this.quizMaster = null;
+        participants.keySet().forEach(sessionId -> unbindSession(sessionId, SessionRole.PARTICIPANT));
         this.participants.clear();
+        this.teamRosters.clear();
+        this.waitingRoster.clear();
+        this.detachedTokenDigests.clear();
         this.currentQuestionText = null;
         this.isQuestionRevealed = false;
         this.currentQuestionId = -1;
         this.currentRoundNumber = 0;
         this.totalRounds = 0;
-        this.currentPlayerSessionId = null;
+        clearCurrentPlayer();
+        publishRosters();
         this.isTeam1Turn = true;
         this.team1Score = 0;
         this.team2Score = 0;
         this.team1Errors = 0;
         this.team2Errors = 0;
-        this.revealedAnswersData = new ArrayList<>();
+        this.answerBoard = AnswerBoard.EMPTY;
         this.currentRoundPoints = 0;
         this.revealedAnswersCountInRound = 0;
         this.currentAnswerTimeRemaining = 0;
@@ -558,6 +853,7 @@ public class Lobby {
         this.initialControlPhaseActive = true;
         this.firstPlayerAnswerInControlPhase = null;
         this.firstTeamAttemptedInControlPhase = false;
+        recordEvent(GameEventType.LOBBY_RESET, null, 0, 0, null);
     }
     //pomoc dla innych klas odczyt modyfikacj
     public String getCurrentQuestionText() { return currentQuestionText; }
@@ -571,7 +867,10 @@ public class Lobby {
     public int getTotalRounds() { return totalRounds; }
     public void setTotalRounds(int totalRounds) { this.totalRounds = totalRounds; }
     public String getCurrentPlayerSessionId() { return currentPlayerSessionId; }
-    public void setCurrentPlayerSessionId(String currentPlayerSessionId) { this.currentPlayerSessionId = currentPlayerSessionId; }
+    public synchronized void setCurrentPlayerSessionId(String currentPlayerSessionId) {
+        this.currentPlayerSessionId = currentPlayerSessionId;
+        this.currentPlayerIndex = currentPlayerSessionId == null ? -1 : getCurrentTeamPlayers().indexOf(findParticipantBySessionId(currentPlayerSessionId));
+    }
     public boolean isTeam1Turn() { return isTeam1Turn; }
     public void setTeam1Turn(boolean team1Turn) { this.isTeam1Turn = team1Turn; }
     public int getTeam1Score() { return team1Score; }
@@ -582,8 +881,8 @@ public class Lobby {
     public void setTeam1Errors(int team1Errors) { this.team1Errors = team1Errors; }
     public int getTeam2Errors() { return team2Errors; }
     public void setTeam2Errors(int team2Errors) { this.team2Errors = team2Errors; }
-    public List<Map<String, Object>> getRevealedAnswersData() { return revealedAnswersData; }
-    public void setRevealedAnswersData(List<Map<String, Object>> revealedAnswersData) { this.revealedAnswersData = revealedAnswersData; }
+    public AnswerBoard getAnswerBoard() { return answerBoard; }
+    public void setAnswerBoard(AnswerBoard answerBoard) { this.answerBoard = answerBoard != null ? answerBoard : AnswerBoard.EMPTY; }
     public int getCurrentRoundPoints() { return currentRoundPoints; }
     public void setCurrentRoundPoints(int currentRoundPoints) { this.currentRoundPoints = currentRoundPoints; }
     public int getRevealedAnswersCountInRound() { return revealedAnswersCountInRound; }
@@ -0,0 +1,8 @@
+package org.quizpans.quizpans_server.online.model;
+//powiadomienia o wejsciu i wyjsciu sesji z lobby, wolane pod blokada lobby
+public interface LobbyMembershipListener {
+
+    void sessionBound(String lobbyId, String sessionId, SessionRole role);
+
+    void sessionUnbound(String lobbyId, String sessionId, SessionRole role);
+}
@@ -0,0 +1,60 @@
+package org.quizpans.quizpans_server.online.model;
+
+import org.quizpans.quizpans_server.game.GameService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+//kopia stanu lobby do zapisu na dysk lub przekazania innemu wezlowi
+public record LobbySnapshot(
+        String id,
+        String name,
+        LobbyStatus status,
+        GameSettings gameSettings,
+        String password,
+        String hostSessionId,
+        String hostPanelSessionId,
+        String quizMasterSessionId,
+        List<PlayerInfo> participants,
+        //sesja uczestnika -> skrot jego tokenu wznowienia, do odzyskania miejsca po restarcie
+        Map<String, String> resumeTokenDigests,
+        String currentQuestionText,
+        boolean questionRevealed,
+        int currentQuestionId,
+        int currentRoundNumber,
+        int totalRounds,
+        String currentPlayerSessionId,
+        boolean team1Turn,
+        int team1Score,
+        int team2Score,
+        int team1Errors,
+        int team2Errors,
+        String[] answerTexts,
+        int[] answerPoints,
+        int revealedMask,
+        int currentRoundPoints,
+        int revealedAnswersCountInRound,
+        boolean stealAttemptInProgress,
+        boolean originalTurnTeam1ForSteal,
+        boolean initialControlPhaseActive,
+        boolean firstTeamAttemptedInControlPhase,
+        GameService.AnswerProcessingResult firstPlayerAnswerInControlPhase,
+        int currentAnswerTimeRemaining
+) {
+    //te same dane pod innymi id sesji, np. globalnymi przy przekazaniu lobby innemu wezlowi
+    public LobbySnapshot withSessionIds(UnaryOperator<String> mapping) {
+        List<PlayerInfo> mappedParticipants = participants.stream()
+                .map(p -> new PlayerInfo(mapping.apply(p.sessionId()), p.nickname(), p.teamName(), p.getRole()))
+                .toList();
+        Map<String, String> mappedDigests = new HashMap<>();
+        resumeTokenDigests.forEach((sessionId, digest) -> mappedDigests.put(mapping.apply(sessionId), digest));
+        return new LobbySnapshot(id, name, status, gameSettings, password, mapping.apply(hostSessionId),
+                mapping.apply(hostPanelSessionId), mapping.apply(quizMasterSessionId), mappedParticipants, mappedDigests,
+                currentQuestionText, questionRevealed, currentQuestionId, currentRoundNumber, totalRounds,
+                mapping.apply(currentPlayerSessionId), team1Turn, team1Score, team2Score, team1Errors, team2Errors,
+                answerTexts, answerPoints, revealedMask, currentRoundPoints, revealedAnswersCountInRound,
+                stealAttemptInProgress, originalTurnTeam1ForSteal, initialControlPhaseActive,
+                firstTeamAttemptedInControlPhase, firstPlayerAnswerInControlPhase, currentAnswerTimeRemaining);
+    }
+}
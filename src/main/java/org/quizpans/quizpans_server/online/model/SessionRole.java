@@ -0,0 +1,7 @@
+package org.quizpans.quizpans_server.online.model;
+//rola sesji w lobby
+public enum SessionRole {
+    PARTICIPANT,
+    HOST,
+    HOST_PANEL
+}
@@ -1,12 +1,21 @@
 package org.quizpans.quizpans_server.online.service;
 // tworzenie lobby cykl gry obsluga lobby obsluga timera
+import org.quizpans.quizpans_server.online.audience.AudienceRound;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
 import org.quizpans.quizpans_server.online.model.Lobby;
 import org.quizpans.quizpans_server.online.model.LobbyStatus;
 import org.quizpans.quizpans_server.online.model.GameSettings;
 import org.quizpans.quizpans_server.online.model.PlayerInfo;
 import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.SessionRole;
+import org.quizpans.quizpans_server.game.DatabaseQuestionSource;
 import org.quizpans.quizpans_server.game.GameService;
 import org.quizpans.quizpans_server.game.GameService.AnswerProcessingResult;
+import org.quizpans.quizpans_server.game.QuestionSource;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.journal.GameEventType;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.snapshot.LobbySnapshotEntry;
 import org.quizpans.quizpans_server.online.websocket.LobbyWebSocketHandler;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +34,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 
 @Service
 public class LobbyService {
@@ -40,10 +50,23 @@ public class LobbyService {
     });
     //aktualizacja klient
     private final LobbyWebSocketHandler webSocketHandler;
+    private final GameJournal gameJournal;
+    private final SessionIndex sessionIndex;
+    private final QuestionSource questionSource;
+    private final QuizpansMetrics metrics;
 
     @Autowired
-    public LobbyService(@Lazy LobbyWebSocketHandler webSocketHandler) {
+    public LobbyService(@Lazy LobbyWebSocketHandler webSocketHandler, GameJournal gameJournal, SessionIndex sessionIndex,
+                        QuestionSource questionSource, QuizpansMetrics metrics) {
         this.webSocketHandler = webSocketHandler;
+        this.gameJournal = gameJournal;
+        this.sessionIndex = sessionIndex;
+        this.questionSource = questionSource;
+        this.metrics = metrics;
+    }
+
+    public LobbyService(LobbyWebSocketHandler webSocketHandler, GameJournal gameJournal, SessionIndex sessionIndex) {
+        this(webSocketHandler, gameJournal, sessionIndex, new DatabaseQuestionSource(), QuizpansMetrics.standalone());
     }
     //automatycznie wysyla
     @PostConstruct
@@ -56,9 +79,20 @@ public class LobbyService {
                     handlerRef.broadcastLobbyUpdate(lobbyToBroadcast);
                 }
             });
+            newLobby.setEventSink(gameJournal::append);
+            newLobby.setMembershipListener(sessionIndex);
             lobbies.put(id, newLobby);
         }
     }
+    //czas czekania na monitor serwisu do metryk tylko dla komend odpowiedzi, najczesciej sie scigajacych
+    //pelny obraz rywalizacji o blokade daje jdk.JavaMonitorEnter w quizpans.jfc
+    private <T> T withTimedLock(Supplier<T> action) {
+        long waitStart = System.nanoTime();
+        synchronized (this) {
+            metrics.lobbyLockWaited(System.nanoTime() - waitStart);
+            return action.get();
+        }
+    }
     //koniec zamkniecie
     @PreDestroy
     public void shutdownScheduler() {
@@ -67,6 +101,55 @@ public class LobbyService {
         }
     }
 
+    //kopia aktywnych lobby wraz z pytaniem
+    public synchronized List<LobbySnapshotEntry> captureSnapshots() {
+        List<LobbySnapshotEntry> entries = new ArrayList<>();
+        for (Lobby lobby : lobbies.values()) {
+            captureSnapshot(lobby.getId()).ifPresent(entries::add);
+        }
+        return entries;
+    }
+
+    public synchronized Optional<LobbySnapshotEntry> captureSnapshot(String lobbyId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby == null || (lobby.getStatus() == LobbyStatus.AVAILABLE && lobby.getTotalParticipantCount() == 0)) {
+            return Optional.empty();
+        }
+        GameService gameService = activeGameServices.get(lobbyId);
+        return Optional.of(new LobbySnapshotEntry(lobby.toSnapshot(this::resumeTokenDigestOf), gameService != null,
+                gameService != null ? gameService.getCategory() : null,
+                gameService != null ? gameService.getCompiledQuestion() : null));
+    }
+    private String resumeTokenDigestOf(String sessionId) {
+        return webSocketHandler != null ? webSocketHandler.resumeTokenDigestOf(sessionId) : null;
+    }
+    //lobby przekazane innemu wezlowi
+    public synchronized void releaseLobby(String lobbyId) {
+        Lobby lobby = lobbies.get(lobbyId);
+        if (lobby != null) {
+            lobby.resetToAvailable();
+        }
+        activeGameServices.remove(lobbyId);
+    }
+
+    public synchronized int restoreSnapshots(List<LobbySnapshotEntry> entries, boolean detachSessions) {
+        int restored = 0;
+        for (LobbySnapshotEntry entry : entries) {
+            Lobby lobby = lobbies.get(entry.lobby().id());
+            if (lobby == null) continue;
+            lobby.restoreFrom(entry.lobby(), detachSessions);
+            lobby.resumeAnswerTimer(timerScheduler);
+            activeGameServices.remove(lobby.getId());
+            if (entry.hasGameService()) {
+                GameService gameService = new GameService(entry.category(), questionSource, metrics);
+                gameService.restoreCompiledQuestion(entry.question());
+                activeGameServices.put(lobby.getId(), gameService);
+            }
+            restored++;
+        }
+        return restored;
+    }
+
     public Collection<Lobby> getAllLobbies() {
         return lobbies.values();
     }
@@ -75,6 +158,14 @@ public class LobbyService {
         return Optional.ofNullable(lobbies.get(id));
     }
 
+    public boolean isHost(String lobbyId, String sessionId) {
+        return sessionIndex.hasRole(sessionId, lobbyId, SessionRole.HOST);
+    }
+
+    public boolean isHostPanel(String lobbyId, String sessionId) {
+        return sessionIndex.hasRole(sessionId, lobbyId, SessionRole.HOST_PANEL);
+    }
+
     public synchronized Optional<Lobby> hostTakesLobby(String lobbyId, String hostSessionId) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         if (lobbyOpt.isPresent()) {
@@ -82,12 +173,14 @@ public class LobbyService {
             if (lobby.getStatus() == LobbyStatus.AVAILABLE) {
                 lobby.setHostSessionId(hostSessionId);
                 lobby.setStatus(LobbyStatus.BUSY);
+                lobby.recordEvent(GameEventType.HOST_TAKEN, hostSessionId, 0, 0, null);
                 return Optional.of(lobby);
-            } else if (lobby.getStatus() != LobbyStatus.AVAILABLE && lobby.getHostSessionId() != null && lobby.getHostSessionId().equals(hostSessionId)) {
+            } else if (lobby.getStatus() != LobbyStatus.AVAILABLE && isHost(lobbyId, hostSessionId)) {
                 return Optional.of(lobby);
             } else if (lobby.getStatus() != LobbyStatus.AVAILABLE && lobby.getHostSessionId() == null) {
                 lobby.setHostSessionId(hostSessionId);
                 lobby.setStatus(LobbyStatus.BUSY);
+                lobby.recordEvent(GameEventType.HOST_TAKEN, hostSessionId, 0, 0, null);
                 return Optional.of(lobby);
             }
         }
@@ -98,9 +191,10 @@ public class LobbyService {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         if (lobbyOpt.isPresent()) {
             Lobby lobby = lobbyOpt.get();
-            if (lobby.getHostSessionId() != null && lobby.getHostSessionId().equals(hostSessionId)) {
+            if (isHost(lobbyId, hostSessionId)) {
                 lobby.setGameSettings(settings);
                 lobby.setPassword(password);
+                lobby.recordEvent(GameEventType.LOBBY_CONFIGURED, hostSessionId, settings.answerTime(), settings.numberOfRounds(), settings.category());
                 return Optional.of(lobby);
             }
         }
@@ -112,7 +206,7 @@ public class LobbyService {
         if (lobbyOpt.isEmpty()) return Optional.empty();
 
         Lobby lobby = lobbyOpt.get();
-        if (lobby.getHostPanelSessionId() == null || !lobby.getHostPanelSessionId().equals(hostPanelSessionId)) {
+        if (!isHostPanel(lobbyId, hostPanelSessionId)) {
             return Optional.empty();
         }
 
@@ -132,7 +226,7 @@ public class LobbyService {
         if (lobbyOpt.isEmpty()) return Optional.empty();
 
         Lobby lobby = lobbyOpt.get();
-        if (lobby.getHostPanelSessionId() == null || !lobby.getHostPanelSessionId().equals(hostPanelSessionId)) {
+        if (!isHostPanel(lobbyId, hostPanelSessionId)) {
             return Optional.empty(); // Tylko prowadzący może odkryć pytanie
         }
 
@@ -142,6 +236,7 @@ public class LobbyService {
 
         lobby.setQuestionRevealed(true);
         lobby.startAnswerTimer(timerScheduler); // Uruchom timer dopiero po odkryciu pytania
+        lobby.recordEvent(GameEventType.QUESTION_REVEALED, hostPanelSessionId, lobby.getCurrentQuestionId(), 0, null);
 
         return Optional.of(lobby);
     }
@@ -149,7 +244,10 @@ public class LobbyService {
 
     public synchronized Optional<Lobby> registerHostPanel(String lobbyId, String panelSessionId) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        lobbyOpt.ifPresent(lobby -> lobby.setHostPanelSessionId(panelSessionId));
+        lobbyOpt.ifPresent(lobby -> {
+            lobby.setHostPanelSessionId(panelSessionId);
+            lobby.recordEvent(GameEventType.HOST_PANEL_REGISTERED, panelSessionId, 0, 0, null);
+        });
         return lobbyOpt;
     }
 
@@ -173,7 +271,7 @@ public class LobbyService {
 
     public synchronized Optional<Lobby> assignParticipantRole(String lobbyId, String hostSessionId, String participantSessionId, String role, String targetTeamName) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        if (lobbyOpt.isEmpty() || lobbyOpt.get().getHostSessionId() == null || !lobbyOpt.get().getHostSessionId().equals(hostSessionId)) {
+        if (lobbyOpt.isEmpty() || !isHost(lobbyId, hostSessionId)) {
             return Optional.empty();
         }
         Lobby lobby = lobbyOpt.get();
@@ -191,7 +289,7 @@ public class LobbyService {
 
     public synchronized Optional<Lobby> unassignParticipant(String lobbyId, String hostSessionId, String participantToUnassignSessionId) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        if (lobbyOpt.isEmpty() || lobbyOpt.get().getHostSessionId() == null || !lobbyOpt.get().getHostSessionId().equals(hostSessionId)) {
+        if (lobbyOpt.isEmpty() || !isHost(lobbyId, hostSessionId)) {
             return Optional.empty();
         }
         return lobbyOpt.get().unassignPlayer(participantToUnassignSessionId) ? lobbyOpt : Optional.empty();
@@ -209,6 +307,25 @@ public class LobbyService {
         return Optional.empty();
     }
 
+    //wznowienie: miejsce, druzyna i role poprzedniej sesji przechodza na nowa
+    public synchronized Optional<Lobby> resumeSession(String lobbyId, String previousSessionId, String sessionId) {
+        Optional<Lobby> lobbyOpt = getLobby(lobbyId);
+        if (lobbyOpt.isPresent() && lobbyOpt.get().rebindSession(previousSessionId, sessionId)) {
+            return lobbyOpt;
+        }
+        return Optional.empty();
+    }
+
+    //po restarcie: miejsce odtworzone z kopii przechodzi na sesje z pasujacym tokenem wznowienia
+    public synchronized Optional<Lobby> reclaimRestoredParticipant(String lobbyId, String resumeTokenDigest, String sessionId) {
+        Optional<Lobby> lobbyOpt = getLobby(lobbyId);
+        if (lobbyOpt.isPresent() && lobbyOpt.get().reclaimDetachedParticipant(resumeTokenDigest, sessionId)) {
+            return lobbyOpt;
+        }
+        return Optional.empty();
+    }
+
+    //pod blokada serwisu: przygotowanie gry i przydzial rol czytaja sklady, a dopiero potem ustawiaja ture
     public synchronized Optional<Lobby> removePlayerFromLobby(String lobbyId, String playerSessionIdToRemove) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         if (lobbyOpt.isPresent()) {
@@ -222,8 +339,7 @@ public class LobbyService {
 
     public synchronized Optional<Lobby> hostRemovesParticipant(String lobbyId, String requestingHostSessionId, String participantToRemoveSessionId) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        if (lobbyOpt.isEmpty() || lobbyOpt.get().getHostSessionId() == null ||
-                !lobbyOpt.get().getHostSessionId().equals(requestingHostSessionId) ||
+        if (lobbyOpt.isEmpty() || !isHost(lobbyId, requestingHostSessionId) ||
                 participantToRemoveSessionId.equals(requestingHostSessionId)) {
             return Optional.empty();
         }
@@ -234,7 +350,7 @@ public class LobbyService {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         if (lobbyOpt.isPresent()) {
             Lobby lobby = lobbyOpt.get();
-            if (lobby.getHostSessionId() != null && lobby.getHostSessionId().equals(hostSessionId)) {
+            if (isHost(lobbyId, hostSessionId)) {
                 GameSettings settings = lobby.getGameSettings();
                 if (settings == null) return Optional.empty();
 
@@ -256,6 +372,7 @@ public class LobbyService {
                 lobby.setTeam1Turn(true);
                 lobby.setCurrentPlayerSessionId(teams.get(teamBlueName).get(0).sessionId());
                 lobby.setStatus(LobbyStatus.BUSY);
+                lobby.recordEvent(GameEventType.GAME_STARTED, hostSessionId, settings.numberOfRounds(), 0, null);
 
                 return Optional.of(lobby);
             }
@@ -265,7 +382,7 @@ public class LobbyService {
 
     public synchronized Optional<Lobby> loadInitialQuestionAndStart(String lobbyId, String hostSessionId, Set<Integer> usedQuestionIds) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        if (lobbyOpt.isEmpty() || !lobbyOpt.get().getHostSessionId().equals(hostSessionId)) {
+        if (lobbyOpt.isEmpty() || !isHost(lobbyId, hostSessionId)) {
             return Optional.empty();
         }
 
@@ -281,7 +398,7 @@ public class LobbyService {
         String categoryName = settings.category();
         final String finalCategoryForService = "MIX (Wszystkie Kategorie)".equalsIgnoreCase(categoryName) ? null : categoryName;
 
-        GameService gameServiceInstance = activeGameServices.computeIfAbsent(lobbyId, k -> new GameService(finalCategoryForService));
+        GameService gameServiceInstance = activeGameServices.computeIfAbsent(lobbyId, k -> new GameService(finalCategoryForService, questionSource, metrics));
         boolean questionLoaded = gameServiceInstance.loadQuestion(usedQuestionIds);
 
         if (!questionLoaded) {
@@ -299,7 +416,7 @@ public class LobbyService {
 
     public synchronized void loadNewQuestionForNextRound(String lobbyId, String hostSessionId, Set<Integer> usedQuestionIds) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
-        if (lobbyOpt.isEmpty() || !lobbyOpt.get().getHostSessionId().equals(hostSessionId)) {
+        if (lobbyOpt.isEmpty() || !isHost(lobbyId, hostSessionId)) {
             return;
         }
 
@@ -325,32 +442,26 @@ public class LobbyService {
         lobby.setCurrentQuestionText(gameServiceInstance.getCurrentQuestion());
         lobby.setQuestionRevealed(false); // ZMIANA
         lobby.setCurrentQuestionId(gameServiceInstance.getCurrentQuestionId());
-        List<Map<String, Object>> initialAnswersData = new ArrayList<>();
-        List<GameService.AnswerData> allAnswers = gameServiceInstance.getAllAnswersForCurrentQuestion();
-        if (allAnswers != null) {
-            for (int i = 0; i < allAnswers.size(); i++) {
-                GameService.AnswerData ad = allAnswers.get(i);
-                Map<String, Object> answerMap = new HashMap<>();
-                answerMap.put("text", ad.originalText());
-                answerMap.put("points", ad.points());
-                answerMap.put("isRevealed", false);
-                answerMap.put("position", i);
-                initialAnswersData.add(answerMap);
-            }
-        }
-        lobby.setRevealedAnswersData(initialAnswersData);
+        lobby.setAnswerBoard(AnswerBoard.fromAnswers(gameServiceInstance.getAllAnswersForCurrentQuestion()));
         lobby.setRevealedAnswersCountInRound(0);
         lobby.setCurrentRoundPoints(0);
         lobby.setTeam1Errors(0);
         lobby.setTeam2Errors(0);
+        lobby.recordEvent(GameEventType.QUESTION_LOADED, null, gameServiceInstance.getCurrentQuestionId(),
+                gameServiceInstance.getTotalAnswersCount(), gameServiceInstance.getCurrentQuestion());
     }
 
-    public synchronized Optional<Lobby> processPlayerAnswer(String lobbyId, String answeringPlayerSessionId, String answerText) {
+    public Optional<Lobby> processPlayerAnswer(String lobbyId, String answeringPlayerSessionId, String answerText) {
+        return withTimedLock(() -> processPlayerAnswerLocked(lobbyId, answeringPlayerSessionId, answerText));
+    }
+
+    private Optional<Lobby> processPlayerAnswerLocked(String lobbyId, String answeringPlayerSessionId, String answerText) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         if (lobbyOpt.isEmpty()) {
             return Optional.empty();
         }
         Lobby lobby = lobbyOpt.get();
+        lobby.recordEvent(GameEventType.ANSWER_SUBMITTED, answeringPlayerSessionId, 0, 0, answerText);
 
         if (lobby.getHostPanelSessionId() != null) {
             lobby.stopAnswerTimer();
@@ -367,6 +478,7 @@ public class LobbyService {
             }
 
             AnswerProcessingResult result = gameServiceInstance.processPlayerAnswer(answerText);
+            metrics.answerMatched(result.matchStage);
             lobby.processAnswer(answeringPlayer, result, gameServiceInstance, false);
 
             handleRoundOrGameEnd(lobby, gameServiceInstance);
@@ -375,7 +487,35 @@ public class LobbyService {
         return Optional.of(lobby);
     }
 
-    public synchronized Optional<Lobby> validateAnswerByQuizMaster(String lobbyId, String answeringPlayerSessionId, boolean isCorrect, String matchedAnswerText) {
+    //runda publicznosci na odkryte pytanie; sklad druzyn zapamietany teraz, odpowiedzi juz bez tej blokady
+    public synchronized Optional<AudienceRound> prepareAudienceRound(String lobbyId, String hostSessionId) {
+        Optional<Lobby> lobbyOpt = getLobby(lobbyId);
+        GameService gameServiceInstance = activeGameServices.get(lobbyId);
+        if (lobbyOpt.isEmpty() || gameServiceInstance == null) return Optional.empty();
+        if (!isHost(lobbyId, hostSessionId) && !isHostPanel(lobbyId, hostSessionId)) return Optional.empty();
+        Lobby lobby = lobbyOpt.get();
+        GameService.CompiledQuestion question = gameServiceInstance.getCompiledQuestion();
+        GameSettings settings = lobby.getGameSettings();
+        if (question == null || settings == null || !lobby.isQuestionRevealed()) return Optional.empty();
+
+        Map<String, AudienceRound.Member> members = new HashMap<>();
+        String team1Name = lobby.getTeam1Name();
+        String team2Name = lobby.getTeam2Name();
+        lobby.getTeams().forEach((teamName, players) -> {
+            int team = teamName.equals(team1Name) ? 0 : teamName.equals(team2Name) ? 1 : -1;
+            for (PlayerInfo player : players) {
+                members.put(player.sessionId(), new AudienceRound.Member(player.nickname(), team));
+            }
+        });
+        return Optional.of(new AudienceRound(lobbyId, question, members, team1Name, team2Name,
+                settings.answerTime() * 1000L, System.nanoTime()));
+    }
+
+    public Optional<Lobby> validateAnswerByQuizMaster(String lobbyId, String answeringPlayerSessionId, boolean isCorrect, String matchedAnswerText) {
+        return withTimedLock(() -> validateAnswerByQuizMasterLocked(lobbyId, answeringPlayerSessionId, isCorrect, matchedAnswerText));
+    }
+
+    private Optional<Lobby> validateAnswerByQuizMasterLocked(String lobbyId, String answeringPlayerSessionId, boolean isCorrect, String matchedAnswerText) {
         Optional<Lobby> lobbyOpt = getLobby(lobbyId);
         GameService gameServiceInstance = activeGameServices.get(lobbyId);
         if (lobbyOpt.isEmpty() || gameServiceInstance == null) return Optional.empty();
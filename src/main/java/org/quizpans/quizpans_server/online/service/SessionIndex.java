@@ -0,0 +1,102 @@
+package org.quizpans.quizpans_server.online.service;
+// indeks sesja -> lobby i role, aktualizowany przez lobby przy kazdej zmianie skladu
+// rozlaczenie i sprawdzanie uprawnien bez przeszukiwania wszystkich lobby
+import org.quizpans.quizpans_server.online.model.LobbyMembershipListener;
+import org.quizpans.quizpans_server.online.model.SessionRole;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class SessionIndex implements LobbyMembershipListener {
+
+    //role jako maska bitowa po ordinal SessionRole
+    public record SessionBinding(String lobbyId, int roleMask) {
+        public boolean has(SessionRole role) {
+            return (roleMask & (1 << role.ordinal())) != 0;
+        }
+    }
+
+    private final Map<String, List<SessionBinding>> bindings = new ConcurrentHashMap<>();
+    //odwrotnie: sesje powiazane z lobby w dowolnej roli, odbiorcy aktualizacji lobby
+    private final Map<String, Set<String>> lobbyMembers = new ConcurrentHashMap<>();
+
+    @Override
+    public void sessionBound(String lobbyId, String sessionId, SessionRole role) {
+        bindings.compute(sessionId, (id, current) -> update(current, lobbyId, 1 << role.ordinal(), true));
+        lobbyMembers.computeIfAbsent(lobbyId, id -> ConcurrentHashMap.newKeySet()).add(sessionId);
+    }
+
+    @Override
+    public void sessionUnbound(String lobbyId, String sessionId, SessionRole role) {
+        List<SessionBinding> remaining = bindings.computeIfPresent(sessionId, (id, current) -> update(current, lobbyId, 1 << role.ordinal(), false));
+        if (!hasLobby(remaining, lobbyId)) {
+            Set<String> members = lobbyMembers.get(lobbyId);
+            if (members != null) {
+                members.remove(sessionId);
+            }
+        }
+    }
+
+    public Set<String> membersOf(String lobbyId) {
+        Set<String> members = lobbyMembers.get(lobbyId);
+        return members != null ? Collections.unmodifiableSet(members) : Set.of();
+    }
+
+    public boolean isInAnyLobby(String sessionId) {
+        return sessionId != null && bindings.containsKey(sessionId);
+    }
+
+    public List<SessionBinding> bindingsOf(String sessionId) {
+        if (sessionId == null) return List.of();
+        return bindings.getOrDefault(sessionId, List.of());
+    }
+
+    public boolean hasRole(String sessionId, String lobbyId, SessionRole role) {
+        for (SessionBinding binding : bindingsOf(sessionId)) {
+            if (binding.lobbyId().equals(lobbyId)) {
+                return binding.has(role);
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return bindings.size();
+    }
+
+    private static boolean hasLobby(List<SessionBinding> list, String lobbyId) {
+        if (list == null) return false;
+        for (SessionBinding binding : list) {
+            if (binding.lobbyId().equals(lobbyId)) return true;
+        }
+        return false;
+    }
+    //niezmienna lista, zwykle jeden element; null usuwa wpis
+    private static List<SessionBinding> update(List<SessionBinding> current, String lobbyId, int roleBit, boolean add) {
+        List<SessionBinding> next = new ArrayList<>(current != null ? current.size() + 1 : 1);
+        boolean found = false;
+        if (current != null) {
+            for (SessionBinding binding : current) {
+                if (!binding.lobbyId().equals(lobbyId)) {
+                    next.add(binding);
+                    continue;
+                }
+                found = true;
+                int mask = add ? binding.roleMask() | roleBit : binding.roleMask() & ~roleBit;
+                if (mask != 0) {
+                    next.add(new SessionBinding(lobbyId, mask));
+                }
+            }
+        }
+        if (!found && add) {
+            next.add(new SessionBinding(lobbyId, roleBit));
+        }
+        return next.isEmpty() ? null : List.copyOf(next);
+    }
+}
@@ -0,0 +1,304 @@
+package org.quizpans.quizpans_server.online.snapshot;
+// binarny zapis kopii lobby
+// liczby jako varint, teksty utf-8 z dlugoscia, null jako -1
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.quizpans.quizpans_server.online.model.LobbySnapshot;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class LobbySnapshotCodec {
+    private static final int MAGIC = 0x51505331; // QPS1
+    private static final int FORMAT_VERSION = 3;
+    private static final LobbyStatus[] STATUSES = LobbyStatus.values();
+    private static final ParticipantRole[] ROLES = ParticipantRole.values();
+
+    private LobbySnapshotCodec() {
+    }
+
+    public static void encode(List<LobbySnapshotEntry> entries, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        writeVarInt(out, FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+        writeVarInt(out, entries.size());
+        for (LobbySnapshotEntry entry : entries) {
+            writeLobby(out, entry.lobby());
+            out.writeBoolean(entry.hasGameService());
+            if (entry.hasGameService()) {
+                writeString(out, entry.category());
+                writeQuestion(out, entry.question());
+            }
+        }
+        out.flush();
+    }
+
+    public static List<LobbySnapshotEntry> decode(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Nieprawidlowy plik kopii lobby.");
+        }
+        int version = readVarInt(in);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Nieobslugiwana wersja kopii lobby: " + version);
+        }
+        in.readLong();
+        int count = readVarInt(in);
+        List<LobbySnapshotEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LobbySnapshot lobby = readLobby(in);
+            boolean hasGameService = in.readBoolean();
+            String category = null;
+            GameService.CompiledQuestion question = null;
+            if (hasGameService) {
+                category = readString(in);
+                question = readQuestion(in);
+            }
+            entries.add(new LobbySnapshotEntry(lobby, hasGameService, category, question));
+        }
+        return entries;
+    }
+    //lobby
+    private static void writeLobby(DataOutputStream out, LobbySnapshot l) throws IOException {
+        writeString(out, l.id());
+        writeString(out, l.name());
+        out.writeByte(l.status().ordinal());
+        writeSettings(out, l.gameSettings());
+        writeString(out, l.password());
+        writeString(out, l.hostSessionId());
+        writeString(out, l.hostPanelSessionId());
+        writeString(out, l.quizMasterSessionId());
+        writeVarInt(out, l.participants().size());
+        for (PlayerInfo p : l.participants()) {
+            writeString(out, p.sessionId());
+            writeString(out, p.nickname());
+            writeString(out, p.teamName());
+            out.writeByte(p.getRole().ordinal());
+            writeString(out, l.resumeTokenDigests().get(p.sessionId()));
+        }
+        writeString(out, l.currentQuestionText());
+        writeVarInt(out, l.currentQuestionId());
+        writeVarInt(out, l.currentRoundNumber());
+        writeVarInt(out, l.totalRounds());
+        writeString(out, l.currentPlayerSessionId());
+        writeVarInt(out, l.team1Score());
+        writeVarInt(out, l.team2Score());
+        writeVarInt(out, l.team1Errors());
+        writeVarInt(out, l.team2Errors());
+        writeVarInt(out, l.answerTexts().length);
+        for (int slot = 0; slot < l.answerTexts().length; slot++) {
+            writeString(out, l.answerTexts()[slot]);
+            writeVarInt(out, l.answerPoints()[slot]);
+        }
+        writeVarInt(out, l.revealedMask());
+        writeVarInt(out, l.currentRoundPoints());
+        writeVarInt(out, l.revealedAnswersCountInRound());
+        writeVarInt(out, l.currentAnswerTimeRemaining());
+        int flags = (l.questionRevealed() ? 1 : 0)
+                | (l.team1Turn() ? 2 : 0)
+                | (l.stealAttemptInProgress() ? 4 : 0)
+                | (l.originalTurnTeam1ForSteal() ? 8 : 0)
+                | (l.initialControlPhaseActive() ? 16 : 0)
+                | (l.firstTeamAttemptedInControlPhase() ? 32 : 0)
+                | (l.firstPlayerAnswerInControlPhase() != null ? 64 : 0);
+        out.writeByte(flags);
+        GameService.AnswerProcessingResult first = l.firstPlayerAnswerInControlPhase();
+        if (first != null) {
+            out.writeBoolean(first.isCorrect);
+            writeVarInt(out, first.pointsAwarded);
+            writeString(out, first.originalAnswerText);
+            writeVarInt(out, first.answerIndex);
+            writeString(out, first.baseFormMatched);
+        }
+    }
+
+    private static LobbySnapshot readLobby(DataInputStream in) throws IOException {
+        String id = readString(in);
+        String name = readString(in);
+        LobbyStatus status = STATUSES[in.readByte()];
+        GameSettings settings = readSettings(in);
+        String password = readString(in);
+        String hostSessionId = readString(in);
+        String hostPanelSessionId = readString(in);
+        String quizMasterSessionId = readString(in);
+        int participantCount = readVarInt(in);
+        List<PlayerInfo> participants = new ArrayList<>(participantCount);
+        Map<String, String> resumeTokenDigests = new HashMap<>();
+        for (int i = 0; i < participantCount; i++) {
+            String sessionId = readString(in);
+            String nickname = readString(in);
+            String teamName = readString(in);
+            participants.add(new PlayerInfo(sessionId, nickname, teamName, ROLES[in.readByte()]));
+            String digest = readString(in);
+            if (digest != null) {
+                resumeTokenDigests.put(sessionId, digest);
+            }
+        }
+        String questionText = readString(in);
+        int questionId = readVarInt(in);
+        int roundNumber = readVarInt(in);
+        int totalRounds = readVarInt(in);
+        String currentPlayerSessionId = readString(in);
+        int team1Score = readVarInt(in);
+        int team2Score = readVarInt(in);
+        int team1Errors = readVarInt(in);
+        int team2Errors = readVarInt(in);
+        int slots = readVarInt(in);
+        String[] texts = new String[slots];
+        int[] points = new int[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            texts[slot] = readString(in);
+            points[slot] = readVarInt(in);
+        }
+        int revealedMask = readVarInt(in);
+        int roundPoints = readVarInt(in);
+        int revealedCount = readVarInt(in);
+        int timeRemaining = readVarInt(in);
+        int flags = in.readByte();
+        GameService.AnswerProcessingResult first = null;
+        if ((flags & 64) != 0) {
+            boolean correct = in.readBoolean();
+            int awarded = readVarInt(in);
+            String text = readString(in);
+            int index = readVarInt(in);
+            first = new GameService.AnswerProcessingResult(correct, awarded, text, index, readString(in));
+        }
+        return new LobbySnapshot(id, name, status, settings, password, hostSessionId, hostPanelSessionId, quizMasterSessionId, participants, resumeTokenDigests,
+                questionText, (flags & 1) != 0, questionId, roundNumber, totalRounds, currentPlayerSessionId,
+                (flags & 2) != 0, team1Score, team2Score, team1Errors, team2Errors, texts, points, revealedMask,
+                roundPoints, revealedCount, (flags & 4) != 0, (flags & 8) != 0, (flags & 16) != 0, (flags & 32) != 0,
+                first, timeRemaining);
+    }
+
+    private static void writeSettings(DataOutputStream out, GameSettings s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s == null) return;
+        writeString(out, s.category());
+        writeVarInt(out, s.answerTime());
+        writeVarInt(out, s.numberOfRounds());
+        writeVarInt(out, s.maxPlayersPerTeam());
+        writeString(out, s.teamBlueName());
+        writeString(out, s.teamRedName());
+    }
+
+    private static GameSettings readSettings(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        String category = readString(in);
+        int answerTime = readVarInt(in);
+        int rounds = readVarInt(in);
+        int maxPlayers = readVarInt(in);
+        String blue = readString(in);
+        return new GameSettings(category, answerTime, rounds, maxPlayers, blue, readString(in));
+    }
+    //skompilowane pytanie
+    private static void writeQuestion(DataOutputStream out, GameService.CompiledQuestion q) throws IOException {
+        out.writeBoolean(q != null);
+        if (q == null) return;
+        writeVarInt(out, q.id());
+        writeString(out, q.text());
+        writeVarInt(out, q.answers().size());
+        for (GameService.AnswerData ad : q.answers()) {
+            writeString(out, ad.originalText());
+            writeVarInt(out, ad.points());
+            writeVarInt(out, ad.displayOrderIndex());
+            writeString(out, ad.baseForm());
+        }
+        writeVarInt(out, q.answerKeywords().size());
+        for (Map.Entry<String, Set<String>> e : q.answerKeywords().entrySet()) {
+            writeString(out, e.getKey());
+            writeVarInt(out, e.getValue().size());
+            for (String keyword : e.getValue()) {
+                writeString(out, keyword);
+            }
+        }
+        writeVarInt(out, q.synonymToBaseForm().size());
+        for (Map.Entry<String, String> e : q.synonymToBaseForm().entrySet()) {
+            writeString(out, e.getKey());
+            writeString(out, e.getValue());
+        }
+    }
+
+    private static GameService.CompiledQuestion readQuestion(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int id = readVarInt(in);
+        String text = readString(in);
+        int answerCount = readVarInt(in);
+        List<GameService.AnswerData> answers = new ArrayList<>(answerCount);
+        for (int i = 0; i < answerCount; i++) {
+            String original = readString(in);
+            int points = readVarInt(in);
+            int order = readVarInt(in);
+            answers.add(new GameService.AnswerData(original, points, order, readString(in)));
+        }
+        int keywordEntries = readVarInt(in);
+        Map<String, Set<String>> keywords = new HashMap<>();
+        for (int i = 0; i < keywordEntries; i++) {
+            String key = readString(in);
+            int size = readVarInt(in);
+            Set<String> set = new HashSet<>();
+            for (int k = 0; k < size; k++) {
+                set.add(readString(in));
+            }
+            keywords.put(key, set);
+        }
+        int synonymEntries = readVarInt(in);
+        Map<String, String> synonyms = new HashMap<>();
+        for (int i = 0; i < synonymEntries; i++) {
+            synonyms.put(readString(in), readString(in));
+        }
+        return new GameService.CompiledQuestion(id, text, answers, keywords, synonyms);
+    }
+    //typy podstawowe
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (result >>> 1) ^ -(result & 1);
+            }
+        }
+        throw new IOException("Uszkodzona liczba w kopii lobby.");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
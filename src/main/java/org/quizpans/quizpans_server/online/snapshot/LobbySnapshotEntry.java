@@ -0,0 +1,12 @@
+package org.quizpans.quizpans_server.online.snapshot;
+
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.online.model.LobbySnapshot;
+//lobby + pytanie z jego GameService
+public record LobbySnapshotEntry(
+        LobbySnapshot lobby,
+        boolean hasGameService,
+        String category,
+        GameService.CompiledQuestion question
+) {
+}
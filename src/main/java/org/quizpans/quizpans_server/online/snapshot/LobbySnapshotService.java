@@ -0,0 +1,100 @@
+package org.quizpans.quizpans_server.online.snapshot;
+// okresowa kopia lobby na dysk
+// odtworzenie przy starcie zanim serwer przyjmie polaczenia
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class LobbySnapshotService {
+    private final LobbyService lobbyService;
+    private final boolean enabled;
+    private final Path snapshotFile;
+    private final int intervalSeconds;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public LobbySnapshotService(LobbyService lobbyService,
+                                @Value("${quizpans.snapshot.enabled:false}") boolean enabled,
+                                @Value("${quizpans.snapshot.file:data/snapshot/lobbies.bin}") String snapshotFile,
+                                @Value("${quizpans.snapshot.interval-seconds:30}") int intervalSeconds) {
+        this.lobbyService = lobbyService;
+        this.enabled = enabled;
+        this.snapshotFile = Paths.get(snapshotFile);
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @PostConstruct
+    void restoreAndSchedule() {
+        if (!enabled) return;
+        try {
+            int restored = restoreNow();
+            if (restored > 0) {
+                System.out.println("LobbySnapshotService: odtworzono lobby: " + restored);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("LobbySnapshotService: nie udało się odtworzyć kopii lobby: " + e.getMessage());
+        }
+        if (intervalSeconds > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("LobbySnapshotScheduler");
+                return t;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+    //przed zatrzymaniem timerow w LobbyService
+    @PreDestroy
+    void snapshotOnShutdown() {
+        if (!enabled) return;
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        snapshotQuietly();
+    }
+
+    public int snapshotNow() throws IOException {
+        List<LobbySnapshotEntry> entries = lobbyService.captureSnapshots();
+        Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            LobbySnapshotCodec.encode(entries, out);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries.size();
+    }
+
+    public int restoreNow() throws IOException {
+        if (!Files.exists(snapshotFile)) return 0;
+        List<LobbySnapshotEntry> entries;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024)) {
+            entries = LobbySnapshotCodec.decode(in);
+        }
+        return lobbyService.restoreSnapshots(entries, true);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshotNow();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("LobbySnapshotService: błąd zapisu kopii lobby: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.quizpans.quizpans_server.online.websocket;
+// kontrola wiadomosci przychodzacych zanim trafia do dekodera i pod blokade LobbyService
+// kolejnosc: limit zetonow sesji i adresu, rozmiar ramki, po dekodowaniu rozmiar dla akcji i dlugosc odpowiedzi
+// po przekroczeniu limitu zetonow klient dostaje jeden blad, kolejne odrzucenia az do przyjecia sa ciche
+import org.quizpans.quizpans_server.online.websocket.action.ClientAction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+@Component
+public class AdmissionControl {
+
+    public enum Rejection {
+        MESSAGE_TOO_LARGE("Wiadomość jest za duża."),
+        ACTION_TOO_LARGE("Wiadomość jest za duża dla tej akcji."),
+        ANSWER_TOO_LONG("Odpowiedź jest za długa."),
+        SESSION_RATE("Zbyt wiele wiadomości. Zwolnij."),
+        ADDRESS_RATE("Zbyt wiele wiadomości z tego adresu. Zwolnij.");
+
+        private final String errorMessage;
+
+        Rejection(String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        private boolean isRateLimit() {
+            return this == SESSION_RATE || this == ADDRESS_RATE;
+        }
+    }
+
+    private static final class SessionState {
+        private final TokenBucket bucket;
+        private final String address;
+        private volatile boolean notified;
+
+        private SessionState(TokenBucket bucket, String address) {
+            this.bucket = bucket;
+            this.address = address;
+        }
+    }
+
+    private static final class AddressState {
+        private final TokenBucket bucket;
+        private int sessions;
+
+        private AddressState(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private final int maxMessageBytes;
+    private final int defaultActionBytes;
+    private final Map<String, Integer> actionBytes;
+    private final int maxAnswerLength;
+    private final double sessionRate;
+    private final double sessionBurst;
+    private final double addressRate;
+    private final double addressBurst;
+    private final boolean trustForwardedFor;
+    private final LongSupplier clock;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AddressState> addresses = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final Map<Rejection, LongAdder> rejected = new EnumMap<>(Rejection.class);
+
+    @Autowired
+    public AdmissionControl(@Value("${quizpans.admission.max-message-bytes:65536}") int maxMessageBytes,
+                            @Value("${quizpans.admission.default-action-bytes:4096}") int defaultActionBytes,
+                            @Value("${quizpans.admission.action-bytes:}") String actionBytes,
+                            @Value("${quizpans.admission.max-answer-length:200}") int maxAnswerLength,
+                            @Value("${quizpans.admission.session-rate:20}") double sessionRate,
+                            @Value("${quizpans.admission.session-burst:40}") double sessionBurst,
+                            @Value("${quizpans.admission.address-rate:100}") double addressRate,
+                            @Value("${quizpans.admission.address-burst:200}") double addressBurst,
+                            @Value("${quizpans.admission.trust-forwarded-for:false}") boolean trustForwardedFor) {
+        this(maxMessageBytes, defaultActionBytes, parseActionBytes(actionBytes), maxAnswerLength,
+                sessionRate, sessionBurst, addressRate, addressBurst, trustForwardedFor, System::nanoTime);
+    }
+
+    AdmissionControl(int maxMessageBytes, int defaultActionBytes, Map<String, Integer> actionBytes, int maxAnswerLength,
+                     double sessionRate, double sessionBurst, double addressRate, double addressBurst,
+                     boolean trustForwardedFor, LongSupplier clock) {
+        this.maxMessageBytes = maxMessageBytes;
+        this.defaultActionBytes = defaultActionBytes;
+        this.actionBytes = actionBytes;
+        this.maxAnswerLength = maxAnswerLength;
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.addressRate = addressRate;
+        this.addressBurst = addressBurst;
+        this.trustForwardedFor = trustForwardedFor;
+        this.clock = clock;
+        for (Rejection rejection : Rejection.values()) {
+            rejected.put(rejection, new LongAdder());
+        }
+    }
+
+    public void register(WebSocketSession session) {
+        long now = clock.getAsLong();
+        String address = addressOf(session);
+        if (address != null) {
+            addresses.compute(address, (key, state) -> {
+                AddressState current = state != null ? state : new AddressState(new TokenBucket(addressRate, addressBurst, now));
+                current.sessions++;
+                return current;
+            });
+        }
+        sessions.put(session.getId(), new SessionState(new TokenBucket(sessionRate, sessionBurst, now), address));
+    }
+
+    public void unregister(String sessionId) {
+        SessionState state = sessions.remove(sessionId);
+        if (state == null || state.address == null) return;
+        addresses.computeIfPresent(state.address, (key, current) -> --current.sessions > 0 ? current : null);
+    }
+    //ramka przed dekodowaniem; null = przyjeta
+    public Rejection admitMessage(String sessionId, int payloadBytes) {
+        SessionState state = sessions.get(sessionId);
+        if (state != null) {
+            long now = clock.getAsLong();
+            if (!state.bucket.tryAcquire(now)) {
+                return reject(Rejection.SESSION_RATE);
+            }
+            AddressState address = state.address != null ? addresses.get(state.address) : null;
+            if (address != null && !address.bucket.tryAcquire(now)) {
+                return reject(Rejection.ADDRESS_RATE);
+            }
+            state.notified = false;
+        }
+        if (payloadBytes > maxMessageBytes) {
+            return reject(Rejection.MESSAGE_TOO_LARGE);
+        }
+        return null;
+    }
+    //zdekodowana akcja, dlugosc odpowiedzi sprawdzana przed normalizacja i porownaniem z tablica
+    public Rejection admitAction(ClientAction action, int payloadBytes) {
+        if (payloadBytes > actionBytes.getOrDefault(action.actionName(), defaultActionBytes)) {
+            return reject(Rejection.ACTION_TOO_LARGE);
+        }
+        String answer = switch (action) {
+            case ClientAction.SubmitAnswer a -> a.answer();
+            case ClientAction.AudienceAnswer a -> a.answer();
+            case ClientAction.RevealAnswerByHost a -> a.answerText();
+            case ClientAction.ValidateAnswer a -> a.matchedAnswer();
+            default -> null;
+        };
+        if (answer != null && answer.length() > maxAnswerLength) {
+            return reject(Rejection.ANSWER_TOO_LONG);
+        }
+        admitted.increment();
+        return null;
+    }
+    //blad do klienta: zawsze przy rozmiarze, przy limicie zetonow tylko pierwszy raz w serii
+    public boolean shouldNotify(String sessionId, Rejection rejection) {
+        if (!rejection.isRateLimit()) return true;
+        SessionState state = sessions.get(sessionId);
+        if (state == null || state.notified) return false;
+        state.notified = true;
+        return true;
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected(Rejection rejection) {
+        return rejected.get(rejection).sum();
+    }
+
+    public Map<Rejection, Long> getRejectedCounts() {
+        Map<Rejection, Long> counts = new EnumMap<>(Rejection.class);
+        rejected.forEach((rejection, count) -> counts.put(rejection, count.sum()));
+        return counts;
+    }
+
+    int trackedAddresses() {
+        return addresses.size();
+    }
+
+    private Rejection reject(Rejection rejection) {
+        rejected.get(rejection).increment();
+        return rejection;
+    }
+    //za zaufanym proxy adres klienta z pierwszej pozycji X-Forwarded-For
+    private String addressOf(WebSocketSession session) {
+        if (trustForwardedFor && session.getHandshakeHeaders() != null) {
+            String forwarded = session.getHandshakeHeaders().getFirst("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.split(",", 2)[0].trim();
+            }
+        }
+        InetSocketAddress remote = session.getRemoteAddress();
+        if (remote == null) return null;
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+    //format: submitAnswer=1024,getAllLobbies=256
+    static Map<String, Integer> parseActionBytes(String limits) {
+        Map<String, Integer> result = new HashMap<>();
+        if (limits == null || limits.isBlank()) return result;
+        for (String entry : limits.split(",")) {
+            String[] actionAndLimit = entry.trim().split("=", 2);
+            if (actionAndLimit.length != 2) continue;
+            result.put(actionAndLimit[0].trim(), Integer.parseInt(actionAndLimit[1].trim()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package org.quizpans.quizpans_server.online.websocket;
+// zapis i odczyt tablicy odpowiedzi prosto z json bez map posrednich
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AnswerBoardTypeAdapter extends TypeAdapter<AnswerBoard> {
+
+    @Override
+    public void write(JsonWriter out, AnswerBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        int position = 0;
+        for (int slot = 0; slot < board.getSlotCount(); slot++) {
+            if (!board.hasSlot(slot)) continue;
+            out.beginObject();
+            out.name("text").value(board.getText(slot));
+            out.name("points").value(board.getPoints(slot));
+            out.name("isRevealed").value(board.isRevealed(slot));
+            out.name("position").value(position++);
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    //odczyt w tej samej postaci: pozycja staje sie slotem, puste sloty znikaja
+    @Override
+    public AnswerBoard read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> texts = new ArrayList<>();
+        List<Integer> points = new ArrayList<>();
+        int revealedMask = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (texts.size() >= AnswerBoard.MAX_SLOTS) {
+                throw new JsonParseException("Za dużo odpowiedzi na tablicy.");
+            }
+            String text = null;
+            int answerPoints = 0;
+            boolean revealed = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "text" -> text = in.nextString();
+                    case "points" -> answerPoints = in.nextInt();
+                    case "isRevealed" -> revealed = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (revealed) revealedMask |= 1 << texts.size();
+            texts.add(text);
+            points.add(answerPoints);
+        }
+        in.endArray();
+        return AnswerBoard.of(texts.toArray(new String[0]), points.stream().mapToInt(Integer::intValue).toArray(), revealedMask);
+    }
+}
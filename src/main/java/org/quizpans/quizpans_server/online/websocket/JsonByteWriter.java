@@ -0,0 +1,290 @@
+package org.quizpans.quizpans_server.online.websocket;
+// zapis json prosto do bajtow utf-8, bez Writer i posrednich napisow
+// wynik bajt w bajt jak z Gson ze serializeNulls: te same znaki ucieczki, takze html (<, >, &, =, ')
+// bufory wracaja do puli po uzyciu, zbyt duze sa porzucane
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+final class JsonByteWriter implements AutoCloseable {
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    private static final ArrayBlockingQueue<JsonByteWriter> POOL = new ArrayBlockingQueue<>(32);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    //znaki ascii zapisywane jako ucieczka; null = bez zmian
+    private static final byte[][] ASCII_ESCAPES = new byte[128][];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ASCII_ESCAPES[c] = unicodeEscape(c);
+        }
+        ASCII_ESCAPES['"'] = new byte[]{'\\', '"'};
+        ASCII_ESCAPES['\\'] = new byte[]{'\\', '\\'};
+        ASCII_ESCAPES['\t'] = new byte[]{'\\', 't'};
+        ASCII_ESCAPES['\b'] = new byte[]{'\\', 'b'};
+        ASCII_ESCAPES['\n'] = new byte[]{'\\', 'n'};
+        ASCII_ESCAPES['\r'] = new byte[]{'\\', 'r'};
+        ASCII_ESCAPES['\f'] = new byte[]{'\\', 'f'};
+        for (char c : new char[]{'<', '>', '&', '=', '\''}) {
+            ASCII_ESCAPES[c] = unicodeEscape(c);
+        }
+    }
+
+    //nazwa pola zakodowana raz: "nazwa":
+    static final class Name {
+        private final byte[] bytes;
+
+        private Name(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    private JsonByteWriter() {
+    }
+
+    static Name fieldName(String name) {
+        JsonByteWriter writer = new JsonByteWriter();
+        writer.writeString(name);
+        writer.writeByte(':');
+        return new Name(writer.toByteArray());
+    }
+
+    static JsonByteWriter acquire() {
+        JsonByteWriter writer = POOL.poll();
+        return writer != null ? writer : new JsonByteWriter();
+    }
+
+    @Override
+    public void close() {
+        size = 0;
+        if (buffer.length <= MAX_POOLED_CAPACITY) {
+            POOL.offer(this);
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    JsonByteWriter beginObject() {
+        separator();
+        writeByte('{');
+        return this;
+    }
+
+    JsonByteWriter endObject() {
+        writeByte('}');
+        return this;
+    }
+
+    JsonByteWriter beginArray() {
+        separator();
+        writeByte('[');
+        return this;
+    }
+
+    JsonByteWriter endArray() {
+        writeByte(']');
+        return this;
+    }
+
+    JsonByteWriter name(Name name) {
+        separator();
+        writeBytes(name.bytes);
+        return this;
+    }
+
+    JsonByteWriter name(String name) {
+        separator();
+        writeString(name);
+        writeByte(':');
+        return this;
+    }
+
+    JsonByteWriter value(String value) {
+        separator();
+        if (value == null) {
+            writeBytes(NULL);
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonByteWriter value(boolean value) {
+        separator();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    JsonByteWriter value(long value) {
+        separator();
+        writeLong(value);
+        return this;
+    }
+
+    JsonByteWriter nullValue() {
+        separator();
+        writeBytes(NULL);
+        return this;
+    }
+    //gotowa wartosc json, np. pole wczesniej zakodowanego widoku
+    JsonByteWriter raw(byte[] json, int from, int to) {
+        separator();
+        ensure(to - from);
+        System.arraycopy(json, from, buffer, size, to - from);
+        size += to - from;
+        return this;
+    }
+
+    JsonByteWriter raw(byte[] json) {
+        return raw(json, 0, json.length);
+    }
+    //drzewo jak TypeAdapter Gson dla JsonElement
+    JsonByteWriter tree(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return nullValue();
+        }
+        if (element.isJsonObject()) {
+            beginObject();
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                name(entry.getKey());
+                tree(entry.getValue());
+            }
+            return endObject();
+        }
+        if (element.isJsonArray()) {
+            beginArray();
+            for (JsonElement item : element.getAsJsonArray()) {
+                tree(item);
+            }
+            return endArray();
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return value(primitive.getAsBoolean());
+        }
+        if (primitive.isNumber()) {
+            Number number = primitive.getAsNumber();
+            if (number instanceof Integer || number instanceof Long) {
+                return value(number.longValue());
+            }
+            separator();
+            writeAscii(number.toString());
+            return this;
+        }
+        return value(primitive.getAsString());
+    }
+    //przecinek przed kolejnym elementem, chyba ze zaraz po otwarciu albo nazwie pola
+    private void separator() {
+        if (size == 0) return;
+        byte last = buffer[size - 1];
+        if (last != '{' && last != '[' && last != ':') {
+            writeByte(',');
+        }
+    }
+
+    private void writeString(String value) {
+        int length = value.length();
+        ensure(length + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ASCII_ESCAPES[c];
+                if (escape == null) {
+                    ensure(1);
+                    buffer[size++] = (byte) c;
+                } else {
+                    writeBytes(escape);
+                }
+            } else if (c == '\u2028' || c == '\u2029') {
+                writeBytes(unicodeEscape(c));
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                //samotny surogat jak w String.getBytes(UTF_8)
+                ensure(1);
+                buffer[size++] = '?';
+            } else {
+                ensure(3);
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensure(1);
+        buffer[size++] = '"';
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = size + digits;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    private void writeAscii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) {
+        ensure(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] unicodeEscape(int c) {
+        return new byte[]{'\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF], HEX[c & 0xF]};
+    }
+}
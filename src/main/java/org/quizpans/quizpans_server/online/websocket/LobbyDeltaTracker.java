@@ -0,0 +1,259 @@
+package org.quizpans.quizpans_server.online.websocket;
+// wersjonowane widoki lobby i latki tylko ze zmienionymi polami
+// klient dostaje latki dopiero gdy potwierdzi wersje (ackVersion), inaczej pelny lobbyUpdate jak dotad
+// pelny widok przy luce wersji, zmianie lobby, ponownym polaczeniu albo zbyt wielu niepotwierdzonych
+// ostatnie latki lobby w krotkiej historii, wznowiona sesja dostaje tylko te, ktore ja ominely
+// widoki i latki trzymane jako zakodowane bajty, ramki skladane z nich bez drzewa json
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class LobbyDeltaTracker {
+    static final String BOARD_FIELD = "revealedAnswersData";
+    private static final JsonByteWriter.Name TYPE = JsonByteWriter.fieldName("type");
+    private static final JsonByteWriter.Name VERSION = JsonByteWriter.fieldName("version");
+    private static final JsonByteWriter.Name LOBBY = JsonByteWriter.fieldName("lobby");
+    private static final JsonByteWriter.Name LOBBY_ID = JsonByteWriter.fieldName("lobbyId");
+    private static final JsonByteWriter.Name BASE_VERSION = JsonByteWriter.fieldName("baseVersion");
+    private static final JsonByteWriter.Name FIELDS = JsonByteWriter.fieldName("fields");
+    private static final JsonByteWriter.Name SLOTS = JsonByteWriter.fieldName("slots");
+
+    private final int maxUnacked;
+    private final int historySize;
+    private final Map<String, LobbyViewState> lobbies = new ConcurrentHashMap<>();
+    private final Map<String, SessionViewState> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong fullSends = new AtomicLong();
+    private final AtomicLong patchSends = new AtomicLong();
+    private final AtomicLong replayedPatches = new AtomicLong();
+
+    //odbiorca ramek; fullState = ramka zastepuje wczesniejsze ramki tego lobby
+    @FunctionalInterface
+    public interface FrameSink {
+        void send(WebSocketSession session, SharedFrame frame, boolean fullState);
+    }
+
+    //ramki nadrabiania po wznowieniu; fullState gdy historia nie siega wersji klienta
+    public record CatchUp(List<SharedFrame> frames, boolean fullState) {
+    }
+
+    private record PatchRecord(long version, LobbyView.Patch publicPatch, LobbyView.Patch hostPatch) {
+    }
+
+    private static final class LobbyViewState {
+        private long version;
+        private String hostPanelSessionId;
+        private LobbyView publicView;
+        private LobbyView hostView;
+        //kolejne wersje bez luk, najstarsza na poczatku
+        private final ArrayDeque<PatchRecord> history = new ArrayDeque<>();
+    }
+
+    private static final class SessionViewState {
+        private final String lobbyId;
+        private volatile long sentVersion;
+        private volatile long ackedVersion = -1;
+
+        private SessionViewState(String lobbyId) {
+            this.lobbyId = lobbyId;
+        }
+    }
+
+    public LobbyDeltaTracker(@Value("${quizpans.delta.max-unacked:16}") int maxUnacked,
+                             @Value("${quizpans.delta.history:32}") int historySize) {
+        this.maxUnacked = maxUnacked;
+        this.historySize = historySize;
+    }
+    //nowa wersja widoku i wysylka do odbiorcow; kolejnosc wersji zachowana pod blokada lobby
+    void publish(String lobbyId, String hostPanelSessionId, LobbyView publicView, LobbyView hostView,
+                 Collection<WebSocketSession> recipients, FrameSink sender) {
+        LobbyViewState state = lobbies.computeIfAbsent(lobbyId, id -> new LobbyViewState());
+        synchronized (state) {
+            LobbyView.Patch publicPatch = null;
+            LobbyView.Patch hostPatch = null;
+            boolean changed = state.publicView == null;
+            if (!changed) {
+                publicPatch = LobbyView.diff(state.publicView, publicView);
+                //ten sam widok dla prowadzacego, gdy poprzednio tez byl wspolny
+                hostPatch = hostView == publicView && state.hostView == state.publicView ? publicPatch : LobbyView.diff(state.hostView, hostView);
+                changed = publicPatch != null || hostPatch != null;
+            }
+            if (changed) {
+                state.version++;
+                if (state.publicView != null && historySize > 0) {
+                    if (state.history.size() == historySize) state.history.removeFirst();
+                    state.history.addLast(new PatchRecord(state.version,
+                            publicPatch != null ? publicPatch : LobbyView.Patch.EMPTY, hostPatch != null ? hostPatch : LobbyView.Patch.EMPTY));
+                }
+            }
+            state.publicView = publicView;
+            state.hostView = hostView;
+            state.hostPanelSessionId = hostPanelSessionId;
+            long version = state.version;
+
+            Frames frames = new Frames(lobbyId, version, publicView, hostView,
+                    publicPatch != null ? publicPatch : LobbyView.Patch.EMPTY, hostPatch != null ? hostPatch : LobbyView.Patch.EMPTY);
+            for (WebSocketSession session : recipients) {
+                String sessionId = session.getId();
+                boolean isHostPanel = sessionId.equals(hostPanelSessionId);
+                SessionViewState sessionState = sessions.get(sessionId);
+                if (sessionState == null || !sessionState.lobbyId.equals(lobbyId)) {
+                    sessionState = new SessionViewState(lobbyId);
+                    sessions.put(sessionId, sessionState);
+                } else if (sessionState.sentVersion == version) {
+                    continue;
+                } else if (sessionState.ackedVersion >= 0
+                        && sessionState.sentVersion == version - 1
+                        && version - sessionState.ackedVersion <= maxUnacked) {
+                    sessionState.sentVersion = version;
+                    patchSends.incrementAndGet();
+                    sender.send(session, frames.patch(isHostPanel), false);
+                    continue;
+                }
+                sessionState.sentVersion = version;
+                fullSends.incrementAndGet();
+                sender.send(session, frames.full(isHostPanel), true);
+            }
+        }
+    }
+
+    public void acknowledge(String sessionId, String lobbyId, long version) {
+        SessionViewState sessionState = sessions.get(sessionId);
+        if (sessionState == null || !sessionState.lobbyId.equals(lobbyId)) return;
+        long acked = Math.min(version, sessionState.sentVersion);
+        if (acked > sessionState.ackedVersion) {
+            sessionState.ackedVersion = acked;
+        }
+    }
+    //pelny widok na zadanie klienta, np. po wykryciu luki
+    public Optional<SharedFrame> resync(String sessionId, String lobbyId) {
+        LobbyViewState state = lobbies.get(lobbyId);
+        if (state == null) return Optional.empty();
+        synchronized (state) {
+            if (state.publicView == null) return Optional.empty();
+            SessionViewState sessionState = sessions.compute(sessionId, (id, current) ->
+                    current != null && current.lobbyId.equals(lobbyId) ? current : new SessionViewState(lobbyId));
+            sessionState.sentVersion = state.version;
+            fullSends.incrementAndGet();
+            boolean isHostPanel = sessionId.equals(state.hostPanelSessionId);
+            return Optional.of(fullFrame(state.version, isHostPanel ? state.hostView : state.publicView));
+        }
+    }
+
+    //wznowiona sesja podaje ostatnia wersje, ktora zna; dalej latki jak dla kazdego potwierdzajacego
+    public CatchUp catchUp(String sessionId, String lobbyId, long clientVersion, boolean isHostPanel) {
+        LobbyViewState state = lobbies.get(lobbyId);
+        if (state == null) return new CatchUp(List.of(), false);
+        synchronized (state) {
+            if (state.publicView == null) return new CatchUp(List.of(), false);
+            SessionViewState sessionState = new SessionViewState(lobbyId);
+            sessionState.sentVersion = state.version;
+            sessions.put(sessionId, sessionState);
+            PatchRecord oldest = state.history.peekFirst();
+            boolean covered = clientVersion == state.version
+                    || (clientVersion >= 0 && clientVersion < state.version && oldest != null && oldest.version() <= clientVersion + 1);
+            if (covered) {
+                List<SharedFrame> frames = new ArrayList<>();
+                for (PatchRecord record : state.history) {
+                    if (record.version() > clientVersion) {
+                        frames.add(patchFrame(lobbyId, record.version(), isHostPanel ? record.hostPatch() : record.publicPatch()));
+                    }
+                }
+                sessionState.ackedVersion = clientVersion;
+                replayedPatches.addAndGet(frames.size());
+                return new CatchUp(frames, false);
+            }
+            fullSends.incrementAndGet();
+            return new CatchUp(List.of(fullFrame(state.version, isHostPanel ? state.hostView : state.publicView)), true);
+        }
+    }
+
+    public void forget(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public long getFullSends() {
+        return fullSends.get();
+    }
+
+    public long getPatchSends() {
+        return patchSends.get();
+    }
+
+    public long getReplayedPatches() {
+        return replayedPatches.get();
+    }
+    private SharedFrame fullFrame(long version, LobbyView view) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return SharedFrame.ofJson(out.beginObject().name(TYPE).value("lobbyUpdate").name(VERSION).value(version)
+                    .name(LOBBY).raw(view.json()).endObject().toByteArray());
+        }
+    }
+
+    private SharedFrame patchFrame(String lobbyId, long version, LobbyView.Patch patch) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            out.beginObject().name(TYPE).value("lobbyPatch")
+                    .name(LOBBY_ID).value(lobbyId)
+                    .name(BASE_VERSION).value(version - 1)
+                    .name(VERSION).value(version)
+                    .name(FIELDS).raw(patch.fields());
+            if (patch.slots() != null) {
+                out.name(SLOTS).raw(patch.slots());
+            }
+            return SharedFrame.ofJson(out.endObject().toByteArray());
+        }
+    }
+    //ramki kodowane leniwie, najwyzej raz na wariant i format
+    private final class Frames {
+        private final String lobbyId;
+        private final long version;
+        private final LobbyView publicView;
+        private final LobbyView hostView;
+        private final LobbyView.Patch publicPatch;
+        private final LobbyView.Patch hostPatch;
+        private SharedFrame publicFull;
+        private SharedFrame hostFull;
+        private SharedFrame publicDelta;
+        private SharedFrame hostDelta;
+
+        private Frames(String lobbyId, long version, LobbyView publicView, LobbyView hostView, LobbyView.Patch publicPatch, LobbyView.Patch hostPatch) {
+            this.lobbyId = lobbyId;
+            this.version = version;
+            this.publicView = publicView;
+            this.hostView = hostView;
+            this.publicPatch = publicPatch;
+            this.hostPatch = hostPatch;
+        }
+
+        private SharedFrame full(boolean isHostPanel) {
+            if (isHostPanel) {
+                if (hostFull == null) hostFull = fullFrame(version, hostView);
+                return hostFull;
+            }
+            if (publicFull == null) publicFull = fullFrame(version, publicView);
+            return publicFull;
+        }
+
+        private SharedFrame patch(boolean isHostPanel) {
+            if (isHostPanel) {
+                if (hostDelta == null) hostDelta = patchFrame(hostPatch);
+                return hostDelta;
+            }
+            if (publicDelta == null) publicDelta = patchFrame(publicPatch);
+            return publicDelta;
+        }
+
+        private SharedFrame patchFrame(LobbyView.Patch patch) {
+            return LobbyDeltaTracker.this.patchFrame(lobbyId, version, patch);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.quizpans.quizpans_server.online.websocket;
+// wiadomosci serwera zapisywane recznie, bez map posrednich i refleksji Gson
+// kolejnosc pol taka jak w lobbyViewMap, wzorcu zgodnosci z Gson w testach
+import com.google.gson.JsonElement;
+import org.quizpans.quizpans_server.online.audience.AudienceRound;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public final class LobbyJsonEncoder {
+    static final String HIDDEN_QUESTION_TEXT = "Prowadzący przygotowuje pytanie...";
+
+    private static final JsonByteWriter.Name TYPE = JsonByteWriter.fieldName("type");
+    private static final JsonByteWriter.Name MESSAGE = JsonByteWriter.fieldName("message");
+    private static final JsonByteWriter.Name LOBBY = JsonByteWriter.fieldName("lobby");
+    private static final JsonByteWriter.Name LOBBIES = JsonByteWriter.fieldName("lobbies");
+    private static final JsonByteWriter.Name ID = JsonByteWriter.fieldName("id");
+    private static final JsonByteWriter.Name NAME = JsonByteWriter.fieldName("name");
+    private static final JsonByteWriter.Name STATUS = JsonByteWriter.fieldName("status");
+    private static final JsonByteWriter.Name GAME_SETTINGS = JsonByteWriter.fieldName("gameSettings");
+    private static final JsonByteWriter.Name PASSWORD = JsonByteWriter.fieldName("password");
+    private static final JsonByteWriter.Name HOST_SESSION_ID = JsonByteWriter.fieldName("hostSessionId");
+    private static final JsonByteWriter.Name QUIZ_MASTER = JsonByteWriter.fieldName("quizMaster");
+    private static final JsonByteWriter.Name WAITING_PLAYERS = JsonByteWriter.fieldName("waitingPlayers");
+    private static final JsonByteWriter.Name TEAMS = JsonByteWriter.fieldName("teams");
+    private static final JsonByteWriter.Name TOTAL_PARTICIPANT_COUNT = JsonByteWriter.fieldName("totalParticipantCount");
+    private static final JsonByteWriter.Name MAX_PARTICIPANTS = JsonByteWriter.fieldName("maxParticipants");
+    private static final JsonByteWriter.Name CURRENT_QUESTION_TEXT = JsonByteWriter.fieldName("currentQuestionText");
+    private static final JsonByteWriter.Name IS_QUESTION_REVEALED = JsonByteWriter.fieldName("isQuestionRevealed");
+    private static final JsonByteWriter.Name CURRENT_QUESTION_ID = JsonByteWriter.fieldName("currentQuestionId");
+    private static final JsonByteWriter.Name CURRENT_ROUND_NUMBER = JsonByteWriter.fieldName("currentRoundNumber");
+    private static final JsonByteWriter.Name TOTAL_ROUNDS = JsonByteWriter.fieldName("totalRounds");
+    private static final JsonByteWriter.Name CURRENT_PLAYER_SESSION_ID = JsonByteWriter.fieldName("currentPlayerSessionId");
+    private static final JsonByteWriter.Name IS_TEAM1_TURN = JsonByteWriter.fieldName("isTeam1Turn");
+    private static final JsonByteWriter.Name TEAM1_SCORE = JsonByteWriter.fieldName("team1Score");
+    private static final JsonByteWriter.Name TEAM2_SCORE = JsonByteWriter.fieldName("team2Score");
+    private static final JsonByteWriter.Name TEAM1_ERRORS = JsonByteWriter.fieldName("team1Errors");
+    private static final JsonByteWriter.Name TEAM2_ERRORS = JsonByteWriter.fieldName("team2Errors");
+    private static final JsonByteWriter.Name REVEALED_ANSWERS_DATA = JsonByteWriter.fieldName(LobbyDeltaTracker.BOARD_FIELD);
+    private static final JsonByteWriter.Name CURRENT_ROUND_POINTS = JsonByteWriter.fieldName("currentRoundPoints");
+    private static final JsonByteWriter.Name CURRENT_ANSWER_TIME_REMAINING = JsonByteWriter.fieldName("currentAnswerTimeRemaining");
+    private static final JsonByteWriter.Name HOST_PANEL_SESSION_ID = JsonByteWriter.fieldName("hostPanelSessionId");
+    //ustawienia gry i gracz, pola w kolejnosci deklaracji jak przy refleksji Gson
+    private static final JsonByteWriter.Name CATEGORY = JsonByteWriter.fieldName("category");
+    private static final JsonByteWriter.Name ANSWER_TIME = JsonByteWriter.fieldName("answerTime");
+    private static final JsonByteWriter.Name NUMBER_OF_ROUNDS = JsonByteWriter.fieldName("numberOfRounds");
+    private static final JsonByteWriter.Name MAX_PLAYERS_PER_TEAM = JsonByteWriter.fieldName("maxPlayersPerTeam");
+    private static final JsonByteWriter.Name TEAM_BLUE_NAME = JsonByteWriter.fieldName("teamBlueName");
+    private static final JsonByteWriter.Name TEAM_RED_NAME = JsonByteWriter.fieldName("teamRedName");
+    private static final JsonByteWriter.Name SESSION_ID = JsonByteWriter.fieldName("sessionId");
+    private static final JsonByteWriter.Name NICKNAME = JsonByteWriter.fieldName("nickname");
+    private static final JsonByteWriter.Name TEAM_NAME = JsonByteWriter.fieldName("teamName");
+    private static final JsonByteWriter.Name ROLE = JsonByteWriter.fieldName("role");
+    private static final JsonByteWriter.Name TEXT = JsonByteWriter.fieldName("text");
+    private static final JsonByteWriter.Name POINTS = JsonByteWriter.fieldName("points");
+    private static final JsonByteWriter.Name IS_REVEALED = JsonByteWriter.fieldName("isRevealed");
+    private static final JsonByteWriter.Name POSITION = JsonByteWriter.fieldName("position");
+    private static final JsonByteWriter.Name PARTICIPANT_COUNT = JsonByteWriter.fieldName("participantCount");
+    private static final JsonByteWriter.Name HAS_PASSWORD = JsonByteWriter.fieldName("hasPassword");
+    //runda publicznosci
+    private static final JsonByteWriter.Name LOBBY_ID = JsonByteWriter.fieldName("lobbyId");
+    private static final JsonByteWriter.Name QUESTION_ID = JsonByteWriter.fieldName("questionId");
+    private static final JsonByteWriter.Name CLOSED = JsonByteWriter.fieldName("closed");
+    private static final JsonByteWriter.Name ANSWERED = JsonByteWriter.fieldName("answered");
+    private static final JsonByteWriter.Name CORRECT = JsonByteWriter.fieldName("correct");
+    private static final JsonByteWriter.Name HITS = JsonByteWriter.fieldName("hits");
+    private static final JsonByteWriter.Name FASTEST = JsonByteWriter.fieldName("fastest");
+    private static final JsonByteWriter.Name ELAPSED_MS = JsonByteWriter.fieldName("elapsedMs");
+    private static final JsonByteWriter.Name ANSWER_INDEX = JsonByteWriter.fieldName("answerIndex");
+
+    private LobbyJsonEncoder() {
+    }
+
+    public static byte[] lobbyUpdate(Lobby lobby, String recipientSessionId) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            out.beginObject().name(TYPE).value("lobbyUpdate").name(LOBBY);
+            writeLobby(out, lobby, recipientSessionId);
+            return out.endObject().toByteArray();
+        }
+    }
+    //widok rozsylany czlonkom lobby; prowadzacy dostaje osobny tylko gdy widzi ukryte pytanie
+    static LobbyView lobbyView(Lobby lobby, String recipientSessionId) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            writeLobby(out, lobby, recipientSessionId);
+            return LobbyView.of(out.toByteArray());
+        }
+    }
+
+    static boolean hostViewDiffers(Lobby lobby) {
+        return lobby.getHostPanelSessionId() != null && lobby.getCurrentQuestionText() != null && !lobby.isQuestionRevealed();
+    }
+
+    static byte[] lobbyUpdate(LobbyView view) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return out.beginObject().name(TYPE).value("lobbyUpdate").name(LOBBY).raw(view.json()).endObject().toByteArray();
+        }
+    }
+    //lobby innych wezlow jako ostatni otrzymany widok
+    public static byte[] allLobbies(Collection<Lobby> lobbies, String recipientSessionId, Function<Lobby, JsonElement> remoteView) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            out.beginObject().name(TYPE).value("allLobbies").name(LOBBIES).beginArray();
+            for (Lobby lobby : lobbies) {
+                JsonElement view = remoteView.apply(lobby);
+                if (view != null) {
+                    out.tree(view);
+                } else {
+                    writeLobby(out, lobby, recipientSessionId);
+                }
+            }
+            return out.endArray().endObject().toByteArray();
+        }
+    }
+
+    public static byte[] lobbySummary(String lobbyId, String status, int participantCount, boolean hasPassword) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return out.beginObject().name(TYPE).value("lobbySummary").name(LOBBY).beginObject()
+                    .name(ID).value(lobbyId)
+                    .name(STATUS).value(status)
+                    .name(PARTICIPANT_COUNT).value(participantCount)
+                    .name(HAS_PASSWORD).value(hasPassword)
+                    .endObject().endObject().toByteArray();
+        }
+    }
+
+    //tresc GET /api/lobbies
+    public static byte[] lobbyList(Collection<LobbyListSnapshot.LobbySummary> summaries) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            out.beginObject().name(LOBBIES).beginArray();
+            for (LobbyListSnapshot.LobbySummary summary : summaries) {
+                out.beginObject()
+                        .name(ID).value(summary.id())
+                        .name(STATUS).value(summary.status())
+                        .name(PARTICIPANT_COUNT).value(summary.participantCount())
+                        .name(HAS_PASSWORD).value(summary.hasPassword())
+                        .endObject();
+            }
+            return out.endArray().endObject().toByteArray();
+        }
+    }
+
+    //trafienia po pozycji na tablicy, bez tresci jeszcze nieodkrytych odpowiedzi
+    public static byte[] audienceResults(AudienceRound.Tally tally) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            out.beginObject().name(TYPE).value("audienceResults")
+                    .name(LOBBY_ID).value(tally.lobbyId())
+                    .name(QUESTION_ID).value(tally.questionId())
+                    .name(CLOSED).value(tally.closed())
+                    .name(ANSWERED).value(tally.answered())
+                    .name(CORRECT).value(tally.correct())
+                    .name(HITS).beginArray();
+            for (long hits : tally.hits()) {
+                out.value(hits);
+            }
+            out.endArray().name(TEAMS).beginArray();
+            for (AudienceRound.TeamTally team : tally.teams()) {
+                out.beginObject().name(NAME).value(team.name()).name(POINTS).value(team.points()).name(CORRECT).value(team.correct()).endObject();
+            }
+            out.endArray().name(FASTEST);
+            AudienceRound.Fastest fastest = tally.fastest();
+            if (fastest == null) {
+                out.nullValue();
+            } else {
+                out.beginObject().name(SESSION_ID).value(fastest.sessionId()).name(NICKNAME).value(fastest.nickname())
+                        .name(ELAPSED_MS).value(fastest.elapsedMillis()).endObject();
+            }
+            return out.endObject().toByteArray();
+        }
+    }
+
+    public static byte[] audienceAnswerResult(AudienceRound.Verdict verdict) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return out.beginObject().name(TYPE).value("audienceAnswerResult")
+                    .name(LOBBY_ID).value(verdict.lobbyId())
+                    .name(CORRECT).value(verdict.correct())
+                    .name(POINTS).value(verdict.points())
+                    .name(ANSWER_INDEX).value(verdict.answerIndex())
+                    .name(ELAPSED_MS).value(verdict.elapsedMillis())
+                    .endObject().toByteArray();
+        }
+    }
+
+    public static byte[] error(String message) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return out.beginObject().name(TYPE).value("error").name(MESSAGE).value(message).endObject().toByteArray();
+        }
+    }
+
+    public static byte[] tree(JsonElement element) {
+        try (JsonByteWriter out = JsonByteWriter.acquire()) {
+            return out.tree(element).toByteArray();
+        }
+    }
+    //ten sam widok jako mapa dla Gson, do porownan w testach i benchmarkach
+    static Map<String, Object> lobbyViewMap(Lobby lobby, String recipientSessionId) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", lobby.getId());
+        view.put("name", lobby.getName());
+        view.put("status", lobby.getStatus().toString());
+        view.put("gameSettings", lobby.getGameSettings());
+        view.put("password", lobby.getPassword());
+        view.put("hostSessionId", lobby.getHostSessionId());
+        view.put("quizMaster", lobby.getQuizMaster());
+        view.put("waitingPlayers", lobby.getWaitingPlayers());
+        view.put("teams", lobby.getTeams());
+        view.put("totalParticipantCount", lobby.getTotalParticipantCount());
+        view.put("maxParticipants", lobby.getMaxParticipants());
+        view.put("currentQuestionText", visibleQuestionText(lobby, recipientSessionId));
+        view.put("isQuestionRevealed", lobby.isQuestionRevealed());
+        view.put("currentQuestionId", lobby.getCurrentQuestionId());
+        view.put("currentRoundNumber", lobby.getCurrentRoundNumber());
+        view.put("totalRounds", lobby.getTotalRounds());
+        view.put("currentPlayerSessionId", lobby.getCurrentPlayerSessionId());
+        view.put("isTeam1Turn", lobby.isTeam1Turn());
+        view.put("team1Score", lobby.getTeam1Score());
+        view.put("team2Score", lobby.getTeam2Score());
+        view.put("team1Errors", lobby.getTeam1Errors());
+        view.put("team2Errors", lobby.getTeam2Errors());
+        view.put(LobbyDeltaTracker.BOARD_FIELD, lobby.getAnswerBoard());
+        view.put("currentRoundPoints", lobby.getCurrentRoundPoints());
+        view.put("currentAnswerTimeRemaining", lobby.getCurrentAnswerTimeRemaining());
+        view.put("hostPanelSessionId", lobby.getHostPanelSessionId());
+        return view;
+    }
+    //tresc pytania przed odsloneciem widzi tylko panel prowadzacego
+    private static String visibleQuestionText(Lobby lobby, String recipientSessionId) {
+        String hostPanelSessionId = lobby.getHostPanelSessionId();
+        boolean isRecipientQuizMaster = hostPanelSessionId != null && hostPanelSessionId.equals(recipientSessionId);
+        if (!isRecipientQuizMaster && lobby.getCurrentQuestionText() != null && !lobby.isQuestionRevealed()) {
+            return HIDDEN_QUESTION_TEXT;
+        }
+        return lobby.getCurrentQuestionText();
+    }
+
+    private static void writeLobby(JsonByteWriter out, Lobby lobby, String recipientSessionId) {
+        out.beginObject()
+                .name(ID).value(lobby.getId())
+                .name(NAME).value(lobby.getName())
+                .name(STATUS).value(lobby.getStatus().toString())
+                .name(GAME_SETTINGS);
+        writeSettings(out, lobby.getGameSettings());
+        out.name(PASSWORD).value(lobby.getPassword())
+                .name(HOST_SESSION_ID).value(lobby.getHostSessionId())
+                .name(QUIZ_MASTER);
+        writePlayer(out, lobby.getQuizMaster());
+        out.name(WAITING_PLAYERS);
+        writePlayers(out, lobby.getWaitingPlayers());
+        out.name(TEAMS);
+        Map<String, List<PlayerInfo>> teams = lobby.getTeams();
+        if (teams == null) {
+            out.nullValue();
+        } else {
+            out.beginObject();
+            for (Map.Entry<String, List<PlayerInfo>> team : teams.entrySet()) {
+                out.name(team.getKey());
+                writePlayers(out, team.getValue());
+            }
+            out.endObject();
+        }
+        out.name(TOTAL_PARTICIPANT_COUNT).value(lobby.getTotalParticipantCount())
+                .name(MAX_PARTICIPANTS).value(lobby.getMaxParticipants())
+                .name(CURRENT_QUESTION_TEXT).value(visibleQuestionText(lobby, recipientSessionId))
+                .name(IS_QUESTION_REVEALED).value(lobby.isQuestionRevealed())
+                .name(CURRENT_QUESTION_ID).value(lobby.getCurrentQuestionId())
+                .name(CURRENT_ROUND_NUMBER).value(lobby.getCurrentRoundNumber())
+                .name(TOTAL_ROUNDS).value(lobby.getTotalRounds())
+                .name(CURRENT_PLAYER_SESSION_ID).value(lobby.getCurrentPlayerSessionId())
+                .name(IS_TEAM1_TURN).value(lobby.isTeam1Turn())
+                .name(TEAM1_SCORE).value(lobby.getTeam1Score())
+                .name(TEAM2_SCORE).value(lobby.getTeam2Score())
+                .name(TEAM1_ERRORS).value(lobby.getTeam1Errors())
+                .name(TEAM2_ERRORS).value(lobby.getTeam2Errors())
+                .name(REVEALED_ANSWERS_DATA);
+        writeBoard(out, lobby.getAnswerBoard());
+        out.name(CURRENT_ROUND_POINTS).value(lobby.getCurrentRoundPoints())
+                .name(CURRENT_ANSWER_TIME_REMAINING).value(lobby.getCurrentAnswerTimeRemaining())
+                .name(HOST_PANEL_SESSION_ID).value(lobby.getHostPanelSessionId())
+                .endObject();
+    }
+
+    private static void writeSettings(JsonByteWriter out, GameSettings settings) {
+        if (settings == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject()
+                .name(CATEGORY).value(settings.category())
+                .name(ANSWER_TIME).value(settings.answerTime())
+                .name(NUMBER_OF_ROUNDS).value(settings.numberOfRounds())
+                .name(MAX_PLAYERS_PER_TEAM).value(settings.maxPlayersPerTeam())
+                .name(TEAM_BLUE_NAME).value(settings.teamBlueName())
+                .name(TEAM_RED_NAME).value(settings.teamRedName())
+                .endObject();
+    }
+
+    private static void writePlayers(JsonByteWriter out, List<PlayerInfo> players) {
+        if (players == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (PlayerInfo player : players) {
+            writePlayer(out, player);
+        }
+        out.endArray();
+    }
+
+    private static void writePlayer(JsonByteWriter out, PlayerInfo player) {
+        if (player == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject()
+                .name(SESSION_ID).value(player.sessionId())
+                .name(NICKNAME).value(player.nickname())
+                .name(TEAM_NAME).value(player.teamName())
+                .name(ROLE).value(player.getRole() != null ? player.getRole().name() : null)
+                .endObject();
+    }
+    //jak AnswerBoardTypeAdapter
+    private static void writeBoard(JsonByteWriter out, AnswerBoard board) {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        int position = 0;
+        for (int slot = 0; slot < board.getSlotCount(); slot++) {
+            if (!board.hasSlot(slot)) continue;
+            out.beginObject()
+                    .name(TEXT).value(board.getText(slot))
+                    .name(POINTS).value(board.getPoints(slot))
+                    .name(IS_REVEALED).value(board.isRevealed(slot))
+                    .name(POSITION).value(position++)
+                    .endObject();
+        }
+        out.endArray();
+    }
+}
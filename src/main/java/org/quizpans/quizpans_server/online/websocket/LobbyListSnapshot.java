@@ -0,0 +1,68 @@
+package org.quizpans.quizpans_server.online.websocket;
+// lista lobby dla http zapisana raz, odswiezana tylko gdy zmieni sie podsumowanie ktoregos lobby
+// podsumowania przychodza z rozglosu (lokalne i z innych wezlow), odczyt nie dotyka blokad lobby
+// lobby bez podsumowania czytane raz z modelu przy pierwszym budowaniu
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class LobbyListSnapshot {
+
+    public record LobbySummary(String id, String status, int participantCount, boolean hasPassword) {
+    }
+
+    public record Snapshot(byte[] body, String etag, long version) {
+    }
+
+    private final LobbyService lobbyService;
+    private final Map<String, LobbySummary> summaries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    //etag z przedrostkiem uruchomienia, po restarcie stare etagi nie pasuja mimo tej samej wersji
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private volatile Snapshot current;
+
+    public LobbyListSnapshot(LobbyService lobbyService) {
+        this.lobbyService = lobbyService;
+    }
+
+    public void update(String lobbyId, String status, int participantCount, boolean hasPassword) {
+        LobbySummary summary = new LobbySummary(lobbyId, status, participantCount, hasPassword);
+        if (!summary.equals(summaries.put(lobbyId, summary))) {
+            version.incrementAndGet();
+        }
+    }
+
+    public Snapshot current() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == version.get()) return snapshot;
+        return rebuild();
+    }
+
+    private synchronized Snapshot rebuild() {
+        long expected = version.get();
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == expected) return snapshot;
+        List<LobbySummary> list = new ArrayList<>();
+        for (Lobby lobby : lobbyService.getAllLobbies()) {
+            list.add(summaries.computeIfAbsent(lobby.getId(), id -> summarize(lobby)));
+        }
+        //zmiana w trakcie budowania: etag starej wersji, nastepne zapytanie zbuduje od nowa
+        snapshot = new Snapshot(LobbyJsonEncoder.lobbyList(list), "\"" + epoch + "-" + expected + "\"", expected);
+        current = snapshot;
+        return snapshot;
+    }
+
+    private static LobbySummary summarize(Lobby lobby) {
+        String password = lobby.getPassword();
+        return new LobbySummary(lobby.getId(), lobby.getStatus().toString(), lobby.getTotalParticipantCount(),
+                password != null && !password.isEmpty());
+    }
+}
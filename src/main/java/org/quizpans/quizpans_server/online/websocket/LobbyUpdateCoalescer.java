@@ -0,0 +1,130 @@
+package org.quizpans.quizpans_server.online.websocket;
+// laczenie aktualizacji lobby: w trakcie komendy wysylka raz na jej koniec,
+// poza komenda (zegar, rozlaczenia) najwyzej raz na okno czasowe
+import jakarta.annotation.PreDestroy;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component
+public class LobbyUpdateCoalescer {
+    private final long windowMs;
+    private final Map<String, Lobby> pending = new ConcurrentHashMap<>();
+    private final ThreadLocal<CommandScope> commandScope = new ThreadLocal<>();
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("LobbyUpdateFlusher");
+        return t;
+    });
+    private volatile Consumer<Lobby> flusher = lobby -> { };
+
+    private final AtomicLong requestedUpdates = new AtomicLong();
+    private final AtomicLong mergedUpdates = new AtomicLong();
+    private final AtomicLong flushedUpdates = new AtomicLong();
+
+    private static final class CommandScope {
+        private int depth;
+        private final Map<String, Lobby> dirty = new LinkedHashMap<>();
+    }
+
+    public LobbyUpdateCoalescer(@Value("${quizpans.broadcast.coalesce-window-ms:20}") long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushScheduler.shutdownNow();
+    }
+    //wlasciwa wysylka, koduje stan lobby z chwili oproznienia
+    public void setFlusher(Consumer<Lobby> flusher) {
+        this.flusher = flusher;
+    }
+
+    public void beginCommand() {
+        CommandScope scope = commandScope.get();
+        if (scope == null) {
+            scope = new CommandScope();
+            commandScope.set(scope);
+        }
+        scope.depth++;
+    }
+    //koniec komendy: jedna wysylka na kazde zmienione lobby, zalegle okno dla tych lobby przepada
+    public void endCommand() {
+        CommandScope scope = commandScope.get();
+        if (scope == null || --scope.depth > 0) return;
+        commandScope.remove();
+        List<Lobby> dirty = new ArrayList<>(scope.dirty.values());
+        for (Lobby lobby : dirty) {
+            if (pending.remove(lobby.getId(), lobby)) {
+                mergedUpdates.incrementAndGet();
+            }
+            flush(lobby);
+        }
+    }
+
+    public void requestUpdate(Lobby lobby) {
+        requestedUpdates.incrementAndGet();
+        CommandScope scope = commandScope.get();
+        if (scope != null) {
+            if (scope.dirty.putIfAbsent(lobby.getId(), lobby) != null) {
+                mergedUpdates.incrementAndGet();
+            }
+            return;
+        }
+        if (windowMs <= 0) {
+            flush(lobby);
+            return;
+        }
+        if (pending.putIfAbsent(lobby.getId(), lobby) != null) {
+            mergedUpdates.incrementAndGet();
+            return;
+        }
+        flushScheduler.schedule(() -> flushPending(lobby.getId()), windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushPending(String lobbyId) {
+        Lobby lobby = pending.remove(lobbyId);
+        if (lobby != null) {
+            flush(lobby);
+        }
+    }
+    //pod blokada lobby, zeby widok i kolejnosc wersji pochodzily z jednego stanu
+    private void flush(Lobby lobby) {
+        synchronized (lobby) {
+            flushedUpdates.incrementAndGet();
+            try {
+                flusher.accept(lobby);
+            } catch (RuntimeException e) {
+                System.err.println("LobbyUpdateCoalescer: błąd wysyłki lobby " + lobby.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public long getRequestedUpdates() {
+        return requestedUpdates.get();
+    }
+
+    public long getMergedUpdates() {
+        return mergedUpdates.get();
+    }
+
+    public long getFlushedUpdates() {
+        return flushedUpdates.get();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
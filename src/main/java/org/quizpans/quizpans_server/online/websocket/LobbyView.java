@@ -0,0 +1,208 @@
+package org.quizpans.quizpans_server.online.websocket;
+// zakodowany widok lobby: bajty utf-8 obiektu i zakresy wartosci jego pol
+// latki liczone przez porownanie zakresow bajtow, bez budowania drzewa json
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+final class LobbyView {
+    private final byte[] json;
+    private final String[] names;
+    //wartosc pola i: json[starts[i], ends[i])
+    private final int[] starts;
+    private final int[] ends;
+    //elementy tablicy odpowiedzi; null gdy pole nie jest tablica
+    private final int[] slotStarts;
+    private final int[] slotEnds;
+
+    private LobbyView(byte[] json, String[] names, int[] starts, int[] ends, int[] slotStarts, int[] slotEnds) {
+        this.json = json;
+        this.names = names;
+        this.starts = starts;
+        this.ends = ends;
+        this.slotStarts = slotStarts;
+        this.slotEnds = slotEnds;
+    }
+
+    //widok z innego wezla przychodzi jako drzewo
+    static LobbyView of(JsonObject view) {
+        return of(LobbyJsonEncoder.tree(view));
+    }
+
+    static LobbyView of(byte[] json) {
+        int count = 0;
+        String[] names = new String[32];
+        int[] starts = new int[32];
+        int[] ends = new int[32];
+        int[] slotStarts = null;
+        int[] slotEnds = null;
+        int i = skipWhitespace(json, 0);
+        if (i >= json.length || json[i] != '{') throw new IllegalArgumentException("Widok lobby nie jest obiektem JSON.");
+        i = skipWhitespace(json, i + 1);
+        while (i < json.length && json[i] != '}') {
+            int nameEnd = skipString(json, i);
+            String name = decodeName(json, i, nameEnd);
+            i = skipWhitespace(json, nameEnd);
+            i = skipWhitespace(json, i + 1);
+            int valueEnd = skipValue(json, i);
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            names[count] = name;
+            starts[count] = i;
+            ends[count] = valueEnd;
+            count++;
+            if (LobbyDeltaTracker.BOARD_FIELD.equals(name) && json[i] == '[') {
+                int[][] slots = arrayElements(json, i);
+                slotStarts = slots[0];
+                slotEnds = slots[1];
+            }
+            i = skipWhitespace(json, valueEnd);
+            if (i < json.length && json[i] == ',') i = skipWhitespace(json, i + 1);
+        }
+        return new LobbyView(json, Arrays.copyOf(names, count), Arrays.copyOf(starts, count), Arrays.copyOf(ends, count),
+                slotStarts, slotEnds);
+    }
+
+    byte[] json() {
+        return json;
+    }
+
+    //zmienione pola; tablica odpowiedzi o tej samej dlugosci jako zmienione pozycje; null gdy bez zmian
+    static Patch diff(LobbyView previous, LobbyView current) {
+        JsonByteWriter fields = null;
+        JsonByteWriter slots = null;
+        try {
+            for (int i = 0; i < current.names.length; i++) {
+                String name = current.names[i];
+                int before = previous.indexOf(name, i);
+                if (before >= 0 && Arrays.equals(previous.json, previous.starts[before], previous.ends[before],
+                        current.json, current.starts[i], current.ends[i])) {
+                    continue;
+                }
+                if (before >= 0 && LobbyDeltaTracker.BOARD_FIELD.equals(name) && previous.slotStarts != null
+                        && current.slotStarts != null && previous.slotStarts.length == current.slotStarts.length) {
+                    for (int slot = 0; slot < current.slotStarts.length; slot++) {
+                        if (Arrays.equals(previous.json, previous.slotStarts[slot], previous.slotEnds[slot],
+                                current.json, current.slotStarts[slot], current.slotEnds[slot])) {
+                            continue;
+                        }
+                        if (slots == null) slots = JsonByteWriter.acquire().beginObject();
+                        slots.name(Integer.toString(slot)).raw(current.json, current.slotStarts[slot], current.slotEnds[slot]);
+                    }
+                } else {
+                    if (fields == null) fields = JsonByteWriter.acquire().beginObject();
+                    fields.name(name).raw(current.json, current.starts[i], current.ends[i]);
+                }
+            }
+            if (fields == null && slots == null) return null;
+            return new Patch(fields != null ? fields.endObject().toByteArray() : Patch.EMPTY_FIELDS,
+                    slots != null ? slots.endObject().toByteArray() : null);
+        } finally {
+            if (fields != null) fields.close();
+            if (slots != null) slots.close();
+        }
+    }
+
+    //pola jako obiekt json, sloty tablicy odpowiedzi albo null
+    record Patch(byte[] fields, byte[] slots) {
+        static final byte[] EMPTY_FIELDS = {'{', '}'};
+        static final Patch EMPTY = new Patch(EMPTY_FIELDS, null);
+    }
+
+    //kolejnosc pol zwykle ta sama, wiec najpierw ta sama pozycja
+    private int indexOf(String name, int hint) {
+        if (hint < names.length && names[hint].equals(name)) return hint;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private static int[][] arrayElements(byte[] json, int open) {
+        int count = 0;
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int i = skipWhitespace(json, open + 1);
+        while (i < json.length && json[i] != ']') {
+            int end = skipValue(json, i);
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = i;
+            ends[count] = end;
+            count++;
+            i = skipWhitespace(json, end);
+            if (i < json.length && json[i] == ',') i = skipWhitespace(json, i + 1);
+        }
+        return new int[][]{Arrays.copyOf(starts, count), Arrays.copyOf(ends, count)};
+    }
+
+    //nazwy pol bez ucieczek odczytywane wprost
+    private static String decodeName(byte[] json, int start, int end) {
+        for (int i = start + 1; i < end - 1; i++) {
+            if (json[i] == '\\') {
+                return JsonParser.parseString(new String(json, start, end - start, StandardCharsets.UTF_8)).getAsString();
+            }
+        }
+        return new String(json, start + 1, end - start - 2, StandardCharsets.UTF_8);
+    }
+
+    //indeks zaraz za wartoscia zaczynajaca sie w start
+    private static int skipValue(byte[] json, int start) {
+        byte first = json[start];
+        if (first == '"') return skipString(json, start);
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            int i = start;
+            while (i < json.length) {
+                byte b = json[i];
+                if (b == '"') {
+                    i = skipString(json, i);
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (--depth == 0) return i + 1;
+                }
+                i++;
+            }
+            throw new IllegalArgumentException("Niedomknięty obiekt w widoku lobby.");
+        }
+        int i = start;
+        while (i < json.length && json[i] != ',' && json[i] != '}' && json[i] != ']' && !isWhitespace(json[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipString(byte[] json, int start) {
+        int i = start + 1;
+        while (i < json.length) {
+            byte b = json[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Niedomknięty napis w widoku lobby.");
+    }
+
+    private static int skipWhitespace(byte[] json, int i) {
+        while (i < json.length && isWhitespace(json[i])) i++;
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -5,23 +5,37 @@ package org.quizpans.quizpans_server.online.websocket;
 //format danych na json
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.quizpans.quizpans_server.metrics.QuizpansEvents;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.audience.AudienceRound;
+import org.quizpans.quizpans_server.online.cluster.ClusterEndpoint;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
 import org.quizpans.quizpans_server.online.model.Lobby;
 import org.quizpans.quizpans_server.online.model.LobbyStatus;
-import org.quizpans.quizpans_server.online.model.GameSettings;
 import org.quizpans.quizpans_server.online.model.PlayerInfo;
 import org.quizpans.quizpans_server.online.model.ParticipantRole;
 import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.quizpans.quizpans_server.online.websocket.action.ClientAction;
+import org.quizpans.quizpans_server.online.websocket.action.ClientActionDecoder;
+import org.quizpans.quizpans_server.online.websocket.action.MalformedActionException;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,243 +44,485 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 //polacznie miedzy strona a aplikacja
 @Component
-public class LobbyWebSocketHandler extends TextWebSocketHandler {
+public class LobbyWebSocketHandler extends AbstractWebSocketHandler implements ClusterEndpoint, SubProtocolCapable {
 
     private final LobbyService lobbyService;
-    private final Gson gson = new GsonBuilder().serializeNulls().create();
+    private final ClusterService clusterService;
+    private final SessionIndex sessionIndex;
+    private final LobbyDeltaTracker deltaTracker;
+    private final SessionOutboxManager outboxManager;
+    private final LobbyUpdateCoalescer updateCoalescer;
+    private final AdmissionControl admission;
+    private final SessionHeartbeat heartbeat;
+    private final LobbyListSnapshot lobbyList;
+    private final SpectatorFeed spectators;
+    private final AudienceAnswerService audience;
+    private final SessionResume resume;
+    private final QuizpansMetrics metrics;
+    //klucze strumieni stanu w kolejkach wyjsciowych
+    static final String LOBBY_STATE_KEY = "lobby:";
+    private static final String SUMMARY_STATE_KEY = "summary:";
+    private static final String AUDIENCE_STATE_KEY = "audience:";
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    //klienci innych wezlow ktorych akcje trafily do lobby tego wezla
+    private final Map<String, RemoteClientSession> remoteSessions = new ConcurrentHashMap<>();
+    //ostatni widok lobby prowadzonych przez inne wezly
+    private final Map<String, JsonElement> remoteLobbyViews = new ConcurrentHashMap<>();
+    //czlonkowie lobby innych wezlow podlaczeni do tego wezla
+    private final Map<String, Set<String>> remoteLobbyMembers = new ConcurrentHashMap<>();
+    private final Map<String, String> remoteMemberLobby = new ConcurrentHashMap<>();
+    //ostatnie podsumowanie lobby wyslane przegladajacym liste
+    private final Map<String, String> lastSummaries = new ConcurrentHashMap<>();
 
     @Autowired
-    public LobbyWebSocketHandler(LobbyService lobbyService) {
+    public LobbyWebSocketHandler(LobbyService lobbyService, ClusterService clusterService, SessionIndex sessionIndex,
+                                 LobbyDeltaTracker deltaTracker, SessionOutboxManager outboxManager,
+                                 LobbyUpdateCoalescer updateCoalescer, AdmissionControl admission, SessionHeartbeat heartbeat,
+                                 LobbyListSnapshot lobbyList, SpectatorFeed spectators, AudienceAnswerService audience,
+                                 SessionResume resume, QuizpansMetrics metrics) {
         this.lobbyService = lobbyService;
+        this.clusterService = clusterService;
+        this.sessionIndex = sessionIndex;
+        this.deltaTracker = deltaTracker;
+        this.outboxManager = outboxManager;
+        this.updateCoalescer = updateCoalescer;
+        this.admission = admission;
+        this.heartbeat = heartbeat;
+        this.lobbyList = lobbyList;
+        this.spectators = spectators;
+        this.audience = audience;
+        this.resume = resume;
+        this.metrics = metrics;
+        updateCoalescer.setFlusher(this::flushLobbyUpdate);
+        //martwa albo milczaca sesja: zamkniecie i ta sama sciezka co rozlaczenie klienta
+        heartbeat.setReaper(session -> {
+            outboxManager.unregister(session.getId(), CloseStatus.SESSION_NOT_RELIABLE);
+            disconnect(session.getId());
+        });
+        audience.setVerdictSink((sessionId, verdict) -> {
+            WebSocketSession session = findSession(sessionId);
+            if (session != null && session.isOpen()) {
+                sendEncoded(session, LobbyJsonEncoder.audienceAnswerResult(verdict));
+            }
+        });
+        audience.setTallySink(this::publishAudienceTally);
+        //po odrzuceniu zaleglych latek wolny klient dostaje najnowszy pelny widok
+        outboxManager.setResyncHandler((sessionId, stateKey) -> {
+            WebSocketSession session = sessions.get(sessionId);
+            if (session == null || !stateKey.startsWith(LOBBY_STATE_KEY)) return;
+            String lobbyId = stateKey.substring(LOBBY_STATE_KEY.length());
+            deltaTracker.resync(sessionId, lobbyId).ifPresent(frame -> outboxManager.send(session, frame.forSession(session), stateKey, true));
+        });
     }
     //automatyzacja po polaczeniu
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        outboxManager.register(session);
+        admission.register(session);
+        heartbeat.register(session);
         sessions.put(session.getId(), session);
         Map<String, Object> sessionIdMessage = new HashMap<>();
         sessionIdMessage.put("type", "yourSessionId");
         sessionIdMessage.put("sessionId", session.getId());
+        sessionIdMessage.put("resumeToken", resume.issue(session.getId()));
         sendMessageToSession(session, sessionIdMessage);
         sendAllLobbiesToOneUser(session);
     }
+    //json domyslnie, binarny zapis po wyborze podprotokolu quizpans.bin.v1
+    @Override
+    public List<String> getSubProtocols() {
+        return WireFormat.subProtocols();
+    }
+    //kazda wiadomosc od klienta, takze pong, potwierdza ze polaczenie zyje
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        heartbeat.touch(session.getId());
+        super.handleMessage(session, message);
+    }
     //obsluga wiadomosci
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        //liczba znakow jak limit bufora kontenera, bez kodowania utf-8 calej ramki
         String payload = message.getPayload();
+        int payloadBytes = payload.length();
+        if (!admitted(session, admission.admitMessage(session.getId(), payloadBytes))) return;
+        ClientAction action;
         try {
-            Type type = new TypeToken<Map<String, Object>>(){}.getType();
-            Map<String, Object> messageData = gson.fromJson(payload, type);
-            String action = (String) messageData.get("action");
+            action = ClientActionDecoder.decode(payload);
+        } catch (MalformedActionException e) {
+            sendError(session.getId(), e.getMessage());
+            return;
+        }
+        if (!admitted(session, admission.admitAction(action, payloadBytes))) return;
+        dispatch(session, action, () -> payload, true);
+    }
 
-            if (action == null) {
-                sendError(session.getId(), "Brakująca akcja w wiadomości.");
-                return;
-            }
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        int payloadBytes = message.getPayloadLength();
+        if (!admitted(session, admission.admitMessage(session.getId(), payloadBytes))) return;
+        JsonElement tree;
+        ClientAction action;
+        try {
+            tree = TaggedJsonCodec.decode(message.getPayload());
+            action = ClientActionDecoder.decode(tree);
+        } catch (MalformedActionException e) {
+            sendError(session.getId(), e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(session.getId(), "Błąd formatu wiadomości binarnej.");
+            return;
+        }
+        if (!admitted(session, admission.admitAction(action, payloadBytes))) return;
+        dispatch(session, action, () -> gson.toJson(tree), true);
+    }
 
-            String lobbyId;
-            Optional<Lobby> updatedLobbyOpt;
-
-            switch (action) {
-                case "getAllLobbies":
-                    sendAllLobbiesToOneUser(session);
-                    break;
-                case "requestHostLobby":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    if (lobbyId != null) {
-                        updatedLobbyOpt = lobbyService.hostTakesLobby(lobbyId, session.getId());
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brak lobbyId w żądaniu requestHostLobby."); }
-                    break;
-                case "configureLobby":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    Map<String, Object> settingsMap = (Map<String, Object>) messageData.get("gameSettings");
-                    GameSettings settings = (settingsMap != null) ? gson.fromJson(gson.toJson(settingsMap), GameSettings.class) : null;
-                    String password = (String) messageData.get("password");
-                    if (lobbyId != null && settings != null) {
-                        updatedLobbyOpt = lobbyService.finalizeLobbyConfiguration(lobbyId, session.getId(), settings, password);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brak lobbyId lub gameSettings w żądaniu configureLobby."); }
-                    break;
-                case "playerWebJoinRequest":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String nickname = (String) messageData.get("nickname");
-                    String providedPassword = (String) messageData.get("password");
-                    if (lobbyId != null && nickname != null) {
-                        PlayerInfo webPlayer = new PlayerInfo(session.getId(), nickname, null, ParticipantRole.PLAYER);
-                        updatedLobbyOpt = lobbyService.addWaitingPlayerWithPasswordCheck(lobbyId, webPlayer, providedPassword);
-                        final String finalLobbyId = lobbyId;
-                        updatedLobbyOpt.ifPresentOrElse(lobby -> {
-                            Map<String, Object> successMsg = Map.of("type", "joinSuccess", "lobbyId", lobby.getId());
-                            sendMessageToSession(session, successMsg);
-                            this.broadcastLobbyUpdate(lobby);
-                        }, () -> {
-                            Optional<Lobby> targetLobbyOpt = lobbyService.getLobby(finalLobbyId);
-                            if (targetLobbyOpt.isPresent()) {
-                                Lobby targetLobby = targetLobbyOpt.get();
-                                boolean isPasswordProtected = targetLobby.getPassword() != null && !targetLobby.getPassword().isEmpty();
-                                if (isPasswordProtected && providedPassword != null && !providedPassword.isEmpty()) {
-                                    sendError(session.getId(), "Błędne hasło do lobby '" + targetLobby.getName() + "'. Spróbuj ponownie.");
-                                } else if (isPasswordProtected && (providedPassword == null || providedPassword.isEmpty())) {
-                                    sendError(session.getId(), "Lobby '" + targetLobby.getName() + "' jest zabezpieczone hasłem. Musisz je podać.");
-                                } else {
-                                    sendError(session.getId(), "Nie udało się dołączyć do lobby '" + targetLobby.getName() + "'. Może być pełne lub niedostępne.");
-                                }
-                            } else {
-                                sendError(session.getId(), "Nie znaleziono lobby o ID: " + finalLobbyId);
-                            }
-                        });
-                    } else { sendError(session.getId(), "Brak lobbyId lub nickname w żądaniu playerWebJoinRequest."); }
-                    break;
-                case "announceWebPlayerInRoom":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String playerNickname = (String) messageData.get("nickname");
-                    String newPlayerSessionId = session.getId();
-
-                    if (lobbyId != null && playerNickname != null) {
-                        PlayerInfo announcedPlayer = new PlayerInfo(newPlayerSessionId, playerNickname, null, ParticipantRole.PLAYER);
-                        Optional<Lobby> lobbyOpt = lobbyService.getLobby(lobbyId);
-                        if (lobbyOpt.isPresent()) {
-                            Lobby currentLobby = lobbyOpt.get();
-                            if (currentLobby.findParticipantBySessionId(newPlayerSessionId) == null) {
-                                if (currentLobby.addPlayer(announcedPlayer)) {
-                                    this.broadcastLobbyUpdate(currentLobby);
-                                }
-                            } else {
-                                this.broadcastLobbyUpdate(currentLobby);
+    private boolean admitted(WebSocketSession session, AdmissionControl.Rejection rejection) {
+        if (rejection == null) return true;
+        if (admission.shouldNotify(session.getId(), rejection)) {
+            sendError(session.getId(), rejection.getErrorMessage());
+        }
+        return false;
+    }
+    //akcja przekazana z innego wezla, odpowiedzi wracaja przez szyne
+    @Override
+    public void handleRelayedCommand(String originNode, String sessionId, String payload) {
+        RemoteClientSession session = remoteSessions.computeIfAbsent(sessionId,
+                id -> new RemoteClientSession(id, originNode, clusterService));
+        try {
+            dispatch(session, ClientActionDecoder.decode(payload), () -> payload, false);
+        } catch (MalformedActionException e) {
+            sendError(sessionId, e.getMessage());
+        }
+    }
+
+    //aktualizacje lobby z jednej komendy wychodza raz, po jej zakonczeniu
+    //payload w json potrzebny tylko przy przekazaniu akcji do wezla wlasciciela lobby
+    //czas akcji razem z wysylka jej aktualizacji, akcje przekazane innemu wezlowi mierzy tamten
+    private void dispatch(WebSocketSession session, ClientAction action, Supplier<String> payload, boolean mayForward) {
+        if (mayForward && !action.handledLocally() && action.lobbyId() != null && !clusterService.isLocal(action.lobbyId())) {
+            clusterService.forwardCommand(action.lobbyId(), session.getId(), payload.get());
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = false;
+        updateCoalescer.beginCommand();
+        try {
+            dispatchCommand(session, action);
+        } catch (Exception e) {
+            failed = true;
+            sendError(session.getId(), "Błąd serwera.");
+            e.printStackTrace();
+        } finally {
+            updateCoalescer.endCommand();
+            metrics.actionHandled(action.actionName(), System.nanoTime() - start, failed);
+        }
+    }
+
+    private void dispatchCommand(WebSocketSession session, ClientAction action) {
+        switch (action) {
+            case ClientAction.GetAllLobbies a -> sendAllLobbiesToOneUser(session);
+            case ClientAction.AckVersion a -> {
+                if (a.lobbyId() != null && a.version() != null) {
+                    deltaTracker.acknowledge(session.getId(), a.lobbyId(), a.version());
+                } else { sendError(session.getId(), "Brak lobbyId lub version w żądaniu ackVersion."); }
+            }
+            case ClientAction.Resync a -> {
+                if (a.lobbyId() != null) {
+                    deltaTracker.resync(session.getId(), a.lobbyId()).ifPresentOrElse(
+                            frame -> outboxManager.send(session, frame.forSession(session), LOBBY_STATE_KEY + a.lobbyId(), true),
+                            () -> lobbyService.getLobby(a.lobbyId()).ifPresent(lobby -> sendLobbyUpdateTo(session, lobby)));
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu resync."); }
+            }
+            case ClientAction.SpectateLobby a -> {
+                if (a.lobbyId() != null) {
+                    handleSpectate(session, a.lobbyId());
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu spectateLobby."); }
+            }
+            case ClientAction.ResumeSession a -> {
+                if (a.token() != null) {
+                    handleResume(session, a);
+                } else { sendError(session.getId(), "Brak tokenu w żądaniu resumeSession."); }
+            }
+            case ClientAction.RequestHostLobby a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.hostTakesLobby(a.lobbyId(), session.getId()).ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu requestHostLobby."); }
+            }
+            case ClientAction.ConfigureLobby a -> {
+                if (a.lobbyId() != null && a.gameSettings() != null) {
+                    lobbyService.finalizeLobbyConfiguration(a.lobbyId(), session.getId(), a.gameSettings(), a.password())
+                            .ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brak lobbyId lub gameSettings w żądaniu configureLobby."); }
+            }
+            case ClientAction.PlayerWebJoinRequest a -> {
+                if (a.lobbyId() != null && a.nickname() != null) {
+                    handleWebJoin(session, a);
+                } else { sendError(session.getId(), "Brak lobbyId lub nickname w żądaniu playerWebJoinRequest."); }
+            }
+            case ClientAction.AnnounceWebPlayerInRoom a -> {
+                if (a.lobbyId() != null && a.nickname() != null) {
+                    PlayerInfo announcedPlayer = new PlayerInfo(session.getId(), a.nickname(), null, ParticipantRole.PLAYER);
+                    lobbyService.getLobby(a.lobbyId()).ifPresent(currentLobby -> {
+                        if (currentLobby.findParticipantBySessionId(session.getId()) == null) {
+                            if (currentLobby.addPlayer(announcedPlayer)) {
+                                broadcastLobbyUpdate(currentLobby);
                             }
+                        } else {
+                            broadcastLobbyUpdate(currentLobby);
                         }
-                    } else { sendError(session.getId(), "Brakujące dane w żądaniu announceWebPlayerInRoom."); }
-                    break;
-                case "registerHostPanel":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    if (lobbyId != null) {
-                        lobbyService.registerHostPanel(lobbyId, session.getId()).ifPresent(this::broadcastLobbyUpdate);
-                    }
-                    break;
-                case "assignRole":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String participantSessionId = (String) messageData.get("participantSessionId");
-                    String role = (String) messageData.get("role");
-                    String targetTeamName = (String) messageData.get("targetTeamName");
-                    if (lobbyId != null && participantSessionId != null && role != null) {
-                        updatedLobbyOpt = lobbyService.assignParticipantRole(lobbyId, session.getId(), participantSessionId, role, targetTeamName);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brakujące dane w żądaniu assignRole."); }
-                    break;
-                case "unassignParticipant":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String participantToUnassignSessionId = (String) messageData.get("participantSessionId");
-                    if (lobbyId != null && participantToUnassignSessionId != null) {
-                        updatedLobbyOpt = lobbyService.unassignParticipant(lobbyId, session.getId(), participantToUnassignSessionId);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brakujące dane w żądaniu unassignParticipant."); }
-                    break;
-                case "leaveLobby":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    if (lobbyId != null) {
-                        lobbyService.removePlayerFromLobby(lobbyId, session.getId()).ifPresent(this::broadcastLobbyUpdate);
-                    }
-                    break;
-                case "removeParticipantFromLobby":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String participantToRemoveSessionId = (String) messageData.get("participantSessionId");
-                    if (lobbyId != null && participantToRemoveSessionId != null) {
-                        updatedLobbyOpt = lobbyService.hostRemovesParticipant(lobbyId, session.getId(), participantToRemoveSessionId);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brakujące dane w żądaniu removeParticipantFromLobby."); }
-                    break;
-                case "startGame":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    if (lobbyId != null) {
-                        updatedLobbyOpt = lobbyService.prepareLobbyForGame(lobbyId, session.getId());
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brak lobbyId w żądaniu startGame."); }
-                    break;
-                case "requestInitialQuestion":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    Set<Integer> usedQuestionIds = new HashSet<>();
-                    if (messageData.containsKey("usedQuestionIds")) {
-                        List<Double> idsAsDouble = (List<Double>) messageData.get("usedQuestionIds");
-                        for (Double d : idsAsDouble) {
-                            usedQuestionIds.add(d.intValue());
-                        }
-                    }
-                    if (lobbyId != null) {
-                        updatedLobbyOpt = lobbyService.loadInitialQuestionAndStart(lobbyId, session.getId(), usedQuestionIds);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else { sendError(session.getId(), "Brak lobbyId w żądaniu requestInitialQuestion."); }
-                    break;
-                case "requestNewQuestion":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    Set<Integer> existingIds = new HashSet<>();
-                    if (messageData.containsKey("usedQuestionIds")) {
-                        List<Double> idsAsDouble = (List<Double>) messageData.get("usedQuestionIds");
-                        for (Double d : idsAsDouble) {
-                            existingIds.add(d.intValue());
+                    });
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu announceWebPlayerInRoom."); }
+            }
+            case ClientAction.RegisterHostPanel a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.registerHostPanel(a.lobbyId(), session.getId()).ifPresent(this::broadcastLobbyUpdate);
+                }
+            }
+            case ClientAction.AssignRole a -> {
+                if (a.lobbyId() != null && a.participantSessionId() != null && a.role() != null) {
+                    lobbyService.assignParticipantRole(a.lobbyId(), session.getId(), a.participantSessionId(), a.role(), a.targetTeamName())
+                            .ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu assignRole."); }
+            }
+            case ClientAction.UnassignParticipant a -> {
+                if (a.lobbyId() != null && a.participantSessionId() != null) {
+                    lobbyService.unassignParticipant(a.lobbyId(), session.getId(), a.participantSessionId())
+                            .ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu unassignParticipant."); }
+            }
+            case ClientAction.LeaveLobby a -> {
+                spectators.leave(session.getId());
+                if (a.lobbyId() != null) {
+                    lobbyService.removePlayerFromLobby(a.lobbyId(), session.getId()).ifPresent(lobby -> {
+                        broadcastLobbyUpdate(lobby);
+                        sendLobbyUpdateTo(session, lobby);
+                    });
+                }
+            }
+            case ClientAction.RemoveParticipantFromLobby a -> {
+                if (a.lobbyId() != null && a.participantSessionId() != null) {
+                    lobbyService.hostRemovesParticipant(a.lobbyId(), session.getId(), a.participantSessionId()).ifPresent(lobby -> {
+                        broadcastLobbyUpdate(lobby);
+                        //usuniety nie jest juz czlonkiem, dostaje widok osobno
+                        WebSocketSession removedSession = findSession(a.participantSessionId());
+                        if (removedSession != null) {
+                            sendLobbyUpdateTo(removedSession, lobby);
                         }
-                    }
-                    if (lobbyId != null) {
-                        lobbyService.loadNewQuestionForNextRound(lobbyId, session.getId(), existingIds);
-                    }
-                    break;
-                case "submitAnswer":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String answer = (String) messageData.get("answer");
-                    String answeringPlayerSessionId = (String) messageData.get("playerSessionId");
-                    if (lobbyId != null && answer != null && answeringPlayerSessionId != null && answeringPlayerSessionId.equals(session.getId())) {
-                        updatedLobbyOpt = lobbyService.processPlayerAnswer(lobbyId, answeringPlayerSessionId, answer);
-                        updatedLobbyOpt.ifPresent(lobby -> {
-                            if (lobby.getStatus() == LobbyStatus.VALIDATING) {
-                                sendAnswerToHostPanelForValidation(lobby, answeringPlayerSessionId, answer);
-                            }
-                            broadcastLobbyUpdate(lobby);
-                        });
-                    } else { sendError(session.getId(), "Brakujące dane lub niezgodność sesji w submitAnswer."); }
-                    break;
-                case "validateAnswer":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String pSessionId = (String) messageData.get("playerSessionId");
-                    boolean isCorrect = (Boolean) messageData.get("isCorrect");
-                    String matchedAnswer = (String) messageData.get("matchedAnswer");
-
-                    if (lobbyId != null && pSessionId != null) {
-                        Lobby currentLobby = lobbyService.getLobby(lobbyId).orElse(null);
-                        if (currentLobby != null && session.getId().equals(currentLobby.getHostPanelSessionId())) {
-                            updatedLobbyOpt = lobbyService.validateAnswerByQuizMaster(lobbyId, pSessionId, isCorrect, matchedAnswer);
-                            updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                        } else {
-                            sendError(session.getId(), "Nie jesteś uprawniony do walidacji odpowiedzi w tym lobby.");
+                    });
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu removeParticipantFromLobby."); }
+            }
+            case ClientAction.StartGame a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.prepareLobbyForGame(a.lobbyId(), session.getId()).ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu startGame."); }
+            }
+            case ClientAction.RequestInitialQuestion a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.loadInitialQuestionAndStart(a.lobbyId(), session.getId(), new HashSet<>(a.usedQuestionIds()))
+                            .ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu requestInitialQuestion."); }
+            }
+            case ClientAction.RequestNewQuestion a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.loadNewQuestionForNextRound(a.lobbyId(), session.getId(), new HashSet<>(a.usedQuestionIds()));
+                }
+            }
+            case ClientAction.SubmitAnswer a -> {
+                if (a.lobbyId() != null && a.answer() != null && session.getId().equals(a.playerSessionId())) {
+                    lobbyService.processPlayerAnswer(a.lobbyId(), a.playerSessionId(), a.answer()).ifPresent(lobby -> {
+                        if (lobby.getStatus() == LobbyStatus.VALIDATING) {
+                            sendAnswerToHostPanelForValidation(lobby, a.playerSessionId(), a.answer());
                         }
-                    }
-                    break;
-                case "revealAnswerByHost":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    String answerText = (String) messageData.get("answerText");
-                    if (lobbyId != null && answerText != null) {
-                        updatedLobbyOpt = lobbyService.hostRevealAnswer(lobbyId, session.getId(), answerText);
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
-                    } else {
-                        sendError(session.getId(), "Brakujące dane w żądaniu revealAnswerByHost.");
-                    }
-                    break;
-                // NOWA AKCJA
-                case "revealQuestion":
-                    lobbyId = (String) messageData.get("lobbyId");
-                    if (lobbyId != null) {
-                        updatedLobbyOpt = lobbyService.revealQuestion(lobbyId, session.getId());
-                        updatedLobbyOpt.ifPresent(this::broadcastLobbyUpdate);
+                        broadcastLobbyUpdate(lobby);
+                    });
+                } else { sendError(session.getId(), "Brakujące dane lub niezgodność sesji w submitAnswer."); }
+            }
+            case ClientAction.ValidateAnswer a -> {
+                if (a.lobbyId() != null && a.playerSessionId() != null && a.isCorrect() != null) {
+                    if (lobbyService.isHostPanel(a.lobbyId(), session.getId())) {
+                        lobbyService.validateAnswerByQuizMaster(a.lobbyId(), a.playerSessionId(), a.isCorrect(), a.matchedAnswer())
+                                .ifPresent(this::broadcastLobbyUpdate);
                     } else {
-                        sendError(session.getId(), "Brak lobbyId w żądaniu revealQuestion.");
+                        sendError(session.getId(), "Nie jesteś uprawniony do walidacji odpowiedzi w tym lobby.");
                     }
-                    break;
-                default: sendError(session.getId(), "Nieznana akcja: " + action);
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu validateAnswer."); }
+            }
+            case ClientAction.RevealAnswerByHost a -> {
+                if (a.lobbyId() != null && a.answerText() != null) {
+                    lobbyService.hostRevealAnswer(a.lobbyId(), session.getId(), a.answerText()).ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu revealAnswerByHost."); }
+            }
+            case ClientAction.RevealQuestion a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.revealQuestion(a.lobbyId(), session.getId()).ifPresent(this::broadcastLobbyUpdate);
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu revealQuestion."); }
+            }
+            case ClientAction.OpenAudienceRound a -> {
+                if (a.lobbyId() != null) {
+                    lobbyService.prepareAudienceRound(a.lobbyId(), session.getId()).ifPresentOrElse(audience::open,
+                            () -> sendError(session.getId(), "Nie można otworzyć rundy publiczności przed odkryciem pytania."));
+                } else { sendError(session.getId(), "Brak lobbyId w żądaniu openAudienceRound."); }
+            }
+            case ClientAction.AudienceAnswer a -> {
+                if (a.lobbyId() != null && a.answer() != null) {
+                    handleAudienceAnswer(session, a);
+                } else { sendError(session.getId(), "Brakujące dane w żądaniu audienceAnswer."); }
+            }
+        }
+    }
+
+    //widz tylko patrzy: bez miejsca w lobby, widok startowy od razu, dalej ramki z pierscienia
+    private void handleSpectate(WebSocketSession session, String lobbyId) {
+        Optional<Lobby> lobby = lobbyService.getLobby(lobbyId);
+        if (lobby.isEmpty()) {
+            sendError(session.getId(), "Lobby nie istnieje.");
+            return;
+        }
+        if (sessionIndex.isInAnyLobby(session.getId()) || remoteMemberLobby.containsKey(session.getId())) {
+            sendError(session.getId(), "Uczestnik lobby nie może być widzem.");
+            return;
+        }
+        if (!spectators.join(session, lobbyId)) {
+            sendError(session.getId(), "Osiągnięto limit widzów w tym lobby.");
+            return;
+        }
+        JsonElement remoteView = clusterService.isLocal(lobbyId) ? null : remoteLobbyViews.get(lobbyId);
+        byte[] initial;
+        if (remoteView != null) {
+            JsonObject message = new JsonObject();
+            message.addProperty("type", "lobbyUpdate");
+            message.add("lobby", remoteView);
+            initial = LobbyJsonEncoder.tree(message);
+        } else {
+            initial = LobbyJsonEncoder.lobbyUpdate(lobby.get(), null);
+        }
+        outboxManager.send(session, SharedFrame.ofJson(initial).forSession(session), LOBBY_STATE_KEY + lobbyId, true);
+    }
+
+    public String resumeTokenDigestOf(String sessionId) {
+        String token = resume.tokenOf(sessionId);
+        return token != null ? SessionResume.digest(token) : null;
+    }
+
+    //nowe polaczenie przejmuje miejsca poprzedniej sesji, klient dostaje tylko zmiany, ktore go ominely
+    private void handleResume(WebSocketSession session, ClientAction.ResumeSession request) {
+        String sessionId = session.getId();
+        if (sessionIndex.isInAnyLobby(sessionId) || spectators.isSpectating(sessionId)) {
+            sendError(sessionId, "Sesja jest już w lobby.");
+            return;
+        }
+        String previous = resume.sessionOf(request.token());
+        if (previous == null && request.lobbyId() != null) {
+            reclaimRestoredSeat(session, request);
+            return;
+        }
+        if (previous == null || previous.equals(sessionId)) {
+            sendError(sessionId, "Nieważny lub wygasły token wznowienia sesji.");
+            return;
+        }
+        //serwer mogl jeszcze nie zauwazyc zerwania starego polaczenia
+        if (sessions.containsKey(previous)) {
+            outboxManager.unregister(previous, CloseStatus.SESSION_NOT_RELIABLE);
+            disconnect(previous);
+        }
+        if (!resume.claim(request.token())) {
+            sendError(sessionId, "Nieważny lub wygasły token wznowienia sesji.");
+            return;
+        }
+        Map<String, Object> resumedMessage = new HashMap<>();
+        resumedMessage.put("type", "sessionResumed");
+        resumedMessage.put("previousSessionId", previous);
+        resumedMessage.put("sessionId", sessionId);
+        sendMessageToSession(session, resumedMessage);
+        for (SessionIndex.SessionBinding binding : List.copyOf(sessionIndex.bindingsOf(previous))) {
+            String lobbyId = binding.lobbyId();
+            lobbyService.resumeSession(lobbyId, previous, sessionId).ifPresent(lobby -> {
+                long clientVersion = lobbyId.equals(request.lobbyId()) && request.version() != null ? request.version() : -1;
+                LobbyDeltaTracker.CatchUp catchUp = deltaTracker.catchUp(sessionId, lobbyId, clientVersion,
+                        sessionId.equals(lobby.getHostPanelSessionId()));
+                String stateKey = LOBBY_STATE_KEY + lobbyId;
+                for (SharedFrame frame : catchUp.frames()) {
+                    outboxManager.send(session, frame.forSession(session), stateKey, catchUp.fullState());
+                }
+                //nowy identyfikator sesji w widoku lobby, dla wszystkich jako kolejna latka
+                broadcastLobbyUpdate(lobby);
+            });
+        }
+    }
+    //token sprzed restartu serwera: miejsce z kopii lobby, zmian sprzed restartu nie ma, klient dostaje pelny stan
+    private void reclaimRestoredSeat(WebSocketSession session, ClientAction.ResumeSession request) {
+        String sessionId = session.getId();
+        Optional<Lobby> lobby = lobbyService.reclaimRestoredParticipant(request.lobbyId(), SessionResume.digest(request.token()), sessionId);
+        if (lobby.isEmpty()) {
+            sendError(sessionId, "Nieważny lub wygasły token wznowienia sesji.");
+            return;
+        }
+        Map<String, Object> resumedMessage = new HashMap<>();
+        resumedMessage.put("type", "sessionResumed");
+        resumedMessage.put("sessionId", sessionId);
+        sendMessageToSession(session, resumedMessage);
+        sendLobbyUpdateTo(session, lobby.get());
+        broadcastLobbyUpdate(lobby.get());
+    }
+    //uczestnicy i widzowie lobby; klient innego wezla sprawdzony tam, gdzie jest podlaczony
+    private void handleAudienceAnswer(WebSocketSession session, ClientAction.AudienceAnswer answer) {
+        String sessionId = session.getId();
+        boolean eligible = session instanceof RemoteClientSession
+                || sessionIndex.membersOf(answer.lobbyId()).contains(sessionId)
+                || answer.lobbyId().equals(spectators.spectatedLobby(sessionId));
+        if (!eligible) {
+            sendError(sessionId, "Tylko uczestnicy i widzowie lobby mogą odpowiadać w rundzie publiczności.");
+            return;
+        }
+        AudienceRound.Admission admission = audience.submit(answer.lobbyId(), sessionId, answer.answer(), answer.team());
+        if (admission != AudienceRound.Admission.ACCEPTED) {
+            sendError(sessionId, admission.getMessage());
+        }
+    }
+    //jedna ramka wynikow dla czlonkow i widzow, w zatkanej kolejce zostaja tylko najnowsze
+    private void publishAudienceTally(AudienceRound.Tally tally) {
+        SharedFrame frame = SharedFrame.ofJson(LobbyJsonEncoder.audienceResults(tally));
+        String stateKey = AUDIENCE_STATE_KEY + tally.lobbyId();
+        for (String memberId : sessionIndex.membersOf(tally.lobbyId())) {
+            WebSocketSession s = sessions.get(memberId);
+            if (s != null && s.isOpen()) {
+                outboxManager.send(s, frame.forSession(s), stateKey, true);
             }
-        } catch (JsonSyntaxException e) { sendError(session.getId(), "Błąd formatu JSON."); }
-        catch (Exception e) { sendError(session.getId(), "Błąd serwera."); e.printStackTrace(); }
+        }
+        spectators.forEachSpectator(tally.lobbyId(), s -> outboxManager.send(s, frame.forSession(s), stateKey, true));
+    }
+
+    private void handleWebJoin(WebSocketSession session, ClientAction.PlayerWebJoinRequest request) {
+        PlayerInfo webPlayer = new PlayerInfo(session.getId(), request.nickname(), null, ParticipantRole.PLAYER);
+        String providedPassword = request.password();
+        lobbyService.addWaitingPlayerWithPasswordCheck(request.lobbyId(), webPlayer, providedPassword).ifPresentOrElse(lobby -> {
+            Map<String, Object> successMsg = Map.of("type", "joinSuccess", "lobbyId", lobby.getId());
+            sendMessageToSession(session, successMsg);
+            broadcastLobbyUpdate(lobby);
+        }, () -> {
+            Optional<Lobby> targetLobbyOpt = lobbyService.getLobby(request.lobbyId());
+            if (targetLobbyOpt.isPresent()) {
+                Lobby targetLobby = targetLobbyOpt.get();
+                boolean isPasswordProtected = targetLobby.getPassword() != null && !targetLobby.getPassword().isEmpty();
+                if (isPasswordProtected && providedPassword != null && !providedPassword.isEmpty()) {
+                    sendError(session.getId(), "Błędne hasło do lobby '" + targetLobby.getName() + "'. Spróbuj ponownie.");
+                } else if (isPasswordProtected && (providedPassword == null || providedPassword.isEmpty())) {
+                    sendError(session.getId(), "Lobby '" + targetLobby.getName() + "' jest zabezpieczone hasłem. Musisz je podać.");
+                } else {
+                    sendError(session.getId(), "Nie udało się dołączyć do lobby '" + targetLobby.getName() + "'. Może być pełne lub niedostępne.");
+                }
+            } else {
+                sendError(session.getId(), "Nie znaleziono lobby o ID: " + request.lobbyId());
+            }
+        });
     }
 
     private void sendAnswerToHostPanelForValidation(Lobby lobby, String answeringPlayerSessionId, String answer) {
@@ -275,7 +531,7 @@ public class LobbyWebSocketHandler extends TextWebSocketHandler {
 
         if (hostPanelSessionId == null || answeringPlayer == null) return;
 
-        WebSocketSession hostPanelSession = sessions.get(hostPanelSessionId);
+        WebSocketSession hostPanelSession = findSession(hostPanelSessionId);
         if (hostPanelSession != null && hostPanelSession.isOpen()) {
             Map<String, Object> validationPayload = new HashMap<>();
             validationPayload.put("type", "answerForValidation");
@@ -283,12 +539,13 @@ public class LobbyWebSocketHandler extends TextWebSocketHandler {
             validationPayload.put("playerNickname", answeringPlayer.nickname());
             validationPayload.put("submittedAnswer", answer);
 
-            List<Map<String, Object>> correctAnswers = lobby.getRevealedAnswersData().stream()
-                    .filter(ansMap -> !(boolean)ansMap.get("isRevealed"))
-                    .map(ansMap -> Map.of(
-                            "answer", ansMap.get("text"),
-                            "points", ansMap.get("points")
-                    )).collect(Collectors.toList());
+            AnswerBoard board = lobby.getAnswerBoard();
+            List<Map<String, Object>> correctAnswers = new ArrayList<>();
+            for (int slot = 0; slot < board.getSlotCount(); slot++) {
+                if (board.hasSlot(slot) && !board.isRevealed(slot)) {
+                    correctAnswers.add(Map.of("answer", board.getText(slot), "points", board.getPoints(slot)));
+                }
+            }
 
             validationPayload.put("correctAnswers", correctAnswers);
             sendMessageToSession(hostPanelSession, validationPayload);
@@ -297,91 +554,211 @@ public class LobbyWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        String sessionId = session.getId();
-        sessions.remove(sessionId);
+        disconnect(session.getId());
+    }
+    //raz na sesje: kontener moze zglosic zamkniecie juz usunietej przez heartbeat
+    private void disconnect(String sessionId) {
+        if (sessions.remove(sessionId) == null) return;
+        heartbeat.unregister(sessionId);
+        spectators.leave(sessionId);
+        remoteMemberLobby.remove(sessionId);
+        deltaTracker.forget(sessionId);
+        outboxManager.unregister(sessionId);
+        admission.unregister(sessionId);
+        //uczestnik i prowadzacy lokalnego lobby czekaja na wznowienie z zachowanym miejscem
+        if (!sessionIndex.isInAnyLobby(sessionId) || !resume.park(sessionId, () -> removeSessionFromLocalLobbies(sessionId))) {
+            resume.forget(sessionId);
+            removeSessionFromLocalLobbies(sessionId);
+        }
+        clusterService.publishSessionClosed(sessionId);
+    }
 
-        lobbyService.getAllLobbies().forEach(lobby -> {
-            boolean wasParticipant = lobby.findParticipantBySessionId(sessionId) != null || sessionId.equals(lobby.getHostSessionId()) || sessionId.equals(lobby.getHostPanelSessionId());
-            if (wasParticipant) {
-                lobbyService.removePlayerFromLobby(lobby.getId(), sessionId).ifPresent(this::broadcastLobbyUpdate);
-            }
-        });
+    @Override
+    public void handleRemoteSessionClosed(String sessionId) {
+        RemoteClientSession remote = remoteSessions.remove(sessionId);
+        if (remote != null) {
+            remote.markClosed();
+        }
+        removeSessionFromLocalLobbies(sessionId);
+    }
+
+    private void removeSessionFromLocalLobbies(String sessionId) {
+        for (SessionIndex.SessionBinding binding : sessionIndex.bindingsOf(sessionId)) {
+            if (!clusterService.isLocal(binding.lobbyId())) continue;
+            lobbyService.removePlayerFromLobby(binding.lobbyId(), sessionId).ifPresent(this::broadcastLobbyUpdate);
+        }
     }
 
     public void sendError(String sessionId, String errorMessage) {
+        byte[] errorPayload = LobbyJsonEncoder.error(errorMessage);
+        WebSocketSession session = findSession(sessionId);
+        if (session != null && session.isOpen()) {
+            sendEncoded(session, errorPayload);
+        } else if (session == null && clusterService.isEnabled()) {
+            clusterService.publishToSession(sessionId, new String(errorPayload, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void handleSessionMessage(String sessionId, String json) {
         WebSocketSession session = sessions.get(sessionId);
         if (session != null && session.isOpen()) {
-            Map<String, Object> errorPayload = Map.of("type", "error", "message", errorMessage);
-            sendMessageToSession(session, errorPayload);
+            sendRaw(session, json);
         }
     }
 
+    @Override
+    public void handleRemoteLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Set<String> members) {
+        JsonObject view = JsonParser.parseString(publicJson).getAsJsonObject().getAsJsonObject("lobby");
+        LobbyView publicView = LobbyView.of(view);
+        LobbyView hostView = hostJson.equals(publicJson) ? publicView
+                : LobbyView.of(JsonParser.parseString(hostJson).getAsJsonObject().getAsJsonObject("lobby"));
+        remoteLobbyViews.put(lobbyId, view);
+        updateRemoteMembers(lobbyId, members);
+        deliverLobbyViews(lobbyId, hostPanelSessionId, publicView, hostView, members);
+        if (spectators.hasSpectators(lobbyId)) {
+            spectators.publish(lobbyId, SharedFrame.ofJson(publicJson));
+        }
+        JsonElement password = view.get("password");
+        publishLobbySummary(lobbyId, view.get("status").getAsString(), view.get("totalParticipantCount").getAsInt(),
+                password != null && !password.isJsonNull() && !password.getAsString().isEmpty());
+    }
+
+    @Override
+    public void lobbyImported(String lobbyId) {
+        remoteLobbyViews.remove(lobbyId);
+        updateRemoteMembers(lobbyId, Set.of());
+        lobbyService.getLobby(lobbyId).ifPresent(this::broadcastLobbyUpdate);
+    }
+
+    private void updateRemoteMembers(String lobbyId, Set<String> members) {
+        Set<String> previous = members.isEmpty() ? remoteLobbyMembers.remove(lobbyId) : remoteLobbyMembers.put(lobbyId, members);
+        if (previous != null) {
+            for (String sessionId : previous) {
+                if (!members.contains(sessionId)) remoteMemberLobby.remove(sessionId, lobbyId);
+            }
+        }
+        for (String sessionId : members) {
+            if (sessions.containsKey(sessionId)) remoteMemberLobby.put(sessionId, lobbyId);
+        }
+    }
+    //sesja bez lobby widzi tylko liste lobby
+    private boolean isBrowsing(String sessionId) {
+        return !sessionIndex.isInAnyLobby(sessionId) && !remoteMemberLobby.containsKey(sessionId) && !spectators.isSpectating(sessionId);
+    }
+
+    private void publishLobbySummary(String lobbyId, String status, int participantCount, boolean hasPassword) {
+        SharedFrame frame = SharedFrame.ofJson(LobbyJsonEncoder.lobbySummary(lobbyId, status, participantCount, hasPassword));
+        String json = frame.json();
+        if (json.equals(lastSummaries.put(lobbyId, json))) return;
+        lobbyList.update(lobbyId, status, participantCount, hasPassword);
+        String stateKey = SUMMARY_STATE_KEY + lobbyId;
+        for (WebSocketSession s : sessions.values()) {
+            if (s.isOpen() && isBrowsing(s.getId())) {
+                outboxManager.send(s, frame.forSession(s), stateKey, true);
+            }
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private WebSocketSession findSession(String sessionId) {
+        if (sessionId == null) return null;
+        WebSocketSession session = sessions.get(sessionId);
+        return session != null ? session : remoteSessions.get(sessionId);
+    }
+
     public void sendAllLobbiesToOneUser(WebSocketSession session) {
         Collection<Lobby> allLobbies = lobbyService.getAllLobbies();
-        List<Map<String, Object>> clientLobbiesView = allLobbies.stream()
-                .map(lobby -> mapLobbyToClientData(lobby, session)) // Przekazujemy sesję
-                .collect(Collectors.toList());
-        Map<String, Object> messagePayload = Map.of("type", "allLobbies", "lobbies", clientLobbiesView);
-        sendMessageToSession(session, messagePayload);
+        sendEncoded(session, LobbyJsonEncoder.allLobbies(allLobbies, session.getId(),
+                lobby -> clusterService.isLocal(lobby.getId()) ? null : remoteLobbyViews.get(lobby.getId())));
     }
 
+    //wysylka laczona przez LobbyUpdateCoalescer
     public void broadcastLobbyUpdate(Lobby lobby) {
         if (lobby == null) return;
-        sessions.values().stream().filter(WebSocketSession::isOpen).forEach(s -> {
-            Map<String, Object> lobbyDataForClient = mapLobbyToClientData(lobby, s); // Przekazujemy sesję
-            Map<String, Object> messagePayload = Map.of("type", "lobbyUpdate", "lobby", lobbyDataForClient);
-            sendMessageToSession(s, messagePayload);
+        updateCoalescer.requestUpdate(lobby);
+    }
+    //pelny widok albo latka tylko dla czlonkow lobby, reszta dostaje podsumowanie
+    //ramki kodowane najwyzej raz na wariant (prowadzacy i pozostali), wspolne dla wszystkich odbiorcow
+    private void flushLobbyUpdate(Lobby lobby) {
+        QuizpansEvents.LobbyBroadcast event = new QuizpansEvents.LobbyBroadcast();
+        event.begin();
+        long start = System.nanoTime();
+        Set<String> members = sessionIndex.membersOf(lobby.getId());
+        String hostPanelSessionId = lobby.getHostPanelSessionId();
+        LobbyView publicView = LobbyJsonEncoder.lobbyView(lobby, null);
+        LobbyView hostView = LobbyJsonEncoder.hostViewDiffers(lobby) ? LobbyJsonEncoder.lobbyView(lobby, hostPanelSessionId) : publicView;
+        long[] delivered = deliverLobbyViews(lobby.getId(), hostPanelSessionId, publicView, hostView, members);
+        int spectatorCount = spectators.getSpectatorCount(lobby.getId());
+        metrics.broadcastSent((int) delivered[0] + spectatorCount, System.nanoTime() - start, delivered[1]);
+        //widzowie i inne wezly: ta sama wiadomosc publicznego widoku
+        byte[] publicMessage = spectators.hasSpectators(lobby.getId()) || clusterService.isEnabled()
+                ? LobbyJsonEncoder.lobbyUpdate(publicView) : null;
+        if (spectators.hasSpectators(lobby.getId())) {
+            spectators.publish(lobby.getId(), SharedFrame.ofJson(publicMessage));
+        }
+        String password = lobby.getPassword();
+        publishLobbySummary(lobby.getId(), lobby.getStatus().toString(), lobby.getTotalParticipantCount(), password != null && !password.isEmpty());
+        if (clusterService.isEnabled()) {
+            String publicJson = new String(publicMessage, StandardCharsets.UTF_8);
+            String hostJson = hostView == publicView ? publicJson : new String(LobbyJsonEncoder.lobbyUpdate(hostView), StandardCharsets.UTF_8);
+            clusterService.publishLobbyUpdate(lobby.getId(), hostPanelSessionId, publicJson, hostJson, members);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.lobbyId = lobby.getId();
+            event.recipients = (int) delivered[0];
+            event.spectators = spectatorCount;
+            event.bytes = delivered[1];
+            event.commit();
+        }
+    }
+
+    //{wyslane ramki, ich bajty}
+    private long[] deliverLobbyViews(String lobbyId, String hostPanelSessionId, LobbyView publicView, LobbyView hostView, Set<String> members) {
+        List<WebSocketSession> recipients = new ArrayList<>(members.size());
+        for (String memberId : members) {
+            WebSocketSession s = sessions.get(memberId);
+            if (s != null && s.isOpen()) {
+                recipients.add(s);
+            }
+        }
+        String stateKey = LOBBY_STATE_KEY + lobbyId;
+        long[] delivered = new long[2];
+        deltaTracker.publish(lobbyId, hostPanelSessionId, publicView, hostView, recipients, (s, frame, fullState) -> {
+            WebSocketMessage<?> message = frame.forSession(s);
+            delivered[0]++;
+            delivered[1] += message.getPayloadLength();
+            outboxManager.send(s, message, stateKey, fullState);
         });
+        return delivered;
     }
 
-    private Map<String, Object> mapLobbyToClientData(Lobby lobby, WebSocketSession session) {
-        Map<String, Object> lobbyDataForClient = new HashMap<>();
-        lobbyDataForClient.put("id", lobby.getId());
-        lobbyDataForClient.put("name", lobby.getName());
-        lobbyDataForClient.put("status", lobby.getStatus().toString());
-        lobbyDataForClient.put("gameSettings", lobby.getGameSettings());
-        lobbyDataForClient.put("password", lobby.getPassword());
-        lobbyDataForClient.put("hostSessionId", lobby.getHostSessionId());
-        lobbyDataForClient.put("quizMaster", lobby.getQuizMaster());
-        lobbyDataForClient.put("waitingPlayers", lobby.getWaitingPlayers());
-        lobbyDataForClient.put("teams", lobby.getTeams());
-        lobbyDataForClient.put("totalParticipantCount", lobby.getTotalParticipantCount());
-        lobbyDataForClient.put("maxParticipants", lobby.getMaxParticipants());
-
-        // NOWA LOGIKA: Warunkowe wysyłanie pytania
-        String hostPanelSessionId = lobby.getHostPanelSessionId();
-        boolean isRecipientQuizMaster = hostPanelSessionId != null && hostPanelSessionId.equals(session.getId());
+    private void sendLobbyUpdateTo(WebSocketSession session, Lobby lobby) {
+        sendEncoded(session, LobbyJsonEncoder.lobbyUpdate(lobby, session.getId()));
+    }
 
-        if (!isRecipientQuizMaster && lobby.getCurrentQuestionText() != null && !lobby.isQuestionRevealed()) {
-            lobbyDataForClient.put("currentQuestionText", "Prowadzący przygotowuje pytanie...");
+    private void sendMessageToSession(WebSocketSession session, Map<String, Object> payload) {
+        if (WireFormat.of(session) == WireFormat.BINARY) {
+            sendFrame(session, new BinaryMessage(TaggedJsonCodec.encode(gson.toJsonTree(payload))));
         } else {
-            lobbyDataForClient.put("currentQuestionText", lobby.getCurrentQuestionText());
+            sendFrame(session, new TextMessage(gson.toJson(payload)));
         }
-        lobbyDataForClient.put("isQuestionRevealed", lobby.isQuestionRevealed()); // Wysyłamy nową flagę
+    }
 
+    private void sendEncoded(WebSocketSession session, byte[] json) {
+        sendFrame(session, SharedFrame.ofJson(json).forSession(session));
+    }
 
-        lobbyDataForClient.put("currentQuestionId", lobby.getCurrentQuestionId());
-        lobbyDataForClient.put("currentRoundNumber", lobby.getCurrentRoundNumber());
-        lobbyDataForClient.put("totalRounds", lobby.getTotalRounds());
-        lobbyDataForClient.put("currentPlayerSessionId", lobby.getCurrentPlayerSessionId());
-        lobbyDataForClient.put("isTeam1Turn", lobby.isTeam1Turn());
-        lobbyDataForClient.put("team1Score", lobby.getTeam1Score());
-        lobbyDataForClient.put("team2Score", lobby.getTeam2Score());
-        lobbyDataForClient.put("team1Errors", lobby.getTeam1Errors());
-        lobbyDataForClient.put("team2Errors", lobby.getTeam2Errors());
-        lobbyDataForClient.put("revealedAnswersData", lobby.getRevealedAnswersData());
-        lobbyDataForClient.put("currentRoundPoints", lobby.getCurrentRoundPoints());
-        lobbyDataForClient.put("currentAnswerTimeRemaining", lobby.getCurrentAnswerTimeRemaining());
-        lobbyDataForClient.put("hostPanelSessionId", lobby.getHostPanelSessionId());
-        return lobbyDataForClient;
+    private void sendRaw(WebSocketSession session, String json) {
+        sendFrame(session, SharedFrame.ofJson(json).forSession(session));
     }
 
-    private void sendMessageToSession(WebSocketSession session, Map<String, Object> payload) {
-        if (session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(gson.toJson(payload)));
-            } catch (IOException e) {
-            }
-        }
+    //przez kolejke wyjsciowa sesji, nigdy bezposrednio z watku rozglosu
+    private void sendFrame(WebSocketSession session, WebSocketMessage<?> frame) {
+        outboxManager.send(session, frame, null, false);
     }
 }
\ No newline at end of file
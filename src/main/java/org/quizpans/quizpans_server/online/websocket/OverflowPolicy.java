@@ -0,0 +1,8 @@
+package org.quizpans.quizpans_server.online.websocket;
+//co zrobic gdy kolejka wyjsciowa sesji przekroczy limit
+public enum OverflowPolicy {
+    //odrzuc zalegle latki i wyslij najnowszy pelny stan, rozlacz dopiero gdy to nie wystarczy
+    COALESCE,
+    //od razu rozlacz wolnego klienta
+    DISCONNECT
+}
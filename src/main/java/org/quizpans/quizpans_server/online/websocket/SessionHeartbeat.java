@@ -0,0 +1,135 @@
+package org.quizpans.quizpans_server.online.websocket;
+// ping do kazdej sesji co interwal, kazda wiadomosc od klienta (tez pong) odswieza sesje
+// sesja cicha dluzej niz timeout albo juz zamknieta (nieudany zapis, straznik kolejek) jest usuwana zwykla sciezka rozlaczenia
+// ping idzie przez kolejke wyjsciowa pod wlasnym kluczem stanu, w zatkanej kolejce czeka najwyzej jeden
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+@Component
+public class SessionHeartbeat {
+    static final String PING_STATE_KEY = "ping";
+
+    private static final class Liveness {
+        private final WebSocketSession session;
+        private volatile long lastSeenNanos;
+
+        private Liveness(WebSocketSession session, long now) {
+            this.session = session;
+            this.lastSeenNanos = now;
+        }
+    }
+
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final SessionOutboxManager outboxManager;
+    private final LongSupplier clock;
+    private final Map<String, Liveness> tracked = new ConcurrentHashMap<>();
+    private final AtomicLong reapedSessions = new AtomicLong();
+    private volatile Consumer<WebSocketSession> reaper = session -> { };
+    private volatile int liveSessions;
+    private volatile int idleSessions;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SessionHeartbeat(@Value("${quizpans.heartbeat.interval-ms:15000}") long intervalMs,
+                            @Value("${quizpans.heartbeat.timeout-ms:45000}") long timeoutMs,
+                            SessionOutboxManager outboxManager) {
+        this(intervalMs, timeoutMs, outboxManager, System::nanoTime);
+    }
+
+    SessionHeartbeat(long intervalMs, long timeoutMs, SessionOutboxManager outboxManager, LongSupplier clock) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.outboxManager = outboxManager;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void start() {
+        if (intervalNanos <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("SessionHeartbeat");
+            return t;
+        });
+        long periodMs = TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+        scheduler.scheduleWithFixedDelay(this::sweep, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+    //wywolywany dla sesji do usuniecia, poza watkiem przegladu
+    public void setReaper(Consumer<WebSocketSession> reaper) {
+        this.reaper = reaper;
+    }
+
+    public void register(WebSocketSession session) {
+        tracked.put(session.getId(), new Liveness(session, clock.getAsLong()));
+    }
+
+    public void unregister(String sessionId) {
+        tracked.remove(sessionId);
+    }
+
+    public void touch(String sessionId) {
+        Liveness liveness = tracked.get(sessionId);
+        if (liveness != null) {
+            liveness.lastSeenNanos = clock.getAsLong();
+        }
+    }
+
+    void sweep() {
+        long now = clock.getAsLong();
+        int live = 0;
+        int idle = 0;
+        for (Liveness liveness : tracked.values()) {
+            WebSocketSession session = liveness.session;
+            long silentNanos = now - liveness.lastSeenNanos;
+            if (!session.isOpen() || silentNanos > timeoutNanos) {
+                if (tracked.remove(session.getId(), liveness)) {
+                    reapedSessions.incrementAndGet();
+                    Thread.ofVirtual().name("SessionReaper-" + session.getId()).start(() -> reaper.accept(session));
+                }
+                continue;
+            }
+            //brak odpowiedzi na poprzedni ping
+            if (silentNanos >= intervalNanos) idle++;
+            else live++;
+            outboxManager.send(session, new PingMessage(ByteBuffer.allocate(Long.BYTES).putLong(0, now)), PING_STATE_KEY, true);
+        }
+        liveSessions = live;
+        idleSessions = idle;
+    }
+
+    public int getLiveSessions() {
+        return liveSessions;
+    }
+
+    public int getIdleSessions() {
+        return idleSessions;
+    }
+
+    public long getReapedSessions() {
+        return reapedSessions.get();
+    }
+}
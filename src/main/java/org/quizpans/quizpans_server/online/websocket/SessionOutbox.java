@@ -0,0 +1,207 @@
+package org.quizpans.quizpans_server.online.websocket;
+// ograniczona kolejka wyjsciowa jednej sesji oprozniana przez wlasny watek pisarza (wirtualny)
+// ramki stanu z kluczem: pelny stan zastepuje zalegle ramki tego samego klucza
+// onWritten wolany po wyslaniu, odrzuceniu albo zamknieciu kolejki; nie moze blokowac, bywa wolany pod blokada
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SessionOutbox {
+
+    record OutboundFrame(WebSocketMessage<?> message, int bytes, String stateKey, boolean fullState, Runnable onWritten) {
+        void written() {
+            if (onWritten != null) onWritten.run();
+        }
+    }
+
+    private final WebSocketSession session;
+    private final SessionOutboxManager manager;
+    private final ArrayDeque<OutboundFrame> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int queuedBytes;
+    private boolean writerWaiting;
+    private boolean closed;
+    //czas startu biezacego wysylania, 0 gdy pisarz nie wysyla
+    private volatile long sendStartedNanos;
+
+    SessionOutbox(WebSocketSession session, SessionOutboxManager manager) {
+        this.session = session;
+        this.manager = manager;
+    }
+
+    public String getSessionId() {
+        return session.getId();
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getSendStartedNanos() {
+        return sendStartedNanos;
+    }
+
+    void enqueue(WebSocketMessage<?> message, String stateKey, boolean fullState) {
+        enqueue(message, stateKey, fullState, null);
+    }
+
+    void enqueue(WebSocketMessage<?> message, String stateKey, boolean fullState, Runnable onWritten) {
+        Set<String> resyncKeys = null;
+        boolean overflowDisconnect = false;
+        lock.lock();
+        try {
+            if (closed) {
+                if (onWritten != null) onWritten.run();
+                return;
+            }
+            if (fullState && stateKey != null) {
+                removeFrames(stateKey, true);
+            }
+            int bytes = manager.payloadBytes(message);
+            queue.addLast(new OutboundFrame(message, bytes, stateKey, fullState, onWritten));
+            queuedBytes += bytes;
+            if (isOverLimit()) {
+                if (manager.getOverflowPolicy() == OverflowPolicy.COALESCE) {
+                    resyncKeys = dropPartialState();
+                    overflowDisconnect = isOverLimit();
+                } else {
+                    overflowDisconnect = true;
+                }
+            }
+            //budzenie tylko gdy pisarz czeka, zajety pisarz sam wezmie kolejna ramke
+            if (writerWaiting && !overflowDisconnect) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (overflowDisconnect) {
+            manager.recordOverflowDisconnect();
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        }
+        if (resyncKeys != null && !resyncKeys.isEmpty()) {
+            manager.requestResync(this, resyncKeys);
+        }
+    }
+
+    private boolean isOverLimit() {
+        return queue.size() > manager.getMaxMessages() || queuedBytes > manager.getMaxBytes();
+    }
+    //latki bez poprzedzajacych ramek sa bezuzyteczne, zostaje prosba o pelny stan
+    private Set<String> dropPartialState() {
+        Set<String> keys = new LinkedHashSet<>();
+        Iterator<OutboundFrame> it = queue.iterator();
+        while (it.hasNext()) {
+            OutboundFrame frame = it.next();
+            if (frame.stateKey() != null && !frame.fullState()) {
+                keys.add(frame.stateKey());
+            }
+        }
+        for (String key : keys) {
+            removeFrames(key, false);
+        }
+        manager.recordCoalesced(keys.size());
+        return keys;
+    }
+
+    private void removeFrames(String stateKey, boolean countAsCoalesced) {
+        int removed = 0;
+        Iterator<OutboundFrame> it = queue.iterator();
+        while (it.hasNext()) {
+            OutboundFrame frame = it.next();
+            if (stateKey.equals(frame.stateKey())) {
+                it.remove();
+                frame.written();
+                queuedBytes -= frame.bytes();
+                removed++;
+            }
+        }
+        if (countAsCoalesced && removed > 0) {
+            manager.recordCoalesced(removed);
+        }
+    }
+
+    void writeLoop() {
+        while (true) {
+            OutboundFrame frame;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    writerWaiting = true;
+                    notEmpty.awaitUninterruptibly();
+                    writerWaiting = false;
+                }
+                if (closed) return;
+                frame = queue.pollFirst();
+                queuedBytes -= frame.bytes();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sendStartedNanos = System.nanoTime();
+                if (session.isOpen()) {
+                    session.sendMessage(frame.message());
+                }
+            } catch (IOException | RuntimeException e) {
+                manager.recordSendFailure();
+                close(CloseStatus.SERVER_ERROR);
+            } finally {
+                sendStartedNanos = 0;
+                frame.written();
+            }
+        }
+    }
+
+    void close(CloseStatus status) {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            queue.forEach(OutboundFrame::written);
+            queue.clear();
+            queuedBytes = 0;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        manager.remove(this);
+        try {
+            session.close(status);
+        } catch (IOException | RuntimeException e) {
+            // sesja i tak jest porzucana
+        }
+    }
+
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.quizpans.quizpans_server.online.websocket;
+// kolejki wyjsciowe wszystkich sesji, pisarze na watkach wirtualnych
+// straznik rozlacza sesje ktorych wysylanie trwa dluzej niz limit
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+@Component
+public class SessionOutboxManager {
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long sendTimeLimitNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("SessionOutboxWriter-", 0).factory());
+    private ScheduledExecutorService watchdog;
+    //prosba o pelny stan po odrzuceniu latek (sessionId, klucz stanu)
+    private volatile BiConsumer<String, String> resyncHandler = (sessionId, stateKey) -> { };
+    //rozmiar ostatniej ramki, rozglos wrzuca te sama ramke do wielu kolejek a getPayloadLength koduje utf-8 od nowa
+    private volatile SizedFrame lastSized = new SizedFrame(null, 0);
+
+    private record SizedFrame(WebSocketMessage<?> message, int bytes) {
+    }
+
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    private final AtomicLong overflowDisconnects = new AtomicLong();
+    private final AtomicLong slowSendDisconnects = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    public SessionOutboxManager(@Value("${quizpans.outbox.max-messages:256}") int maxMessages,
+                                @Value("${quizpans.outbox.max-bytes:1048576}") int maxBytes,
+                                @Value("${quizpans.outbox.send-time-limit-ms:5000}") long sendTimeLimitMs,
+                                @Value("${quizpans.outbox.overflow:COALESCE}") OverflowPolicy overflowPolicy) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    void startWatchdog() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("SessionOutboxWatchdog");
+            return t;
+        });
+        long periodMs = Math.max(100, TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos) / 4);
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        writers.shutdownNow();
+    }
+
+    public void setResyncHandler(BiConsumer<String, String> resyncHandler) {
+        this.resyncHandler = resyncHandler;
+    }
+
+    public SessionOutbox register(WebSocketSession session) {
+        SessionOutbox outbox = new SessionOutbox(session, this);
+        SessionOutbox existing = outboxes.putIfAbsent(session.getId(), outbox);
+        if (existing != null) return existing;
+        writers.execute(outbox::writeLoop);
+        return outbox;
+    }
+
+    public void unregister(String sessionId) {
+        unregister(sessionId, CloseStatus.NORMAL);
+    }
+
+    public void unregister(String sessionId, CloseStatus status) {
+        SessionOutbox outbox = outboxes.remove(sessionId);
+        if (outbox != null) {
+            outbox.close(status);
+        }
+    }
+    //sesje spoza rejestru (np. klienci innych wezlow) wysylane od razu
+    public void send(WebSocketSession session, WebSocketMessage<?> message, String stateKey, boolean fullState) {
+        send(session, message, stateKey, fullState, null);
+    }
+    //onWritten: ramka opuscila kolejke (wyslana, zastapiona albo porzucona), nadawca moze podac nastepna
+    public void send(WebSocketSession session, WebSocketMessage<?> message, String stateKey, boolean fullState, Runnable onWritten) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            outbox.enqueue(message, stateKey, fullState, onWritten);
+            return;
+        }
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(message);
+            }
+        } catch (IOException e) {
+            sendFailures.incrementAndGet();
+        } finally {
+            if (onWritten != null) onWritten.run();
+        }
+    }
+
+    public Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        outboxes.forEach((id, outbox) -> depths.put(id, outbox.getQueueDepth()));
+        return depths;
+    }
+
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            max = Math.max(max, outbox.getQueueDepth());
+        }
+        return max;
+    }
+
+    public long getTotalQueuedBytes() {
+        long total = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            total += outbox.getQueuedBytes();
+        }
+        return total;
+    }
+
+    public int getOutboxCount() {
+        return outboxes.size();
+    }
+
+    public long getCoalescedFrames() {
+        return coalescedFrames.get();
+    }
+
+    public long getOverflowDisconnects() {
+        return overflowDisconnects.get();
+    }
+
+    public long getSlowSendDisconnects() {
+        return slowSendDisconnects.get();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.get();
+    }
+
+    int getMaxMessages() {
+        return maxMessages;
+    }
+
+    int getMaxBytes() {
+        return maxBytes;
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    int payloadBytes(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage)) return message.getPayloadLength();
+        SizedFrame sized = lastSized;
+        if (sized.message() == message) return sized.bytes();
+        int bytes = message.getPayloadLength();
+        lastSized = new SizedFrame(message, bytes);
+        return bytes;
+    }
+
+    //poza blokada kolejki, pelny stan trafi do kolejki jak zwykla ramka
+    void requestResync(SessionOutbox outbox, Set<String> stateKeys) {
+        writers.execute(() -> stateKeys.forEach(key -> resyncHandler.accept(outbox.getSessionId(), key)));
+    }
+
+    void remove(SessionOutbox outbox) {
+        outboxes.remove(outbox.getSessionId(), outbox);
+    }
+
+    void recordCoalesced(int frames) {
+        coalescedFrames.addAndGet(frames);
+    }
+
+    void recordOverflowDisconnect() {
+        overflowDisconnects.incrementAndGet();
+    }
+
+    void recordSendFailure() {
+        sendFailures.incrementAndGet();
+    }
+
+    private void closeStalledSessions() {
+        long now = System.nanoTime();
+        for (SessionOutbox outbox : outboxes.values()) {
+            long started = outbox.getSendStartedNanos();
+            if (started != 0 && now - started > sendTimeLimitNanos) {
+                slowSendDisconnects.incrementAndGet();
+                outbox.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.quizpans.quizpans_server.online.websocket;
+// tokeny wznowienia: kazda sesja dostaje token, po zerwaniu polaczenia klient wraca z nim na nowym polaczeniu
+// zamknieta sesja uczestnika lub prowadzacego czeka grace-ms z zachowanym miejscem, dopiero potem jest usuwana z lobby
+// token jednorazowy, nowe polaczenie ma juz wlasny
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class SessionResume {
+
+    private static final class Ticket {
+        private final String sessionId;
+        //ustawiony przy zaparkowaniu, pod blokada biletu
+        private ScheduledFuture<?> expiry;
+
+        private Ticket(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
+    private final long graceMs;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("SessionResume");
+        return t;
+    });
+    private final AtomicLong resumedSessions = new AtomicLong();
+    private final AtomicLong expiredSessions = new AtomicLong();
+
+    public SessionResume(@Value("${quizpans.resume.grace-ms:30000}") long graceMs) {
+        this.graceMs = graceMs;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public String issue(String sessionId) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(token, new Ticket(sessionId));
+        tokens.put(sessionId, token);
+        return token;
+    }
+    //false: bez okresu laski albo bez tokenu, sesje trzeba zwolnic od razu
+    public boolean park(String sessionId, Runnable release) {
+        String token = tokens.get(sessionId);
+        Ticket ticket = token != null ? tickets.get(token) : null;
+        if (graceMs <= 0 || ticket == null) return false;
+        synchronized (ticket) {
+            ticket.expiry = scheduler.schedule(() -> expire(token, ticket, release), graceMs, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private void expire(String token, Ticket ticket, Runnable release) {
+        if (!tickets.remove(token, ticket)) return;
+        tokens.remove(ticket.sessionId, token);
+        expiredSessions.incrementAndGet();
+        release.run();
+    }
+    //sesja, do ktorej nalezy token; null gdy nieznany, wykorzystany albo wygasl
+    public String sessionOf(String token) {
+        Ticket ticket = token != null ? tickets.get(token) : null;
+        return ticket != null ? ticket.sessionId : null;
+    }
+    //przejecie zaparkowanej sesji; wygrywa z wygasnieciem albo przegrywa, nigdy oba
+    public boolean claim(String token) {
+        Ticket ticket = token != null ? tickets.get(token) : null;
+        if (ticket == null) return false;
+        ScheduledFuture<?> expiry;
+        synchronized (ticket) {
+            expiry = ticket.expiry;
+        }
+        if (expiry == null || !tickets.remove(token, ticket)) return false;
+        expiry.cancel(false);
+        tokens.remove(ticket.sessionId, token);
+        resumedSessions.incrementAndGet();
+        return true;
+    }
+
+    public String tokenOf(String sessionId) {
+        return sessionId != null ? tokens.get(sessionId) : null;
+    }
+    //do kopii lobby trafia tylko skrot tokenu, po restarcie klient odzyskuje nim miejsce
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void forget(String sessionId) {
+        String token = tokens.remove(sessionId);
+        if (token != null) {
+            tickets.remove(token);
+        }
+    }
+
+    public long getResumedSessions() {
+        return resumedSessions.get();
+    }
+
+    public long getExpiredSessions() {
+        return expiredSessions.get();
+    }
+}
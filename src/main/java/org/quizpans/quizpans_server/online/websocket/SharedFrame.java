@@ -0,0 +1,77 @@
+package org.quizpans.quizpans_server.online.websocket;
+// jedna wiadomosc dla wielu odbiorcow, kodowana leniwie najwyzej raz na format
+// wyscig dwoch watkow najwyzej zakoduje ramke dwa razy, obie kopie sa rowne
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public final class SharedFrame {
+    private volatile String json;
+    private volatile JsonElement tree;
+    private volatile TextMessage text;
+    private volatile BinaryMessage binary;
+
+    private SharedFrame(String json, JsonElement tree) {
+        this.json = json;
+        this.tree = tree;
+    }
+
+    public static SharedFrame ofJson(String json) {
+        return new SharedFrame(json, null);
+    }
+
+    //gotowe bajty utf-8 z LobbyJsonEncoder
+    public static SharedFrame ofJson(byte[] utf8) {
+        SharedFrame frame = new SharedFrame(null, null);
+        frame.text = new TextMessage(utf8);
+        frame.json = frame.text.getPayload();
+        return frame;
+    }
+
+    public static SharedFrame ofTree(JsonElement tree) {
+        return new SharedFrame(null, tree);
+    }
+
+    public WebSocketMessage<?> forSession(WebSocketSession session) {
+        return encoded(WireFormat.of(session));
+    }
+
+    public WebSocketMessage<?> encoded(WireFormat format) {
+        if (format == WireFormat.BINARY) {
+            BinaryMessage frame = binary;
+            if (frame == null) {
+                frame = new BinaryMessage(TaggedJsonCodec.encode(tree()));
+                binary = frame;
+            }
+            return frame;
+        }
+        TextMessage frame = text;
+        if (frame == null) {
+            String value = json;
+            frame = value != null ? new TextMessage(value) : new TextMessage(LobbyJsonEncoder.tree(tree));
+            text = frame;
+            json = frame.getPayload();
+        }
+        return frame;
+    }
+
+    public String json() {
+        String value = json;
+        if (value == null) {
+            value = ((TextMessage) encoded(WireFormat.JSON)).getPayload();
+        }
+        return value;
+    }
+
+    private JsonElement tree() {
+        JsonElement value = tree;
+        if (value == null) {
+            value = JsonParser.parseString(json);
+            tree = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,171 @@
+package org.quizpans.quizpans_server.online.websocket;
+// widzowie lobby poza modelem gry: nie zajmuja miejsc uczestnikow i nie dostaja osobnych widokow
+// rozglos lobby wklada jedna ramke do pierscienia, koszt na sciezce komendy nie zalezy od liczby widzow
+// kazdy widz ma wirtualny watek czytelnika: nastepna ramka dopiero gdy poprzednia opuscila kolejke wyjsciowa
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+import jakarta.annotation.PreDestroy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component
+public class SpectatorFeed {
+    private static final long WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final class Spectator {
+        private final WebSocketSession session;
+        private final String lobbyId;
+        private final String stateKey;
+        private final SpectatorRing ring;
+        private final Semaphore written = new Semaphore(0);
+        //kursor ustalony przy dolaczeniu, zeby ramka opublikowana przed startem watku nie przepadla
+        private final long joinedAt;
+        private volatile boolean active = true;
+        private Thread reader;
+
+        private Spectator(WebSocketSession session, String lobbyId, SpectatorRing ring) {
+            this.session = session;
+            this.lobbyId = lobbyId;
+            this.stateKey = LobbyWebSocketHandler.LOBBY_STATE_KEY + lobbyId;
+            this.ring = ring;
+            this.joinedAt = ring.head();
+        }
+
+        private void readLoop() {
+            long cursor = joinedAt;
+            try {
+                while (active && session.isOpen()) {
+                    SpectatorRing.Slot slot = ring.read(cursor);
+                    if (slot == null) {
+                        ring.awaitAfter(cursor, WAIT_NANOS);
+                        continue;
+                    }
+                    if (slot.sequence() != cursor) {
+                        skippedFrames.addAndGet(slot.sequence() - cursor);
+                    }
+                    cursor = slot.sequence() + 1;
+                    outboxManager.send(session, slot.frame().forSession(session), stateKey, true, written::release);
+                    while (active && !written.tryAcquire(WAIT_NANOS, TimeUnit.NANOSECONDS)) {
+                        if (!session.isOpen()) return;
+                    }
+                    deliveredFrames.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final int ringSize;
+    private final int maxPerLobby;
+    private final SessionOutboxManager outboxManager;
+    private final Map<String, SpectatorRing> rings = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final Map<String, Spectator> spectators = new ConcurrentHashMap<>();
+    //budzenie czytelnikow poza watkiem komendy
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("SpectatorNotifier");
+        return t;
+    });
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong deliveredFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+
+    public SpectatorFeed(@Value("${quizpans.spectator.ring-size:32}") int ringSize,
+                         @Value("${quizpans.spectator.max-per-lobby:10000}") int maxPerLobby,
+                         SessionOutboxManager outboxManager) {
+        this.ringSize = ringSize;
+        this.maxPerLobby = maxPerLobby;
+        this.outboxManager = outboxManager;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        spectators.values().forEach(spectator -> spectator.active = false);
+        notifier.shutdownNow();
+    }
+    //false gdy lobby ma juz komplet widzow; ponowne dolaczenie przenosi widza
+    public boolean join(WebSocketSession session, String lobbyId) {
+        leave(session.getId());
+        AtomicInteger count = counts.computeIfAbsent(lobbyId, id -> new AtomicInteger());
+        if (count.incrementAndGet() > maxPerLobby) {
+            count.decrementAndGet();
+            return false;
+        }
+        Spectator spectator = new Spectator(session, lobbyId, rings.computeIfAbsent(lobbyId, id -> new SpectatorRing(ringSize)));
+        spectator.reader = Thread.ofVirtual().name("SpectatorReader-" + session.getId()).start(spectator::readLoop);
+        spectators.put(session.getId(), spectator);
+        return true;
+    }
+
+    public void leave(String sessionId) {
+        Spectator spectator = spectators.remove(sessionId);
+        if (spectator == null) return;
+        spectator.active = false;
+        spectator.written.release();
+        spectator.reader.interrupt();
+        counts.get(spectator.lobbyId).decrementAndGet();
+    }
+
+    public boolean isSpectating(String sessionId) {
+        return spectators.containsKey(sessionId);
+    }
+
+    public String spectatedLobby(String sessionId) {
+        Spectator spectator = spectators.get(sessionId);
+        return spectator != null ? spectator.lobbyId : null;
+    }
+    //wiadomosci poza pierscieniem (wyniki publicznosci), kazda sesja osobno przez swoja kolejke
+    public void forEachSpectator(String lobbyId, Consumer<WebSocketSession> action) {
+        for (Spectator spectator : spectators.values()) {
+            if (spectator.lobbyId.equals(lobbyId) && spectator.session.isOpen()) {
+                action.accept(spectator.session);
+            }
+        }
+    }
+
+    public boolean hasSpectators(String lobbyId) {
+        AtomicInteger count = counts.get(lobbyId);
+        return count != null && count.get() > 0;
+    }
+    //sciezka komendy: zapis do pierscienia i zadanie dla watku powiadomien
+    public void publish(String lobbyId, SharedFrame frame) {
+        SpectatorRing ring = rings.get(lobbyId);
+        if (ring == null) return;
+        ring.publish(frame);
+        publishedFrames.incrementAndGet();
+        notifier.execute(ring::wakeReaders);
+    }
+
+    public int getSpectatorCount(String lobbyId) {
+        AtomicInteger count = counts.get(lobbyId);
+        return count != null ? Math.max(0, count.get()) : 0;
+    }
+
+    public int getTotalSpectators() {
+        return spectators.size();
+    }
+
+    public long getPublishedFrames() {
+        return publishedFrames.get();
+    }
+
+    public long getDeliveredFrames() {
+        return deliveredFrames.get();
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames.get();
+    }
+}
@@ -0,0 +1,65 @@
+package org.quizpans.quizpans_server.online.websocket;
+// pierscien ostatnich ramek lobby dla widzow, kazda ramka to pelny stan lobby
+// zapis bez czekania na czytelnikow, czytelnik z wlasnym kursorem; nadpisany kursor przeskakuje na najnowsza ramke
+// czytelnicy czekaja na warunku, budzi ich watek powiadomien a nie watek komendy
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class SpectatorRing {
+
+    record Slot(long sequence, SharedFrame frame) {
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    //numer nastepnej ramki
+    private volatile long head;
+
+    SpectatorRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    synchronized void publish(SharedFrame frame) {
+        long sequence = head;
+        slots.set((int) (sequence % slots.length()), new Slot(sequence, frame));
+        head = sequence + 1;
+    }
+
+    long head() {
+        return head;
+    }
+    //ramka o numerze cursor albo najnowsza gdy cursor zostal juz nadpisany; null gdy nic nowego
+    Slot read(long cursor) {
+        while (true) {
+            long current = head;
+            if (cursor >= current) return null;
+            long sequence = current - cursor > slots.length() ? current - 1 : cursor;
+            Slot slot = slots.get((int) (sequence % slots.length()));
+            if (slot != null && slot.sequence() == sequence) return slot;
+            //zapis wyprzedzil odczyt, jeszcze raz od najnowszej
+            cursor = head - 1;
+        }
+    }
+
+    void awaitAfter(long cursor, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            if (cursor >= head) {
+                advanced.awaitNanos(timeoutNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void wakeReaders() {
+        lock.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package org.quizpans.quizpans_server.online.websocket;
+// zwarty binarny zapis drzewa json dla podprotokolu quizpans.bin.v1
+// kazda wartosc poprzedzona bajtem typu, liczby calkowite jako zigzag varint
+// znane nazwy pol i czeste teksty jako indeks slownika, pozostale utf-8 z dlugoscia
+// slownik tylko dopisywany na koncu, zmiana kolejnosci wymaga nowej wersji podprotokolu
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class TaggedJsonCodec {
+    static final int TAG_NULL = 0;
+    static final int TAG_FALSE = 1;
+    static final int TAG_TRUE = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_DOUBLE = 4;
+    static final int TAG_STRING = 5;
+    static final int TAG_KNOWN_STRING = 6;
+    static final int TAG_ARRAY = 7;
+    static final int TAG_OBJECT = 8;
+
+    private static final int MAX_DEPTH = 64;
+
+    static final List<String> DICTIONARY = List.of(
+            //koperta wiadomosci i akcje klienta
+            "type", "action", "lobby", "lobbies", "lobbyId", "version", "baseVersion", "fields", "slots", "message",
+            "sessionId", "answer", "answerText", "gameSettings", "isCorrect", "matchedAnswer", "nickname",
+            "participantSessionId", "password", "playerSessionId", "role", "targetTeamName", "usedQuestionIds",
+            "correctAnswers", "playerNickname", "submittedAnswer", "hasPassword", "participantCount",
+            //widok lobby
+            "id", "name", "status", "hostSessionId", "quizMaster", "waitingPlayers", "teams", "totalParticipantCount",
+            "maxParticipants", "currentQuestionText", "isQuestionRevealed", "currentQuestionId", "currentRoundNumber",
+            "totalRounds", "currentPlayerSessionId", "isTeam1Turn", "team1Score", "team2Score", "team1Errors",
+            "team2Errors", "revealedAnswersData", "currentRoundPoints", "currentAnswerTimeRemaining", "hostPanelSessionId",
+            "teamName", "category", "answerTime", "numberOfRounds", "maxPlayersPerTeam", "teamBlueName", "teamRedName",
+            "text", "points", "isRevealed", "position",
+            //typy wiadomosci serwera
+            "lobbyUpdate", "lobbyPatch", "lobbySummary", "allLobbies", "error", "joinSuccess", "yourSessionId",
+            "answerForValidation",
+            //akcje klienta
+            "getAllLobbies", "ackVersion", "resync", "requestHostLobby", "registerHostPanel", "playerWebJoinRequest",
+            "announceWebPlayerInRoom", "assignRole", "unassignParticipant", "removeParticipantFromLobby", "leaveLobby",
+            "configureLobby", "startGame", "requestInitialQuestion", "requestNewQuestion", "submitAnswer",
+            "validateAnswer", "revealAnswerByHost", "revealQuestion",
+            //wartosci wyliczen i domyslne teksty
+            "AVAILABLE", "BUSY", "VALIDATING", "PLAYER", "QUIZ_MASTER", "Niebiescy", "Czerwoni",
+            "Prowadzący przygotowuje pytanie..."
+    );
+    private static final String[] DICTIONARY_ARRAY = DICTIONARY.toArray(new String[0]);
+    private static final Map<String, Integer> DICTIONARY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < DICTIONARY_ARRAY.length; i++) {
+            DICTIONARY_INDEX.put(DICTIONARY_ARRAY[i], i);
+        }
+    }
+
+    private TaggedJsonCodec() {
+    }
+
+    public static byte[] encode(JsonElement element) {
+        Output out = new Output(256);
+        writeElement(out, element);
+        return out.toByteArray();
+    }
+
+    public static JsonElement decode(ByteBuffer source) {
+        ByteBuffer in = source.duplicate();
+        try {
+            JsonElement element = readElement(in, 0);
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Nadmiarowe bajty po wiadomosci.");
+            }
+            return element;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Ucieta wiadomosc binarna.", e);
+        }
+    }
+
+    public static JsonElement decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    private static void writeElement(Output out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.write(TAG_NULL);
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            out.write(TAG_OBJECT);
+            out.writeVarInt(object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                Integer index = DICTIONARY_INDEX.get(entry.getKey());
+                if (index != null) {
+                    out.writeVarInt(index + 1);
+                } else {
+                    out.writeVarInt(0);
+                    out.writeString(entry.getKey());
+                }
+                writeElement(out, entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.write(TAG_ARRAY);
+            out.writeVarInt(array.size());
+            for (JsonElement item : array) {
+                writeElement(out, item);
+            }
+        } else {
+            writePrimitive(out, element.getAsJsonPrimitive());
+        }
+    }
+
+    private static void writePrimitive(Output out, JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            out.write(primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+        } else if (primitive.isNumber()) {
+            Number number = primitive.getAsNumber();
+            if (isIntegral(number)) {
+                out.write(TAG_INT);
+                out.writeVarLong(zigzag(number.longValue()));
+            } else {
+                out.write(TAG_DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits(number.doubleValue()));
+            }
+        } else {
+            String text = primitive.getAsString();
+            Integer index = DICTIONARY_INDEX.get(text);
+            if (index != null) {
+                out.write(TAG_KNOWN_STRING);
+                out.writeVarInt(index);
+            } else {
+                out.write(TAG_STRING);
+                out.writeString(text);
+            }
+        }
+    }
+    //liczby z parsera json (LazilyParsedNumber) calkowite tylko gdy zapis nie ma kropki ani wykladnika
+    private static boolean isIntegral(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return true;
+        }
+        if (number instanceof LazilyParsedNumber) {
+            String text = number.toString();
+            if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) return false;
+            try {
+                Long.parseLong(text);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static JsonElement readElement(ByteBuffer in, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Zbyt gleboko zagniezdzona wiadomosc.");
+        }
+        int tag = in.get() & 0xFF;
+        switch (tag) {
+            case TAG_NULL:
+                return JsonNull.INSTANCE;
+            case TAG_FALSE:
+                return new JsonPrimitive(false);
+            case TAG_TRUE:
+                return new JsonPrimitive(true);
+            case TAG_INT:
+                return new JsonPrimitive(unzigzag(readVarLong(in)));
+            case TAG_DOUBLE:
+                return new JsonPrimitive(Double.longBitsToDouble(in.getLong()));
+            case TAG_STRING:
+                return new JsonPrimitive(readString(in));
+            case TAG_KNOWN_STRING:
+                return new JsonPrimitive(known(readVarInt(in)));
+            case TAG_ARRAY: {
+                int size = readLength(in);
+                JsonArray array = new JsonArray(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(readElement(in, depth + 1));
+                }
+                return array;
+            }
+            case TAG_OBJECT: {
+                int size = readLength(in);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    int keyRef = readVarInt(in);
+                    String key = keyRef == 0 ? readString(in) : known(keyRef - 1);
+                    object.add(key, readElement(in, depth + 1));
+                }
+                return object;
+            }
+            default:
+                throw new IllegalArgumentException("Nieznany typ wartosci: " + tag);
+        }
+    }
+
+    private static String known(int index) {
+        if (index < 0 || index >= DICTIONARY_ARRAY.length) {
+            throw new IllegalArgumentException("Nieznany indeks slownika: " + index);
+        }
+        return DICTIONARY_ARRAY[index];
+    }
+    //dlugosc nie wieksza niz pozostale bajty, kazdy element zajmuje co najmniej bajt
+    private static int readLength(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Nieprawidlowa dlugosc: " + length);
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readLength(in);
+        if (!in.hasArray()) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Zbyt duza liczba: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Nieprawidlowy varint.");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        private Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void write(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
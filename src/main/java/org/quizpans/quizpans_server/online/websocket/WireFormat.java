@@ -0,0 +1,36 @@
+package org.quizpans.quizpans_server.online.websocket;
+// format wiadomosci sesji wybierany podprotokolem websocket, bez naglowka json jak dotad
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+public enum WireFormat {
+    JSON("quizpans.json.v1"),
+    BINARY("quizpans.bin.v1");
+
+    private final String subProtocol;
+
+    WireFormat(String subProtocol) {
+        this.subProtocol = subProtocol;
+    }
+
+    public String getSubProtocol() {
+        return subProtocol;
+    }
+
+    public static List<String> subProtocols() {
+        return List.of(BINARY.subProtocol, JSON.subProtocol);
+    }
+
+    public static WireFormat of(WebSocketSession session) {
+        return BINARY.subProtocol.equals(session.getAcceptedProtocol()) ? BINARY : JSON;
+    }
+    //ten sam wybor co przy negocjacji: pierwszy znany podprotokol z listy klienta
+    public static WireFormat fromRequested(List<String> requestedProtocols) {
+        for (String protocol : requestedProtocols) {
+            if (BINARY.subProtocol.equals(protocol)) return BINARY;
+            if (JSON.subProtocol.equals(protocol)) return JSON;
+        }
+        return JSON;
+    }
+}
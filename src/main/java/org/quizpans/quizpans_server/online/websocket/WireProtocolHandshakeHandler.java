@@ -0,0 +1,72 @@
+package org.quizpans.quizpans_server.online.websocket;
+// permessage-deflate tylko dla klientow json, zapis binarny jest juz zwarty a kompresja kosztuje procesor
+// tomcat sam negocjuje rozszerzenia z zainstalowanych, wiec rejestracja endpointu zwraca tylko te wybrane tutaj
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.Extension;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.standard.ServerEndpointRegistration;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class WireProtocolHandshakeHandler extends DefaultHandshakeHandler {
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean deflateForJson;
+
+    public WireProtocolHandshakeHandler(boolean deflateForJson) {
+        super(new SelectedExtensionsUpgradeStrategy());
+        this.deflateForJson = deflateForJson;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted = new ArrayList<>(super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions));
+        accepted.removeIf(extension -> PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()));
+        WireFormat format = WireFormat.fromRequested(new WebSocketHttpHeaders(request.getHeaders()).getSecWebSocketProtocol());
+        //tomcat ma deflate wbudowany, choc nie zglasza go jako zainstalowanego rozszerzenia
+        if (deflateForJson && format == WireFormat.JSON) {
+            requestedExtensions.stream()
+                    .filter(extension -> PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+                    .findFirst()
+                    .ifPresent(accepted::add);
+        }
+        return accepted;
+    }
+
+    private static final class SelectedExtensionsUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+        @Override
+        protected void upgradeInternal(ServerHttpRequest request, ServerHttpResponse response, String selectedProtocol,
+                                       List<Extension> selectedExtensions, Endpoint endpoint) throws HandshakeFailureException {
+            HttpServletRequest servletRequest = getHttpServletRequest(request);
+            Set<String> selectedNames = selectedExtensions.stream().map(Extension::getName).collect(Collectors.toSet());
+            ServerEndpointRegistration endpointConfig = new ServerEndpointRegistration(servletRequest.getRequestURI(), endpoint) {
+                @Override
+                public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+                    return super.getNegotiatedExtensions(installed, requested).stream()
+                            .filter(extension -> selectedNames.contains(extension.getName()))
+                            .toList();
+                }
+            };
+            endpointConfig.setSubprotocols(Collections.singletonList(selectedProtocol));
+            endpointConfig.setExtensions(selectedExtensions);
+            try {
+                upgradeHttpToWebSocket(servletRequest, getHttpServletResponse(response), endpointConfig, Collections.emptyMap());
+            } catch (Exception e) {
+                throw new HandshakeFailureException("Nieudane przejscie na websocket: " + request.getURI(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.quizpans.quizpans_server.online.websocket.action;
+// akcje klienta jako typowane rekordy, dekodowane przez ClientActionDecoder
+// brakujace pola zostaja null, ich sprawdzenie i komunikaty zostaja w handlerze
+import org.quizpans.quizpans_server.online.model.GameSettings;
+
+import java.util.Set;
+
+public sealed interface ClientAction {
+
+    //rekordy nazwane jak akcje protokolu: SubmitAnswer -> submitAnswer
+    ClassValue<String> ACTION_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            String name = type.getSimpleName();
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    };
+
+    String lobbyId();
+
+    default String actionName() {
+        return ACTION_NAMES.get(getClass());
+    }
+    //akcje obslugiwane na wezle klienta, nie przekazywane do wlasciciela lobby
+    default boolean handledLocally() {
+        return false;
+    }
+
+    record GetAllLobbies() implements ClientAction {
+        @Override public String lobbyId() { return null; }
+        @Override public boolean handledLocally() { return true; }
+    }
+
+    record AckVersion(String lobbyId, Long version) implements ClientAction {
+        @Override public boolean handledLocally() { return true; }
+    }
+
+    record Resync(String lobbyId) implements ClientAction {
+        @Override public boolean handledLocally() { return true; }
+    }
+
+    //widz dostaje ramki lobby z wezla, do ktorego jest podlaczony
+    record SpectateLobby(String lobbyId) implements ClientAction {
+        @Override public boolean handledLocally() { return true; }
+    }
+
+    //nowe polaczenie przejmuje sesje sprzed zerwania; version to ostatnia znana wersja lobby lobbyId
+    record ResumeSession(String lobbyId, String token, Long version) implements ClientAction {
+        @Override public boolean handledLocally() { return true; }
+    }
+
+    record RequestHostLobby(String lobbyId) implements ClientAction { }
+
+    record ConfigureLobby(String lobbyId, GameSettings gameSettings, String password) implements ClientAction { }
+
+    record PlayerWebJoinRequest(String lobbyId, String nickname, String password) implements ClientAction { }
+
+    record AnnounceWebPlayerInRoom(String lobbyId, String nickname) implements ClientAction { }
+
+    record RegisterHostPanel(String lobbyId) implements ClientAction { }
+
+    record AssignRole(String lobbyId, String participantSessionId, String role, String targetTeamName) implements ClientAction { }
+
+    record UnassignParticipant(String lobbyId, String participantSessionId) implements ClientAction { }
+
+    record LeaveLobby(String lobbyId) implements ClientAction { }
+
+    record RemoveParticipantFromLobby(String lobbyId, String participantSessionId) implements ClientAction { }
+
+    record StartGame(String lobbyId) implements ClientAction { }
+
+    record RequestInitialQuestion(String lobbyId, Set<Integer> usedQuestionIds) implements ClientAction { }
+
+    record RequestNewQuestion(String lobbyId, Set<Integer> usedQuestionIds) implements ClientAction { }
+
+    record SubmitAnswer(String lobbyId, String answer, String playerSessionId) implements ClientAction { }
+
+    record ValidateAnswer(String lobbyId, String playerSessionId, Boolean isCorrect, String matchedAnswer) implements ClientAction { }
+
+    record RevealAnswerByHost(String lobbyId, String answerText) implements ClientAction { }
+
+    record RevealQuestion(String lobbyId) implements ClientAction { }
+
+    //prowadzacy otwiera runde odpowiedzi publicznosci na odkryte pytanie
+    record OpenAudienceRound(String lobbyId) implements ClientAction { }
+
+    //uczestnik albo widz; team brany pod uwage tylko u widza
+    record AudienceAnswer(String lobbyId, String answer, String team) implements ClientAction { }
+}
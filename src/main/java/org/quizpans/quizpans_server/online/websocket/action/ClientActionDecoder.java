@@ -0,0 +1,329 @@
+package org.quizpans.quizpans_server.online.websocket.action;
+// strumieniowe dekodowanie akcji klienta bez posredniej mapy
+// najpierw pole action wybiera rekord, kolejne pola czytane wprost do jego slotow
+// pola przed action (klient nie musi trzymac kolejnosci) buforowane jako drzewo i czytane po wyborze akcji
+// nieznane pola pomijane, zly typ, powtorzone pole albo nadmiarowe dane odrzucane z nazwa pola
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.internal.bind.JsonTreeReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+public final class ClientActionDecoder {
+
+    enum FieldType {
+        STRING("tekstu"),
+        LONG("liczby całkowitej"),
+        BOOLEAN("wartości logicznej"),
+        INT_SET("tablicy liczb całkowitych"),
+        GAME_SETTINGS("obiektu ustawień gry");
+
+        private final String expected;
+
+        FieldType(String expected) {
+            this.expected = expected;
+        }
+    }
+
+    private record Field(String name, FieldType type) {
+    }
+
+    private static final class ActionSpec {
+        private final String action;
+        private final Field[] fields;
+        private final Function<Slots, ClientAction> factory;
+
+        private ActionSpec(String action, Function<Slots, ClientAction> factory, Field... fields) {
+            this.action = action;
+            this.fields = fields;
+            this.factory = factory;
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].name().equals(name)) return i;
+            }
+            return -1;
+        }
+    }
+    //wartosci pol w kolejnosci ze specyfikacji akcji
+    private static final class Slots {
+        private final Object[] values;
+
+        private Slots(int size) {
+            this.values = new Object[size];
+        }
+
+        private String string(int index) {
+            return (String) values[index];
+        }
+
+        private Long number(int index) {
+            return (Long) values[index];
+        }
+
+        private Boolean bool(int index) {
+            return (Boolean) values[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<Integer> ids(int index) {
+            Set<Integer> ids = (Set<Integer>) values[index];
+            return ids != null ? ids : Set.of();
+        }
+
+        private GameSettings settings(int index) {
+            return (GameSettings) values[index];
+        }
+    }
+
+    private static final String ACTION_FIELD = "action";
+    private static final Field LOBBY_ID = new Field("lobbyId", FieldType.STRING);
+    private static final Map<String, ActionSpec> SPECS = new HashMap<>();
+
+    static {
+        register(new ActionSpec("getAllLobbies", s -> new ClientAction.GetAllLobbies()));
+        register(new ActionSpec("ackVersion", s -> new ClientAction.AckVersion(s.string(0), s.number(1)),
+                LOBBY_ID, new Field("version", FieldType.LONG)));
+        register(new ActionSpec("resync", s -> new ClientAction.Resync(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("spectateLobby", s -> new ClientAction.SpectateLobby(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("resumeSession", s -> new ClientAction.ResumeSession(s.string(0), s.string(1), s.number(2)),
+                LOBBY_ID, new Field("token", FieldType.STRING), new Field("version", FieldType.LONG)));
+        register(new ActionSpec("requestHostLobby", s -> new ClientAction.RequestHostLobby(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("configureLobby", s -> new ClientAction.ConfigureLobby(s.string(0), s.settings(1), s.string(2)),
+                LOBBY_ID, new Field("gameSettings", FieldType.GAME_SETTINGS), new Field("password", FieldType.STRING)));
+        register(new ActionSpec("playerWebJoinRequest", s -> new ClientAction.PlayerWebJoinRequest(s.string(0), s.string(1), s.string(2)),
+                LOBBY_ID, new Field("nickname", FieldType.STRING), new Field("password", FieldType.STRING)));
+        register(new ActionSpec("announceWebPlayerInRoom", s -> new ClientAction.AnnounceWebPlayerInRoom(s.string(0), s.string(1)),
+                LOBBY_ID, new Field("nickname", FieldType.STRING)));
+        register(new ActionSpec("registerHostPanel", s -> new ClientAction.RegisterHostPanel(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("assignRole", s -> new ClientAction.AssignRole(s.string(0), s.string(1), s.string(2), s.string(3)),
+                LOBBY_ID, new Field("participantSessionId", FieldType.STRING), new Field("role", FieldType.STRING),
+                new Field("targetTeamName", FieldType.STRING)));
+        register(new ActionSpec("unassignParticipant", s -> new ClientAction.UnassignParticipant(s.string(0), s.string(1)),
+                LOBBY_ID, new Field("participantSessionId", FieldType.STRING)));
+        register(new ActionSpec("leaveLobby", s -> new ClientAction.LeaveLobby(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("removeParticipantFromLobby", s -> new ClientAction.RemoveParticipantFromLobby(s.string(0), s.string(1)),
+                LOBBY_ID, new Field("participantSessionId", FieldType.STRING)));
+        register(new ActionSpec("startGame", s -> new ClientAction.StartGame(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("requestInitialQuestion", s -> new ClientAction.RequestInitialQuestion(s.string(0), s.ids(1)),
+                LOBBY_ID, new Field("usedQuestionIds", FieldType.INT_SET)));
+        register(new ActionSpec("requestNewQuestion", s -> new ClientAction.RequestNewQuestion(s.string(0), s.ids(1)),
+                LOBBY_ID, new Field("usedQuestionIds", FieldType.INT_SET)));
+        register(new ActionSpec("submitAnswer", s -> new ClientAction.SubmitAnswer(s.string(0), s.string(1), s.string(2)),
+                LOBBY_ID, new Field("answer", FieldType.STRING), new Field("playerSessionId", FieldType.STRING)));
+        register(new ActionSpec("validateAnswer", s -> new ClientAction.ValidateAnswer(s.string(0), s.string(1), s.bool(2), s.string(3)),
+                LOBBY_ID, new Field("playerSessionId", FieldType.STRING), new Field("isCorrect", FieldType.BOOLEAN),
+                new Field("matchedAnswer", FieldType.STRING)));
+        register(new ActionSpec("revealAnswerByHost", s -> new ClientAction.RevealAnswerByHost(s.string(0), s.string(1)),
+                LOBBY_ID, new Field("answerText", FieldType.STRING)));
+        register(new ActionSpec("revealQuestion", s -> new ClientAction.RevealQuestion(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("openAudienceRound", s -> new ClientAction.OpenAudienceRound(s.string(0)), LOBBY_ID));
+        register(new ActionSpec("audienceAnswer", s -> new ClientAction.AudienceAnswer(s.string(0), s.string(1), s.string(2)),
+                LOBBY_ID, new Field("answer", FieldType.STRING), new Field("team", FieldType.STRING)));
+    }
+
+    private static void register(ActionSpec spec) {
+        SPECS.put(spec.action, spec);
+    }
+
+    private ClientActionDecoder() {
+    }
+
+    static Set<String> actionNames() {
+        return SPECS.keySet();
+    }
+
+    public static ClientAction decode(String json) {
+        JsonReader in = new JsonReader(new StringReader(json));
+        try {
+            ClientAction action = readAction(in);
+            if (!atEnd(in)) {
+                throw new MalformedActionException("Nadmiarowe dane po wiadomości (" + in.getPath() + ").");
+            }
+            return action;
+        } catch (IOException | IllegalStateException e) {
+            throw new MalformedActionException("Błąd formatu JSON (" + in.getPath() + ").", e);
+        }
+    }
+    //czytnik w trybie scislym zglasza druga wartosc najwyzszego poziomu jako blad skladni
+    private static boolean atEnd(JsonReader in) {
+        try {
+            return in.peek() == JsonToken.END_DOCUMENT;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    //drzewo z wiadomosci binarnej
+    public static ClientAction decode(JsonElement tree) {
+        JsonReader in = new JsonTreeReader(tree);
+        try {
+            return readAction(in);
+        } catch (IOException | IllegalStateException e) {
+            throw new MalformedActionException("Błąd formatu wiadomości (" + in.getPath() + ").", e);
+        }
+    }
+
+    private static ClientAction readAction(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new MalformedActionException("Wiadomość musi być obiektem JSON, otrzymano " + in.peek() + ".");
+        }
+        in.beginObject();
+        ActionSpec spec = null;
+        Slots slots = null;
+        Set<String> seen = new HashSet<>();
+        List<Map.Entry<String, JsonElement>> beforeAction = null;
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (!seen.add(name)) {
+                throw new MalformedActionException("Powtórzone pole '" + name + "'.");
+            }
+            if (ACTION_FIELD.equals(name)) {
+                if (in.peek() != JsonToken.STRING) {
+                    throw new MalformedActionException("Pole 'action' musi być tekstem, otrzymano " + in.peek() + ".");
+                }
+                String action = in.nextString();
+                spec = SPECS.get(action);
+                if (spec == null) {
+                    throw new MalformedActionException("Nieznana akcja: " + action);
+                }
+                slots = new Slots(spec.fields.length);
+                if (beforeAction != null) {
+                    for (Map.Entry<String, JsonElement> field : beforeAction) {
+                        readField(spec, slots, field.getKey(), new JsonTreeReader(field.getValue()));
+                    }
+                }
+            } else if (spec != null) {
+                readField(spec, slots, name, in);
+            } else {
+                if (beforeAction == null) beforeAction = new ArrayList<>(4);
+                beforeAction.add(Map.entry(name, JsonParser.parseReader(in)));
+            }
+        }
+        in.endObject();
+        if (spec == null) {
+            throw new MalformedActionException("Brakująca akcja w wiadomości.");
+        }
+        return spec.factory.apply(slots);
+    }
+
+    private static void readField(ActionSpec spec, Slots slots, String name, JsonReader in) throws IOException {
+        int index = spec.indexOf(name);
+        if (index < 0) {
+            in.skipValue();
+            return;
+        }
+        Field field = spec.fields[index];
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        slots.values[index] = switch (field.type()) {
+            case STRING -> {
+                expect(in, JsonToken.STRING, spec, field);
+                yield in.nextString();
+            }
+            case LONG -> {
+                expect(in, JsonToken.NUMBER, spec, field);
+                yield readLong(in, spec, field);
+            }
+            case BOOLEAN -> {
+                expect(in, JsonToken.BOOLEAN, spec, field);
+                yield in.nextBoolean();
+            }
+            case INT_SET -> readIds(in, spec, field);
+            case GAME_SETTINGS -> readSettings(in, spec, field);
+        };
+    }
+
+    private static Set<Integer> readIds(JsonReader in, ActionSpec spec, Field field) throws IOException {
+        expect(in, JsonToken.BEGIN_ARRAY, spec, field);
+        Set<Integer> ids = new HashSet<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            expect(in, JsonToken.NUMBER, spec, field);
+            long id = readLong(in, spec, field);
+            if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+                throw invalid(spec, field, "liczba poza zakresem");
+            }
+            ids.add((int) id);
+        }
+        in.endArray();
+        return ids;
+    }
+    //brakujace pola jak przy Gson dla rekordu: 0 albo null
+    private static GameSettings readSettings(JsonReader in, ActionSpec spec, Field field) throws IOException {
+        expect(in, JsonToken.BEGIN_OBJECT, spec, field);
+        String category = null;
+        String teamBlueName = null;
+        String teamRedName = null;
+        int answerTime = 0;
+        int numberOfRounds = 0;
+        int maxPlayersPerTeam = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            Field nested = new Field(field.name() + "." + name, FieldType.STRING);
+            switch (name) {
+                case "category" -> category = readNestedString(in, spec, nested);
+                case "teamBlueName" -> teamBlueName = readNestedString(in, spec, nested);
+                case "teamRedName" -> teamRedName = readNestedString(in, spec, nested);
+                case "answerTime" -> answerTime = readNestedInt(in, spec, nested);
+                case "numberOfRounds" -> numberOfRounds = readNestedInt(in, spec, nested);
+                case "maxPlayersPerTeam" -> maxPlayersPerTeam = readNestedInt(in, spec, nested);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new GameSettings(category, answerTime, numberOfRounds, maxPlayersPerTeam, teamBlueName, teamRedName);
+    }
+
+    private static String readNestedString(JsonReader in, ActionSpec spec, Field field) throws IOException {
+        expect(in, JsonToken.STRING, spec, field);
+        return in.nextString();
+    }
+
+    private static int readNestedInt(JsonReader in, ActionSpec spec, Field field) throws IOException {
+        Field numeric = new Field(field.name(), FieldType.LONG);
+        expect(in, JsonToken.NUMBER, spec, numeric);
+        long value = readLong(in, spec, numeric);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalid(spec, numeric, "liczba poza zakresem");
+        }
+        return (int) value;
+    }
+
+    private static long readLong(JsonReader in, ActionSpec spec, Field field) throws IOException {
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw invalid(spec, field, "oczekiwano " + FieldType.LONG.expected);
+        }
+    }
+
+    private static void expect(JsonReader in, JsonToken token, ActionSpec spec, Field field) throws IOException {
+        JsonToken actual = in.peek();
+        if (actual != token) {
+            throw invalid(spec, field, "oczekiwano " + field.type().expected + ", otrzymano " + actual);
+        }
+    }
+
+    private static MalformedActionException invalid(ActionSpec spec, Field field, String problem) {
+        return new MalformedActionException("Pole '" + field.name() + "' w akcji " + spec.action + ": " + problem + ".");
+    }
+}
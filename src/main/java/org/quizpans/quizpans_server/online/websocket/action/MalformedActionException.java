@@ -0,0 +1,11 @@
+package org.quizpans.quizpans_server.online.websocket.action;
+//odrzucona wiadomosc klienta, komunikat trafia do klienta jako blad
+public class MalformedActionException extends IllegalArgumentException {
+    public MalformedActionException(String message) {
+        super(message);
+    }
+
+    public MalformedActionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
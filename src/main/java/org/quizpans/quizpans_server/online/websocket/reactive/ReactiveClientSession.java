@@ -0,0 +1,193 @@
+package org.quizpans.quizpans_server.online.websocket.reactive;
+// sesja klienta transportu netty widziana przez handler jak zwykla WebSocketSession
+// wysylka czeka na wolne miejsce w oknie ramek, miejsce zwalnia netty gdy kanal przyjmie ramke
+// blokuje tylko wirtualny watek pisarza kolejki wyjsciowej, przy zbyt dlugim czekaniu sesje zamyka straznik kolejek
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+class ReactiveClientSession implements WebSocketSession {
+    private final String id = UUID.randomUUID().toString();
+    private final URI uri;
+    private final HttpHeaders handshakeHeaders;
+    private final InetSocketAddress localAddress;
+    private final InetSocketAddress remoteAddress;
+    private final String acceptedProtocol;
+    private final int maxMessageBytes;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final Semaphore window;
+    private final Sinks.Many<WebSocketFrame> outbound = Sinks.many().unicast().onBackpressureBuffer();
+    private volatile boolean open = true;
+    private volatile CloseStatus closeStatus;
+
+    ReactiveClientSession(URI uri, HttpHeaders handshakeHeaders, InetSocketAddress localAddress, InetSocketAddress remoteAddress,
+                          String acceptedProtocol, int maxMessageBytes, int outboundWindow) {
+        this.uri = uri;
+        this.handshakeHeaders = handshakeHeaders;
+        this.localAddress = localAddress;
+        this.remoteAddress = remoteAddress;
+        this.acceptedProtocol = acceptedProtocol;
+        this.maxMessageBytes = maxMessageBytes;
+        this.window = new Semaphore(outboundWindow);
+    }
+    //ramki dla kanalu; netty pobiera kolejne tylko gdy kanal jest zapisywalny
+    Flux<WebSocketFrame> outboundFrames() {
+        return outbound.asFlux().doOnNext(frame -> window.release());
+    }
+
+    //status zamkniecia od serwera, null gdy zamknal klient
+    CloseStatus getCloseStatus() {
+        return closeStatus;
+    }
+
+    void markClosed() {
+        open = false;
+        synchronized (outbound) {
+            outbound.tryEmitComplete();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        WebSocketFrame frame = toFrame(message);
+        try {
+            while (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                if (!open) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Przerwano wysyłanie.", e);
+        }
+        if (!open) {
+            throw new IOException("Sesja jest zamknięta.");
+        }
+        emit(frame);
+    }
+
+    private void emit(WebSocketFrame frame) throws IOException {
+        Sinks.EmitResult result;
+        synchronized (outbound) {
+            result = outbound.tryEmitNext(frame);
+        }
+        if (result.isFailure()) {
+            frame.release();
+            throw new IOException("Nie udało się wysłać ramki: " + result);
+        }
+    }
+
+    private static WebSocketFrame toFrame(WebSocketMessage<?> message) throws IOException {
+        if (message instanceof TextMessage text) {
+            return new TextWebSocketFrame(Unpooled.wrappedBuffer(text.asBytes()));
+        }
+        if (message instanceof BinaryMessage binary) {
+            return new BinaryWebSocketFrame(Unpooled.wrappedBuffer(binary.getPayload()));
+        }
+        if (message instanceof PingMessage ping) {
+            return new PingWebSocketFrame(Unpooled.wrappedBuffer(ping.getPayload()));
+        }
+        throw new IOException("Nieobsługiwany typ wiadomości: " + message.getClass().getSimpleName());
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+    //koniec strumienia, ramke zamkniecia wysyla serwer po ostatniej ramce z kolejki
+    @Override
+    public void close(CloseStatus status) {
+        if (!open) return;
+        closeStatus = status;
+        markClosed();
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return handshakeHeaders;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return maxMessageBytes;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return maxMessageBytes;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+}
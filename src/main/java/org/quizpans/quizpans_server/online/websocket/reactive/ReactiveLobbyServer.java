@@ -0,0 +1,164 @@
+package org.quizpans.quizpans_server.online.websocket.reactive;
+// drugi transport /lobby na reactor-netty obok tomcata, dla wezlow z dziesiatkami tysiecy polaczen
+// petla zdarzen netty tylko kopiuje ramki, komendy ida do tego samego handlera na wirtualnych watkach
+// concatMap po jednej wiadomosci: kolejnosc jak w tomcacie, a nowe ramki czytane dopiero po obsluzeniu poprzedniej
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.quizpans.quizpans_server.online.websocket.LobbyWebSocketHandler;
+import org.quizpans.quizpans_server.online.websocket.WireFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.WebsocketServerSpec;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class ReactiveLobbyServer {
+    private final LobbyWebSocketHandler handler;
+    private final boolean enabled;
+    private final int port;
+    private final int outboundWindow;
+    private final int maxMessageBytes;
+    //wirtualne watki nie trzymaja zasobow, planisty nie zamykamy: polaczenia zamykane po disposeNow nadal sprzataja sesje
+    private final Scheduler handlerScheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "quizpans-reactive");
+    private DisposableServer server;
+
+    public ReactiveLobbyServer(LobbyWebSocketHandler handler,
+                               @Value("${quizpans.reactive.enabled:false}") boolean enabled,
+                               @Value("${quizpans.reactive.port:8081}") int port,
+                               @Value("${quizpans.reactive.outbound-window:64}") int outboundWindow,
+                               @Value("${quizpans.admission.max-message-bytes:65536}") int maxMessageBytes) {
+        this.handler = handler;
+        this.enabled = enabled;
+        this.port = port;
+        this.outboundWindow = outboundWindow;
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        //wieksze ramki netty zamyka kodem 1009 jak kontener tomcata
+        WebsocketServerSpec spec = WebsocketServerSpec.builder()
+                .protocols(String.join(",", WireFormat.subProtocols()))
+                .maxFramePayloadLength(maxMessageBytes)
+                .build();
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.get("/lobby", (request, response) -> upgrade(request, response, spec)))
+                .bindNow();
+        System.out.println("ReactiveLobbyServer: transport /lobby na porcie " + server.port());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.port() : -1;
+    }
+
+    private Mono<Void> upgrade(HttpServerRequest request, HttpServerResponse response, WebsocketServerSpec spec) {
+        HttpHeaders headers = new HttpHeaders();
+        request.requestHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        URI uri = URI.create(request.scheme() + "://" + request.requestHeaders().get("Host", "localhost") + request.uri());
+        InetSocketAddress local = request.hostAddress();
+        InetSocketAddress remote = request.remoteAddress();
+        return response.sendWebsocket((in, out) -> serve(in, out, uri, headers, local, remote), spec);
+    }
+
+    private Mono<Void> serve(WebsocketInbound in, WebsocketOutbound out, URI uri, HttpHeaders headers,
+                             InetSocketAddress local, InetSocketAddress remote) {
+        ReactiveClientSession session = new ReactiveClientSession(uri, headers, local, remote,
+                in.selectedSubprotocol(), maxMessageBytes, outboundWindow);
+        AtomicReference<CloseStatus> closeStatus = new AtomicReference<>(CloseStatus.NO_STATUS_CODE);
+        in.receiveCloseStatus().subscribe(status -> closeStatus.set(new CloseStatus(status.code(), status.reasonText())));
+
+        Mono<Void> inbound = Mono.fromCallable(() -> {
+                    handler.afterConnectionEstablished(session);
+                    return session;
+                })
+                .subscribeOn(handlerScheduler)
+                .thenMany(in.aggregateFrames(maxMessageBytes).receiveFrames()
+                        //bufor ramki wraca do puli po onNext, wiec kopia jeszcze na petli zdarzen
+                        .<WebSocketMessage<?>>handle((frame, sink) -> {
+                            WebSocketMessage<?> message = toMessage(frame);
+                            if (message != null) sink.next(message);
+                        })
+                        .concatMap(message -> Mono.fromRunnable(() -> handleMessage(session, message))
+                                .subscribeOn(handlerScheduler), 1))
+                .then()
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> {
+                    session.markClosed();
+                    handlerScheduler.schedule(() -> closed(session, closeStatus.get()));
+                });
+        //ramki do klienta pobierane wedlug zapisywalnosci kanalu; koniec strumienia = ramka zamkniecia
+        Mono<Void> outbound = out.sendObject(session.outboundFrames()).then()
+                .then(Mono.defer(() -> {
+                    CloseStatus status = session.getCloseStatus();
+                    return status != null ? out.sendClose(status.getCode(), status.getReason()) : Mono.<Void>empty();
+                }))
+                .onErrorResume(e -> Mono.empty());
+        return Mono.when(inbound, outbound);
+    }
+
+    private void handleMessage(ReactiveClientSession session, WebSocketMessage<?> message) {
+        try {
+            handler.handleMessage(session, message);
+        } catch (Exception e) {
+            System.err.println("ReactiveLobbyServer: błąd obsługi wiadomości sesji " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void closed(ReactiveClientSession session, CloseStatus status) {
+        try {
+            handler.afterConnectionClosed(session, status);
+        } catch (Exception e) {
+            System.err.println("ReactiveLobbyServer: błąd zamykania sesji " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static WebSocketMessage<?> toMessage(WebSocketFrame frame) {
+        if (frame instanceof TextWebSocketFrame text) {
+            return new TextMessage(text.text());
+        }
+        if (frame instanceof BinaryWebSocketFrame binary) {
+            byte[] payload = new byte[binary.content().readableBytes()];
+            binary.content().getBytes(binary.content().readerIndex(), payload);
+            return new BinaryMessage(ByteBuffer.wrap(payload));
+        }
+        //pong z odpowiedzia na ping heartbeatu
+        if (frame instanceof PongWebSocketFrame) {
+            return new PongMessage();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package org.quizpans.quizpans_server.utils;
+// cache z limitem wpisow, klucze z odpowiedzi graczy i publicznosci nie rosna bez konca
+// dwa pokolenia: pelne biezace staje sie starym, stare znika, trafienie w starym wraca do biezacego
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class BoundedCache<V> {
+    private final int maxEntriesPerGeneration;
+    private volatile Map<String, V> current = new ConcurrentHashMap<>();
+    private volatile Map<String, V> previous = new ConcurrentHashMap<>();
+
+    public BoundedCache(int maxEntriesPerGeneration) {
+        if (maxEntriesPerGeneration <= 0) {
+            throw new IllegalArgumentException("Limit wpisów cache musi być dodatni.");
+        }
+        this.maxEntriesPerGeneration = maxEntriesPerGeneration;
+    }
+    //rownoczesne chybienia tego samego klucza licza wartosc raz, jak computeIfAbsent
+    public V get(String key, Function<String, V> compute) {
+        V value = current.get(key);
+        if (value != null) return value;
+        rotateIfFull();
+        Map<String, V> older = previous;
+        return current.computeIfAbsent(key, k -> {
+            V promoted = older.get(k);
+            return promoted != null ? promoted : compute.apply(k);
+        });
+    }
+
+    private void rotateIfFull() {
+        Map<String, V> generation = current;
+        if (generation.size() < maxEntriesPerGeneration) return;
+        synchronized (this) {
+            if (current == generation) {
+                previous = generation;
+                current = new ConcurrentHashMap<>();
+            }
+        }
+    }
+
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    public synchronized void clear() {
+        current = new ConcurrentHashMap<>();
+        previous = new ConcurrentHashMap<>();
+    }
+}
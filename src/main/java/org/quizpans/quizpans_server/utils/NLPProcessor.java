@@ -11,7 +11,8 @@ import java.util.stream.Collectors;
 
 public class NLPProcessor {
     private static final Set<String> STOP_WORDS = Set.of("i", "lub", "czy", "a", "w", "na", "do", "się");
-    private final LemmatizerME lemmatizer;
+    //model wspoldzielony, LemmatizerME trzyma stan dekodowania wiec jeden na watek
+    private final ThreadLocal<LemmatizerME> lemmatizer;
 
     public NLPProcessor() {
         try (InputStream modelStream = NLPProcessor.class.getResourceAsStream("/opennlp-pl-ud-pdb-lemmas-1.2-2.5.0.bin")) {
@@ -19,7 +20,7 @@ public class NLPProcessor {
                 throw new RuntimeException("Nie można znaleźć pliku modelu lematyzatora w classpath: /opennlp-pl-ud-pdb-lemmas-1.2-2.5.0.bin");
             }
             LemmatizerModel model = new LemmatizerModel(modelStream);
-            this.lemmatizer = new LemmatizerME(model);
+            this.lemmatizer = ThreadLocal.withInitial(() -> new LemmatizerME(model));
         } catch (Exception e) {
             throw new RuntimeException("Błąd inicjalizacji procesora NLP", e);
         }
@@ -27,7 +28,7 @@ public class NLPProcessor {
 
     public List<String> processText(String text) {
         String[] tokens = SimpleTokenizer.INSTANCE.tokenize(text);
-        String[] lemmas = lemmatizer.lemmatize(tokens, new String[tokens.length]);
+        String[] lemmas = lemmatizer.get().lemmatize(tokens, new String[tokens.length]);
         return Arrays.stream(lemmas)
                 .filter(lemma -> !STOP_WORDS.contains(lemma))
                 .collect(Collectors.toList());
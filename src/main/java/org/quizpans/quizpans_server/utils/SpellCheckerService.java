@@ -34,7 +34,11 @@ public class SpellCheckerService {
         }
         String trimmedWord = word.trim();
         try {
-            List<RuleMatch> matches = langTool.check(trimmedWord);
+            //JLanguageTool nie jest bezpieczny watkowo, a instancja na watek jest za ciezka
+            List<RuleMatch> matches;
+            synchronized (langTool) {
+                matches = langTool.check(trimmedWord);
+            }
             for (RuleMatch match : matches) {
                 if (!match.getSuggestedReplacements().isEmpty()) {
                     String suggestion = match.getSuggestedReplacements().get(0);
@@ -2,9 +2,7 @@ package org.quizpans.quizpans_server.utils;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -12,8 +10,10 @@ public class TextNormalizer {
     private static NLPProcessor nlpProcessorInstance;
     private static boolean nlpProcessorInitialized = false;
 
-    private static final Map<String, String> normalizationCacheSingleString = new ConcurrentHashMap<>();
-    private static final Map<String, List<String>> normalizationCacheTokenList = new ConcurrentHashMap<>();
+    //odpowiedzi publicznosci (do 200 znakow) tez trafiaja do cache, stad limit na pokolenie
+    private static final int MAX_CACHE_ENTRIES = 10_000;
+    private static final BoundedCache<String> normalizationCacheSingleString = new BoundedCache<>(MAX_CACHE_ENTRIES);
+    private static final BoundedCache<List<String>> normalizationCacheTokenList = new BoundedCache<>(MAX_CACHE_ENTRIES);
 
     private static final Set<String> STOP_WORDS = Set.of(
             "ach", "aj", "albo", "ależ", "aż", "bardziej", "bardzo", "bez", "bo", "bowiem", "by", "byli", "bym", "byś", "był", "była", "było",
@@ -88,7 +88,7 @@ public class TextNormalizer {
             return "";
         }
         String cacheKey = text.trim() + "_stopwords:true_spellcheck:LT_lemmatizer:" + nlpProcessorInitialized;
-        return normalizationCacheSingleString.computeIfAbsent(cacheKey, key -> {
+        return normalizationCacheSingleString.get(cacheKey, key -> {
             List<String> lemmas = lemmatizeAndClean(text.trim(), true);
             return String.join("", lemmas);
         });
@@ -99,7 +99,7 @@ public class TextNormalizer {
             return new ArrayList<>();
         }
         String cacheKey = text.trim() + "_stopwords:" + removeStopWords + "_spellcheck:LT_lemmatizer:" + nlpProcessorInitialized;
-        return normalizationCacheTokenList.computeIfAbsent(cacheKey, k ->
+        return normalizationCacheTokenList.get(cacheKey, k ->
                 lemmatizeAndClean(text.trim(), removeStopWords)
         );
     }
@@ -3,7 +3,7 @@ package org.quizpans.quizpans_server;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class QuizpansServerApplicationTests {
 
 	@Test
@@ -0,0 +1,84 @@
+package org.quizpans.quizpans_server.game;
+// korpus pytan i wpisow graczy z answer-corpus.txt, pytania kompilowane bez bazy danych
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+final class AnswerCorpus {
+    private static final String CORPUS_PATH = "/answer-corpus.txt";
+
+    record Attempt(String kind, String text, GameService.CompiledQuestion question) {
+    }
+
+    private final List<GameService.CompiledQuestion> questions;
+    private final List<Attempt> attempts;
+
+    private AnswerCorpus(List<GameService.CompiledQuestion> questions, List<Attempt> attempts) {
+        this.questions = questions;
+        this.attempts = attempts;
+    }
+
+    static AnswerCorpus load() {
+        List<String[]> lines = new ArrayList<>();
+        try (InputStream is = AnswerCorpus.class.getResourceAsStream(CORPUS_PATH)) {
+            if (is == null) {
+                throw new IllegalStateException("Nie można znaleźć korpusu w classpath: " + CORPUS_PATH);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                lines.add(line.split("\\|"));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        //pytanie kompilowane po zebraniu odpowiedzi, wpisy graczy dopiero po nim
+        List<GameService.CompiledQuestion> questions = new ArrayList<>();
+        List<Attempt> attempts = new ArrayList<>();
+        List<String[]> pendingAttempts = new ArrayList<>();
+        String[] header = null;
+        List<String> answerTexts = new ArrayList<>();
+        List<Integer> answerPoints = new ArrayList<>();
+        for (int i = 0; i <= lines.size(); i++) {
+            String[] parts = i < lines.size() ? lines.get(i) : null;
+            if (parts == null || parts[0].equals("Q")) {
+                if (header != null) {
+                    GameService.CompiledQuestion question = GameService.compileQuestion(Integer.parseInt(header[1]), header[2], answerTexts, answerPoints);
+                    questions.add(question);
+                    for (String[] attempt : pendingAttempts) {
+                        attempts.add(new Attempt(attempt[0], attempt[1], question));
+                    }
+                }
+                header = parts;
+                answerTexts = new ArrayList<>();
+                answerPoints = new ArrayList<>();
+                pendingAttempts.clear();
+            } else if (parts[0].equals("A")) {
+                answerTexts.add(parts[1]);
+                answerPoints.add(Integer.parseInt(parts[2]));
+            } else {
+                pendingAttempts.add(parts);
+            }
+        }
+        return new AnswerCorpus(List.copyOf(questions), List.copyOf(attempts));
+    }
+
+    List<GameService.CompiledQuestion> questions() {
+        return questions;
+    }
+
+    List<Attempt> attempts(String kind) {
+        return attempts.stream().filter(a -> a.kind().equals(kind)).toList();
+    }
+
+    List<Attempt> attempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,35 @@
+package org.quizpans.quizpans_server.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerCorpusTest {
+
+    @Test
+    void corpusCompilesOfflineAndExactAnswersMatch() {
+        AnswerCorpus corpus = AnswerCorpus.load();
+        assertEquals(5, corpus.questions().size());
+        for (String kind : List.of("exact", "inflection", "typo", "synonym", "phrase", "miss")) {
+            assertTrue(!corpus.attempts(kind).isEmpty(), "brak wpisow rodzaju " + kind);
+        }
+        for (AnswerCorpus.Attempt attempt : corpus.attempts("exact")) {
+            GameService.AnswerProcessingResult result = attempt.question().evaluate(attempt.text());
+            assertTrue(result.isCorrect, "nie rozpoznano " + attempt.text());
+            assertTrue(attempt.text().equalsIgnoreCase(result.originalAnswerText));
+        }
+    }
+
+    @Test
+    void compiledQuestionKeepsSlotOfEachAnswer() {
+        GameService.CompiledQuestion question = GameService.compileQuestion(9, "Co pijemy rano?",
+                Arrays.asList("Kawa", null, "Herbata", " ", "Sok", null), List.of(50, 0, 30, 0, 20, 0));
+        assertEquals(List.of(0, 2, 4), question.answers().stream().map(GameService.AnswerData::displayOrderIndex).toList());
+        assertEquals(List.of(50, 30, 20), question.answers().stream().map(GameService.AnswerData::points).toList());
+        assertEquals(2, question.evaluate("herbata").answerIndex);
+    }
+}
@@ -0,0 +1,114 @@
+package org.quizpans.quizpans_server.game;
+// etapy oceny odpowiedzi osobno: pisownia, lematyzacja, normalizacja, synonimy i cala ocena, na korpusie answer-corpus.txt
+// cold czysci pamiec podreczna TextNormalizer przed kazdym wywolaniem, warm liczy na wypelnionej; alokacja w gc.alloc.rate.norm
+// uruchomienie bez sieci i bazy: mvn test-compile, potem klasa main z classpath testow, argumenty jak w jmh (np. -p kind=typo)
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.quizpans.quizpans_server.utils.NLPProcessor;
+import org.quizpans.quizpans_server.utils.SpellCheckerService;
+import org.quizpans.quizpans_server.utils.SynonymManager;
+import org.quizpans.quizpans_server.utils.TextNormalizer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswerMatchingBenchmark {
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void clear() {
+            TextNormalizer.clearCache();
+        }
+    }
+
+    @Param({"exact", "inflection", "typo", "synonym", "phrase", "miss"})
+    public String kind;
+
+    private List<AnswerCorpus.Attempt> attempts;
+    private NLPProcessor nlpProcessor;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        attempts = AnswerCorpus.load().attempts(kind);
+        nlpProcessor = new NLPProcessor();
+        for (AnswerCorpus.Attempt attempt : attempts) {
+            attempt.question().evaluate(attempt.text());
+        }
+    }
+    //kolejne wpisy po kolei, zeby nie mierzyc jednego trafienia w pamiec podreczna
+    private AnswerCorpus.Attempt next() {
+        AnswerCorpus.Attempt attempt = attempts.get(cursor);
+        cursor = cursor + 1 == attempts.size() ? 0 : cursor + 1;
+        return attempt;
+    }
+
+    @Benchmark
+    public String spellCheck() {
+        return SpellCheckerService.correctPhrase(next().text());
+    }
+
+    @Benchmark
+    public List<String> lemmatize() {
+        return nlpProcessor.processText(next().text().toLowerCase(Locale.ROOT));
+    }
+
+    @Benchmark
+    public List<String> synonymLookup() {
+        return SynonymManager.findSynonymsFor(next().text());
+    }
+
+    @Benchmark
+    public String normalizeWarm() {
+        return TextNormalizer.normalizeToBaseForm(next().text());
+    }
+
+    @Benchmark
+    public String normalizeCold(ColdCache cold) {
+        return TextNormalizer.normalizeToBaseForm(next().text());
+    }
+
+    @Benchmark
+    public GameService.AnswerProcessingResult evaluateWarm() {
+        AnswerCorpus.Attempt attempt = next();
+        return attempt.question().evaluate(attempt.text());
+    }
+    //zimna ocena normalizuje tez poprawne odpowiedzi pytania, jak pierwsza odpowiedz po starcie serwera
+    @Benchmark
+    public GameService.AnswerProcessingResult evaluateCold(ColdCache cold) {
+        AnswerCorpus.Attempt attempt = next();
+        return attempt.question().evaluate(attempt.text());
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(AnswerMatchingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
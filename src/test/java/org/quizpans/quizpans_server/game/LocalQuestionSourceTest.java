@@ -0,0 +1,43 @@
+package org.quizpans.quizpans_server.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalQuestionSourceTest {
+
+    private static final String QUESTIONS = """
+            # komentarz
+            1|Jedzenie|Co jemy na sniadanie?|Jajka|40|Kanapki|35|Owsianka|25
+
+            2|Dom|Co stoi w kuchni?|Lodowka|60|Kuchenka|40
+            """;
+
+    @Test
+    void filtersByCategoryAndExcludedIds() throws IOException {
+        LocalQuestionSource source = new LocalQuestionSource(new StringReader(QUESTIONS));
+        assertEquals(2, source.size());
+        assertEquals(2, source.load("Dom", Set.of()).orElseThrow().id());
+        assertEquals(1, source.load("MIX (Wszystkie Kategorie)", Set.of(2)).orElseThrow().id());
+        assertTrue(source.load("Dom", Set.of(2)).isEmpty());
+
+        QuestionSource.Question question = source.load("Jedzenie", Set.of()).orElseThrow();
+        assertEquals("Co jemy na sniadanie?", question.text());
+        assertEquals(List.of("Jajka", "Kanapki", "Owsianka"), question.answerTexts());
+        assertEquals(List.of(40, 35, 25), question.answerPoints());
+    }
+
+    @Test
+    void rejectsMalformedLine() {
+        IOException error = assertThrows(IOException.class,
+                () -> new LocalQuestionSource(new StringReader("1|Dom|Pytanie bez punktow|Lodowka\n")));
+        assertTrue(error.getMessage().contains("wiersz pytania 1"));
+    }
+}
@@ -0,0 +1,266 @@
+package org.quizpans.quizpans_server.load;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.quizpans.quizpans_server.online.websocket.LobbyDeltaTracker;
+import org.quizpans.quizpans_server.online.websocket.LobbyUpdateCoalescer;
+import org.quizpans.quizpans_server.online.websocket.SessionOutboxManager;
+import org.quizpans.quizpans_server.online.websocket.SpectatorFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//uruchamiany recznie: mvn test -Dtest=GameLoadTest -Dquizpans.loadtest=true -Dquizpans.loadtest.clients=5000 -Dquizpans.loadtest.label=$(git rev-parse --short HEAD)
+//aplikacja z pytaniami z pliku zamiast MySQL, boty graja przez /lobby: prowadzacy, gracze w druzynach i widzowie (reszta klientow)
+//raport json (quizpans.loadtest.report) z tymi samymi polami w kazdym przebiegu, do porownywania miedzy commitami
+@EnabledIfSystemProperty(named = "quizpans.loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "quizpans.questions.source=local",
+        "quizpans.journal.enabled=false",
+        "quizpans.snapshot.enabled=false",
+        "quizpans.heartbeat.interval-ms=0",
+        "quizpans.resume.grace-ms=0",
+        //wszyscy klienci z 127.0.0.1, limity zetonow nie moga odrzucac ruchu
+        "quizpans.admission.session-rate=1000",
+        "quizpans.admission.session-burst=1000",
+        "quizpans.admission.address-rate=1000000000",
+        "quizpans.admission.address-burst=1000000000"})
+class GameLoadTest {
+    private static final int CLIENTS = Integer.getInteger("quizpans.loadtest.clients", 2000);
+    private static final int LOBBIES = Integer.getInteger("quizpans.loadtest.lobbies", 5);
+    private static final int PLAYERS = Integer.getInteger("quizpans.loadtest.players", 8);
+    private static final long WARMUP_SECONDS = Long.getLong("quizpans.loadtest.warmup-seconds", 5);
+    private static final long MEASURE_SECONDS = Long.getLong("quizpans.loadtest.seconds", 30);
+    private static final String REPORT = System.getProperty("quizpans.loadtest.report", "target/load-report.json");
+    private static final String LABEL = System.getProperty("quizpans.loadtest.label", "");
+    private static final List<String> LOBBY_IDS = List.of("Red", "Blue", "Green", "Yellow", "Black");
+    private static final String TEAM_1 = "Niebiescy";
+    private static final String TEAM_2 = "Czerwoni";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private LobbyUpdateCoalescer coalescer;
+    @Autowired
+    private LobbyDeltaTracker deltaTracker;
+    @Autowired
+    private SpectatorFeed spectatorFeed;
+    @Autowired
+    private SessionOutboxManager outboxManager;
+
+    @Test
+    void playsGamesAndWritesReport() throws Exception {
+        assertTrue(LOBBIES >= 1 && LOBBIES <= LOBBY_IDS.size(), "lobby od 1 do " + LOBBY_IDS.size());
+        assertTrue(PLAYERS >= 2 && PLAYERS <= 13, "graczy w lobby od 2 do 13");
+        int spectatorsTotal = Math.max(0, CLIENTS - LOBBIES * (PLAYERS + 1));
+        List<String> answerPool = answerPool();
+
+        try (LoadMetrics metrics = new LoadMetrics()) {
+            HttpClient httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            URI uri = URI.create("ws://localhost:" + port + "/lobby");
+            List<List<LoadClient>> lobbies = new ArrayList<>();
+            List<LoadClient> all = new ArrayList<>();
+            for (int l = 0; l < LOBBIES; l++) {
+                LoadMetrics.LobbyTrace trace = metrics.trace(LOBBY_IDS.get(l), PLAYERS + 1);
+                List<LoadClient> lobby = new ArrayList<>();
+                lobby.add(new LoadClient(LoadClient.Role.HOST, trace, metrics, answerPool));
+                for (int p = 0; p < PLAYERS; p++) {
+                    lobby.add(new LoadClient(LoadClient.Role.PLAYER, trace, metrics, answerPool));
+                }
+                int spectators = spectatorsTotal / LOBBIES + (l < spectatorsTotal % LOBBIES ? 1 : 0);
+                for (int s = 0; s < spectators; s++) {
+                    lobby.add(new LoadClient(LoadClient.Role.SPECTATOR, trace, metrics, answerPool));
+                }
+                lobbies.add(lobby);
+                all.addAll(lobby);
+            }
+
+            long connectStart = System.nanoTime();
+            connect(httpClient, uri, all);
+            long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+            System.out.printf("%d klientow polaczonych w %d ms%n", all.size(), connectMillis);
+            for (int l = 0; l < LOBBIES; l++) {
+                prepareLobby(LOBBY_IDS.get(l), lobbies.get(l));
+            }
+
+            //zegar ponawia ruch, gdy odpowiedz albo prosba o pytanie przepadla bez aktualizacji
+            List<LoadClient> actors = all.stream().filter(c -> c.role() != LoadClient.Role.SPECTATOR).toList();
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+            actors.forEach(LoadClient::startPlaying);
+            ticker.scheduleAtFixedRate(() -> actors.forEach(LoadClient::react), 250, 250, TimeUnit.MILLISECONDS);
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(WARMUP_SECONDS));
+            Map<String, Long> serverBefore = serverCounters();
+            metrics.startWindow();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(MEASURE_SECONDS));
+            metrics.endWindow();
+            Map<String, Long> serverAfter = serverCounters();
+            ticker.shutdownNow();
+            actors.forEach(LoadClient::stopPlaying);
+
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("label", LABEL);
+            config.put("timestamp", Instant.now().toString());
+            config.put("clients", all.size());
+            config.put("lobbies", LOBBIES);
+            config.put("playersPerLobby", PLAYERS);
+            config.put("spectators", spectatorsTotal);
+            config.put("warmupSeconds", WARMUP_SECONDS);
+            config.put("measureSeconds", MEASURE_SECONDS);
+            config.put("connectMillis", connectMillis);
+            config.put("javaVersion", Runtime.version().toString());
+            config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            config.put("maxHeapMb", Runtime.getRuntime().maxMemory() >> 20);
+            config.put("garbageCollectors", ManagementFactory.getGarbageCollectorMXBeans().stream().map(GarbageCollectorMXBean::getName).toList());
+
+            Map<String, Object> report = metrics.report(config, serverReport(serverBefore, serverAfter));
+            String json = new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(report);
+            Path reportPath = Path.of(REPORT);
+            if (reportPath.getParent() != null) {
+                Files.createDirectories(reportPath.getParent());
+            }
+            Files.writeString(reportPath, json, StandardCharsets.UTF_8);
+            System.out.println(json);
+
+            all.forEach(LoadClient::close);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> latency = (Map<String, Object>) report.get("submitToUpdate");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> errors = (Map<String, Object>) report.get("errors");
+            assertTrue((int) latency.get("count") > 0, "zadna odpowiedz nie wrocila jako aktualizacja lobby");
+            assertEquals(0L, errors.get("clientErrors"));
+        }
+    }
+
+    //partiami, zeby nie otwierac tysiecy uzgodnien naraz
+    private static void connect(HttpClient httpClient, URI uri, List<LoadClient> clients) throws Exception {
+        for (int from = 0; from < clients.size(); from += 500) {
+            List<LoadClient> batch = clients.subList(from, Math.min(clients.size(), from + 500));
+            CompletableFuture.allOf(batch.stream().map(c -> c.connect(httpClient, uri)).toArray(CompletableFuture[]::new))
+                    .get(60, TimeUnit.SECONDS);
+            for (LoadClient client : batch) {
+                client.awaitSessionId();
+            }
+        }
+    }
+
+    //prowadzacy zajmuje lobby i ustawia gre, gracze dolaczaja i trafiaja na przemian do druzyn, widzowie obserwuja
+    private static void prepareLobby(String lobbyId, List<LoadClient> clients) throws Exception {
+        LoadClient host = clients.get(0);
+        List<LoadClient> players = clients.stream().filter(c -> c.role() == LoadClient.Role.PLAYER).toList();
+        host.send("{\"action\":\"requestHostLobby\",\"lobbyId\":\"" + lobbyId + "\"}");
+        awaitLobby(host, lobby -> host.sessionId().equals(string(lobby, "hostSessionId")));
+        host.send("{\"action\":\"configureLobby\",\"lobbyId\":\"" + lobbyId + "\",\"gameSettings\":{\"category\":\"MIX (Wszystkie Kategorie)\","
+                + "\"answerTime\":30,\"numberOfRounds\":1000000,\"maxPlayersPerTeam\":" + ((PLAYERS + 1) / 2)
+                + ",\"teamBlueName\":\"" + TEAM_1 + "\",\"teamRedName\":\"" + TEAM_2 + "\"}}");
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).send("{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"" + lobbyId + "\",\"nickname\":\"bot" + i + "\"}");
+        }
+        awaitLobby(host, lobby -> lobby.get("totalParticipantCount").getAsInt() == players.size());
+        for (int i = 0; i < players.size(); i++) {
+            host.send("{\"action\":\"assignRole\",\"lobbyId\":\"" + lobbyId + "\",\"participantSessionId\":\"" + players.get(i).sessionId()
+                    + "\",\"role\":\"PLAYER\",\"targetTeamName\":\"" + (i % 2 == 0 ? TEAM_1 : TEAM_2) + "\"}");
+        }
+        awaitLobby(host, lobby -> teamSize(lobby, TEAM_1) + teamSize(lobby, TEAM_2) == players.size());
+        for (LoadClient client : clients) {
+            if (client.role() == LoadClient.Role.SPECTATOR) {
+                client.send("{\"action\":\"spectateLobby\",\"lobbyId\":\"" + lobbyId + "\"}");
+            }
+        }
+        host.send("{\"action\":\"startGame\",\"lobbyId\":\"" + lobbyId + "\"}");
+        host.send("{\"action\":\"requestInitialQuestion\",\"lobbyId\":\"" + lobbyId + "\",\"usedQuestionIds\":[]}");
+        awaitLobby(host, lobby -> string(lobby, "currentQuestionText") != null);
+    }
+
+    private static void awaitLobby(LoadClient client, Predicate<JsonObject> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (client.lastLobby() == null || !condition.test(client.lastLobby())) {
+            assertTrue(System.nanoTime() < deadline, "lobby nie osiagnelo oczekiwanego stanu");
+            Thread.sleep(5);
+        }
+    }
+
+    private static int teamSize(JsonObject lobby, String team) {
+        JsonElement teams = lobby.get("teams");
+        if (teams == null || !teams.isJsonObject() || !teams.getAsJsonObject().has(team)) return 0;
+        return teams.getAsJsonObject().getAsJsonArray(team).size();
+    }
+
+    private static String string(JsonObject object, String field) {
+        JsonElement element = object.get(field);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    //poprawne odpowiedzi z pliku pytan, odmiany i chybione, zeby gra szla przez wszystkie sciezki oceny
+    private static List<String> answerPool() throws Exception {
+        Set<String> pool = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                GameLoadTest.class.getResourceAsStream("/questions-local.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\|", -1);
+                for (int i = 3; i < parts.length; i += 2) {
+                    if (!parts[i].isBlank()) {
+                        pool.add(parts[i]);
+                        pool.add(parts[i].toLowerCase() + "y");
+                    }
+                }
+            }
+        }
+        pool.addAll(List.of("nie wiem", "kosmos", "helikopter", "zupa pomidorowa"));
+        return List.copyOf(pool);
+    }
+
+    private Map<String, Long> serverCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("broadcasts", coalescer.getFlushedUpdates());
+        counters.put("memberFrames", deltaTracker.getFullSends() + deltaTracker.getPatchSends());
+        counters.put("spectatorFramesDelivered", spectatorFeed.getDeliveredFrames());
+        counters.put("spectatorFramesSkipped", spectatorFeed.getSkippedFrames());
+        counters.put("outboxCoalescedFrames", outboxManager.getCoalescedFrames());
+        counters.put("outboxOverflowDisconnects", outboxManager.getOverflowDisconnects());
+        counters.put("sendFailures", outboxManager.getSendFailures());
+        return counters;
+    }
+
+    //koszt rozglosu po stronie serwera: ramki na jedna aktualizacje lobby, roznica licznikow z okna pomiaru
+    private Map<String, Object> serverReport(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Object> server = new LinkedHashMap<>();
+        after.forEach((name, value) -> server.put(name, value - before.get(name)));
+        long broadcasts = after.get("broadcasts") - before.get("broadcasts");
+        long frames = after.get("memberFrames") - before.get("memberFrames")
+                + after.get("spectatorFramesDelivered") - before.get("spectatorFramesDelivered");
+        server.put("framesPerBroadcast", broadcasts > 0 ? Math.round(frames * 1000.0 / broadcasts) / 1000.0 : 0);
+        server.put("maxQueueDepth", outboxManager.getMaxQueueDepth());
+        return server;
+    }
+}
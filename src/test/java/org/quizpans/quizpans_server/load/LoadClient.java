@@ -0,0 +1,179 @@
+package org.quizpans.quizpans_server.load;
+// symulowany klient /lobby na java.net.http.WebSocket: prowadzacy, gracz albo widz
+// prowadzacy doklada pytania po zakonczonej rundzie, gracz odpowiada gdy jest jego kolej, widz tylko odbiera
+// wywolania listenera dla jednego polaczenia ida po kolei, ruch klienta i wysylka pod jego monitorem
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+final class LoadClient implements WebSocket.Listener {
+
+    enum Role { HOST, PLAYER, SPECTATOR }
+
+    private static final String SPECTATOR_FRAME_PREFIX = "{\"type\":\"lobbyUpdate\"";
+
+    private final Role role;
+    private final LoadMetrics.LobbyTrace trace;
+    private final LoadMetrics metrics;
+    private final List<String> answerPool;
+    private final StringBuilder partial = new StringBuilder();
+    private final CompletableFuture<String> sessionIdFuture = new CompletableFuture<>();
+    //widz: numer ostatniej odpowiedzi w lobby, po ktorej dostal juz ramke
+    private final long[] lastSeenSubmit = {0};
+    private WebSocket socket;
+    private volatile String sessionId;
+    private volatile JsonObject lastLobby;
+    private volatile long lastVersion = -1;
+    //gracz: wersja, na ktora odpowiedzial, i czas wyslania; 0 = nic nie czeka
+    private long answeredVersion = -1;
+    private volatile long pendingSentNanos;
+    private volatile long pendingBaseVersion;
+    //prowadzacy: wersja, po ktorej poprosil o kolejne pytanie
+    private long questionRequestedAt = -1;
+    private volatile boolean playing;
+
+    LoadClient(Role role, LoadMetrics.LobbyTrace trace, LoadMetrics metrics, List<String> answerPool) {
+        this.role = role;
+        this.trace = trace;
+        this.metrics = metrics;
+        this.answerPool = answerPool;
+    }
+
+    CompletableFuture<WebSocket> connect(HttpClient client, URI uri) {
+        return client.newWebSocketBuilder().buildAsync(uri, this).thenApply(ws -> socket = ws);
+    }
+
+    String awaitSessionId() throws Exception {
+        return sessionIdFuture.get(30, TimeUnit.SECONDS);
+    }
+
+    void send(String json) {
+        //WebSocket pozwala na jedna wysylke naraz
+        synchronized (this) {
+            socket.sendText(json, true).join();
+        }
+    }
+
+    void startPlaying() {
+        playing = true;
+        react();
+    }
+
+    void stopPlaying() {
+        playing = false;
+    }
+
+    void close() {
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(e -> null);
+    }
+
+    Role role() {
+        return role;
+    }
+
+    String sessionId() {
+        return sessionId;
+    }
+
+    JsonObject lastLobby() {
+        return lastLobby;
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String payload = partial.toString();
+            partial.setLength(0);
+            onMessage(payload, System.nanoTime());
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        metrics.clientError(error);
+        sessionIdFuture.completeExceptionally(error);
+    }
+
+    private void onMessage(String payload, long receivedNanos) {
+        metrics.frameReceived(payload.length(), receivedNanos);
+        //widz nie parsuje ramek, liczy sie tylko chwila dotarcia widoku lobby
+        if (role == Role.SPECTATOR && sessionId != null) {
+            if (payload.startsWith(SPECTATOR_FRAME_PREFIX)) {
+                trace.spectatorFrame(receivedNanos, lastSeenSubmit);
+            }
+            return;
+        }
+        JsonObject message = JsonParser.parseString(payload).getAsJsonObject();
+        String type = message.get("type").getAsString();
+        switch (type) {
+            case "yourSessionId" -> {
+                sessionId = message.get("sessionId").getAsString();
+                sessionIdFuture.complete(sessionId);
+            }
+            case "lobbyUpdate" -> onLobby(message, receivedNanos);
+            case "error" -> metrics.serverError(message.get("message").getAsString());
+            default -> { }
+        }
+    }
+
+    private void onLobby(JsonObject message, long receivedNanos) {
+        JsonElement version = message.get("version");
+        if (version == null) return;
+        long v = version.getAsLong();
+        if (v <= lastVersion) return;
+        lastVersion = v;
+        lastLobby = message.getAsJsonObject("lobby");
+        trace.memberFrame(v, receivedNanos);
+        if (pendingSentNanos != 0 && v > pendingBaseVersion) {
+            metrics.submitToUpdate(pendingSentNanos, receivedNanos);
+            pendingSentNanos = 0;
+        }
+        react();
+    }
+
+    //kolejny ruch na podstawie ostatniego widoku lobby; wolane tez z zegara, gdy odpowiedz przepadla
+    synchronized void react() {
+        JsonObject lobby = lastLobby;
+        if (!playing || lobby == null) return;
+        String question = stringOrNull(lobby, "currentQuestionText");
+        if (role == Role.HOST) {
+            if (question == null && lastVersion > questionRequestedAt && "BUSY".equals(stringOrNull(lobby, "status"))) {
+                questionRequestedAt = lastVersion;
+                send("{\"action\":\"requestNewQuestion\",\"lobbyId\":\"" + trace.lobbyId() + "\",\"usedQuestionIds\":[]}");
+            }
+            return;
+        }
+        if (role != Role.PLAYER || question == null || question.startsWith("Koniec gry!")) return;
+        if (!sessionId.equals(stringOrNull(lobby, "currentPlayerSessionId"))) return;
+        long sentBefore = pendingSentNanos;
+        if (answeredVersion == lastVersion && (sentBefore == 0 || System.nanoTime() - sentBefore < TimeUnit.SECONDS.toNanos(5))) return;
+        if (sentBefore != 0) {
+            metrics.answerTimedOut();
+        }
+        String answer = answerPool.get(ThreadLocalRandom.current().nextInt(answerPool.size()));
+        answeredVersion = lastVersion;
+        pendingBaseVersion = lastVersion;
+        long sent = System.nanoTime();
+        pendingSentNanos = sent;
+        trace.submitted(lastVersion, sent);
+        send("{\"action\":\"submitAnswer\",\"lobbyId\":\"" + trace.lobbyId() + "\",\"answer\":\"" + answer
+                + "\",\"playerSessionId\":\"" + sessionId + "\"}");
+    }
+
+    private static String stringOrNull(JsonObject object, String field) {
+        JsonElement element = object.get(field);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+}
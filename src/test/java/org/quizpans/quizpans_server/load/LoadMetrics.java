@@ -0,0 +1,284 @@
+package org.quizpans.quizpans_server.load;
+// pomiary testu obciazeniowego, liczone tylko w oknie pomiaru (po rozgrzewce)
+// submitAnswer -> lobbyUpdate u odpowiadajacego, rozglos do ostatniego czlonka lobby, opoznienie widzow, pauzy GC
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class LoadMetrics implements AutoCloseable {
+
+    //probki w nanosekundach, raport w milisekundach
+    static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        synchronized Map<String, Object> summary() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", sorted.length);
+            if (sorted.length == 0) return summary;
+            summary.put("meanMs", millis((long) Arrays.stream(sorted).average().orElse(0)));
+            summary.put("p50Ms", millis(percentile(sorted, 0.50)));
+            summary.put("p90Ms", millis(percentile(sorted, 0.90)));
+            summary.put("p99Ms", millis(percentile(sorted, 0.99)));
+            summary.put("p999Ms", millis(percentile(sorted, 0.999)));
+            summary.put("maxMs", millis(sorted[sorted.length - 1]));
+            return summary;
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized long total() {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                total += values[i];
+            }
+            return total;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    //jedno lobby: wyslane odpowiedzi i chwile dotarcia kolejnych wersji do czlonkow
+    final class LobbyTrace {
+        private final String lobbyId;
+        private final int members;
+        private final List<long[]> submits = new ArrayList<>();
+        private final TreeMap<Long, long[]> arrivals = new TreeMap<>();
+        //widzowie nie znaja wersji: ostatnia odpowiedz w lobby i jej numer kolejny
+        private volatile long lastSubmitNanos;
+        private final AtomicLong submitSequence = new AtomicLong();
+
+        LobbyTrace(String lobbyId, int members) {
+            this.lobbyId = lobbyId;
+            this.members = members;
+        }
+
+        String lobbyId() {
+            return lobbyId;
+        }
+
+        synchronized void submitted(long baseVersion, long sentNanos) {
+            submits.add(new long[]{baseVersion, sentNanos});
+            lastSubmitNanos = sentNanos;
+            submitSequence.incrementAndGet();
+        }
+
+        //{liczba czlonkow, pierwsze dotarcie, ostatnie dotarcie}
+        synchronized void memberFrame(long version, long receivedNanos) {
+            long[] arrival = arrivals.computeIfAbsent(version, v -> new long[]{0, receivedNanos, receivedNanos});
+            arrival[0]++;
+            arrival[2] = Math.max(arrival[2], receivedNanos);
+        }
+
+        //pierwsza ramka widza po nowej odpowiedzi; gdy widz zalega, to przyblizenie od dolu
+        void spectatorFrame(long receivedNanos, long[] lastSeenSequence) {
+            long sequence = submitSequence.get();
+            if (sequence == lastSeenSequence[0]) return;
+            lastSeenSequence[0] = sequence;
+            long sent = lastSubmitNanos;
+            if (inWindow(sent)) {
+                spectatorLag.add(receivedNanos - sent);
+            }
+        }
+
+        //rozglos: od wyslania odpowiedzi do ostatniego czlonka z nastepna wersja
+        synchronized void collectFanOut() {
+            for (long[] submit : submits) {
+                if (!inWindow(submit[1])) continue;
+                Map.Entry<Long, long[]> next = arrivals.higherEntry(submit[0]);
+                if (next == null || next.getValue()[0] < members) {
+                    incompleteFanOuts.increment();
+                    continue;
+                }
+                fanOut.add(next.getValue()[2] - submit[1]);
+                recipientsPerFanOut.add(next.getValue()[0]);
+            }
+        }
+    }
+
+    private final Samples submitToUpdate = new Samples();
+    private final Samples fanOut = new Samples();
+    private final Samples spectatorLag = new Samples();
+    private final Samples gcPauses = new Samples();
+    private final LongAdder recipientsPerFanOut = new LongAdder();
+    private final LongAdder incompleteFanOuts = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder answerTimeouts = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final Map<String, Long> serverErrorMessages = new LinkedHashMap<>();
+    private final List<LobbyTrace> traces = new ArrayList<>();
+    private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+    private final NotificationListener gcListener = (notification, handback) -> {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        //cykle wspolbiezne (G1 Concurrent GC, ZGC Cycles) nie zatrzymuja aplikacji
+        if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) return;
+        if (inWindow(System.nanoTime())) {
+            gcPauses.add(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+        }
+    };
+    private volatile long windowStart;
+    private volatile long windowEnd;
+    private volatile boolean windowOpen;
+    private volatile boolean windowClosed;
+    private long processCpuAtStart;
+
+    LoadMetrics() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+                gcEmitters.add(emitter);
+            }
+        }
+    }
+
+    synchronized LobbyTrace trace(String lobbyId, int members) {
+        LobbyTrace trace = new LobbyTrace(lobbyId, members);
+        traces.add(trace);
+        return trace;
+    }
+
+    void startWindow() {
+        processCpuAtStart = processCpuNanos();
+        windowStart = System.nanoTime();
+        windowOpen = true;
+    }
+
+    void endWindow() {
+        windowEnd = System.nanoTime();
+        windowClosed = true;
+    }
+
+    private boolean inWindow(long nanos) {
+        return windowOpen && nanos - windowStart >= 0 && (!windowClosed || nanos - windowEnd < 0);
+    }
+
+    void frameReceived(int length, long receivedNanos) {
+        if (inWindow(receivedNanos)) {
+            frames.increment();
+            bytes.add(length);
+        }
+    }
+
+    void submitToUpdate(long sentNanos, long receivedNanos) {
+        if (inWindow(sentNanos)) {
+            submitToUpdate.add(receivedNanos - sentNanos);
+        }
+    }
+
+    void answerTimedOut() {
+        answerTimeouts.increment();
+    }
+
+    void serverError(String message) {
+        serverErrors.increment();
+        synchronized (serverErrorMessages) {
+            serverErrorMessages.merge(message, 1L, Long::sum);
+        }
+    }
+
+    void clientError(Throwable error) {
+        clientErrors.increment();
+        System.err.println("Błąd klienta obciążeniowego: " + error);
+    }
+
+    //raport do porownywania miedzy commitami, pola stale, czasy w milisekundach
+    Map<String, Object> report(Map<String, Object> config, Map<String, Object> server) {
+        for (LobbyTrace trace : traces) {
+            trace.collectFanOut();
+        }
+        double seconds = (windowEnd - windowStart) / 1e9;
+        long processCpu = processCpuNanos() - processCpuAtStart;
+        int answers = submitToUpdate.count();
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("windowSeconds", round(seconds));
+        throughput.put("answers", answers);
+        throughput.put("answersPerSecond", round(answers / seconds));
+        throughput.put("framesReceived", frames.sum());
+        throughput.put("framesPerSecond", round(frames.sum() / seconds));
+        throughput.put("bytesPerSecond", round(bytes.sum() / seconds));
+        //serwer i klienci w jednym procesie, wiec to gorna granica kosztu serwera
+        throughput.put("processCpuMsPerAnswer", answers > 0 ? millis(processCpu / answers) : null);
+
+        Map<String, Object> fanOutReport = fanOut.summary();
+        fanOutReport.put("membersPerUpdate", fanOut.count() > 0 ? round((double) recipientsPerFanOut.sum() / fanOut.count()) : 0);
+        fanOutReport.put("incomplete", incompleteFanOuts.sum());
+
+        Map<String, Object> gc = gcPauses.summary();
+        gc.put("totalPauseMs", millis(gcPauses.total()));
+        gc.put("pauseShare", seconds > 0 ? round(gcPauses.total() / 1e9 / seconds) : 0);
+
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("answerTimeouts", answerTimeouts.sum());
+        errors.put("clientErrors", clientErrors.sum());
+        errors.put("serverErrors", serverErrors.sum());
+        synchronized (serverErrorMessages) {
+            errors.put("serverErrorMessages", new LinkedHashMap<>(serverErrorMessages));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("throughput", throughput);
+        report.put("submitToUpdate", submitToUpdate.summary());
+        report.put("fanOut", fanOutReport);
+        report.put("spectatorLag", spectatorLag.summary());
+        report.put("gcPauses", gc);
+        report.put("server", server);
+        report.put("errors", errors);
+        return report;
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : gcEmitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException ignored) {
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                ? os.getProcessCpuTime() : 0;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,77 @@
+package org.quizpans.quizpans_server.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.game.LocalQuestionSource;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuizpansEventsTest {
+
+    private static final List<String> EVENTS = List.of("quizpans.AnswerEvaluation", "quizpans.QuestionLoad",
+            "quizpans.LobbyBroadcast", "quizpans.AnswerTimerExpired");
+
+    @Test
+    void settingsFileEnablesAllEvents() throws Exception {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/quizpans.jfc"), StandardCharsets.UTF_8)) {
+            Map<String, String> settings = Configuration.create(reader).getSettings();
+            for (String event : EVENTS) {
+                assertEquals("true", settings.get(event + "#enabled"), event);
+            }
+            //czekanie na monitor LobbyService z wbudowanego zdarzenia jvm
+            assertEquals("true", settings.get("jdk.JavaMonitorEnter#enabled"));
+            assertEquals("true", settings.get("jdk.JavaMonitorEnter#stackTrace"));
+        }
+    }
+
+    @Test
+    void hotPathsEmitEvents() throws Exception {
+        Path file = Files.createTempFile("quizpans", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            GameService game = new GameService(null, new LocalQuestionSource(new StringReader("7|Dom|Co stoi w kuchni?|Lodowka|60|Kuchenka|40\n")),
+                    QuizpansMetrics.standalone());
+            game.loadQuestion(Set.of());
+            game.processPlayerAnswer("Lodowka");
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        RecordedEvent load = single(events, "quizpans.QuestionLoad");
+        assertEquals(7, load.getInt("questionId"));
+        assertEquals("LocalQuestionSource", load.getString("source"));
+        assertTrue(load.getBoolean("found"));
+        assertTrue(load.getDuration("compileDuration").toNanos() > 0);
+
+        RecordedEvent answer = single(events, "quizpans.AnswerEvaluation");
+        assertEquals("EXACT", answer.getString("stage"));
+        assertEquals(7, answer.getInt("inputLength"));
+        assertEquals(2, answer.getInt("answerCount"));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
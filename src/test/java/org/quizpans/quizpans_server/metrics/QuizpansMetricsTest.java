@@ -0,0 +1,59 @@
+package org.quizpans.quizpans_server.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.game.LocalQuestionSource;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+
+import java.io.StringReader;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuizpansMetricsTest {
+
+    @Test
+    void questionPhasesAndMatchStagesAreRecorded() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        QuizpansMetrics metrics = new QuizpansMetrics(registry);
+        LocalQuestionSource source = new LocalQuestionSource(new StringReader("7|Dom|Co stoi w kuchni?|Lodowka|60|Kuchenka|40\n"));
+        GameService game = new GameService(null, source, metrics);
+
+        assertTrue(game.loadQuestion(Set.of()));
+        assertEquals(1, registry.get("quizpans.question.load").tag("phase", "fetch").timer().count());
+        assertEquals(1, registry.get("quizpans.question.load").tag("phase", "compile").timer().count());
+        //jedyne pytanie wykluczone: drugie losowanie z pelnej puli, dalej jeden pomiar pobrania
+        assertTrue(game.loadQuestion(Set.of(7)));
+        assertEquals(2, registry.get("quizpans.question.load").tag("phase", "fetch").timer().count());
+        assertEquals(0, registry.get("quizpans.question.misses").counter().count());
+
+        assertEquals(GameService.MatchStage.EXACT, game.processPlayerAnswer("Lodowka").matchStage);
+        assertEquals(GameService.MatchStage.MISS, game.processPlayerAnswer("helikopter").matchStage);
+        metrics.answerMatched(game.processPlayerAnswer("Lodowka").matchStage);
+        assertEquals(1, registry.get("quizpans.match.answers").tag("stage", "exact").counter().count());
+        assertEquals(0, registry.get("quizpans.match.answers").tag("stage", "fallback").counter().count());
+    }
+
+    @Test
+    void lobbyServiceCallsRecordLockWaitAndActionsKeepOutcome() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        QuizpansMetrics metrics = new QuizpansMetrics(registry);
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), new SessionIndex(),
+                null, metrics);
+        //mierzone tylko komendy odpowiedzi, reszta monitora widoczna w jdk.JavaMonitorEnter
+        lobbyService.captureSnapshots();
+        lobbyService.processPlayerAnswer("Red", "p1", "Lodowka");
+        lobbyService.validateAnswerByQuizMaster("Red", "p1", true, "Lodowka");
+        assertEquals(2, registry.get("quizpans.lobby.lock.wait").timer().count());
+
+        metrics.actionHandled("submitAnswer", 1_000_000, false);
+        metrics.actionHandled("submitAnswer", 2_000_000, true);
+        assertEquals(1, registry.get("quizpans.ws.action").tags("action", "submitAnswer", "outcome", "ok").timer().count());
+        assertEquals(1, registry.get("quizpans.ws.action").tags("action", "submitAnswer", "outcome", "error").timer().count());
+    }
+}
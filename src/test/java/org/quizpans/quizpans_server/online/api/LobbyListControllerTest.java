@@ -0,0 +1,64 @@
+package org.quizpans.quizpans_server.online.api;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.quizpans.quizpans_server.online.websocket.LobbyListSnapshot;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LobbyListControllerTest {
+    private final LobbyListSnapshot lobbyList;
+    private final MockMvc mvc;
+
+    LobbyListControllerTest() throws Exception {
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), new SessionIndex());
+        //lobby tworzy @PostConstruct, bez kontekstu springa wolamy recznie
+        Method init = LobbyService.class.getDeclaredMethod("initializeLobbies");
+        init.setAccessible(true);
+        init.invoke(lobbyService);
+        lobbyList = new LobbyListSnapshot(lobbyService);
+        mvc = MockMvcBuilders.standaloneSetup(new LobbyListController(lobbyList)).build();
+    }
+
+    @Test
+    void revalidatesWithEtagAndRebuildsOnlyAfterChange() throws Exception {
+        String etag = mvc.perform(get("/api/lobbies"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.lobbies[0].participantCount").value(0))
+                .andExpect(jsonPath("$.lobbies[0].hasPassword").value(false))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/api/lobbies").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        assertSame(lobbyList.current(), lobbyList.current());
+
+        String lobbyId = JsonPath.read(new String(lobbyList.current().body(), StandardCharsets.UTF_8), "$.lobbies[0].id");
+        lobbyList.update(lobbyId, "BUSY", 3, true);
+        String changed = mvc.perform(get("/api/lobbies").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lobbies[0].id").value(lobbyId))
+                .andExpect(jsonPath("$.lobbies[0].status").value("BUSY"))
+                .andExpect(jsonPath("$.lobbies[0].participantCount").value(3))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+
+        //to samo podsumowanie jeszcze raz nie zmienia wersji
+        lobbyList.update(lobbyId, "BUSY", 3, true);
+        mvc.perform(get("/api/lobbies").header("If-None-Match", changed)).andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,138 @@
+package org.quizpans.quizpans_server.online.audience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudienceAnswerServiceTest {
+    private static final int ANSWERS = 20000;
+    private static final int SUBMITTERS = 4;
+    private static final String[] VARIANTS = {"banan", "Banany", "cytryna", "cytryny", "gruszka", "gruszki", "melon",
+            "ananas", "ananasy", "limonka", "jablko", "sliwka", "kiwi", "mango", "bananek", "zolty melon", "pomarancza", "cytrynka"};
+
+    private final AudienceAnswerService service = new AudienceAnswerService(0, ANSWERS, 50);
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void ingestsFiveThousandAnswersPerSecondAndAggregatesWithoutLoss() throws Exception {
+        GameService.CompiledQuestion question = createQuestion();
+        //pierwsza ocena laduje LanguageTool i model lematyzatora, liczymy potem na cieplej pamieci podrecznej
+        Map<String, GameService.AnswerProcessingResult> expected = new HashMap<>();
+        for (String variant : VARIANTS) {
+            expected.put(variant, question.evaluate(variant));
+        }
+        Map<String, AudienceRound.Member> members = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            members.put("p" + i, new AudienceRound.Member("gracz" + i, i % 2));
+        }
+        List<AudienceRound.Tally> tallies = new CopyOnWriteArrayList<>();
+        AtomicLong verdicts = new AtomicLong();
+        service.setTallySink(tallies::add);
+        service.setVerdictSink((sessionId, verdict) -> verdicts.incrementAndGet());
+        service.start();
+        service.open(new AudienceRound("Red", question, members, "Niebiescy", "Czerwoni", 60000, System.nanoTime()));
+
+        long start = System.nanoTime();
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < SUBMITTERS; t++) {
+            int offset = t;
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int i = offset; i < ANSWERS; i += SUBMITTERS) {
+                    String sessionId = i < 12 ? "p" + i : "s" + i;
+                    String team = i % 3 == 0 ? "Niebiescy" : i % 3 == 1 ? "Czerwoni" : null;
+                    assertEquals(AudienceRound.Admission.ACCEPTED, service.submit("Red", sessionId, VARIANTS[i % VARIANTS.length], team));
+                }
+            }));
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        await(() -> service.getEvaluatedAnswers() == ANSWERS);
+        double perSecond = ANSWERS / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("odpowiedzi publicznosci: %.0f na sekunde, %d watkow oceny%n", perSecond, Runtime.getRuntime().availableProcessors());
+        assertTrue(perSecond >= 5000, "przepustowosc " + perSecond + " ponizej 5000 odpowiedzi na sekunde");
+        assertEquals(ANSWERS, verdicts.get());
+        assertEquals(AudienceRound.Admission.DUPLICATE, service.submit("Red", "s100", "banan", null));
+
+        service.close("Red");
+        await(() -> !tallies.isEmpty() && tallies.get(tallies.size() - 1).closed());
+        AudienceRound.Tally tally = tallies.get(tallies.size() - 1);
+        long correct = 0;
+        long[] hits = new long[5];
+        long[] teamPoints = new long[2];
+        for (int i = 0; i < ANSWERS; i++) {
+            GameService.AnswerProcessingResult result = expected.get(VARIANTS[i % VARIANTS.length]);
+            if (!result.isCorrect) continue;
+            correct++;
+            hits[result.answerIndex]++;
+            int team = i < 12 ? i % 2 : i % 3 == 0 ? 0 : i % 3 == 1 ? 1 : -1;
+            if (team >= 0) teamPoints[team] += result.pointsAwarded;
+        }
+        assertEquals(ANSWERS, tally.answered());
+        assertEquals(correct, tally.correct());
+        assertEquals(List.of(hits[0], hits[1], hits[2], hits[3], hits[4]), List.of(tally.hits()[0], tally.hits()[1], tally.hits()[2], tally.hits()[3], tally.hits()[4]));
+        assertEquals(teamPoints[0], tally.teams().get(0).points());
+        assertEquals(teamPoints[1], tally.teams().get(1).points());
+        assertNotNull(tally.fastest());
+        assertEquals(0, service.getOpenRounds());
+        assertEquals(AudienceRound.Admission.CLOSED, service.submit("Red", "late", "banan", null));
+    }
+
+    @Test
+    void fastestIsByArrivalAndWindowClosesAtDeadline() throws Exception {
+        long opened = System.nanoTime();
+        AudienceRound round = new AudienceRound("Blue", createQuestion(),
+                Map.of("p1", new AudienceRound.Member("Ala", 1)), "Niebiescy", "Czerwoni", 50, opened);
+        assertEquals(AudienceRound.Admission.ACCEPTED, round.admit("p1", opened + 1_000_000));
+        assertEquals(AudienceRound.Admission.ACCEPTED, round.admit("s2", opened + 2_000_000));
+        assertEquals(AudienceRound.Admission.DUPLICATE, round.admit("p1", opened + 3_000_000));
+        //wolniejsza odpowiedz oceniona wczesniej nie wygrywa
+        round.evaluate("s2", "banan", "Niebiescy", opened + 20_000_000);
+        round.evaluate("p1", "banan", "Niebiescy", opened + 10_000_000);
+        AudienceRound.Tally tally = round.tally();
+        assertEquals("p1", tally.fastest().sessionId());
+        assertEquals("Ala", tally.fastest().nickname());
+        assertEquals(10, tally.fastest().elapsedMillis());
+        //uczestnik liczy sie do druzyny z lobby, nie wybranej w wiadomosci
+        assertEquals(40, tally.teams().get(0).points());
+        assertEquals(40, tally.teams().get(1).points());
+        assertEquals(AudienceRound.Admission.CLOSED, round.admit("s3", opened + TimeUnit.MILLISECONDS.toNanos(51)));
+    }
+
+    private static GameService.CompiledQuestion createQuestion() {
+        List<GameService.AnswerData> answers = List.of(
+                new GameService.AnswerData("Banan", 40, 0, "banan"),
+                new GameService.AnswerData("Cytryna", 25, 1, "cytryna"),
+                new GameService.AnswerData("Gruszka", 15, 2, "gruszka"),
+                new GameService.AnswerData("Melon", 12, 3, "melon"),
+                new GameService.AnswerData("Ananas", 8, 4, "ananas"));
+        return new GameService.CompiledQuestion(7, "Wymień owoc, który jest żółty", answers,
+                Map.of("zoltymelon", Set.of("zolty", "melon")), Map.of("limonka", "cytryna"));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie spelniony w czasie");
+            Thread.sleep(5);
+        }
+    }
+}
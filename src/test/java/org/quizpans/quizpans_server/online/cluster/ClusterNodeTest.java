@@ -0,0 +1,199 @@
+package org.quizpans.quizpans_server.online.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterNodeTest {
+    private static final int LOBBY_COUNT = 256;
+    private static final int NODE_COUNT = 4;
+    private static final int COMMAND_COUNT = 4000;
+
+    //akcja wchodzi na dowolnym wezle i trafia dokladnie raz do wlasciciela lobby
+    @Test
+    void commandsFromAnyNodeReachLobbyOwnerOnce() throws Exception {
+        InProcessMessageBus.Hub hub = new InProcessMessageBus.Hub();
+        List<String> lobbyIds = lobbyIds();
+        CountDownLatch done = new CountDownLatch(COMMAND_COUNT);
+        Map<String, String> handledBy = new ConcurrentHashMap<>();
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            String nodeId = "n" + i;
+            ClusterEndpoint endpoint = new CountingEndpoint(done) {
+                @Override
+                public void handleRelayedCommand(String originNode, String sessionId, String payload) {
+                    assertNull(handledBy.put(payload, nodeId), "akcja obsluzona dwa razy: " + payload);
+                    super.handleRelayedCommand(originNode, sessionId, payload);
+                }
+            };
+            ClusterNode node = new ClusterNode(nodeId, new InProcessMessageBus(hub), 64, lobbyIds, new FakeTransfer(), endpoint);
+            node.start();
+            nodes.add(node);
+        }
+        awaitTrue(() -> nodes.stream().allMatch(n -> n.getNodes().size() == NODE_COUNT));
+
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            nodes.get(i % NODE_COUNT).forwardCommand(lobbyIds.get(i % LOBBY_COUNT), "s" + i, String.valueOf(i));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            assertEquals(nodes.get(0).ownerOf(lobbyIds.get(i % LOBBY_COUNT)), handledBy.get(String.valueOf(i)));
+        }
+        assertTrue(handledBy.values().stream().distinct().count() > 1, "lobby powinny byc rozlozone na wezly");
+        nodes.forEach(ClusterNode::leave);
+    }
+
+    @Test
+    void joiningNodeTakesOverItsLobbies() throws Exception {
+        InProcessMessageBus.Hub hub = new InProcessMessageBus.Hub();
+        List<String> lobbyIds = lobbyIds();
+        FakeTransfer firstStore = new FakeTransfer();
+        lobbyIds.forEach(id -> firstStore.state.put(id, id.getBytes(StandardCharsets.UTF_8)));
+        ClusterNode first = new ClusterNode("n1", new InProcessMessageBus(hub), 64, lobbyIds, firstStore, new CountingEndpoint(null));
+        first.start();
+
+        FakeTransfer secondStore = new FakeTransfer();
+        ClusterNode second = new ClusterNode("n2", new InProcessMessageBus(hub), 64, lobbyIds, secondStore, new CountingEndpoint(null));
+        second.start();
+
+        awaitTrue(() -> firstStore.state.size() + secondStore.state.size() == LOBBY_COUNT && !secondStore.state.isEmpty());
+        for (String id : lobbyIds) {
+            FakeTransfer owner = first.isLocal(id) ? firstStore : secondStore;
+            assertTrue(owner.state.containsKey(id), "lobby " + id + " powinno byc u wlasciciela");
+            assertEquals(first.ownerOf(id), second.ownerOf(id));
+        }
+
+        second.leave();
+        awaitTrue(() -> firstStore.state.size() == LOBBY_COUNT);
+        first.leave();
+    }
+
+    @Test
+    void tcpBusRelaysCommandsAndReplies() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+        Map<String, InetSocketAddress> peers = Map.of(
+                "n1", new InetSocketAddress("127.0.0.1", port1),
+                "n2", new InetSocketAddress("127.0.0.1", port2));
+        List<String> lobbyIds = lobbyIds();
+        CountDownLatch commands = new CountDownLatch(100);
+        CountDownLatch replies = new CountDownLatch(100);
+        Map<String, ClusterNode> nodes = new ConcurrentHashMap<>();
+
+        ClusterEndpoint replying = new CountingEndpoint(commands) {
+            @Override
+            public void handleRelayedCommand(String originNode, String sessionId, String payload) {
+                super.handleRelayedCommand(originNode, sessionId, payload);
+                nodes.get("n2").sendToSession(originNode, sessionId, "ack:" + payload);
+            }
+        };
+        ClusterEndpoint receiving = new CountingEndpoint(null) {
+            @Override
+            public void handleSessionMessage(String sessionId, String json) {
+                if (json.startsWith("ack:")) replies.countDown();
+            }
+        };
+        ClusterNode n1 = new ClusterNode("n1", new TcpMessageBus(peers.get("n1"), peers), 64, lobbyIds, new FakeTransfer(), receiving);
+        ClusterNode n2 = new ClusterNode("n2", new TcpMessageBus(peers.get("n2"), peers), 64, lobbyIds, new FakeTransfer(), replying);
+        nodes.put("n1", n1);
+        nodes.put("n2", n2);
+        n1.start();
+        n2.start();
+        awaitTrue(() -> n1.getNodes().size() == 2);
+
+        List<String> remoteLobbies = lobbyIds.stream().filter(id -> !n1.isLocal(id)).toList();
+        assertTrue(!remoteLobbies.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            n1.forwardCommand(remoteLobbies.get(i % remoteLobbies.size()), "s" + i, "{\"action\":\"ping\"}");
+        }
+        assertTrue(commands.await(10, TimeUnit.SECONDS));
+        assertTrue(replies.await(10, TimeUnit.SECONDS));
+        n2.leave();
+        n1.leave();
+    }
+
+    private static List<String> lobbyIds() {
+        List<String> ids = new ArrayList<>(LOBBY_COUNT);
+        for (int i = 0; i < LOBBY_COUNT; i++) {
+            ids.add("lobby-" + i);
+        }
+        return ids;
+    }
+
+    private static int freePort() throws Exception {
+        try (java.net.ServerSocket socket = new java.net.ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie zostal spelniony w czasie");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class FakeTransfer implements LobbyTransfer {
+        final Map<String, byte[]> state = new ConcurrentHashMap<>();
+
+        @Override
+        public Optional<byte[]> exportLobby(String lobbyId) {
+            return Optional.ofNullable(state.get(lobbyId));
+        }
+
+        @Override
+        public void importLobby(byte[] data) {
+            String id = new String(data, StandardCharsets.UTF_8);
+            state.put(id, data);
+        }
+
+        @Override
+        public void releaseLobby(String lobbyId) {
+            state.remove(lobbyId);
+        }
+    }
+
+    private static class CountingEndpoint implements ClusterEndpoint {
+        private final CountDownLatch commands;
+
+        CountingEndpoint(CountDownLatch commands) {
+            this.commands = commands;
+        }
+
+        @Override
+        public void handleRelayedCommand(String originNode, String sessionId, String payload) {
+            if (commands != null) commands.countDown();
+        }
+
+        @Override
+        public void handleRemoteLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Set<String> members) {
+        }
+
+        @Override
+        public void handleSessionMessage(String sessionId, String json) {
+        }
+
+        @Override
+        public void handleRemoteSessionClosed(String sessionId) {
+        }
+
+        @Override
+        public void lobbyImported(String lobbyId) {
+        }
+    }
+}
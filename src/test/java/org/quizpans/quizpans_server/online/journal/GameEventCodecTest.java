@@ -0,0 +1,76 @@
+package org.quizpans.quizpans_server.online.journal;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventCodecTest {
+
+    static GameEvent event(String lobbyId, GameEventType type, String text) {
+        GameOutcome outcome = new GameOutcome(LobbyStatus.BUSY, 3, 5, 120, -7, 2, 1, 45, 0b1011, 42,
+                true, false, true, false);
+        return new GameEvent(0, 1_700_000_000_000L, lobbyId, type, "s-1", 4, 30, text, outcome);
+    }
+
+    private static ByteBuffer record(GameEvent event, long sequence) {
+        ByteBuffer body = ByteBuffer.allocate(16 * 1024);
+        GameEventCodec.encodeBody(event, sequence, body);
+        body.flip();
+        ByteBuffer target = ByteBuffer.allocate(body.remaining() + 64);
+        assertTrue(GameEventCodec.writeRecord(body, target));
+        target.flip();
+        return target;
+    }
+
+    @Test
+    void recordRoundTripsAllFields() {
+        GameEvent written = event("Red", GameEventType.ANSWER_EVALUATED, "Żółw");
+        GameEvent read = GameEventCodec.readRecord(record(written, 17));
+        assertEquals(new GameEvent(17, written.timestamp(), "Red", GameEventType.ANSWER_EVALUATED, "s-1", 4, 30, "Żółw",
+                written.outcome()), read);
+
+        GameEvent nulls = new GameEvent(0, 1, "Red", GameEventType.LOBBY_RESET, null, 0, 0, null, written.outcome());
+        GameEvent readNulls = GameEventCodec.readRecord(record(nulls, 1));
+        assertNull(readNulls.sessionId());
+        assertNull(readNulls.text());
+    }
+
+    @Test
+    void longPolishTextIsCutOnCharacterBoundary() {
+        //1 bajt + po 2 bajty na znak: granica 4096 wypada w srodku znaku
+        String text = "x" + "żą".repeat(2000);
+        GameEvent read = GameEventCodec.readRecord(record(event("Red", GameEventType.QUESTION_LOADED, text), 1));
+        assertTrue(text.startsWith(read.text()));
+        assertFalse(read.text().contains("�"));
+        assertTrue(read.text().getBytes(StandardCharsets.UTF_8).length <= 4096);
+        assertTrue(read.text().getBytes(StandardCharsets.UTF_8).length > 4090);
+    }
+
+    @Test
+    void corruptedOrTruncatedRecordIsRejected() {
+        ByteBuffer first = record(event("Red", GameEventType.PLAYER_JOINED, "Ala"), 1);
+        ByteBuffer second = record(event("Red", GameEventType.PLAYER_LEFT, "Ala"), 2);
+        ByteBuffer segment = ByteBuffer.allocate(first.remaining() + second.remaining() + 4);
+        segment.put(first).put(second.duplicate()).flip();
+
+        //bit w tresci drugiego rekordu: crc sie nie zgadza
+        int corruptAt = segment.limit() - second.remaining() + 10;
+        segment.put(corruptAt, (byte) (segment.get(corruptAt) ^ 0x01));
+        assertEquals(1, GameEventCodec.readRecord(segment).sequence());
+        int secondStart = segment.position();
+        assertNull(GameEventCodec.readRecord(segment));
+        assertEquals(secondStart, segment.position());
+
+        ByteBuffer truncated = record(event("Red", GameEventType.PLAYER_JOINED, "Ala"), 3);
+        truncated.limit(truncated.limit() - 6);
+        assertNull(GameEventCodec.readRecord(truncated));
+        assertNull(GameEventCodec.readRecord(ByteBuffer.allocate(16)));
+    }
+}
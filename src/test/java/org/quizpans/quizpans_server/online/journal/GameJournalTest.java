@@ -0,0 +1,90 @@
+package org.quizpans.quizpans_server.online.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+    //ok 2 kB na rekord, segment 1 MB miesci ok 500
+    private static final String LONG_TEXT = "ź".repeat(1000);
+
+    @TempDir
+    Path directory;
+
+    private GameJournal open() throws Exception {
+        GameJournal journal = new GameJournal(true, directory.toString(), 1, 64, 4096);
+        journal.start();
+        return journal;
+    }
+
+    private static void awaitWritten(GameJournal journal, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (journal.getWrittenEvents() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, journal.getWrittenEvents());
+    }
+
+    private List<GameEvent> readAll() throws Exception {
+        List<GameEvent> events = new ArrayList<>();
+        GameJournalReader.forEach(directory, events::add);
+        return events;
+    }
+
+    @Test
+    void rollsSegmentsAndContinuesSequenceAfterRestart() throws Exception {
+        GameJournal journal = open();
+        for (int i = 0; i < 1200; i++) {
+            journal.append(GameEventCodecTest.event("L" + (i % 3), GameEventType.ANSWER_EVALUATED, LONG_TEXT));
+        }
+        awaitWritten(journal, 1200);
+        journal.stop();
+        assertTrue(GameJournal.listSegments(directory).size() >= 3);
+
+        journal = open();
+        journal.append(GameEventCodecTest.event("L0", GameEventType.LOBBY_RESET, null));
+        awaitWritten(journal, 1);
+        journal.stop();
+
+        List<GameEvent> events = readAll();
+        assertEquals(1201, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).sequence());
+        }
+        assertEquals(GameEventType.LOBBY_RESET, events.get(1200).type());
+        assertEquals(401, GameJournalReader.readLobby(directory, "L0").size());
+    }
+
+    @Test
+    void readerStopsAtCorruptedRecord() throws Exception {
+        GameJournal journal = open();
+        for (int i = 0; i < 10; i++) {
+            journal.append(GameEventCodecTest.event("Red", GameEventType.PLAYER_JOINED, "gracz" + i));
+        }
+        awaitWritten(journal, 10);
+        journal.stop();
+
+        assertEquals(10, readAll().size());
+        Path segment = GameJournal.listSegments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //bajt w tresci szostego rekordu; wszystkie rekordy maja ten sam rozmiar
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, GameEventCodec.SEGMENT_HEADER_SIZE);
+            int recordSize = length.flip().getInt() + GameEventCodec.RECORD_OVERHEAD;
+            long position = GameEventCodec.SEGMENT_HEADER_SIZE + 5L * recordSize + 12;
+            ByteBuffer original = ByteBuffer.allocate(1);
+            channel.read(original, position);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (original.get(0) ^ 0x40)}), position);
+        }
+        assertEquals(5, readAll().size());
+    }
+}
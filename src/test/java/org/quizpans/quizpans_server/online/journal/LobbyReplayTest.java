@@ -0,0 +1,86 @@
+package org.quizpans.quizpans_server.online.journal;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LobbyReplayTest {
+
+    private static Lobby journaledLobby(List<GameEvent> events) {
+        Lobby lobby = new Lobby("Red", "Czerwone");
+        lobby.setEventSink(events::add);
+        lobby.setHostSessionId("host");
+        lobby.recordEvent(GameEventType.HOST_TAKEN, "host", 0, 0, null);
+        for (String sessionId : List.of("a", "b", "c")) {
+            lobby.addPlayer(new PlayerInfo(sessionId, "gracz-" + sessionId, null, ParticipantRole.PLAYER));
+        }
+        return lobby;
+    }
+
+    private static LobbyReplay replay(List<GameEvent> events) {
+        LobbyReplay replay = new LobbyReplay("Red");
+        events.forEach(replay::apply);
+        return replay;
+    }
+
+    @Test
+    void quizMasterChangeReplaysToSingleQuizMaster() {
+        List<GameEvent> events = new ArrayList<>();
+        Lobby lobby = journaledLobby(events);
+        lobby.assignPlayerToTeam("a", "Niebiescy");
+        lobby.setQuizMaster(lobby.findParticipantBySessionId("b"));
+        lobby.setQuizMaster(lobby.findParticipantBySessionId("c"));
+        lobby.removePlayer("a");
+
+        LobbyReplay replay = replay(events);
+        assertEquals("host", replay.getHostSessionId());
+        assertEquals(List.of("b", "c"), List.copyOf(replay.getParticipants().keySet()));
+        assertEquals(ParticipantRole.PLAYER, replay.getParticipants().get("b").role());
+        assertNull(replay.getParticipants().get("b").teamName());
+        assertEquals(ParticipantRole.QUIZ_MASTER, replay.getParticipants().get("c").role());
+        assertEquals(1, replay.getParticipants().values().stream().filter(p -> p.role() == ParticipantRole.QUIZ_MASTER).count());
+    }
+
+    @Test
+    void answerEndingRoundIsJournaledBeforeRoundFinalized() {
+        List<GameEvent> events = new ArrayList<>();
+        Lobby lobby = journaledLobby(events);
+        lobby.assignPlayerToTeam("a", "Niebiescy");
+        lobby.assignPlayerToTeam("b", "Czerwoni");
+        lobby.setStatus(LobbyStatus.BUSY);
+        lobby.setTotalRounds(3);
+        lobby.setCurrentRoundNumber(1);
+        lobby.setCurrentQuestionText("Co stoi w kuchni?");
+        lobby.setAnswerBoard(AnswerBoard.fromAnswers(List.of(
+                new GameService.AnswerData("Lodówka", 60, 0, "lodowka"),
+                new GameService.AnswerData("Kuchenka", 40, 1, "kuchenka"))));
+        lobby.setInitialControlPhaseActive(false);
+        lobby.setStealAttemptInProgress(true);
+        lobby.setTeam1Turn(false);
+        lobby.setCurrentRoundPoints(60);
+        lobby.setCurrentPlayerSessionId("b");
+        events.clear();
+
+        //udana kradziez konczy runde
+        lobby.processAnswer(lobby.findParticipantBySessionId("b"),
+                new GameService.AnswerProcessingResult(true, 40, "Kuchenka", 1, "kuchenka"), null, false);
+
+        assertEquals(List.of(GameEventType.ANSWER_EVALUATED, GameEventType.ROUND_FINALIZED), events.stream().map(GameEvent::type).toList());
+        GameOutcome afterAnswer = events.get(0).outcome();
+        assertEquals(1, afterAnswer.roundNumber());
+        assertEquals(0b10, afterAnswer.revealedMask());
+        assertEquals(100, afterAnswer.team2Score());
+        assertEquals(2, events.get(1).outcome().roundNumber());
+        assertEquals(2, replay(events).getOutcome().roundNumber());
+    }
+}
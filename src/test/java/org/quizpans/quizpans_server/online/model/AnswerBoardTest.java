@@ -0,0 +1,70 @@
+package org.quizpans.quizpans_server.online.model;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerBoardTest {
+
+    private static List<GameService.AnswerData> answers(int... displayOrderIndexes) {
+        List<GameService.AnswerData> answers = new ArrayList<>();
+        for (int index : displayOrderIndexes) {
+            answers.add(new GameService.AnswerData("Odp" + index, 10 * (index + 1), index, "odp" + index));
+        }
+        return answers;
+    }
+
+    @Test
+    void slotsFollowDisplayOrderAndKeepGaps() {
+        AnswerBoard board = AnswerBoard.fromAnswers(answers(0, 2, 3));
+        assertEquals(4, board.getSlotCount());
+        assertEquals(3, board.getAnswerCount());
+        assertFalse(board.hasSlot(1));
+        assertEquals(30, board.getPoints(2));
+        assertEquals(2, board.slotOf("ODP2"));
+        assertEquals(-1, board.slotOf("brak"));
+        assertSame(AnswerBoard.EMPTY, AnswerBoard.fromAnswers(List.of()));
+    }
+
+    @Test
+    void revealIsOncePerSlotAndIgnoresGaps() {
+        AnswerBoard board = AnswerBoard.fromAnswers(answers(0, 2));
+        assertTrue(board.reveal(2));
+        assertFalse(board.reveal(2));
+        assertFalse(board.reveal(1));
+        assertFalse(board.reveal(-1));
+        assertFalse(board.reveal(7));
+        assertTrue(board.isRevealed(2));
+        assertFalse(board.isRevealed(0));
+        assertEquals(1, board.getRevealedCount());
+        assertEquals(0b100, board.getRevealedMask());
+
+        AnswerBoard restored = AnswerBoard.of(new String[]{"Odp0", null, "Odp2"}, new int[]{10, 0, 30}, board.getRevealedMask());
+        assertTrue(restored.isRevealed(2));
+        assertEquals(2, restored.getAnswerCount());
+    }
+
+    @Test
+    void lastSlotDoesNotAliasFirst() {
+        AnswerBoard board = AnswerBoard.fromAnswers(answers(0, AnswerBoard.MAX_SLOTS - 1));
+        assertTrue(board.reveal(AnswerBoard.MAX_SLOTS - 1));
+        assertFalse(board.isRevealed(0));
+        assertFalse(board.isRevealed(AnswerBoard.MAX_SLOTS));
+        assertTrue(board.reveal(0));
+    }
+
+    @Test
+    void rejectsMoreSlotsThanMaskBits() {
+        assertThrows(IllegalArgumentException.class, () -> AnswerBoard.fromAnswers(answers(0, AnswerBoard.MAX_SLOTS)));
+        assertThrows(IllegalArgumentException.class,
+                () -> AnswerBoard.of(new String[AnswerBoard.MAX_SLOTS + 1], new int[AnswerBoard.MAX_SLOTS + 1], 0));
+    }
+}
@@ -0,0 +1,144 @@
+package org.quizpans.quizpans_server.online.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyRosterTest {
+
+    private static Lobby lobbyWith(String... sessionIds) {
+        Lobby lobby = new Lobby("L1", "Lobby");
+        lobby.setGameSettings(new GameSettings(null, 30, 5, 4));
+        for (String sessionId : sessionIds) {
+            assertTrue(lobby.addPlayer(new PlayerInfo(sessionId, "gracz-" + sessionId, null, ParticipantRole.PLAYER)));
+        }
+        return lobby;
+    }
+
+    private static List<String> ids(List<PlayerInfo> players) {
+        return players.stream().map(PlayerInfo::sessionId).toList();
+    }
+
+    @Test
+    void joinLeaveAndTeamSwitchKeepRostersInJoinOrder() {
+        Lobby lobby = lobbyWith("a", "b", "c");
+        assertEquals(List.of("a", "b", "c"), ids(lobby.getWaitingPlayers()));
+        assertTrue(lobby.getTeams().isEmpty());
+
+        assertTrue(lobby.assignPlayerToTeam("a", "Niebiescy"));
+        assertTrue(lobby.assignPlayerToTeam("b", "Niebiescy"));
+        assertTrue(lobby.assignPlayerToTeam("c", "Czerwoni"));
+        assertEquals(List.of("a", "b"), ids(lobby.getTeams().get("Niebiescy")));
+        assertEquals(List.of("c"), ids(lobby.getTeams().get("Czerwoni")));
+        assertTrue(lobby.getWaitingPlayers().isEmpty());
+
+        //zmiana druzyny: na koniec nowego skladu, pusty sklad znika
+        assertTrue(lobby.assignPlayerToTeam("a", "Czerwoni"));
+        assertEquals(List.of("b"), ids(lobby.getTeams().get("Niebiescy")));
+        assertEquals(List.of("c", "a"), ids(lobby.getTeams().get("Czerwoni")));
+        assertTrue(lobby.assignPlayerToTeam("b", "Czerwoni"));
+        assertFalse(lobby.getTeams().containsKey("Niebiescy"));
+
+        assertTrue(lobby.unassignPlayer("c"));
+        assertEquals(List.of("a", "b"), ids(lobby.getTeams().get("Czerwoni")));
+        assertEquals(List.of("c"), ids(lobby.getWaitingPlayers()));
+
+        assertTrue(lobby.removePlayer("a"));
+        assertTrue(lobby.removePlayer("c"));
+        assertEquals(List.of("b"), ids(lobby.getTeams().get("Czerwoni")));
+        assertTrue(lobby.getWaitingPlayers().isEmpty());
+        assertEquals(1, lobby.getTotalParticipantCount());
+    }
+
+    @Test
+    void teamCapacityCountsRosterOnly() {
+        Lobby lobby = lobbyWith("a", "b", "c", "d", "e");
+        for (String sessionId : List.of("a", "b", "c", "d")) {
+            assertTrue(lobby.assignPlayerToTeam(sessionId, "Niebiescy"));
+        }
+        assertFalse(lobby.assignPlayerToTeam("e", "Niebiescy"));
+        assertTrue(lobby.removePlayer("b"));
+        assertTrue(lobby.assignPlayerToTeam("e", "Niebiescy"));
+        assertEquals(List.of("a", "c", "d", "e"), ids(lobby.getTeams().get("Niebiescy")));
+    }
+
+    @Test
+    void quizMasterLeavesRostersAndPreviousReturnsToWaiting() {
+        Lobby lobby = lobbyWith("a", "b");
+        assertTrue(lobby.assignPlayerToTeam("a", "Niebiescy"));
+        assertTrue(lobby.assignPlayerToTeam("b", "Niebiescy"));
+
+        lobby.setQuizMaster(lobby.findParticipantBySessionId("a"));
+        assertEquals(ParticipantRole.QUIZ_MASTER, lobby.findParticipantBySessionId("a").getRole());
+        assertEquals(List.of("b"), ids(lobby.getTeams().get("Niebiescy")));
+        assertTrue(lobby.getWaitingPlayers().isEmpty());
+
+        lobby.setQuizMaster(lobby.findParticipantBySessionId("b"));
+        assertEquals("b", lobby.getQuizMaster().sessionId());
+        assertEquals(ParticipantRole.PLAYER, lobby.findParticipantBySessionId("a").getRole());
+        assertEquals(List.of("a"), ids(lobby.getWaitingPlayers()));
+        assertFalse(lobby.getTeams().containsKey("Niebiescy"));
+
+        //prowadzacy dolacza do druzyny i przestaje byc prowadzacym
+        assertTrue(lobby.assignPlayerToTeam("b", "Czerwoni"));
+        assertNull(lobby.getQuizMaster());
+        assertEquals(List.of("b"), ids(lobby.getTeams().get("Czerwoni")));
+    }
+
+    @Test
+    void turnPointerFollowsCurrentPlayerWhenRosterChanges() {
+        Lobby lobby = lobbyWith("a", "b", "c", "d");
+        for (String sessionId : List.of("a", "b", "c", "d")) {
+            assertTrue(lobby.assignPlayerToTeam(sessionId, "Niebiescy"));
+        }
+        lobby.setTeam1Turn(true);
+        lobby.setCurrentPlayerSessionId("b");
+
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("c", lobby.getCurrentPlayerSessionId());
+
+        //gracz przed biezacym wychodzi: indeks sie przesuwa, tura dalej za c
+        assertTrue(lobby.removePlayer("a"));
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("d", lobby.getCurrentPlayerSessionId());
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("b", lobby.getCurrentPlayerSessionId());
+
+        //dolaczenie do skladu w trakcie rundy nie przestawia tury
+        assertTrue(lobby.addPlayer(new PlayerInfo("e", "gracz-e", null, ParticipantRole.PLAYER)));
+        assertTrue(lobby.assignPlayerToTeam("e", "Niebiescy"));
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("c", lobby.getCurrentPlayerSessionId());
+    }
+
+    @Test
+    void currentPlayerLeavingMidRoundRestartsFromFirstInTeam() {
+        Lobby lobby = lobbyWith("a", "b", "c");
+        for (String sessionId : List.of("a", "b", "c")) {
+            assertTrue(lobby.assignPlayerToTeam(sessionId, "Niebiescy"));
+        }
+        lobby.setTeam1Turn(true);
+        lobby.setCurrentPlayerSessionId("b");
+
+        assertTrue(lobby.removePlayer("b"));
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("a", lobby.getCurrentPlayerSessionId());
+        lobby.moveToNextPlayerInTeam();
+        assertEquals("c", lobby.getCurrentPlayerSessionId());
+
+        //ostatni gracz druzyny wychodzi: tura przechodzi na druga druzyne
+        assertTrue(lobby.addPlayer(new PlayerInfo("x", "gracz-x", null, ParticipantRole.PLAYER)));
+        assertTrue(lobby.assignPlayerToTeam("x", "Czerwoni"));
+        lobby.setInitialControlPhaseActive(false);
+        assertTrue(lobby.removePlayer("a"));
+        assertTrue(lobby.removePlayer("c"));
+        lobby.moveToNextPlayerInTeam();
+        assertFalse(lobby.isTeam1Turn());
+        assertEquals("x", lobby.getCurrentPlayerSessionId());
+    }
+}
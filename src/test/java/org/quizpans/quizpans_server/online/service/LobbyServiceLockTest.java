@@ -0,0 +1,41 @@
+package org.quizpans.quizpans_server.online.service;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyServiceLockTest {
+
+    //wyjscie gracza przy rozlaczeniu czeka, az operacja pod blokada serwisu skonczy czytac sklady
+    @Test
+    void disconnectRemovalWaitsForServiceLock() throws Exception {
+        SessionIndex sessionIndex = new SessionIndex();
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), sessionIndex);
+        Method init = LobbyService.class.getDeclaredMethod("initializeLobbies");
+        init.setAccessible(true);
+        init.invoke(lobbyService);
+        Lobby lobby = lobbyService.getLobby("Red").orElseThrow();
+        assertTrue(lobby.addPlayer(new PlayerInfo("p1", "Ala", null, ParticipantRole.PLAYER)));
+
+        CompletableFuture<Boolean> removal;
+        synchronized (lobbyService) {
+            removal = CompletableFuture.supplyAsync(() -> lobbyService.removePlayerFromLobby("Red", "p1").isPresent());
+            Thread.sleep(100);
+            assertFalse(removal.isDone());
+            assertNotNull(lobby.findParticipantBySessionId("p1"));
+        }
+        assertTrue(removal.get(5, TimeUnit.SECONDS));
+        assertNull(lobby.findParticipantBySessionId("p1"));
+    }
+}
@@ -0,0 +1,187 @@
+package org.quizpans.quizpans_server.online.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.DatabaseQuestionSource;
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.quizpans.quizpans_server.online.websocket.SessionResume;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbySnapshotCodecTest {
+    private static final int LOBBY_COUNT = 10_000;
+
+    @Test
+    void snapshotAndRestoreTenThousandLobbies() throws Exception {
+        List<LobbySnapshotEntry> entries = new ArrayList<>(LOBBY_COUNT);
+        for (int i = 0; i < LOBBY_COUNT; i++) {
+            entries.add(new LobbySnapshotEntry(createRunningLobby("L" + i).toSnapshot(SessionResume::digest), true, "Sport", createQuestion(i)));
+        }
+
+        long encodeStart = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LobbySnapshotCodec.encode(entries, out);
+        long encodeNanos = System.nanoTime() - encodeStart;
+        byte[] encoded = out.toByteArray();
+
+        long decodeStart = System.nanoTime();
+        List<LobbySnapshotEntry> decoded = LobbySnapshotCodec.decode(new ByteArrayInputStream(encoded));
+        List<LobbySnapshotEntry> restored = new ArrayList<>(decoded.size());
+        for (LobbySnapshotEntry entry : decoded) {
+            Lobby lobby = new Lobby(entry.lobby().id(), entry.lobby().id());
+            lobby.restoreFrom(entry.lobby(), false);
+            GameService gameService = new GameService(entry.category(), new DatabaseQuestionSource(), QuizpansMetrics.standalone());
+            gameService.restoreCompiledQuestion(entry.question());
+            restored.add(new LobbySnapshotEntry(lobby.toSnapshot(SessionResume::digest), true, gameService.getCategory(), gameService.getCompiledQuestion()));
+        }
+        long restoreNanos = System.nanoTime() - decodeStart;
+
+        System.out.printf("Kopia %d lobby: %d B, zapis %.1f ms, odczyt i odtworzenie %.1f ms%n",
+                LOBBY_COUNT, encoded.length, encodeNanos / 1e6, restoreNanos / 1e6);
+
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        LobbySnapshotCodec.encode(restored, again);
+        assertArrayEquals(withoutTimestamp(encoded), withoutTimestamp(again.toByteArray()));
+        assertTrue(encodeNanos + restoreNanos < 10_000_000_000L);
+    }
+
+    //token wznowienia gracza w tescie to jego id sesji
+    private static Lobby restartedLobby() throws Exception {
+        Lobby original = createRunningLobby("Red");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LobbySnapshotCodec.encode(List.of(new LobbySnapshotEntry(original.toSnapshot(SessionResume::digest), false, null, null)), out);
+
+        Lobby restored = new Lobby("Red", "Red");
+        SessionIndex sessionIndex = new SessionIndex();
+        restored.setMembershipListener(sessionIndex);
+        restored.restoreFrom(LobbySnapshotCodec.decode(new ByteArrayInputStream(out.toByteArray())).get(0).lobby(), true);
+        assertEquals(0, sessionIndex.size());
+        return restored;
+    }
+
+    @Test
+    void restoredParticipantIsReclaimedWithResumeToken() throws Exception {
+        Lobby restored = restartedLobby();
+        assertEquals(8, restored.getDetachedParticipantCount());
+        assertTrue(restored.reclaimDetachedParticipant(SessionResume.digest("Red-s2"), "new-session"));
+
+        assertEquals(8, restored.getTotalParticipantCount());
+        assertEquals(7, restored.getDetachedParticipantCount());
+        assertEquals("new-session", restored.getCurrentPlayerSessionId());
+        assertEquals("gracz2", restored.findParticipantBySessionId("new-session").nickname());
+        assertEquals("Niebiescy", restored.findParticipantBySessionId("new-session").teamName());
+        assertEquals(0b101, restored.getAnswerBoard().getRevealedMask());
+        //token jednorazowy
+        assertFalse(restored.reclaimDetachedParticipant(SessionResume.digest("Red-s2"), "another-session"));
+    }
+
+    @Test
+    void strangerWithSameNicknameOrOldSessionIdGetsNoSeat() throws Exception {
+        Lobby restored = restartedLobby();
+        //po restarcie kontener znow nadaje te same id sesji
+        assertNull(restored.findParticipantBySessionId("Red-s2"));
+        assertTrue(restored.addPlayer(new PlayerInfo("Red-s2", "gracz2", null, ParticipantRole.PLAYER)));
+        assertNull(restored.findParticipantBySessionId("Red-s2").teamName());
+        assertEquals(9, restored.getTotalParticipantCount());
+        assertFalse(restored.reclaimDetachedParticipant(SessionResume.digest("zgadniety-token"), "Red-s2"));
+
+        //wyjscie obcego nie usuwa odtworzonego gracza
+        assertTrue(restored.removePlayer("Red-s2"));
+        assertEquals(8, restored.getDetachedParticipantCount());
+        assertEquals(4, restored.getTeams().get("Niebiescy").size());
+    }
+
+    //tura w toku po restarcie dalej sie konczy, gra nie stoi az do ruchu prowadzacego
+    @Test
+    void restoredTurnInProgressRestartsAnswerTimer() throws Exception {
+        Lobby original = createRunningLobby("Red");
+        original.setGameSettings(new GameSettings("Sport", 1, 5, 4));
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), new SessionIndex());
+        Method init = LobbyService.class.getDeclaredMethod("initializeLobbies");
+        init.setAccessible(true);
+        init.invoke(lobbyService);
+        try {
+            lobbyService.restoreSnapshots(List.of(new LobbySnapshotEntry(original.toSnapshot(SessionResume::digest), false, null, null)), true);
+            Lobby restored = lobbyService.getLobby("Red").orElseThrow();
+            assertTrue(restored.isAnswerTimerRunning());
+            assertEquals(1, restored.getCurrentAnswerTimeRemaining());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (restored.isTeam1Turn()) {
+                assertTrue(System.nanoTime() < deadline, "czas odpowiedzi po odtworzeniu nie minal");
+                Thread.sleep(20);
+            }
+            //faza kontroli: brak odpowiedzi oddaje probe drugiej druzynie, jej tura znow z zegarem
+            assertFalse(restored.isTeam1Turn());
+            assertTrue(restored.isAnswerTimerRunning());
+        } finally {
+            lobbyService.shutdownScheduler();
+        }
+    }
+
+    private static Lobby createRunningLobby(String id) {
+        Lobby lobby = new Lobby(id, id);
+        lobby.setGameSettings(new GameSettings("Sport", 30, 5, 4));
+        lobby.setPassword(id.hashCode() % 2 == 0 ? "tajne" : null);
+        for (int p = 0; p < 8; p++) {
+            lobby.addPlayer(new PlayerInfo(id + "-s" + p, "gracz" + p, null, ParticipantRole.PLAYER));
+            lobby.assignPlayerToTeam(id + "-s" + p, p % 2 == 0 ? "Niebiescy" : "Czerwoni");
+        }
+        lobby.setStatus(LobbyStatus.BUSY);
+        lobby.setCurrentRoundNumber(2);
+        lobby.setTotalRounds(5);
+        lobby.setTeam1Turn(true);
+        lobby.setCurrentPlayerSessionId(id + "-s2");
+        lobby.setTeam1Score(120);
+        lobby.setTeam2Score(87);
+        lobby.setTeam1Errors(1);
+        lobby.setCurrentQuestionText("Wymień owoc, który jest żółty");
+        lobby.setQuestionRevealed(true);
+        lobby.setAnswerBoard(AnswerBoard.of(
+                new String[]{"Banan", "Cytryna", "Gruszka", "Melon", "Ananas"},
+                new int[]{40, 25, 15, 12, 8}, 0b101));
+        lobby.setCurrentRoundPoints(55);
+        lobby.setRevealedAnswersCountInRound(2);
+        return lobby;
+    }
+
+    private static GameService.CompiledQuestion createQuestion(int id) {
+        List<GameService.AnswerData> answers = List.of(
+                new GameService.AnswerData("Banan", 40, 0, "banan"),
+                new GameService.AnswerData("Cytryna", 25, 1, "cytryna"),
+                new GameService.AnswerData("Gruszka", 15, 2, "gruszka"),
+                new GameService.AnswerData("Melon", 12, 3, "melon"),
+                new GameService.AnswerData("Ananas", 8, 4, "ananas"));
+        return new GameService.CompiledQuestion(id, "Wymień owoc, który jest żółty", answers,
+                Map.of("zoltymelon", Set.of("zolty", "melon")), Map.of("limonka", "cytryna"));
+    }
+
+    private static byte[] withoutTimestamp(byte[] encoded) {
+        byte[] copy = Arrays.copyOf(encoded, encoded.length);
+        Arrays.fill(copy, 5, 13, (byte) 0);
+        return copy;
+    }
+}
@@ -0,0 +1,88 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.websocket.AdmissionControl.Rejection;
+import org.quizpans.quizpans_server.online.websocket.action.ClientAction;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    private AdmissionControl admission(double sessionRate, double sessionBurst, double addressRate, double addressBurst) {
+        return new AdmissionControl(1000, 200, AdmissionControl.parseActionBytes("submitAnswer=100, getAllLobbies=20"), 10,
+                sessionRate, sessionBurst, addressRate, addressBurst, false, clock::get);
+    }
+
+    private static StubWebSocketSession session(String id, String address) {
+        StubWebSocketSession session = new StubWebSocketSession(id);
+        session.remoteAddress = new InetSocketAddress(address, 40000);
+        return session;
+    }
+
+    @Test
+    void sessionBucketAllowsBurstThenRefillsAtRate() {
+        AdmissionControl admission = admission(10, 3, 1000, 1000);
+        admission.register(session("s1", "10.0.0.1"));
+        for (int i = 0; i < 3; i++) {
+            assertNull(admission.admitMessage("s1", 10));
+        }
+        assertEquals(Rejection.SESSION_RATE, admission.admitMessage("s1", 10));
+        assertTrue(admission.shouldNotify("s1", Rejection.SESSION_RATE));
+        assertFalse(admission.shouldNotify("s1", Rejection.SESSION_RATE));
+
+        clock.addAndGet(100_000_000L);
+        assertNull(admission.admitMessage("s1", 10));
+        assertEquals(Rejection.SESSION_RATE, admission.admitMessage("s1", 10));
+        assertTrue(admission.shouldNotify("s1", Rejection.SESSION_RATE));
+        assertEquals(2, admission.getRejected(Rejection.SESSION_RATE));
+    }
+
+    @Test
+    void addressBucketIsSharedAndReleasedWithLastSession() {
+        AdmissionControl admission = admission(1000, 1000, 1, 4);
+        admission.register(session("a", "10.0.0.2"));
+        admission.register(session("b", "10.0.0.2"));
+        admission.register(session("c", "10.0.0.3"));
+        assertNull(admission.admitMessage("a", 10));
+        assertNull(admission.admitMessage("b", 10));
+        assertNull(admission.admitMessage("a", 10));
+        assertNull(admission.admitMessage("b", 10));
+        assertEquals(Rejection.ADDRESS_RATE, admission.admitMessage("b", 10));
+        assertNull(admission.admitMessage("c", 10));
+        assertEquals(2, admission.trackedAddresses());
+
+        admission.unregister("a");
+        assertEquals(2, admission.trackedAddresses());
+        admission.unregister("b");
+        admission.unregister("c");
+        assertEquals(0, admission.trackedAddresses());
+    }
+
+    @Test
+    void rejectsOversizedMessagesActionsAndAnswers() {
+        AdmissionControl admission = admission(1000, 1000, 1000, 1000);
+        admission.register(session("s1", "10.0.0.4"));
+        assertEquals(Rejection.MESSAGE_TOO_LARGE, admission.admitMessage("s1", 1001));
+        assertEquals(Rejection.ACTION_TOO_LARGE, admission.admitAction(new ClientAction.GetAllLobbies(), 21));
+        assertEquals(Rejection.ACTION_TOO_LARGE, admission.admitAction(new ClientAction.StartGame("Red"), 201));
+        assertNull(admission.admitAction(new ClientAction.RequestNewQuestion("Red", Set.of(1, 2)), 200));
+        assertEquals(Rejection.ANSWER_TOO_LONG, admission.admitAction(new ClientAction.SubmitAnswer("Red", "x".repeat(11), "s1"), 50));
+        assertEquals(Rejection.ANSWER_TOO_LONG, admission.admitAction(new ClientAction.RevealAnswerByHost("Red", "y".repeat(11)), 50));
+        assertNull(admission.admitAction(new ClientAction.SubmitAnswer("Red", "x".repeat(10), "s1"), 100));
+        assertTrue(admission.shouldNotify("s1", Rejection.ANSWER_TOO_LONG));
+        assertTrue(admission.shouldNotify("s1", Rejection.ANSWER_TOO_LONG));
+
+        assertEquals(2, admission.getAdmitted());
+        assertEquals(1, admission.getRejected(Rejection.MESSAGE_TOO_LARGE));
+        assertEquals(2, admission.getRejected(Rejection.ACTION_TOO_LARGE));
+        assertEquals(2, admission.getRejected(Rejection.ANSWER_TOO_LONG));
+    }
+}
@@ -0,0 +1,58 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.GameService;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.Lobby;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnswerBoardTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
+
+    @Test
+    void boardRoundTripsWithGapsCompacted() {
+        AnswerBoard board = AnswerBoard.fromAnswers(List.of(
+                new GameService.AnswerData("Lodówka", 60, 0, "lodowka"),
+                new GameService.AnswerData("Kuchenka", 40, 2, "kuchenka")));
+        board.reveal(2);
+
+        String json = gson.toJson(board, AnswerBoard.class);
+        AnswerBoard read = gson.fromJson(json, AnswerBoard.class);
+        assertEquals(2, read.getSlotCount());
+        assertEquals("Kuchenka", read.getText(1));
+        assertEquals(40, read.getPoints(1));
+        assertTrue(read.isRevealed(1));
+        assertFalse(read.isRevealed(0));
+        assertEquals(json, gson.toJson(read, AnswerBoard.class));
+    }
+
+    @Test
+    void lobbyWithBoardRoundTrips() {
+        Lobby lobby = new Lobby("L1", "Lobby");
+        lobby.setAnswerBoard(AnswerBoard.fromAnswers(List.of(new GameService.AnswerData("Lodówka", 60, 0, "lodowka"))));
+        lobby.revealAnswerData(0);
+
+        Lobby read = gson.fromJson(gson.toJson(lobby), Lobby.class);
+        assertEquals("Lodówka", read.getAnswerBoard().getText(0));
+        assertTrue(read.getAnswerBoard().isRevealed(0));
+    }
+
+    @Test
+    void rejectsOversizedBoard() {
+        String json = "[" + "{\"text\":\"x\",\"points\":1,\"isRevealed\":false},".repeat(AnswerBoard.MAX_SLOTS) + "{\"text\":\"y\"}]";
+        assertThrows(JsonParseException.class, () -> gson.fromJson(json, AnswerBoard.class));
+    }
+}
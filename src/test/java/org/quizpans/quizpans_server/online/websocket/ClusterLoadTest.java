@@ -0,0 +1,178 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//uruchamiany recznie: mvn test -Dtest=ClusterLoadTest -Dquizpans.loadtest=true -Dquizpans.loadtest.min-speedup=1.5
+//wezly w jednej jvm na szynie tcp, klienci rozlozeni po wszystkich wezlach, akcje trafiaja do wlasciciela lobby
+//kazdy wezel ma wlasny LobbyService i jego blokade, wiec przepustowosc moze rosnac najwyzej do liczby rdzeni
+//tylko piec lobby: przy czterech wezlach podzial nie jest rowny, liczba lobby na wezel w raporcie
+@EnabledIfSystemProperty(named = "quizpans.loadtest", matches = "true")
+class ClusterLoadTest {
+    private static final List<String> LOBBY_IDS = List.of("Red", "Blue", "Green", "Yellow", "Black");
+    private static final int[] NODE_COUNTS = {1, 2, 4};
+    //prowadzacy i gracze mieszcza sie w limicie 13 uczestnikow lobby
+    private static final int PLAYERS_PER_LOBBY = Integer.getInteger("quizpans.loadtest.players", 10);
+    private static final long WARMUP_SECONDS = Long.getLong("quizpans.loadtest.warmup-seconds", 3);
+    private static final long MEASURE_SECONDS = Long.getLong("quizpans.loadtest.seconds", 10);
+    //0 = tylko raport; na maszynie z kilkoma rdzeniami np. 1.5 dla czterech wezlow
+    private static final double MIN_SPEEDUP = Double.parseDouble(System.getProperty("quizpans.loadtest.min-speedup", "0"));
+
+    @Test
+    void throughputPerNodeCount() throws Exception {
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int nodeCount : NODE_COUNTS) {
+            List<ClusterRelayTest.Node> nodes = startCluster(nodeCount);
+            try {
+                List<Player> players = joinPlayers(nodes);
+                measure(players, WARMUP_SECONDS);
+                long commands = measure(players, MEASURE_SECONDS);
+                double perSecond = commands / (double) MEASURE_SECONDS;
+                throughput.put(nodeCount, perSecond);
+                StringBuilder owned = new StringBuilder();
+                for (ClusterRelayTest.Node node : nodes) {
+                    owned.append(' ').append(LOBBY_IDS.stream().filter(node.cluster::isLocal).count());
+                }
+                System.out.printf("wezly %d: %.0f akcji/s, lobby na wezel:%s%n", nodeCount, perSecond, owned);
+                assertTrue(commands > 0, "brak obsluzonych akcji przy " + nodeCount + " wezlach");
+            } finally {
+                nodes.forEach(node -> node.cluster.stop());
+            }
+        }
+        double base = throughput.get(1);
+        throughput.forEach((nodeCount, perSecond) ->
+                System.out.printf("wezly %d: przyspieszenie %.2f (rdzenie: %d)%n", nodeCount, perSecond / base,
+                        Runtime.getRuntime().availableProcessors()));
+        double speedup = throughput.get(NODE_COUNTS[NODE_COUNTS.length - 1]) / base;
+        assertTrue(speedup >= MIN_SPEEDUP, "przepustowosc nie rosnie z liczba wezlow: " + speedup);
+    }
+
+    //wezly z limitami przyjmowania, ktore nie odrzucaja ruchu testu
+    private static List<ClusterRelayTest.Node> startCluster(int nodeCount) throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        StringBuilder peers = new StringBuilder();
+        for (int i = 0; i < nodeCount; i++) {
+            String id = "load-" + nodeCount + "-" + i;
+            int port = freePort();
+            ids.add(id);
+            ports.add(port);
+            peers.append(i == 0 ? "" : ",").append(id).append("=127.0.0.1:").append(port);
+        }
+        List<ClusterRelayTest.Node> nodes = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            ClusterRelayTest.Node node = new ClusterRelayTest.Node(ids.get(i), "tcp", ports.get(i), peers.toString(),
+                    new AdmissionControl(65536, 4096, "", 200, 100000, 100000, 1e9, 1e9, false));
+            node.cluster.start();
+            nodes.add(node);
+        }
+        await(() -> LOBBY_IDS.stream().allMatch(id -> nodes.stream().filter(node -> node.cluster.isLocal(id)).count() == 1));
+        return nodes;
+    }
+
+    //prowadzacy lobby na jednym wezle, gracze po kolei na wszystkich
+    private static List<Player> joinPlayers(List<ClusterRelayTest.Node> nodes) throws Exception {
+        List<Player> players = new ArrayList<>();
+        int next = 0;
+        for (int l = 0; l < LOBBY_IDS.size(); l++) {
+            String lobbyId = LOBBY_IDS.get(l);
+            ClusterRelayTest.Node hostNode = nodes.get(l % nodes.size());
+            QueueSession host = hostNode.connect(new QueueSession("h" + l));
+            hostNode.send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"" + lobbyId + "\"}");
+            host.await("\"hostSessionId\":\"h" + l + "\"");
+            host.ignoreRest = true;
+            for (int p = 0; p < PLAYERS_PER_LOBBY; p++, next++) {
+                ClusterRelayTest.Node node = nodes.get(next % nodes.size());
+                Player player = new Player(node, node.connect(new QueueSession("p" + next)), lobbyId);
+                player.join();
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    //kazdy gracz w petli: opuszcza lobby i dolacza ponownie, czeka na joinSuccess; dwie akcje na obieg
+    private static long measure(List<Player> players, long seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Long>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Player player : players) {
+                results.add(executor.submit(() -> {
+                    long commands = 0;
+                    while (System.nanoTime() < deadline) {
+                        player.node.send(player.session, "{\"action\":\"leaveLobby\",\"lobbyId\":\"" + player.lobbyId + "\"}");
+                        player.join();
+                        commands += 2;
+                    }
+                    return commands;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            return total;
+        }
+    }
+
+    private record Player(ClusterRelayTest.Node node, QueueSession session, String lobbyId) {
+        void join() throws Exception {
+            node.send(session, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"" + lobbyId + "\",\"nickname\":\"" + session.getId() + "\"}");
+            session.await("\"joinSuccess\"");
+        }
+    }
+
+    //wiadomosci do kolejki zamiast listy, w tescie obciazeniowym nic sie nie gromadzi
+    private static class QueueSession extends StubWebSocketSession {
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        volatile boolean ignoreRest;
+
+        QueueSession(String id) {
+            super(id);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            if (!ignoreRest) messages.add((String) message.getPayload());
+        }
+
+        void await(String fragment) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (true) {
+                String message = messages.poll(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                assertTrue(message != null, "brak odpowiedzi " + fragment + " dla " + getId());
+                if (message.contains(fragment)) return;
+            }
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "wezly nie podzielily lobby w czasie");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.game.LocalQuestionSource;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterEndpoint;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterRelayTest {
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(node -> node.cluster.stop());
+    }
+
+    @Test
+    void sameContainerSessionIdOnTwoNodesStaysTwoParticipants() throws Exception {
+        Node first = start("relay-a");
+        Node second = start("relay-b");
+        await(() -> first.cluster.isLocal("Red") != second.cluster.isLocal("Red"));
+        Node owner = first.cluster.isLocal("Red") ? first : second;
+        Node relay = owner == first ? second : first;
+
+        owner.send(owner.connect("0"), "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        //oba kontenery nadaly temu samemu graczowi id "1"
+        StubWebSocketSession local = owner.connect("1");
+        StubWebSocketSession remote = relay.connect("1");
+        owner.send(local, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        relay.send(remote, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ola\"}");
+
+        Lobby lobby = owner.lobbyService.getLobby("Red").orElseThrow();
+        String remoteId = relay.cluster.getNodeId() + ":1";
+        await(() -> lobby.getTotalParticipantCount() == 2);
+        assertEquals("Ala", lobby.findParticipantBySessionId("1").nickname());
+        assertEquals("Ola", lobby.findParticipantBySessionId(remoteId).nickname());
+        assertEquals(Set.of("0", "1", remoteId), owner.sessionIndex.membersOf("Red"));
+
+        //odpowiedzi wracaja do wlasciwej sesji "1"
+        await(() -> remote.delivered().stream().anyMatch(m -> m.contains("Ola")));
+        relay.send(remote, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ola\"}");
+        await(() -> remote.delivered().stream().anyMatch(m -> m.contains("\"error\"")));
+        assertTrue(local.delivered().stream().noneMatch(m -> m.contains("\"error\"")));
+
+        //zamkniecie sesji na drugim wezle nie usuwa gracza o tym samym id u wlasciciela
+        remote.open = false;
+        relay.handler.afterConnectionClosed(remote, CloseStatus.GOING_AWAY);
+        await(() -> lobby.getTotalParticipantCount() == 1);
+        assertNotNull(lobby.findParticipantBySessionId("1"));
+        assertNull(lobby.findParticipantBySessionId(remoteId));
+    }
+
+    @Test
+    void playerOnRelayNodeSeesItsTurnAndAnswers() throws Exception {
+        Node first = start("relay-a");
+        Node second = start("relay-b");
+        await(() -> first.cluster.isLocal("Red") != second.cluster.isLocal("Red"));
+        Node owner = first.cluster.isLocal("Red") ? first : second;
+        Node relay = owner == first ? second : first;
+
+        StubWebSocketSession host = owner.connect("0");
+        owner.send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        owner.send(host, "{\"action\":\"configureLobby\",\"lobbyId\":\"Red\",\"gameSettings\":{\"category\":\"MIX (Wszystkie Kategorie)\","
+                + "\"answerTime\":30,\"numberOfRounds\":3,\"maxPlayersPerTeam\":1,\"teamBlueName\":\"Niebiescy\",\"teamRedName\":\"Czerwoni\"}}");
+        //gracz na wezle przekazujacym zna tylko swoje id "1", takie samo ma gracz u wlasciciela
+        StubWebSocketSession remote = relay.connect("1");
+        StubWebSocketSession local = owner.connect("1");
+        relay.send(remote, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ola\"}");
+        owner.send(local, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        Lobby lobby = owner.lobbyService.getLobby("Red").orElseThrow();
+        await(() -> lobby.getTotalParticipantCount() == 2);
+
+        String remoteId = relay.cluster.getNodeId() + ":1";
+        owner.send(host, "{\"action\":\"assignRole\",\"lobbyId\":\"Red\",\"participantSessionId\":\"" + remoteId
+                + "\",\"role\":\"PLAYER\",\"targetTeamName\":\"Niebiescy\"}");
+        owner.send(host, "{\"action\":\"assignRole\",\"lobbyId\":\"Red\",\"participantSessionId\":\"1\",\"role\":\"PLAYER\",\"targetTeamName\":\"Czerwoni\"}");
+        owner.send(host, "{\"action\":\"startGame\",\"lobbyId\":\"Red\"}");
+        owner.send(host, "{\"action\":\"requestInitialQuestion\",\"lobbyId\":\"Red\",\"usedQuestionIds\":[]}");
+        await(() -> lobby.getCurrentQuestionText() != null);
+        assertEquals(remoteId, lobby.getCurrentPlayerSessionId());
+
+        //widok dociera z id lokalnym dla wezla przekazujacego, a sesja u wlasciciela widzi globalne id gracza
+        await(() -> remote.delivered().stream().anyMatch(m -> m.contains("\"currentPlayerSessionId\":\"1\"")));
+        assertTrue(remote.delivered().stream().noneMatch(m -> m.contains(remoteId)));
+        await(() -> local.delivered().stream().anyMatch(m -> m.contains("\"currentPlayerSessionId\":\"" + remoteId + "\"")));
+
+        relay.send(remote, "{\"action\":\"submitAnswer\",\"lobbyId\":\"Red\",\"answer\":\"Lodowka\",\"playerSessionId\":\"1\"}");
+        await(() -> lobby.getRevealedAnswersCountInRound() == 1);
+        assertEquals(60, lobby.getCurrentRoundPoints());
+        assertTrue(remote.delivered().stream().noneMatch(m -> m.contains("\"error\"")));
+    }
+
+    private Node start(String nodeId) throws Exception {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        node.cluster.start();
+        return node;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie spelniony w czasie");
+            Thread.sleep(5);
+        }
+    }
+
+    //wezel klastra w jednej jvm, szyna wspolna dla wszystkich wezlow albo tcp (ClusterLoadTest)
+    static class Node {
+        final SessionIndex sessionIndex = new SessionIndex();
+        final LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), sessionIndex,
+                new LocalQuestionSource(new StringReader("7|Dom|Co stoi w kuchni?|Lodowka|60|Kuchenka|40\n")), QuizpansMetrics.standalone());
+        final ClusterService cluster;
+        final LobbyWebSocketHandler handler;
+
+        Node(String nodeId) throws Exception {
+            this(nodeId, "in-process", 0, "", new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false));
+        }
+
+        Node(String nodeId, String busType, int tcpPort, String tcpPeers, AdmissionControl admission) throws Exception {
+            //lobby tworzy @PostConstruct, bez kontekstu springa wolamy recznie
+            Method init = LobbyService.class.getDeclaredMethod("initializeLobbies");
+            init.setAccessible(true);
+            init.invoke(lobbyService);
+            DeferredEndpoint endpoint = new DeferredEndpoint();
+            cluster = new ClusterService(lobbyService, endpoint, true, nodeId, busType, tcpPort, tcpPeers, 16);
+            SessionOutboxManager outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+            handler = new LobbyWebSocketHandler(lobbyService, cluster, sessionIndex, new LobbyDeltaTracker(16, 32), outboxManager,
+                    new LobbyUpdateCoalescer(0), admission,
+                    new SessionHeartbeat(0, 0, outboxManager), new LobbyListSnapshot(lobbyService),
+                    new SpectatorFeed(32, 10000, outboxManager), new AudienceAnswerService(1, 1024, 250),
+                    new SessionResume(0), QuizpansMetrics.standalone());
+            endpoint.target = handler;
+        }
+
+        StubWebSocketSession connect(String id) throws Exception {
+            return connect(new StubWebSocketSession(id));
+        }
+
+        <S extends StubWebSocketSession> S connect(S session) throws Exception {
+            handler.afterConnectionEstablished(session);
+            return session;
+        }
+
+        void send(StubWebSocketSession session, String json) throws Exception {
+            handler.handleMessage(session, new TextMessage(json));
+        }
+    }
+
+    //w springu handler wstrzykniety leniwie, tu ustawiany po utworzeniu
+    private static class DeferredEndpoint implements ClusterEndpoint {
+        volatile ClusterEndpoint target;
+
+        @Override
+        public void handleRelayedCommand(String originNode, String sessionId, String payload) {
+            target.handleRelayedCommand(originNode, sessionId, payload);
+        }
+
+        @Override
+        public void handleRemoteLobbyUpdate(String lobbyId, String hostPanelSessionId, String publicJson, String hostJson, Set<String> members) {
+            target.handleRemoteLobbyUpdate(lobbyId, hostPanelSessionId, publicJson, hostJson, members);
+        }
+
+        @Override
+        public void handleSessionMessage(String sessionId, String json) {
+            target.handleSessionMessage(sessionId, json);
+        }
+
+        @Override
+        public void handleRemoteSessionClosed(String sessionId) {
+            target.handleRemoteSessionClosed(sessionId);
+        }
+
+        @Override
+        public void lobbyImported(String lobbyId) {
+            target.lobbyImported(lobbyId);
+        }
+    }
+}
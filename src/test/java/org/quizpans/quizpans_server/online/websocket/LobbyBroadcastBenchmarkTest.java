@@ -0,0 +1,131 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.quizpans.quizpans_server.online.model.SessionRole;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyBroadcastBenchmarkTest {
+    private static final int ROUNDS = 2000;
+
+    @Test
+    void encodesAtMostTwoFramesPerBroadcast() throws Exception {
+        Fixture fixture = new Fixture(500);
+        fixture.handler.broadcastLobbyUpdate(fixture.lobby);
+        fixture.awaitReceived(1);
+
+        Set<Object> distinctFrames = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (StubWebSocketSession session : fixture.members) {
+            assertEquals(1, session.received.size());
+            distinctFrames.add(session.received.get(0));
+        }
+        assertEquals(2, distinctFrames.size());
+        String panelPayload = (String) fixture.panel.received.get(0).getPayload();
+        String playerPayload = (String) fixture.members.get(1).received.get(0).getPayload();
+        assertTrue(panelPayload.contains("Najpopularniejsze imię psa?"));
+        assertTrue(playerPayload.contains("Prowadzący przygotowuje pytanie..."));
+    }
+
+    @Test
+    void cpuPerBroadcastDoesNotGrowWithRecipients() throws Exception {
+        Fixture small = new Fixture(10);
+        Fixture large = new Fixture(1000);
+        measureCpuNanos(small, ROUNDS);
+        measureCpuNanos(large, ROUNDS);
+
+        long smallNanos = measureCpuNanos(small, ROUNDS);
+        long largeNanos = measureCpuNanos(large, ROUNDS);
+        System.out.printf("rozglos: 10 odbiorcow %d ns, 1000 odbiorcow %d ns na aktualizacje%n", smallNanos, largeNanos);
+        //100x wiecej odbiorcow; przy kodowaniu per odbiorca koszt rosl liniowo
+        assertTrue(largeNanos < smallNanos * 10, "koszt rozglosu nie powinien rosnac z liczba odbiorcow");
+    }
+
+    private static long measureCpuNanos(Fixture fixture, int rounds) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < rounds; i++) {
+            fixture.lobby.setCurrentRoundPoints(i);
+            fixture.handler.broadcastLobbyUpdate(fixture.lobby);
+        }
+        long cpuNanos = (threads.getCurrentThreadCpuTime() - start) / rounds;
+        fixture.awaitDrained();
+        fixture.members.forEach(s -> s.received.clear());
+        return cpuNanos;
+    }
+
+    private static final class Fixture {
+        final LobbyWebSocketHandler handler;
+        final Lobby lobby;
+        final List<StubWebSocketSession> members = new ArrayList<>();
+        final StubWebSocketSession panel;
+        final SessionOutboxManager outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+
+        Fixture(int recipients) throws Exception {
+            SessionIndex sessionIndex = new SessionIndex();
+            GameJournal journal = new GameJournal(false, "target/journal", 1, 16, 16);
+            LobbyService lobbyService = new LobbyService(null, journal, sessionIndex);
+            ClusterService clusterService = new ClusterService(lobbyService, null, false, "node-1", "in-process", 0, "", 16);
+            handler = new LobbyWebSocketHandler(lobbyService, clusterService, sessionIndex, new LobbyDeltaTracker(16, 32), outboxManager,
+                    new LobbyUpdateCoalescer(0), new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false),
+                    new SessionHeartbeat(0, 0, outboxManager), new LobbyListSnapshot(lobbyService),
+                    new SpectatorFeed(32, 10000, outboxManager), new AudienceAnswerService(1, 1024, 250), new SessionResume(0), QuizpansMetrics.standalone());
+
+            lobby = new Lobby("Bench", "Bench");
+            lobby.setMembershipListener(sessionIndex);
+            panel = new StubWebSocketSession("panel");
+            handler.afterConnectionEstablished(panel);
+            lobby.setHostSessionId("panel");
+            lobby.setHostPanelSessionId("panel");
+            members.add(panel);
+            for (int i = 1; i < recipients; i++) {
+                StubWebSocketSession session = new StubWebSocketSession("s" + i);
+                handler.afterConnectionEstablished(session);
+                //lobby miesci 13 uczestnikow, pozostalych odbiorcow dopisujemy wprost do indeksu
+                if (!lobby.addPlayer(new PlayerInfo(session.getId(), "gracz" + i, null, ParticipantRole.PLAYER))) {
+                    sessionIndex.sessionBound(lobby.getId(), session.getId(), SessionRole.PARTICIPANT);
+                }
+                members.add(session);
+            }
+            lobby.setCurrentQuestionText("Najpopularniejsze imię psa?");
+            lobby.setAnswerBoard(AnswerBoard.of(new String[]{"Burek", "Azor", "Reksio"}, new int[]{40, 30, 20}, 0b001));
+            awaitReceived(2);
+            members.forEach(s -> s.received.clear());
+        }
+
+        void awaitReceived(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (members.stream().anyMatch(s -> s.received.size() < count)) {
+                assertTrue(System.nanoTime() < deadline, "wiadomosci nie dotarly w czasie");
+                Thread.sleep(1);
+            }
+        }
+
+        void awaitDrained() {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (outboxManager.getTotalQueuedBytes() > 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
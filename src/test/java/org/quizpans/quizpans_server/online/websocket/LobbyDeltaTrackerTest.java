@@ -0,0 +1,130 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyDeltaTrackerTest {
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
+
+    @Test
+    void sendsPatchesOnlyAfterAcknowledgement() {
+        LobbyDeltaTracker tracker = new LobbyDeltaTracker(16, 32);
+        StubWebSocketSession player = new StubWebSocketSession("p1");
+        List<WebSocketSession> recipients = List.of(player);
+
+        tracker.publish("Red", null, view(10, 0), view(10, 0), recipients, this::send);
+        JsonObject first = parse(player.lastPayload());
+        assertEquals("lobbyUpdate", first.get("type").getAsString());
+        assertEquals(1, first.get("version").getAsLong());
+
+        //bez potwierdzenia klient dostaje dalej pelny widok
+        tracker.publish("Red", null, view(20, 0), view(20, 0), recipients, this::send);
+        assertEquals("lobbyUpdate", parse(player.lastPayload()).get("type").getAsString());
+
+        tracker.acknowledge("p1", "Red", 2);
+        tracker.publish("Red", null, view(20, 0b010), view(20, 0b010), recipients, this::send);
+        JsonObject patch = parse(player.lastPayload());
+        assertEquals("lobbyPatch", patch.get("type").getAsString());
+        assertEquals(2, patch.get("baseVersion").getAsLong());
+        assertEquals(3, patch.get("version").getAsLong());
+        assertTrue(patch.getAsJsonObject("slots").has("1"));
+        assertFalse(patch.getAsJsonObject("fields").has("teams"));
+
+        tracker.publish("Red", null, view(35, 0b010), view(35, 0b010), recipients, this::send);
+        JsonObject scorePatch = parse(player.lastPayload());
+        assertEquals(35, scorePatch.getAsJsonObject("fields").get("team1Score").getAsInt());
+        int fullSize = gson.toJson(Map.of("type", "lobbyUpdate", "lobby", viewMap(35, 0b010))).length();
+        System.out.printf("lobbyPatch %d B, pelny lobbyUpdate %d B%n", player.lastPayload().length(), fullSize);
+        assertTrue(player.lastPayload().length() * 5 < fullSize);
+    }
+
+    @Test
+    void resendsFullViewOnGapAndResync() {
+        LobbyDeltaTracker tracker = new LobbyDeltaTracker(2, 32);
+        StubWebSocketSession player = new StubWebSocketSession("p1");
+        StubWebSocketSession late = new StubWebSocketSession("p2");
+
+        tracker.publish("Red", null, view(0, 0), view(0, 0), List.of(player), this::send);
+        tracker.acknowledge("p1", "Red", 1);
+        //p1 pominiety w tej wersji -> luka
+        tracker.publish("Red", null, view(5, 0), view(5, 0), List.of(), this::send);
+        tracker.publish("Red", null, view(6, 0), view(6, 0), List.of(player, late), this::send);
+        assertEquals("lobbyUpdate", parse(player.lastPayload()).get("type").getAsString());
+        assertEquals("lobbyUpdate", parse(late.lastPayload()).get("type").getAsString());
+
+        //za duzo niepotwierdzonych wersji
+        tracker.acknowledge("p1", "Red", 3);
+        tracker.publish("Red", null, view(7, 0), view(7, 0), List.of(player), this::send);
+        assertEquals("lobbyPatch", parse(player.lastPayload()).get("type").getAsString());
+        tracker.publish("Red", null, view(8, 0), view(8, 0), List.of(player), this::send);
+        assertEquals("lobbyPatch", parse(player.lastPayload()).get("type").getAsString());
+        tracker.publish("Red", null, view(9, 0), view(9, 0), List.of(player), this::send);
+        assertEquals("lobbyUpdate", parse(player.lastPayload()).get("type").getAsString());
+
+        JsonObject resync = parse(tracker.resync("p1", "Red").orElseThrow().json());
+        assertEquals(6, resync.get("version").getAsLong());
+        assertEquals(9, resync.getAsJsonObject("lobby").get("team1Score").getAsInt());
+    }
+
+    private void send(WebSocketSession session, SharedFrame frame, boolean fullState) {
+        try {
+            session.sendMessage(frame.forSession(session));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LobbyView view(int team1Score, int revealedMask) {
+        return LobbyView.of(gson.toJson(viewMap(team1Score, revealedMask)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, Object> viewMap(int team1Score, int revealedMask) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("id", "Red");
+        view.put("name", "Red");
+        view.put("status", "BUSY");
+        view.put("gameSettings", new GameSettings());
+        view.put("password", null);
+        Map<String, List<Map<String, String>>> teams = new HashMap<>();
+        for (String team : List.of("Niebiescy", "Czerwoni")) {
+            List<Map<String, String>> players = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                players.add(Map.of("sessionId", team + "-session-" + i, "nickname", "gracz" + i, "teamName", team, "role", "PLAYER"));
+            }
+            teams.put(team, players);
+        }
+        view.put("teams", teams);
+        view.put("waitingPlayers", List.of());
+        view.put("currentQuestionText", "Najpopularniejsze imię psa?");
+        view.put("team1Score", team1Score);
+        view.put("team2Score", 0);
+        view.put(LobbyDeltaTracker.BOARD_FIELD, AnswerBoard.of(
+                new String[]{"Burek", "Azor", "Reksio", "Szarik", "Pluto", "Fafik"},
+                new int[]{30, 25, 15, 10, 8, 5}, revealedMask));
+        return view;
+    }
+
+    private static JsonObject parse(String json) {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+}
@@ -0,0 +1,86 @@
+package org.quizpans.quizpans_server.online.websocket;
+// porownanie kodera z Gson, alokacja na wiadomosc w kolumnie gc.alloc.rate.norm
+// uruchomienie: mvn test-compile, potem klasa main z classpath testow
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.Lobby;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LobbyJsonEncoderBenchmark {
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
+    private Lobby lobby;
+    private List<Lobby> lobbies;
+
+    @Setup
+    public void setUp() {
+        lobby = LobbyJsonEncoderTest.sampleLobby("Red", "Najpopularniejsze imię psa?");
+        lobbies = List.of(lobby, LobbyJsonEncoderTest.sampleLobby("Blue", null), LobbyJsonEncoderTest.sampleLobby("Green", null));
+    }
+
+    @Benchmark
+    public byte[] lobbyUpdateGson() {
+        return gson.toJson(Map.of("type", "lobbyUpdate", "lobby", LobbyJsonEncoder.lobbyViewMap(lobby, "p1")))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] lobbyUpdateEncoder() {
+        return LobbyJsonEncoder.lobbyUpdate(lobby, "p1");
+    }
+
+    @Benchmark
+    public byte[] allLobbiesGson() {
+        return gson.toJson(Map.of("type", "allLobbies", "lobbies",
+                lobbies.stream().map(l -> LobbyJsonEncoder.lobbyViewMap(l, "p1")).toList())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] allLobbiesEncoder() {
+        return LobbyJsonEncoder.allLobbies(lobbies, "p1", l -> null);
+    }
+
+    @Benchmark
+    public byte[] errorGson() {
+        return gson.toJson(Map.of("type", "error", "message", "Brak lobbyId w żądaniu startGame.")).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] errorEncoder() {
+        return LobbyJsonEncoder.error("Brak lobbyId w żądaniu startGame.");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LobbyJsonEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,190 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.LobbyStatus;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyJsonEncoderTest {
+    //trudne znaki: ucieczki html, sterujace, separatory linii, znaki spoza BMP i samotny surogat
+    static final String TRICKY = "<b>Ala & \"Kot\"</b> = 'zażółć'\\\n\t\u0001\u2028\u2029 \uD83D\uDC36 \uD800!";
+
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
+
+    @Test
+    void lobbyUpdateMatchesGsonByteForByte() {
+        Lobby lobby = sampleLobby("Red", TRICKY);
+        for (String recipient : new String[]{"panel", "p1", null}) {
+            assertArrayEquals(gsonBytes(message("lobbyUpdate", "lobby", LobbyJsonEncoder.lobbyViewMap(lobby, recipient))),
+                    LobbyJsonEncoder.lobbyUpdate(lobby, recipient));
+        }
+        Lobby empty = new Lobby("Empty", "Puste");
+        assertArrayEquals(gsonBytes(message("lobbyUpdate", "lobby", LobbyJsonEncoder.lobbyViewMap(empty, "x"))),
+                LobbyJsonEncoder.lobbyUpdate(empty, "x"));
+    }
+
+    @Test
+    void broadcastFramesMatchGsonByteForByte() {
+        Lobby lobby = sampleLobby("Red", TRICKY);
+        LobbyView publicView = LobbyJsonEncoder.lobbyView(lobby, null);
+        LobbyView hostView = LobbyJsonEncoder.lobbyView(lobby, "panel");
+        assertTrue(LobbyJsonEncoder.hostViewDiffers(lobby));
+        assertArrayEquals(gsonBytes(LobbyJsonEncoder.lobbyViewMap(lobby, null)), publicView.json());
+        assertArrayEquals(gsonBytes(LobbyJsonEncoder.lobbyViewMap(lobby, "panel")), hostView.json());
+        //widzowie i inne wezly
+        assertArrayEquals(gsonBytes(message("lobbyUpdate", "lobby", LobbyJsonEncoder.lobbyViewMap(lobby, null))),
+                LobbyJsonEncoder.lobbyUpdate(publicView));
+
+        LobbyDeltaTracker tracker = new LobbyDeltaTracker(16, 32);
+        StubWebSocketSession player = new StubWebSocketSession("p1");
+        StubWebSocketSession panel = new StubWebSocketSession("panel");
+        tracker.publish("Red", "panel", publicView, hostView, List.of(player, panel), LobbyJsonEncoderTest::send);
+        assertArrayEquals(gsonBytes(versioned(1, LobbyJsonEncoder.lobbyViewMap(lobby, null))), player.lastPayload().getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(gsonBytes(versioned(1, LobbyJsonEncoder.lobbyViewMap(lobby, "panel"))), panel.lastPayload().getBytes(StandardCharsets.UTF_8));
+
+        //latka: zmienione pola jak z Gson, odkryta odpowiedz jako pozycja tablicy
+        tracker.acknowledge("p1", "Red", 1);
+        tracker.acknowledge("panel", "Red", 1);
+        lobby.setTeam1Score(150);
+        lobby.addPlayer(new PlayerInfo("w1", TRICKY, null, ParticipantRole.PLAYER));
+        lobby.setAnswerBoard(AnswerBoard.of(new String[]{"Burek", TRICKY, "Reksio"}, new int[]{40, 30, 20}, 0b111));
+        lobby.setQuestionRevealed(true);
+        tracker.publish("Red", "panel", LobbyJsonEncoder.lobbyView(lobby, null), LobbyJsonEncoder.lobbyView(lobby, "panel"),
+                List.of(player, panel), LobbyJsonEncoderTest::send);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("waitingPlayers", lobby.getWaitingPlayers());
+        fields.put("totalParticipantCount", lobby.getTotalParticipantCount());
+        fields.put("currentQuestionText", TRICKY);
+        fields.put("isQuestionRevealed", true);
+        fields.put("team1Score", 150);
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("type", "lobbyPatch");
+        patch.put("lobbyId", "Red");
+        patch.put("baseVersion", 1);
+        patch.put("version", 2);
+        patch.put("fields", fields);
+        patch.put("slots", Map.of("1", gson.toJsonTree(lobby.getAnswerBoard()).getAsJsonArray().get(1)));
+        assertArrayEquals(gsonBytes(patch), player.lastPayload().getBytes(StandardCharsets.UTF_8));
+        fields.remove("currentQuestionText");
+        assertArrayEquals(gsonBytes(patch), panel.lastPayload().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lobbyListSummaryAndErrorMatchGson() {
+        Lobby red = sampleLobby("Red", "Pytanie");
+        Lobby blue = sampleLobby("Blue", null);
+        JsonElement remoteView = JsonParser.parseString(
+                "{\"id\":\"Blue\",\"score\":-12,\"ratio\":1.50,\"big\":1e5,\"list\":[true,null,\"<x>\"],\"nested\":{}}");
+        byte[] encoded = LobbyJsonEncoder.allLobbies(List.of(red, blue), "p1", lobby -> lobby == blue ? remoteView : null);
+        assertArrayEquals(gsonBytes(message("allLobbies", "lobbies",
+                List.of(LobbyJsonEncoder.lobbyViewMap(red, "p1"), remoteView))), encoded);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", "Red");
+        summary.put("status", "BUSY");
+        summary.put("participantCount", 7);
+        summary.put("hasPassword", true);
+        assertArrayEquals(gsonBytes(message("lobbySummary", "lobby", summary)), LobbyJsonEncoder.lobbySummary("Red", "BUSY", 7, true));
+
+        assertArrayEquals(gsonBytes(message("error", "message", TRICKY)), LobbyJsonEncoder.error(TRICKY));
+        assertArrayEquals(gsonBytes(remoteView), LobbyJsonEncoder.tree(remoteView));
+    }
+
+    @Test
+    void allocatesLessThanGsonPerMessage() {
+        Lobby lobby = sampleLobby("Red", "Najpopularniejsze imię psa?");
+        long gsonBytes = allocatedPerCall(() -> gson.toJson(message("lobbyUpdate", "lobby", LobbyJsonEncoder.lobbyViewMap(lobby, "p1")))
+                .getBytes(StandardCharsets.UTF_8));
+        long encoderBytes = allocatedPerCall(() -> LobbyJsonEncoder.lobbyUpdate(lobby, "p1"));
+        System.out.printf("lobbyUpdate: Gson %d B, koder %d B alokacji na wiadomosc%n", gsonBytes, encoderBytes);
+        assertTrue(encoderBytes * 2 < gsonBytes);
+    }
+
+    static Lobby sampleLobby(String id, String questionText) {
+        Lobby lobby = new Lobby(id, "Lobby " + id + " " + TRICKY);
+        lobby.setGameSettings(new GameSettings(TRICKY, 25, 4, 3, "Niebiescy", "Czerwoni"));
+        lobby.setPassword("tajne");
+        lobby.setStatus(LobbyStatus.BUSY);
+        lobby.setHostSessionId("host");
+        lobby.setHostPanelSessionId("panel");
+        lobby.addPlayer(new PlayerInfo("qm", "prowadzący", null, ParticipantRole.PLAYER));
+        lobby.setQuizMaster(new PlayerInfo("qm", "prowadzący", null, ParticipantRole.PLAYER));
+        for (int i = 0; i < 5; i++) {
+            lobby.addPlayer(new PlayerInfo("p" + i, "gracz " + i + " <" + i + ">", null, ParticipantRole.PLAYER));
+        }
+        lobby.assignPlayerToTeam("p0", "Niebiescy");
+        lobby.assignPlayerToTeam("p1", "Czerwoni");
+        lobby.assignPlayerToTeam("p2", "Niebiescy");
+        lobby.setCurrentQuestionText(questionText);
+        lobby.setCurrentQuestionId(-17);
+        lobby.setTeam1Score(120);
+        lobby.setCurrentPlayerSessionId("p0");
+        lobby.setAnswerBoard(AnswerBoard.of(new String[]{"Burek", TRICKY, "Reksio"}, new int[]{40, 30, 20}, 0b101));
+        return lobby;
+    }
+
+    private static Map<String, Object> message(String type, String field, Object value) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put(field, value);
+        return message;
+    }
+
+    private static Map<String, Object> versioned(long version, Object view) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "lobbyUpdate");
+        message.put("version", version);
+        message.put("lobby", view);
+        return message;
+    }
+
+    private static void send(WebSocketSession session, SharedFrame frame, boolean fullState) {
+        try {
+            session.sendMessage(frame.forSession(session));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] gsonBytes(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long allocatedPerCall(Supplier<byte[]> action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int rounds = 2_000;
+        long sink = 0;
+        for (int i = 0; i < rounds; i++) {
+            sink += action.get().length;
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < rounds; i++) {
+            sink += action.get().length;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(sink > 0);
+        return allocated / rounds;
+    }
+}
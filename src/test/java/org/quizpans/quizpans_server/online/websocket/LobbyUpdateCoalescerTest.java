@@ -0,0 +1,83 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.Lobby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LobbyUpdateCoalescerTest {
+
+    @Test
+    void commandSendsEachLobbyOnceAtTheEnd() {
+        LobbyUpdateCoalescer coalescer = new LobbyUpdateCoalescer(1000);
+        List<String> flushed = new ArrayList<>();
+        coalescer.setFlusher(lobby -> flushed.add(lobby.getId()));
+        Lobby red = new Lobby("Red", "Red");
+        Lobby blue = new Lobby("Blue", "Blue");
+
+        coalescer.beginCommand();
+        coalescer.requestUpdate(red);
+        coalescer.requestUpdate(red);
+        coalescer.requestUpdate(blue);
+        coalescer.requestUpdate(red);
+        assertTrue(flushed.isEmpty());
+        coalescer.endCommand();
+
+        assertEquals(List.of("Red", "Blue"), flushed);
+        assertEquals(4, coalescer.getRequestedUpdates());
+        assertEquals(2, coalescer.getMergedUpdates());
+        assertEquals(2, coalescer.getFlushedUpdates());
+        coalescer.shutdown();
+    }
+
+    @Test
+    void updatesOutsideCommandsAreMergedWithinWindow() throws Exception {
+        LobbyUpdateCoalescer coalescer = new LobbyUpdateCoalescer(50);
+        List<String> flushed = new ArrayList<>();
+        coalescer.setFlusher(lobby -> {
+            synchronized (flushed) {
+                flushed.add(lobby.getId());
+            }
+        });
+        Lobby red = new Lobby("Red", "Red");
+        for (int i = 0; i < 5; i++) {
+            coalescer.requestUpdate(red);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getFlushedUpdates() == 0) {
+            assertTrue(System.nanoTime() < deadline, "okno nie zostalo oproznione");
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+        synchronized (flushed) {
+            assertEquals(List.of("Red"), flushed);
+        }
+        assertEquals(4, coalescer.getMergedUpdates());
+        assertEquals(0, coalescer.getPendingCount());
+        coalescer.shutdown();
+    }
+
+    @Test
+    void commandEndTakesOverPendingWindow() {
+        LobbyUpdateCoalescer coalescer = new LobbyUpdateCoalescer(60_000);
+        List<String> flushed = new ArrayList<>();
+        coalescer.setFlusher(lobby -> flushed.add(lobby.getId()));
+        Lobby red = new Lobby("Red", "Red");
+
+        coalescer.requestUpdate(red);
+        coalescer.beginCommand();
+        coalescer.requestUpdate(red);
+        coalescer.endCommand();
+
+        assertEquals(List.of("Red"), flushed);
+        assertEquals(0, coalescer.getPendingCount());
+        assertEquals(1, coalescer.getMergedUpdates());
+        coalescer.shutdown();
+    }
+}
@@ -0,0 +1,99 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionHeartbeatTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final SessionOutboxManager outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+    private final SessionHeartbeat heartbeat = new SessionHeartbeat(1000, 3000, outboxManager, clock::get);
+    private final LobbyWebSocketHandler handler;
+
+    SessionHeartbeatTest() {
+        SessionIndex sessionIndex = new SessionIndex();
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), sessionIndex);
+        ClusterService clusterService = new ClusterService(lobbyService, null, false, "node-1", "in-process", 0, "", 16);
+        handler = new LobbyWebSocketHandler(lobbyService, clusterService, sessionIndex, new LobbyDeltaTracker(16, 32), outboxManager,
+                new LobbyUpdateCoalescer(0), new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false), heartbeat,
+                new LobbyListSnapshot(lobbyService), new SpectatorFeed(32, 10000, outboxManager), new AudienceAnswerService(1, 1024, 250), new SessionResume(0), QuizpansMetrics.standalone());
+    }
+
+    @Test
+    void pingsEverySessionAndReapsSilentOnes() throws Exception {
+        StubWebSocketSession responsive = connect("responsive");
+        StubWebSocketSession silent = connect("silent");
+
+        for (int second = 1; second <= 3; second++) {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            handler.handleMessage(responsive, new PongMessage());
+            heartbeat.sweep();
+            long pings = second;
+            await(() -> pingsReceived(silent) == pings);
+        }
+        assertEquals(1, heartbeat.getLiveSessions());
+        assertEquals(1, heartbeat.getIdleSessions());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        handler.handleMessage(responsive, new PongMessage());
+        heartbeat.sweep();
+        await(() -> silent.closeStatus != null && !outboxManager.queueDepths().containsKey("silent"));
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, silent.closeStatus);
+        assertEquals(1, heartbeat.getReapedSessions());
+        assertEquals(1, heartbeat.getLiveSessions());
+        assertTrue(responsive.open);
+
+        //kontener zglasza zamkniecie juz usunietej sesji
+        handler.afterConnectionClosed(silent, CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, outboxManager.getOutboxCount());
+    }
+
+    @Test
+    void reapsSessionClosedAfterFailedWrite() throws Exception {
+        StubWebSocketSession session = connect("broken");
+        //zapis nie powiodl sie, kolejka zamknela gniazdo, kontener nie zglosil rozlaczenia
+        session.open = false;
+        heartbeat.sweep();
+        await(() -> outboxManager.getOutboxCount() == 0);
+        assertEquals(1, heartbeat.getReapedSessions());
+        assertEquals(0, heartbeat.getLiveSessions() + heartbeat.getIdleSessions());
+        heartbeat.sweep();
+        assertEquals(1, heartbeat.getReapedSessions());
+        assertFalse(session.open);
+    }
+
+    private StubWebSocketSession connect(String id) throws Exception {
+        StubWebSocketSession session = new StubWebSocketSession(id);
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+
+    private static long pingsReceived(StubWebSocketSession session) {
+        synchronized (session.received) {
+            return session.received.stream().filter(PingMessage.class::isInstance).count();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie spelniony w czasie");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionOutboxTest {
+
+    @Test
+    void slowClientGetsLatestFullStateInsteadOfBacklog() throws Exception {
+        SessionOutboxManager manager = new SessionOutboxManager(8, 1 << 20, 60_000, OverflowPolicy.COALESCE);
+        List<String> resyncs = new ArrayList<>();
+        BlockingSession slow = new BlockingSession("slow");
+        manager.setResyncHandler((sessionId, key) -> {
+            synchronized (resyncs) {
+                resyncs.add(key);
+            }
+            manager.send(slow, new TextMessage("full-latest"), key, true);
+        });
+        manager.register(slow);
+
+        manager.send(slow, new TextMessage("full-0"), "lobby:Red", true);
+        awaitTrue(() -> slow.sending);
+        for (int i = 1; i <= 20; i++) {
+            manager.send(slow, new TextMessage("patch-" + i), "lobby:Red", false);
+        }
+        awaitTrue(() -> {
+            synchronized (resyncs) {
+                return !resyncs.isEmpty();
+            }
+        });
+        assertTrue(manager.getCoalescedFrames() > 0);
+        assertTrue(manager.getMaxQueueDepth() <= 8);
+
+        slow.release.countDown();
+        awaitTrue(() -> slow.delivered().contains("full-latest"));
+        List<String> delivered = slow.delivered();
+        //pelny stan prosi sie asynchronicznie, latki dopisane po ostatnim przepelnieniu moga przyjsc po nim
+        int lastFull = delivered.lastIndexOf("full-latest");
+        for (String frame : delivered.subList(lastFull + 1, delivered.size())) {
+            assertTrue(frame.startsWith("patch-"), frame);
+        }
+        assertTrue(delivered.size() < 10, "zalegle latki powinny zostac odrzucone: " + delivered);
+        assertTrue(slow.isOpen());
+    }
+
+    @Test
+    void disconnectPolicyClosesSlowClient() throws Exception {
+        SessionOutboxManager manager = new SessionOutboxManager(4, 1 << 20, 60_000, OverflowPolicy.DISCONNECT);
+        BlockingSession slow = new BlockingSession("slow");
+        manager.register(slow);
+        manager.send(slow, new TextMessage("first"), null, false);
+        awaitTrue(() -> slow.sending);
+        for (int i = 0; i < 10; i++) {
+            manager.send(slow, new TextMessage("m" + i), null, false);
+        }
+        assertFalse(slow.isOpen());
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, slow.closeStatus);
+        assertEquals(1, manager.getOverflowDisconnects());
+        assertEquals(0, manager.getOutboxCount());
+        slow.release.countDown();
+    }
+
+    @Test
+    void watchdogClosesSessionStuckInSend() throws Exception {
+        SessionOutboxManager manager = new SessionOutboxManager(64, 1 << 20, 200, OverflowPolicy.COALESCE);
+        manager.startWatchdog();
+        try {
+            BlockingSession stuck = new BlockingSession("stuck");
+            manager.register(stuck);
+            manager.send(stuck, new TextMessage("never-acked"), null, false);
+            awaitTrue(() -> !stuck.isOpen());
+            assertEquals(1, manager.getSlowSendDisconnects());
+            stuck.release.countDown();
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie zostal spelniony w czasie");
+            Thread.sleep(5);
+        }
+    }
+    //pierwsze wysylanie blokuje sie do zwolnienia zatrzasku, jak klient ktory nie odbiera
+    private static final class BlockingSession extends StubWebSocketSession {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean sending;
+
+        BlockingSession(String id) {
+            super(id);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            sending = true;
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            super.sendMessage(message);
+        }
+    }
+}
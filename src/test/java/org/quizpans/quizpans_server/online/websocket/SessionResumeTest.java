@@ -0,0 +1,213 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.quizpans.quizpans_server.online.snapshot.LobbySnapshotEntry;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionResumeTest {
+    private static final String SETTINGS = "{\"category\":\"MIX (Wszystkie Kategorie)\",\"answerTime\":30,\"numberOfRounds\":5,"
+            + "\"maxPlayersPerTeam\":3,\"teamBlueName\":\"Orly\",\"teamRedName\":\"Sokoly\"}";
+
+    private SessionOutboxManager outboxManager;
+    private SessionIndex sessionIndex;
+    private LobbyDeltaTracker deltaTracker;
+    private LobbyService lobbyService;
+    private SessionResume resume;
+    private LobbyWebSocketHandler handler;
+
+    @Test
+    void resumedPlayerKeepsSlotAndReceivesOnlyMissedPatches() throws Exception {
+        start(5000);
+        StubWebSocketSession host = connect("host");
+        send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        StubWebSocketSession player = connect("p1");
+        String token = resumeToken(player);
+        send(player, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        await(() -> lastVersion(player) > 0);
+        long seen = lastVersion(player);
+        send(player, "{\"action\":\"ackVersion\",\"lobbyId\":\"Red\",\"version\":" + seen + "}");
+
+        player.open = false;
+        handler.afterConnectionClosed(player, CloseStatus.GOING_AWAY);
+        Lobby lobby = lobbyService.getLobby("Red").orElseThrow();
+        assertNotNull(lobby.findParticipantBySessionId("p1"));
+        //zmiany w czasie przerwy: ustawienia i przydzial do druzyny zaparkowanego gracza
+        send(host, "{\"action\":\"configureLobby\",\"lobbyId\":\"Red\",\"gameSettings\":" + SETTINGS + "}");
+        send(host, "{\"action\":\"assignRole\",\"lobbyId\":\"Red\",\"participantSessionId\":\"p1\",\"role\":\"PLAYER\",\"targetTeamName\":\"Orly\"}");
+
+        StubWebSocketSession returning = connect("p2");
+        send(returning, "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"" + token + "\",\"version\":" + seen + "}");
+        await(() -> lastVersion(returning) == seen + 3);
+
+        List<JsonObject> afterResume = messagesAfter(returning, "sessionResumed");
+        assertEquals("p1", afterResume.get(0).get("previousSessionId").getAsString());
+        for (int i = 1; i <= 3; i++) {
+            JsonObject patch = afterResume.get(i);
+            assertEquals("lobbyPatch", patch.get("type").getAsString());
+            assertEquals(seen + i - 1, patch.get("baseVersion").getAsLong());
+        }
+        assertEquals(2, deltaTracker.getReplayedPatches());
+        PlayerInfo resumed = lobby.findParticipantBySessionId("p2");
+        assertEquals("Ala", resumed.nickname());
+        assertEquals("Orly", resumed.teamName());
+        assertNull(lobby.findParticipantBySessionId("p1"));
+        assertEquals(1, resume.getResumedSessions());
+    }
+
+    @Test
+    void resumeTakesOverHalfOpenConnectionOfHost() throws Exception {
+        start(5000);
+        StubWebSocketSession host = connect("host");
+        String token = resumeToken(host);
+        send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+
+        //stare polaczenie zerwane, ale serwer jeszcze o tym nie wie
+        StubWebSocketSession returning = connect("host2");
+        send(returning, "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"" + token + "\"}");
+        await(() -> !messagesAfter(returning, "sessionResumed").isEmpty());
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, host.closeStatus);
+        assertEquals("host2", lobbyService.getLobby("Red").orElseThrow().getHostSessionId());
+        assertTrue(lobbyService.isHost("Red", "host2"));
+        //token jednorazowy
+        send(connect("host3"), "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"" + token + "\"}");
+        assertEquals("host2", lobbyService.getLobby("Red").orElseThrow().getHostSessionId());
+    }
+
+    @Test
+    void slotIsReleasedAfterGracePeriod() throws Exception {
+        start(50);
+        StubWebSocketSession host = connect("host");
+        send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        StubWebSocketSession player = connect("p1");
+        String token = resumeToken(player);
+        send(player, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        Lobby lobby = lobbyService.getLobby("Red").orElseThrow();
+        assertEquals(1, lobby.getTotalParticipantCount());
+
+        player.open = false;
+        handler.afterConnectionClosed(player, CloseStatus.GOING_AWAY);
+        await(() -> lobby.getTotalParticipantCount() == 0);
+        assertEquals(1, resume.getExpiredSessions());
+
+        StubWebSocketSession late = connect("p2");
+        send(late, "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"" + token + "\"}");
+        await(() -> late.delivered().stream().anyMatch(m -> m.contains("Nieważny lub wygasły token")));
+        assertEquals(0, lobby.getTotalParticipantCount());
+    }
+
+    @Test
+    void afterRestartSeatNeedsTokenNotNicknameOrOldSessionId() throws Exception {
+        start(5000);
+        StubWebSocketSession host = connect("host");
+        send(host, "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        send(host, "{\"action\":\"configureLobby\",\"lobbyId\":\"Red\",\"gameSettings\":" + SETTINGS + "}");
+        StubWebSocketSession player = connect("1");
+        String token = resumeToken(player);
+        send(player, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        send(host, "{\"action\":\"assignRole\",\"lobbyId\":\"Red\",\"participantSessionId\":\"1\",\"role\":\"PLAYER\",\"targetTeamName\":\"Orly\"}");
+        List<LobbySnapshotEntry> snapshot = List.of(new LobbySnapshotEntry(
+                lobbyService.getLobby("Red").orElseThrow().toSnapshot(handler::resumeTokenDigestOf), false, null, null));
+
+        //restart: kontener znow nadaje te same id sesji
+        start(5000);
+        lobbyService.restoreSnapshots(snapshot, true);
+        Lobby lobby = lobbyService.getLobby("Red").orElseThrow();
+        send(connect("0"), "{\"action\":\"requestHostLobby\",\"lobbyId\":\"Red\"}");
+        StubWebSocketSession stranger = connect("1");
+        assertTrue(sessionIndex.bindingsOf("1").isEmpty());
+        send(stranger, "{\"action\":\"playerWebJoinRequest\",\"lobbyId\":\"Red\",\"nickname\":\"Ala\"}");
+        send(connect("2"), "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"zgadniety\"}");
+        assertEquals(1, lobby.getDetachedParticipantCount());
+
+        StubWebSocketSession returning = connect("3");
+        send(returning, "{\"action\":\"resumeSession\",\"lobbyId\":\"Red\",\"token\":\"" + token + "\"}");
+        await(() -> !messagesAfter(returning, "lobbyUpdate").isEmpty());
+        assertEquals(0, lobby.getDetachedParticipantCount());
+        assertEquals("Orly", lobby.findParticipantBySessionId("3").teamName());
+        assertEquals("Ala", lobby.findParticipantBySessionId("3").nickname());
+        assertNull(lobby.findParticipantBySessionId("1").teamName());
+        assertTrue(sessionIndex.membersOf("Red").contains("3"));
+    }
+
+    private void start(long graceMs) throws Exception {
+        outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+        sessionIndex = new SessionIndex();
+        deltaTracker = new LobbyDeltaTracker(16, 32);
+        lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), sessionIndex);
+        //lobby tworzy @PostConstruct, bez kontekstu springa wolamy recznie
+        Method init = LobbyService.class.getDeclaredMethod("initializeLobbies");
+        init.setAccessible(true);
+        init.invoke(lobbyService);
+        ClusterService clusterService = new ClusterService(lobbyService, null, false, "node-1", "in-process", 0, "", 16);
+        resume = new SessionResume(graceMs);
+        handler = new LobbyWebSocketHandler(lobbyService, clusterService, sessionIndex, deltaTracker, outboxManager,
+                new LobbyUpdateCoalescer(0), new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false),
+                new SessionHeartbeat(0, 0, outboxManager), new LobbyListSnapshot(lobbyService),
+                new SpectatorFeed(32, 10000, outboxManager), new AudienceAnswerService(1, 1024, 250), resume, QuizpansMetrics.standalone());
+    }
+
+    private StubWebSocketSession connect(String id) throws Exception {
+        StubWebSocketSession session = new StubWebSocketSession(id);
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+
+    private void send(StubWebSocketSession session, String json) throws Exception {
+        handler.handleMessage(session, new TextMessage(json));
+    }
+
+    private static String resumeToken(StubWebSocketSession session) throws InterruptedException {
+        await(() -> !session.received.isEmpty());
+        return JsonParser.parseString(session.delivered().get(0)).getAsJsonObject().get("resumeToken").getAsString();
+    }
+    //ostatnia wersja lobby z pelnego widoku albo latki
+    private static long lastVersion(StubWebSocketSession session) {
+        long version = -1;
+        for (String payload : session.delivered()) {
+            JsonObject message = JsonParser.parseString(payload).getAsJsonObject();
+            if (message.has("version")) {
+                version = message.get("version").getAsLong();
+            }
+        }
+        return version;
+    }
+
+    private static List<JsonObject> messagesAfter(StubWebSocketSession session, String type) {
+        List<JsonObject> messages = session.delivered().stream().map(p -> JsonParser.parseString(p).getAsJsonObject()).toList();
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).get("type").getAsString().equals(type)) {
+                return messages.subList(i, messages.size());
+            }
+        }
+        return List.of();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie spelniony w czasie");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.model.Lobby;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectatorFeedTest {
+    private static final int ROUNDS = 2000;
+
+    private final SessionOutboxManager outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+
+    @Test
+    void spectatorsCostAlmostNothingOnCommandPath() throws Exception {
+        SpectatorFeed feed = new SpectatorFeed(32, 10000, outboxManager);
+        SessionIndex sessionIndex = new SessionIndex();
+        LobbyService lobbyService = new LobbyService(null, new GameJournal(false, "target/journal", 1, 16, 16), sessionIndex);
+        ClusterService clusterService = new ClusterService(lobbyService, null, false, "node-1", "in-process", 0, "", 16);
+        LobbyWebSocketHandler handler = new LobbyWebSocketHandler(lobbyService, clusterService, sessionIndex,
+                new LobbyDeltaTracker(16, 32), outboxManager, new LobbyUpdateCoalescer(0),
+                new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false),
+                new SessionHeartbeat(0, 0, outboxManager), new LobbyListSnapshot(lobbyService), feed, new AudienceAnswerService(1, 1024, 250), new SessionResume(0), QuizpansMetrics.standalone());
+        Lobby lobby = new Lobby("Show", "Show");
+        lobby.setMembershipListener(sessionIndex);
+        for (int i = 0; i < 13; i++) {
+            StubWebSocketSession player = new StubWebSocketSession("p" + i);
+            handler.afterConnectionEstablished(player);
+            lobby.addPlayer(new PlayerInfo(player.getId(), "gracz" + i, null, ParticipantRole.PLAYER));
+        }
+        int participants = lobby.getTotalParticipantCount();
+
+        long withoutSpectators = cpuNanosPerBroadcast(handler, lobby);
+        List<StubWebSocketSession> audience = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StubWebSocketSession spectator = new StubWebSocketSession("s" + i);
+            handler.afterConnectionEstablished(spectator);
+            assertTrue(feed.join(spectator, lobby.getId()));
+            audience.add(spectator);
+        }
+        long withSpectators = cpuNanosPerBroadcast(handler, lobby);
+        System.out.printf("rozglos na watku komendy: bez widzow %d ns, 2000 widzow %d ns%n", withoutSpectators, withSpectators);
+        assertTrue(withSpectators < withoutSpectators * 2, "koszt rozglosu nie powinien zalezec od liczby widzow");
+
+        assertEquals(participants, lobby.getTotalParticipantCount());
+        assertEquals(2000, feed.getSpectatorCount(lobby.getId()));
+        String finalRound = "\"currentRoundPoints\":" + (ROUNDS - 1);
+        await(() -> audience.stream().allMatch(s -> !s.received.isEmpty() && s.lastPayload().contains(finalRound)));
+    }
+
+    @Test
+    void laggingSpectatorSkipsToLatestFrame() throws Exception {
+        SpectatorFeed feed = new SpectatorFeed(8, 10000, outboxManager);
+        CountDownLatch gate = new CountDownLatch(1);
+        StubWebSocketSession slow = new StubWebSocketSession("slow") {
+            @Override
+            public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.sendMessage(message);
+            }
+        };
+        StubWebSocketSession fast = new StubWebSocketSession("fast");
+        for (StubWebSocketSession session : List.of(slow, fast)) {
+            outboxManager.register(session);
+            feed.join(session, "Show");
+        }
+        feed.publish("Show", SharedFrame.ofJson("{\"n\":0}"));
+        await(() -> fast.received.size() == 1);
+        for (int n = 1; n < 100; n++) {
+            feed.publish("Show", SharedFrame.ofJson("{\"n\":" + n + "}"));
+        }
+        await(() -> !fast.received.isEmpty() && fast.lastPayload().equals("{\"n\":99}"));
+        gate.countDown();
+        await(() -> !slow.received.isEmpty() && slow.lastPayload().equals("{\"n\":99}"));
+
+        //pierwsza ramka czekala na bramce, potem od razu najnowsza
+        assertTrue(slow.received.size() <= 3, "wolny widz dostal " + slow.received.size() + " ramek");
+        assertTrue(feed.getSkippedFrames() >= 90);
+        feed.leave("slow");
+        assertEquals(1, feed.getSpectatorCount("Show"));
+    }
+
+    private static long cpuNanosPerBroadcast(LobbyWebSocketHandler handler, Lobby lobby) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = threads.getCurrentThreadCpuTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                lobby.setCurrentRoundPoints(i);
+                handler.broadcastLobbyUpdate(lobby);
+            }
+            if (warmup == 1) return (threads.getCurrentThreadCpuTime() - start) / ROUNDS;
+        }
+        throw new IllegalStateException();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "warunek nie spelniony w czasie");
+            Thread.sleep(5);
+        }
+    }
+}
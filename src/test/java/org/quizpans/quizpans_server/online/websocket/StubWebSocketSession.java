@@ -0,0 +1,58 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+//sesja testowa zapamietujaca wyslane wiadomosci
+class StubWebSocketSession implements WebSocketSession {
+    private final String id;
+    //wysylki ida z watkow pisarzy kolejek wyjsciowych
+    final List<WebSocketMessage<?>> received = Collections.synchronizedList(new ArrayList<>());
+    volatile boolean open = true;
+    volatile CloseStatus closeStatus;
+    volatile String acceptedProtocol;
+    volatile InetSocketAddress remoteAddress;
+
+    StubWebSocketSession(String id) {
+        this.id = id;
+    }
+
+    String lastPayload() {
+        return (String) received.get(received.size() - 1).getPayload();
+    }
+
+    List<String> delivered() {
+        synchronized (received) {
+            return received.stream().map(m -> (String) m.getPayload()).toList();
+        }
+    }
+
+    @Override public String getId() { return id; }
+    @Override public void sendMessage(WebSocketMessage<?> message) throws IOException { received.add(message); }
+    @Override public boolean isOpen() { return open; }
+    @Override public void close() { close(CloseStatus.NORMAL); }
+    @Override public void close(CloseStatus status) { closeStatus = status; open = false; }
+    @Override public URI getUri() { return null; }
+    @Override public HttpHeaders getHandshakeHeaders() { return HttpHeaders.EMPTY; }
+    @Override public Map<String, Object> getAttributes() { return Map.of(); }
+    @Override public Principal getPrincipal() { return null; }
+    @Override public InetSocketAddress getLocalAddress() { return null; }
+    @Override public InetSocketAddress getRemoteAddress() { return remoteAddress; }
+    @Override public String getAcceptedProtocol() { return acceptedProtocol; }
+    @Override public void setTextMessageSizeLimit(int messageSizeLimit) { }
+    @Override public int getTextMessageSizeLimit() { return 0; }
+    @Override public void setBinaryMessageSizeLimit(int messageSizeLimit) { }
+    @Override public int getBinaryMessageSizeLimit() { return 0; }
+    @Override public List<WebSocketExtension> getExtensions() { return List.of(); }
+}
@@ -0,0 +1,181 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.AnswerBoard;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+import org.quizpans.quizpans_server.online.model.PlayerInfo;
+import org.quizpans.quizpans_server.online.model.ParticipantRole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireFormatBenchmarkTest {
+    private static final int ROUNDS = 5_000;
+
+    private final Gson gson = new GsonBuilder()
+            .serializeNulls()
+            .registerTypeAdapter(AnswerBoard.class, new AnswerBoardTypeAdapter())
+            .create();
+
+    @Test
+    void binaryRoundTripsEveryMessage() {
+        for (Map.Entry<String, JsonElement> message : messages().entrySet()) {
+            byte[] encoded = TaggedJsonCodec.encode(message.getValue());
+            assertEquals(message.getValue(), TaggedJsonCodec.decode(encoded), message.getKey());
+        }
+        JsonObject unknown = new JsonObject();
+        unknown.addProperty("nowePole", -12345678901L);
+        unknown.addProperty("ułamek", 0.25);
+        unknown.addProperty("tekst", "zażółć gęślą jaźń");
+        assertEquals(unknown, TaggedJsonCodec.decode(TaggedJsonCodec.encode(unknown)));
+    }
+
+    @Test
+    void rejectsTruncatedAndUnknownInput() {
+        byte[] encoded = TaggedJsonCodec.encode(messages().get("lobbyUpdate"));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> TaggedJsonCodec.decode(truncated));
+        assertThrows(IllegalArgumentException.class, () -> TaggedJsonCodec.decode(new byte[]{(byte) 0x7F}));
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        for (Map.Entry<String, JsonElement> message : messages().entrySet()) {
+            JsonElement tree = message.getValue();
+            byte[] json = gson.toJson(tree).getBytes(StandardCharsets.UTF_8);
+            byte[] binary = TaggedJsonCodec.encode(tree);
+            int deflated = deflatedSize(deflater, json);
+
+            long jsonEncode = time(() -> gson.toJson(tree));
+            long binaryEncode = time(() -> TaggedJsonCodec.encode(tree));
+            String jsonText = new String(json, StandardCharsets.UTF_8);
+            long jsonDecode = time(() -> JsonParser.parseString(jsonText));
+            long binaryDecode = time(() -> TaggedJsonCodec.decode(binary));
+            System.out.printf("%s: json %d B (deflate %d B), binarny %d B; kodowanie json %d ns / binarny %d ns; "
+                            + "dekodowanie json %d ns / binarny %d ns%n",
+                    message.getKey(), json.length, deflated, binary.length, jsonEncode, binaryEncode, jsonDecode, binaryDecode);
+            assertTrue(binary.length < json.length, message.getKey());
+        }
+        byte[] fullJson = gson.toJson(messages().get("lobbyUpdate")).getBytes(StandardCharsets.UTF_8);
+        assertTrue(TaggedJsonCodec.encode(messages().get("lobbyUpdate")).length * 2 < fullJson.length);
+        deflater.end();
+    }
+
+    private static int deflatedSize(Deflater deflater, byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        byte[] out = new byte[input.length + 64];
+        return deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+    }
+
+    private static long time(Runnable action) {
+        for (int i = 0; i < ROUNDS / 4; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private Map<String, JsonElement> messages() {
+        Map<String, JsonElement> messages = new LinkedHashMap<>();
+        JsonObject update = new JsonObject();
+        update.addProperty("type", "lobbyUpdate");
+        update.addProperty("version", 42);
+        update.add("lobby", lobbyView("Red", 0b0101));
+        messages.put("lobbyUpdate", update);
+
+        JsonObject patch = new JsonObject();
+        patch.addProperty("type", "lobbyPatch");
+        patch.addProperty("lobbyId", "Red");
+        patch.addProperty("baseVersion", 42);
+        patch.addProperty("version", 43);
+        JsonObject fields = new JsonObject();
+        fields.addProperty("currentAnswerTimeRemaining", 17);
+        fields.addProperty("team1Score", 55);
+        patch.add("fields", fields);
+        messages.put("lobbyPatch", patch);
+
+        JsonObject all = new JsonObject();
+        all.addProperty("type", "allLobbies");
+        JsonArray lobbies = new JsonArray();
+        for (String id : List.of("Red", "Blue", "Green", "Yellow", "Black")) {
+            lobbies.add(lobbyView(id, 0));
+        }
+        all.add("lobbies", lobbies);
+        messages.put("allLobbies", all);
+
+        JsonObject answer = new JsonObject();
+        answer.addProperty("action", "submitAnswer");
+        answer.addProperty("lobbyId", "Red");
+        answer.addProperty("answer", "Burek");
+        messages.put("submitAnswer", answer);
+
+        JsonObject ack = new JsonObject();
+        ack.addProperty("action", "ackVersion");
+        ack.addProperty("lobbyId", "Red");
+        ack.addProperty("version", 43);
+        messages.put("ackVersion", ack);
+        return messages;
+    }
+
+    private JsonObject lobbyView(String id, int revealedMask) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("id", id);
+        view.put("name", id);
+        view.put("status", "BUSY");
+        view.put("gameSettings", new GameSettings());
+        view.put("password", null);
+        view.put("hostSessionId", "host-" + id);
+        view.put("quizMaster", new PlayerInfo("host-" + id, "prowadzacy", null, ParticipantRole.QUIZ_MASTER));
+        Map<String, List<PlayerInfo>> teams = new HashMap<>();
+        for (String team : List.of("Niebiescy", "Czerwoni")) {
+            List<PlayerInfo> players = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                players.add(new PlayerInfo(team + "-" + id + "-" + i, "gracz" + i, team, ParticipantRole.PLAYER));
+            }
+            teams.put(team, players);
+        }
+        view.put("teams", teams);
+        view.put("waitingPlayers", List.of());
+        view.put("totalParticipantCount", 7);
+        view.put("maxParticipants", 13);
+        view.put("currentQuestionText", "Najpopularniejsze imię psa?");
+        view.put("isQuestionRevealed", true);
+        view.put("currentQuestionId", 1234);
+        view.put("currentRoundNumber", 2);
+        view.put("totalRounds", 5);
+        view.put("currentPlayerSessionId", "Niebiescy-" + id + "-0");
+        view.put("isTeam1Turn", true);
+        view.put("team1Score", 40);
+        view.put("team2Score", 25);
+        view.put("team1Errors", 1);
+        view.put("team2Errors", 0);
+        view.put(LobbyDeltaTracker.BOARD_FIELD, AnswerBoard.of(
+                new String[]{"Burek", "Azor", "Reksio", "Szarik", "Pluto", "Fafik"},
+                new int[]{30, 25, 15, 10, 8, 5}, revealedMask));
+        view.put("currentRoundPoints", 45);
+        view.put("currentAnswerTimeRemaining", 18);
+        view.put("hostPanelSessionId", "host-" + id);
+        return gson.toJsonTree(view).getAsJsonObject();
+    }
+}
@@ -0,0 +1,103 @@
+package org.quizpans.quizpans_server.online.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WireProtocolHandshakeTest {
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void binaryClientNegotiatesSubprotocolWithoutDeflate() throws Exception {
+        Client client = connect(List.of(WireFormat.BINARY.getSubProtocol()));
+        assertEquals(WireFormat.BINARY.getSubProtocol(), client.session.getAcceptedProtocol());
+        assertFalse(hasDeflate(client.session));
+
+        JsonObject hello = client.nextBinary();
+        assertEquals("yourSessionId", hello.get("type").getAsString());
+        assertEquals("allLobbies", client.nextBinary().get("type").getAsString());
+
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "getAllLobbies");
+        client.session.sendMessage(new BinaryMessage(TaggedJsonCodec.encode(request)));
+        JsonObject lobbies = client.nextBinary();
+        assertEquals("allLobbies", lobbies.get("type").getAsString());
+        assertEquals(5, lobbies.getAsJsonArray("lobbies").size());
+        client.session.close();
+    }
+
+    @Test
+    void jsonStaysDefaultAndGetsDeflate() throws Exception {
+        Client client = connect(List.of());
+        assertTrue(client.session.getAcceptedProtocol() == null || client.session.getAcceptedProtocol().isEmpty());
+        assertTrue(hasDeflate(client.session));
+        WebSocketMessage<?> hello = client.messages.poll(5, TimeUnit.SECONDS);
+        assertInstanceOf(TextMessage.class, hello);
+        assertEquals("yourSessionId", JsonParser.parseString(((TextMessage) hello).getPayload()).getAsJsonObject().get("type").getAsString());
+        client.session.close();
+    }
+
+    private Client connect(List<String> protocols) throws Exception {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        if (!protocols.isEmpty()) {
+            headers.setSecWebSocketProtocol(protocols);
+        }
+        headers.setSecWebSocketExtensions(List.of(new WebSocketExtension(WireProtocolHandshakeHandler.PERMESSAGE_DEFLATE)));
+        Client client = new Client();
+        client.session = new StandardWebSocketClient()
+                .execute(client, headers, URI.create("ws://localhost:" + port + "/lobby"))
+                .get(5, TimeUnit.SECONDS);
+        return client;
+    }
+
+    private static boolean hasDeflate(WebSocketSession session) {
+        return session.getExtensions().stream()
+                .anyMatch(extension -> WireProtocolHandshakeHandler.PERMESSAGE_DEFLATE.equals(extension.getName()));
+    }
+
+    private static final class Client extends AbstractWebSocketHandler {
+        private final BlockingQueue<WebSocketMessage<?>> messages = new LinkedBlockingQueue<>();
+        private WebSocketSession session;
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            messages.add(message);
+        }
+
+        @Override
+        protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+            messages.add(message);
+        }
+
+        private JsonObject nextBinary() throws InterruptedException {
+            WebSocketMessage<?> message = messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "brak wiadomosci z serwera");
+            assertInstanceOf(BinaryMessage.class, message);
+            return TaggedJsonCodec.decode(((BinaryMessage) message).getPayload()).getAsJsonObject();
+        }
+    }
+}
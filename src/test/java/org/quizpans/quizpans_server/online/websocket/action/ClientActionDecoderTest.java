@@ -0,0 +1,70 @@
+package org.quizpans.quizpans_server.online.websocket.action;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.online.model.GameSettings;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientActionDecoderTest {
+
+    @Test
+    void decodesFieldsBeforeAndAfterAction() {
+        assertEquals(new ClientAction.SubmitAnswer("Red", "Burek", "s1"),
+                ClientActionDecoder.decode("{\"lobbyId\":\"Red\",\"answer\":\"Burek\",\"action\":\"submitAnswer\",\"playerSessionId\":\"s1\"}"));
+        assertEquals(new ClientAction.AckVersion("Red", 43L),
+                ClientActionDecoder.decode("{\"action\":\"ackVersion\",\"version\":43,\"lobbyId\":\"Red\",\"extra\":[1,{\"a\":2}]}"));
+    }
+
+    @Test
+    void recordNamesMatchProtocolActions() {
+        for (String name : ClientActionDecoder.actionNames()) {
+            assertEquals(name, ClientActionDecoder.decode("{\"action\":\"" + name + "\"}").actionName());
+        }
+    }
+
+    @Test
+    void decodesTypedCollectionsAndSettings() {
+        assertEquals(new ClientAction.RequestInitialQuestion("Red", Set.of(1, 7, 12)),
+                ClientActionDecoder.decode("{\"action\":\"requestInitialQuestion\",\"lobbyId\":\"Red\",\"usedQuestionIds\":[1,7,12,7]}"));
+        assertEquals(new ClientAction.RequestNewQuestion("Red", Set.of()),
+                ClientActionDecoder.decode("{\"action\":\"requestNewQuestion\",\"lobbyId\":\"Red\"}"));
+        assertEquals(new ClientAction.ConfigureLobby("Red", new GameSettings("Zwierzęta", 20, 3, 2, "A", null), null),
+                ClientActionDecoder.decode("{\"action\":\"configureLobby\",\"lobbyId\":\"Red\",\"password\":null,"
+                        + "\"gameSettings\":{\"category\":\"Zwierzęta\",\"answerTime\":20,\"numberOfRounds\":3,"
+                        + "\"maxPlayersPerTeam\":2,\"teamBlueName\":\"A\"}}"));
+    }
+
+    @Test
+    void decodesTreeFromBinaryMessage() {
+        assertEquals(new ClientAction.ValidateAnswer("Red", "s1", true, "Burek"),
+                ClientActionDecoder.decode(JsonParser.parseString(
+                        "{\"isCorrect\":true,\"action\":\"validateAnswer\",\"lobbyId\":\"Red\",\"playerSessionId\":\"s1\",\"matchedAnswer\":\"Burek\"}")));
+    }
+
+    @Test
+    void rejectsMalformedInputWithPreciseErrors() {
+        assertError("Pole 'version' w akcji ackVersion: oczekiwano liczby całkowitej, otrzymano STRING.",
+                "{\"action\":\"ackVersion\",\"lobbyId\":\"Red\",\"version\":\"43\"}");
+        assertError("Pole 'usedQuestionIds' w akcji requestNewQuestion: oczekiwano tablicy liczb całkowitych, otrzymano NUMBER.",
+                "{\"usedQuestionIds\":5,\"action\":\"requestNewQuestion\",\"lobbyId\":\"Red\"}");
+        assertError("Pole 'usedQuestionIds' w akcji requestNewQuestion: liczba poza zakresem.",
+                "{\"action\":\"requestNewQuestion\",\"usedQuestionIds\":[4294967296]}");
+        assertError("Pole 'gameSettings.answerTime' w akcji configureLobby: oczekiwano liczby całkowitej, otrzymano BOOLEAN.",
+                "{\"action\":\"configureLobby\",\"lobbyId\":\"Red\",\"gameSettings\":{\"answerTime\":true}}");
+        assertError("Powtórzone pole 'lobbyId'.", "{\"action\":\"startGame\",\"lobbyId\":\"Red\",\"lobbyId\":\"Blue\"}");
+        assertError("Nieznana akcja: dance", "{\"lobbyId\":\"Red\",\"action\":\"dance\"}");
+        assertError("Brakująca akcja w wiadomości.", "{\"lobbyId\":\"Red\"}");
+        assertError("Pole 'action' musi być tekstem, otrzymano NUMBER.", "{\"action\":1}");
+        assertError("Wiadomość musi być obiektem JSON, otrzymano BEGIN_ARRAY.", "[]");
+        assertError("Nadmiarowe dane po wiadomości ($).", "{\"action\":\"getAllLobbies\"}{}");
+        assertThrows(MalformedActionException.class, () -> ClientActionDecoder.decode("{\"action\":\"startGame\",\"lobbyId\":"));
+    }
+
+    private static void assertError(String expected, String json) {
+        assertEquals(expected, assertThrows(MalformedActionException.class, () -> ClientActionDecoder.decode(json)).getMessage());
+    }
+}
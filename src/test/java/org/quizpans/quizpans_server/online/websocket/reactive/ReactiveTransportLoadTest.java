@@ -0,0 +1,105 @@
+package org.quizpans.quizpans_server.online.websocket.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.quizpans.quizpans_server.online.websocket.AdmissionControl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//uruchamiany recznie: mvn test -Dtest=ReactiveTransportLoadTest -Dquizpans.loadtest=true -Dquizpans.loadtest.connections=20000
+//klient i serwer w jednym procesie, kazde polaczenie zajmuje dwa deskryptory (ulimit -n)
+@EnabledIfSystemProperty(named = "quizpans.loadtest", matches = "true")
+class ReactiveTransportLoadTest {
+    private static final int IDLE_CONNECTIONS = Integer.getInteger("quizpans.loadtest.connections", 5000);
+    private static final int ACTIVE_CLIENTS = Integer.getInteger("quizpans.loadtest.active", 50);
+    private static final long MEASURE_SECONDS = Long.getLong("quizpans.loadtest.seconds", 10);
+
+    @Test
+    void latencyStaysStableWithManyIdleConnections() throws Exception {
+        //limity zetonow nie moga odrzucac ruchu, wszyscy klienci przychodza z 127.0.0.1
+        try (ReactiveTransportTest.Fixture fixture = new ReactiveTransportTest.Fixture(
+                new AdmissionControl(65536, 4096, "", 200, 1000, 1000, 1e9, 1e9, false))) {
+            List<ReactiveTransportTest.TestClient> active = connect(fixture, ACTIVE_CLIENTS);
+            measure(active, 2);
+            long[] baseline = measure(active, MEASURE_SECONDS);
+
+            long start = System.nanoTime();
+            List<ReactiveTransportTest.TestClient> idle = connect(fixture, IDLE_CONNECTIONS);
+            System.out.printf("%d bezczynnych polaczen otwartych w %d ms%n", idle.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            long[] loaded = measure(active, MEASURE_SECONDS);
+
+            report("bez bezczynnych", baseline);
+            report(IDLE_CONNECTIONS + " bezczynnych", loaded);
+            assertEquals(IDLE_CONNECTIONS, idle.size());
+            long allowedP99 = Math.max(percentile(baseline, 0.99) * 3, TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(percentile(loaded, 0.99) <= allowedP99, "p99 wzroslo po otwarciu bezczynnych polaczen");
+            idle.forEach(client -> client.connection.dispose());
+            active.forEach(client -> client.connection.dispose());
+        }
+    }
+
+    //otwiera partiami i czeka na yourSessionId oraz liste lobby
+    private static List<ReactiveTransportTest.TestClient> connect(ReactiveTransportTest.Fixture fixture, int count) throws Exception {
+        List<ReactiveTransportTest.TestClient> clients = new ArrayList<>(count);
+        for (int opened = 0; opened < count; ) {
+            List<ReactiveTransportTest.TestClient> batch = new ArrayList<>();
+            for (int i = 0; i < 500 && opened < count; i++, opened++) {
+                batch.add(fixture.connect(i % 2 == 0 ? "quizpans.json.v1" : "quizpans.bin.v1"));
+            }
+            for (ReactiveTransportTest.TestClient client : batch) {
+                client.nextJson();
+                client.nextJson();
+            }
+            clients.addAll(batch);
+        }
+        return clients;
+    }
+
+    //kazdy aktywny klient: getAllLobbies i czekanie na odpowiedz, w petli
+    private static long[] measure(List<ReactiveTransportTest.TestClient> clients, long seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ReactiveTransportTest.TestClient client : clients) {
+                results.add(executor.submit(() -> {
+                    List<Long> samples = new ArrayList<>();
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        client.sendText("{\"action\":\"getAllLobbies\"}");
+                        while (!"allLobbies".equals(client.nextJson().get("type").getAsString())) {
+                        }
+                        samples.add(System.nanoTime() - sent);
+                        Thread.sleep(20);
+                    }
+                    return samples;
+                }));
+            }
+        }
+        List<Long> all = new ArrayList<>();
+        for (Future<List<Long>> result : results) {
+            all.addAll(result.get());
+        }
+        long[] sorted = all.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static void report(String label, long[] sorted) {
+        System.out.printf("%s: %d zapytan, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", label, sorted.length,
+                percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
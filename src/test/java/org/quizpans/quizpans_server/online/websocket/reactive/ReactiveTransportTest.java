@@ -0,0 +1,162 @@
+package org.quizpans.quizpans_server.online.websocket.reactive;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.quizpans.quizpans_server.metrics.QuizpansMetrics;
+import org.quizpans.quizpans_server.online.audience.AudienceAnswerService;
+import org.quizpans.quizpans_server.online.cluster.ClusterService;
+import org.quizpans.quizpans_server.online.journal.GameJournal;
+import org.quizpans.quizpans_server.online.service.LobbyService;
+import org.quizpans.quizpans_server.online.service.SessionIndex;
+import org.quizpans.quizpans_server.online.websocket.AdmissionControl;
+import org.quizpans.quizpans_server.online.websocket.LobbyDeltaTracker;
+import org.quizpans.quizpans_server.online.websocket.LobbyListSnapshot;
+import org.quizpans.quizpans_server.online.websocket.LobbyUpdateCoalescer;
+import org.quizpans.quizpans_server.online.websocket.LobbyWebSocketHandler;
+import org.quizpans.quizpans_server.online.websocket.OverflowPolicy;
+import org.quizpans.quizpans_server.online.websocket.SessionHeartbeat;
+import org.quizpans.quizpans_server.online.websocket.SessionResume;
+import org.quizpans.quizpans_server.online.websocket.SessionOutboxManager;
+import org.quizpans.quizpans_server.online.websocket.SpectatorFeed;
+import org.quizpans.quizpans_server.online.websocket.TaggedJsonCodec;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveTransportTest {
+    private final Fixture fixture = new Fixture(new AdmissionControl(65536, 4096, "", 200, 20, 40, 100, 200, false));
+
+    @AfterEach
+    void stop() {
+        fixture.close();
+    }
+
+    @Test
+    void drivesLobbyCommandsOverJson() throws Exception {
+        TestClient client = fixture.connect("quizpans.json.v1");
+        assertEquals("yourSessionId", client.nextJson().get("type").getAsString());
+        assertEquals("allLobbies", client.nextJson().get("type").getAsString());
+        assertEquals("quizpans.json.v1", client.protocol);
+
+        client.sendText("{\"action\":\"getAllLobbies\"}");
+        assertEquals("allLobbies", client.nextJson().get("type").getAsString());
+        client.sendText("{\"action\":\"dance\"}");
+        JsonObject error = client.nextJson();
+        assertEquals("error", error.get("type").getAsString());
+        assertEquals("Nieznana akcja: dance", error.get("message").getAsString());
+    }
+
+    @Test
+    void negotiatesBinaryWireFormat() throws Exception {
+        TestClient client = fixture.connect("quizpans.bin.v1");
+        assertEquals("yourSessionId", client.nextJson().get("type").getAsString());
+        assertEquals("quizpans.bin.v1", client.protocol);
+        client.nextJson();
+
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "getAllLobbies");
+        client.sendBinary(TaggedJsonCodec.encode(request));
+        assertEquals("allLobbies", client.nextJson().get("type").getAsString());
+    }
+
+    @Test
+    void unregistersSessionWhenClientDisconnects() throws Exception {
+        TestClient client = fixture.connect("quizpans.json.v1");
+        String sessionId = client.nextJson().get("sessionId").getAsString();
+        client.nextJson();
+        client.connection.dispose();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (fixture.outboxManager.queueDepths().containsKey(sessionId)) {
+            assertTrue(System.nanoTime() < deadline, "sesja nie zostala zamknieta po rozlaczeniu klienta");
+            Thread.sleep(10);
+        }
+    }
+
+    static final class Fixture implements AutoCloseable {
+        final SessionOutboxManager outboxManager = new SessionOutboxManager(256, 1 << 20, 5000, OverflowPolicy.COALESCE);
+        final ReactiveLobbyServer server;
+        //bez puli polaczen: kazdy klient to osobne gniazdo
+        final HttpClient http = HttpClient.newConnection();
+
+        Fixture(AdmissionControl admission) {
+            SessionIndex sessionIndex = new SessionIndex();
+            GameJournal journal = new GameJournal(false, "target/journal", 1, 16, 16);
+            LobbyService lobbyService = new LobbyService(null, journal, sessionIndex);
+            ClusterService clusterService = new ClusterService(lobbyService, null, false, "node-1", "in-process", 0, "", 16);
+            SessionHeartbeat heartbeat = new SessionHeartbeat(0, 0, outboxManager);
+            LobbyWebSocketHandler handler = new LobbyWebSocketHandler(lobbyService, clusterService, sessionIndex,
+                    new LobbyDeltaTracker(16, 32), outboxManager, new LobbyUpdateCoalescer(0), admission, heartbeat,
+                    new LobbyListSnapshot(lobbyService), new SpectatorFeed(32, 10000, outboxManager), new AudienceAnswerService(1, 1024, 250), new SessionResume(0), QuizpansMetrics.standalone());
+            server = new ReactiveLobbyServer(handler, true, 0, 64, 65536);
+            server.start();
+        }
+
+        TestClient connect(String protocol) {
+            return new TestClient(http, server.getPort(), protocol);
+        }
+
+        @Override
+        public void close() {
+            server.stop();
+        }
+    }
+
+    //ramki tekstowe jako tekst, binarne od razu zdekodowane do json
+    static final class TestClient {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final Sinks.Many<WebSocketFrame> outbound = Sinks.many().unicast().onBackpressureBuffer();
+        final Disposable connection;
+        volatile String protocol;
+
+        TestClient(HttpClient http, int port, String subProtocol) {
+            connection = http.websocket(WebsocketClientSpec.builder().protocols(subProtocol).build())
+                    .uri("ws://127.0.0.1:" + port + "/lobby")
+                    .handle((in, out) -> {
+                        protocol = in.selectedSubprotocol();
+                        return Mono.when(in.receiveFrames().doOnNext(frame -> received.add(decode(frame))).then(),
+                                out.sendObject(outbound.asFlux()).then());
+                    })
+                    .subscribe();
+        }
+
+        synchronized void sendText(String json) {
+            outbound.tryEmitNext(new TextWebSocketFrame(json));
+        }
+
+        synchronized void sendBinary(byte[] payload) {
+            outbound.tryEmitNext(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(payload)));
+        }
+
+        JsonObject nextJson() throws InterruptedException {
+            String message = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(message, "brak wiadomosci od serwera");
+            return JsonParser.parseString(message).getAsJsonObject();
+        }
+
+        private static String decode(WebSocketFrame frame) {
+            if (frame instanceof BinaryWebSocketFrame) {
+                byte[] payload = new byte[frame.content().readableBytes()];
+                frame.content().getBytes(frame.content().readerIndex(), payload);
+                return TaggedJsonCodec.decode(payload).toString();
+            }
+            return frame.content().toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.quizpans.quizpans_server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @Test
+    void distinctKeysNeverGrowPastTwoGenerations() {
+        BoundedCache<String> cache = new BoundedCache<>(100);
+        for (int i = 0; i < 100_000; i++) {
+            String answer = "odpowiedz-" + i;
+            assertEquals(answer.toUpperCase(), cache.get(answer, String::toUpperCase));
+            assertTrue(cache.size() <= 200, "rozmiar " + cache.size());
+        }
+    }
+
+    @Test
+    void repeatedKeySurvivesFloodOfOneOffAnswers() {
+        BoundedCache<String> cache = new BoundedCache<>(100);
+        AtomicInteger computed = new AtomicInteger();
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("lodowka", key -> {
+                computed.incrementAndGet();
+                return key;
+            });
+            cache.get("spam-" + i, key -> key);
+        }
+        assertEquals(1, computed.get());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}